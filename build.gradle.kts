@@ -106,6 +106,9 @@ fun SourceSetContainer.javaFxExample(block: SourceSet.() -> Unit) = javaFxExampl
 val SourceSetContainer.swtExample: SourceSet get() = maybeCreate("swtExample")
 fun SourceSetContainer.swtExample(block: SourceSet.() -> Unit) = swtExample.apply(block)
 
+// pre-rendered icons (see the 'iconBundle' task)
+val iconBundleDir = File(buildDir, "iconBundle")
+
 sourceSets {
     main {
         java {
@@ -154,6 +157,9 @@ sourceSets {
             include("dorkbox/*.png")
 
             srcDir(sourceSets["main"].resources)
+
+            srcDir(iconBundleDir)
+            include("META-INF/systemTray/*.bundle")
         }
     }
 
@@ -350,6 +356,39 @@ task<JavaExec>("swtExample") {
 }
 
 
+///////////////////////////////
+//////    Pre-render icons at build time
+///////////////////////////////
+// Every icon (in -PiconDir=...) is resized for all of the common tray/menu sizes (and scale factors), with the same algorithm that
+// is used at runtime. The result is a single indexed bundle, which ImageResizeUtil uses before resizing anything itself.
+//  Applications do the same thing, and add the bundle to their jar as 'META-INF/systemTray/icons.bundle'
+task<JavaExec>("iconBundle") {
+    group = BasePlugin.BUILD_GROUP
+    description = "Pre-render the icons for all common tray/menu sizes into a bundle, so they are not resized at runtime"
+
+    val iconDir = file(project.findProperty("iconDir") ?: "test/dorkbox")
+    val sizes = (project.findProperty("iconSizes") ?: "16,22,24,32,48").toString()
+    val scales = (project.findProperty("iconScales") ?: "1,1.25,1.5,2").toString()
+    val bundle = File(iconBundleDir, "META-INF/systemTray/icons.bundle")
+
+    inputs.dir(iconDir)
+    inputs.property("sizes", sizes)
+    inputs.property("scales", scales)
+    outputs.file(bundle)
+
+    classpath = sourceSets["main"].runtimeClasspath
+    main = "dorkbox.systemTray.util.IconBundle"
+
+    // resized images are written here, instead of the cache of whoever runs the build
+    systemProperty("java.io.tmpdir", temporaryDir.absolutePath)
+    args = listOf(bundle.absolutePath, sizes, scales, iconDir.absolutePath)
+}
+
+tasks.named("processExampleResources") {
+    dependsOn("iconBundle")
+}
+
+
 /////////////////////////////
 ////    Jar Tasks
 /////////////////////////////
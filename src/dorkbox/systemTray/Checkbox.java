@@ -29,14 +29,12 @@ import dorkbox.util.SwingUtil;
 @SuppressWarnings("unused")
 public
 class Checkbox extends Entry {
-    private volatile boolean isChecked = false;
     private volatile String text;
     private volatile ActionListener callback;
-
-    private volatile boolean enabled = true;
-    private volatile char mnemonicKey;
     private volatile String tooltip;
 
+    // checked (default is false), enabled (default is true) and the shortcut key are in the state of the entry
+
     public
     Checkbox() {
         this(null, null);
@@ -89,11 +87,8 @@ class Checkbox extends Entry {
     void bind(final CheckboxPeer peer, final Menu parent, final SystemTray systemTray) {
         super.bind(peer, parent, systemTray);
 
-        peer.setEnabled(this);
-        peer.setText(this);
-        peer.setCallback(this);
-        peer.setShortcut(this);
-        peer.setChecked(this);
+        // everything at once, so the native entry is only updated (and laid out) once
+        peer.update(this, CheckboxPeer.ALL);
     }
 
     /**
@@ -101,7 +96,7 @@ class Checkbox extends Entry {
      */
     public
     boolean getChecked() {
-        return isChecked;
+        return hasState(STATE_CHECKED);
     }
 
     /**
@@ -111,7 +106,7 @@ class Checkbox extends Entry {
      */
     public
     void setChecked(boolean isChecked) {
-        this.isChecked = isChecked;
+        setState(STATE_CHECKED, isChecked);
 
         if (peer != null) {
             ((CheckboxPeer) peer).setChecked(this);
@@ -133,6 +128,9 @@ class Checkbox extends Entry {
      */
     public
     void setCallback(final ActionListener callback) {
+        if (this.callback == callback) {
+            return;
+        }
         this.callback = callback;
         if (peer != null) {
             ((CheckboxPeer) peer).setCallback(this);
@@ -144,7 +142,7 @@ class Checkbox extends Entry {
      */
     public
     boolean getEnabled() {
-        return this.enabled;
+        return hasState(STATE_ENABLED);
     }
 
     /**
@@ -152,7 +150,9 @@ class Checkbox extends Entry {
      */
     public
     void setEnabled(final boolean enabled) {
-        this.enabled = enabled;
+        if (!setState(STATE_ENABLED, enabled)) {
+            return;
+        }
 
         if (peer != null) {
             ((CheckboxPeer) peer).setEnabled(this);
@@ -174,6 +174,9 @@ class Checkbox extends Entry {
      */
     public
     void setText(final String text) {
+        if (MenuItem.equal(this.text, text)) {
+            return;
+        }
         this.text = text;
 
         if (peer != null) {
@@ -190,7 +193,7 @@ class Checkbox extends Entry {
      */
     public
     char getShortcut() {
-        return this.mnemonicKey;
+        return getMnemonic_();
     }
 
     /**
@@ -203,7 +206,9 @@ class Checkbox extends Entry {
      */
     public
     void setShortcut(final char key) {
-        this.mnemonicKey = key;
+        if (!setMnemonic_(key)) {
+            return;
+        }
 
         if (peer != null) {
             ((CheckboxPeer) peer).setShortcut(this);
@@ -220,7 +225,9 @@ class Checkbox extends Entry {
      */
     public
     void setShortcut(final int key) {
-        this.mnemonicKey = SwingUtil.getFromVirtualKey(key);
+        if (!setMnemonic_(SwingUtil.getFromVirtualKey(key))) {
+            return;
+        }
 
         if (peer != null) {
             ((CheckboxPeer) peer).setShortcut(this);
@@ -239,18 +246,11 @@ class Checkbox extends Entry {
      */
     public
     void setTooltip(final String tooltipText) {
-        if (tooltipText != null) {
-            // this is a safety precaution, since the behavior of really long text is undefined.
-            if (tooltipText.length() > 64) {
-                throw new RuntimeException("Tooltip text cannot be longer than 64 characters.");
-            }
+        MenuItem.checkTooltip(tooltipText);
 
-            if (!MenuItem.alreadyEmittedTooltipWarning) {
-                MenuItem.alreadyEmittedTooltipWarning = true;
-                SystemTray.logger.warn("Please disable tooltips, as they are not consistent across all platforms and tray types.");
-            }
+        if (MenuItem.equal(this.tooltip, tooltipText)) {
+            return;
         }
-
         this.tooltip = tooltipText;
 
         if (peer != null) {
@@ -269,6 +269,47 @@ class Checkbox extends Entry {
     }
 
 
+    /**
+     * Changes several properties of this entry at once. Only what is actually different is changed, and everything is changed with
+     * a single update of the native entry (instead of one update, and re-layout, per property).
+     * <p>
+     * Nothing is changed until {@link Update#apply()} is called. See {@link MenuItem#update()}
+     */
+    public
+    Update update() {
+        return new Update(this);
+    }
+
+    void apply(final Update update) {
+        int changes = 0;
+
+        if ((update.changes & CheckboxPeer.ENABLED) != 0 && setState(STATE_ENABLED, update.enabled)) {
+            changes |= CheckboxPeer.ENABLED;
+        }
+        if ((update.changes & CheckboxPeer.TEXT) != 0 && !MenuItem.equal(this.text, update.text)) {
+            this.text = update.text;
+            changes |= CheckboxPeer.TEXT;
+        }
+        if ((update.changes & CheckboxPeer.CALLBACK) != 0 && this.callback != update.callback) {
+            this.callback = update.callback;
+            changes |= CheckboxPeer.CALLBACK;
+        }
+        if ((update.changes & CheckboxPeer.SHORTCUT) != 0 && setMnemonic_(update.mnemonicKey)) {
+            changes |= CheckboxPeer.SHORTCUT;
+        }
+        if ((update.changes & CheckboxPeer.TOOLTIP) != 0 && !MenuItem.equal(this.tooltip, update.tooltip)) {
+            this.tooltip = update.tooltip;
+            changes |= CheckboxPeer.TOOLTIP;
+        }
+        if ((update.changes & CheckboxPeer.CHECKED) != 0 && setState(STATE_CHECKED, update.isChecked)) {
+            changes |= CheckboxPeer.CHECKED;
+        }
+
+        if (changes != 0 && peer != null) {
+            ((CheckboxPeer) peer).update(this, changes);
+        }
+    }
+
     /**
      * @return a copy of this Checkbox as a swing JCheckBoxMenuItem, with all elements converted to their respective swing elements. Modifications to the elements of the new JCheckBoxMenuItem will not affect anything, as they are all copies
      */
@@ -286,4 +327,88 @@ class Checkbox extends Entry {
 
         return jCheckBoxMenuItem;
     }
+
+
+    /**
+     * Several changes to a {@link Checkbox} that are applied all at once, see {@link Checkbox#update()}.
+     */
+    public static final
+    class Update {
+        private final Checkbox checkbox;
+
+        // what has been set, see CheckboxPeer
+        private int changes = 0;
+
+        private boolean enabled;
+        private String text;
+        private ActionListener callback;
+        private char mnemonicKey;
+        private String tooltip;
+        private boolean isChecked;
+
+        private
+        Update(final Checkbox checkbox) {
+            this.checkbox = checkbox;
+        }
+
+        public
+        Update setText(final String text) {
+            this.text = text;
+            changes |= CheckboxPeer.TEXT;
+            return this;
+        }
+
+        public
+        Update setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+            changes |= CheckboxPeer.ENABLED;
+            return this;
+        }
+
+        public
+        Update setCallback(final ActionListener callback) {
+            this.callback = callback;
+            changes |= CheckboxPeer.CALLBACK;
+            return this;
+        }
+
+        public
+        Update setShortcut(final char key) {
+            this.mnemonicKey = key;
+            changes |= CheckboxPeer.SHORTCUT;
+            return this;
+        }
+
+        public
+        Update setShortcut(final int key) {
+            return setShortcut(SwingUtil.getFromVirtualKey(key));
+        }
+
+        /**
+         * See {@link Checkbox#setTooltip(String)}
+         */
+        public
+        Update setTooltip(final String tooltipText) {
+            MenuItem.checkTooltip(tooltipText);
+
+            this.tooltip = tooltipText;
+            changes |= CheckboxPeer.TOOLTIP;
+            return this;
+        }
+
+        public
+        Update setChecked(final boolean isChecked) {
+            this.isChecked = isChecked;
+            changes |= CheckboxPeer.CHECKED;
+            return this;
+        }
+
+        /**
+         * Applies everything that was set (and is different) to the menu entry, with a single update of the native entry.
+         */
+        public
+        void apply() {
+            checkbox.apply(this);
+        }
+    }
 }
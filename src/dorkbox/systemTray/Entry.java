@@ -15,7 +15,7 @@
  */
 package dorkbox.systemTray;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import dorkbox.systemTray.peer.EntryPeer;
 
@@ -25,14 +25,28 @@ import dorkbox.systemTray.peer.EntryPeer;
 @SuppressWarnings({"unused", "SameParameterValue"})
 public
 class Entry {
-    private static final AtomicInteger MENU_ID_COUNTER = new AtomicInteger(0);
-    private final int id = Entry.MENU_ID_COUNTER.getAndIncrement();
+    // the flags in 'state'
+    static final int STATE_VISIBLE = 1;
+    static final int STATE_ENABLED = 1 << 1;
+    static final int STATE_CHECKED = 1 << 2;
+    static final int STATE_IMAGE_PENDING = 1 << 3;
+
+    // the mnemonic is in the upper 16 bits of 'state'
+    private static final int MNEMONIC_SHIFT = 16;
+
+    private static final AtomicIntegerFieldUpdater<Entry> STATE = AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
 
     private volatile Menu parent;
     private volatile SystemTray systemTray;
 
     protected volatile EntryPeer peer;
 
+    // the flags and the mnemonic of this entry. There can be a lot of entries, so these are one field instead of one field each
+    private volatile int state = STATE_VISIBLE | STATE_ENABLED;
+
+    // what this entry was created (or last changed) from by Menu.reconcile(), null if it was not
+    volatile MenuModel model;
+
     public
     Entry() {
     }
@@ -51,6 +65,27 @@ class Entry {
         this.systemTray = systemTray;
 
         this.peer = peer;
+
+        if (!isVisible()) {
+            peer.setVisible(this);
+        }
+    }
+
+    /**
+     * Called when this entry is added to a menu, which is before it is bound when the native entries of that menu have not been made yet.
+     */
+    void setParent(final Menu parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Detaches this entry from its peer WITHOUT removing the peer, so that the peer can be used by a different entry.
+     */
+    void unbind() {
+        this.parent = null;
+        this.systemTray = null;
+
+        this.peer = null;
     }
 
     // END methods for hooking into the system tray, menu's, and entries.
@@ -80,6 +115,38 @@ class Entry {
         return this.systemTray;
     }
 
+    /**
+     * @return true if this entry is shown in its menu. Hidden entries are still in the menu (and are still in {@link Menu#getEntries()})
+     */
+    public final
+    boolean isVisible() {
+        return hasState(STATE_VISIBLE);
+    }
+
+    /**
+     * Hides or shows this entry, without removing it from the menu. This is much less work than removing the entry and adding it back
+     * again, because the entry (and all of its system resources) are kept.
+     * <p>
+     * Hidden entries are skipped by {@link Menu#get(int)}, {@link Menu#getFirst()} and {@link Menu#getLast()}.
+     *
+     * @param visible true to show this entry, false to hide it
+     */
+    public
+    void setVisible(final boolean visible) {
+        if (!setState(STATE_VISIBLE, visible)) {
+            return;
+        }
+
+        final Menu parent = getParent();
+        if (parent != null) {
+            parent.menuEntries.visibilityChanged();
+        }
+
+        if (peer != null) {
+            peer.setVisible(this);
+        }
+    }
+
     /**
      * Removes this menu entry from the menu and releases all system resources associated with this menu entry.
      */
@@ -95,27 +162,75 @@ class Entry {
     }
 
 
+    /**
+     * @return true if the flag (of 'state') is set
+     */
+    final
+    boolean hasState(final int flag) {
+        return (state & flag) != 0;
+    }
+
+    /**
+     * Sets or clears the flag (of 'state'), without changing anything else in it.
+     *
+     * @return true if it was changed
+     */
+    final
+    boolean setState(final int flag, final boolean value) {
+        while (true) {
+            final int current = state;
+            final int next = value ? current | flag : current & ~flag;
+
+            if (current == next) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the mnemonic (which is kept in 'state'), 0 if there is none
+     */
+    final
+    char getMnemonic_() {
+        return (char) (state >>> MNEMONIC_SHIFT);
+    }
+
+    /**
+     * Sets the mnemonic (which is kept in 'state'), without changing anything else in it.
+     *
+     * @return true if it was changed
+     */
+    final
+    boolean setMnemonic_(final char key) {
+        while (true) {
+            final int current = state;
+            final int next = (current & ((1 << MNEMONIC_SHIFT) - 1)) | (key << MNEMONIC_SHIFT);
+
+            if (current == next) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, next)) {
+                return true;
+            }
+        }
+    }
+
+
     @Override
     public final
     int hashCode() {
-        return id;
+        // every entry is different from every other entry
+        return System.identityHashCode(this);
     }
 
 
     @Override
     public final
     boolean equals(Object obj) {
-        if (this == obj) {
-            return true;
-        }
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
-            return false;
-        }
-
-        Entry other = (Entry) obj;
-        return this.id == other.id;
+        // every entry is different from every other entry
+        return this == obj;
     }
 }
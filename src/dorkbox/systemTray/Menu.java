@@ -24,8 +24,13 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -34,6 +39,9 @@ import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JSeparator;
 
+import dorkbox.systemTray.peer.CheckboxPeer;
+import dorkbox.systemTray.peer.EntryPeer;
+import dorkbox.systemTray.peer.MenuItemPeer;
 import dorkbox.systemTray.peer.MenuPeer;
 import dorkbox.systemTray.util.EventDispatch;
 import dorkbox.util.SwingUtil;
@@ -44,8 +52,50 @@ import dorkbox.util.SwingUtil;
 @SuppressWarnings("unused")
 public
 class Menu extends MenuItem {
-    // access on this object must be synchronized for object visibility
-    final List<Entry> menuEntries = new ArrayList<Entry>();
+    public
+    interface Provider {
+        /**
+         * Called (on the event dispatch) when the menu is about to be shown, see {@link Menu#setProvider(Provider, long)}.
+         *
+         * @param menu the menu that is about to be shown
+         *
+         * @return what the menu should look like (see {@link MenuModel#root(MenuModel...)}), or null to keep it as it is
+         */
+        MenuModel getMenu(Menu menu);
+    }
+
+    // reading is lock-free, changes are guarded by this object
+    final MenuEntries menuEntries = new MenuEntries();
+
+    // true once this menu has been shown (or when the native menu cannot tell us when it's shown). Images are resolved after this.
+    private volatile boolean hasBeenShown = false;
+
+    // false until the native entries of this menu are made, which is when this menu can be seen soon (see SystemTray.LAZY_MENUS)
+    private volatile boolean hasNativeEntries = false;
+
+    // the entries of this menu are made by the provider (when it is about to be shown), null if they are added directly.
+    // This is only created when there is a provider, so that (the many) menus without one do not need room for it
+    private volatile Providing providing = null;
+
+    /**
+     * The provider of a menu, and when it last made the entries. A new one is made every time the provider is set.
+     */
+    private static final
+    class Providing {
+        private final Provider provider;
+        private final long timeoutNanos;
+
+        // when the provider last made the entries, only valid if 'hasProvided' is true
+        private volatile long providedTime = 0L;
+        private volatile boolean hasProvided = false;
+        private final AtomicBoolean isProviding = new AtomicBoolean(false);
+
+        private
+        Providing(final Provider provider, final long timeoutNanos) {
+            this.provider = provider;
+            this.timeoutNanos = timeoutNanos;
+        }
+    }
 
     public
     Menu() {
@@ -155,16 +205,222 @@ class Menu extends MenuItem {
     void bind(final MenuPeer peer, final Menu parent, final SystemTray systemTray) {
         super.bind(peer, parent, systemTray);
 
-        List<Entry> copy;
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            // a copy is made to prevent deadlocks from occurring when operating in different threads
-            copy = new ArrayList<Entry>(menuEntries);
+        // the native entries of a sub-menu are only made once the menu it is in has been shown, because until then it cannot be opened.
+        // For the sub-menus in the tray menu, that is when the tray tells us its menu is opening (see Tray#onMenuOpening)
+        if (!SystemTray.LAZY_MENUS || parent == null || parent.hasBeenShown() || hasBeenShown) {
+            addNativeEntries_();
+        }
+    }
+
+    /**
+     * Makes the native entries of this menu (if they have not been made yet).
+     * <p>
+     * Must be called on the event dispatch, or from the platform specific implementation while it is binding this menu.
+     */
+    private
+    void addNativeEntries_() {
+        final MenuPeer peer = (MenuPeer) this.peer;
+        if (peer == null || hasNativeEntries) {
+            return;
+        }
+        hasNativeEntries = true;
+
+        // this never changes, even if the menu does
+        final List<Entry> copy = menuEntries.getAll();
+        if (copy.isEmpty()) {
+            return;
+        }
+
+        final int[] indexes = new int[copy.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+
+        peer.addAll(this, copy, indexes);
+    }
+
+    /**
+     * @return true if a native entry has to be made for the entry (which was just added to this menu). Until the native entries of
+     *         this menu are made, entries are only kept in this menu. Must be called on the event dispatch.
+     */
+    private
+    boolean needsNativeEntry_(final Entry entry) {
+        // this can happen while they were made (the entry was added, and its native entry was then made with the others)
+        return peer != null && hasNativeEntries && !entry.hasPeer();
+    }
+
+    /**
+     * Called by the platform specific implementation when this menu is about to be shown (or right away, if the native menu cannot
+     * tell us when that happens). Images of entries in this menu are not resized + cached until this happens.
+     * <p>
+     * This is called internally, and should not be called by anything else.
+     */
+    public
+    void onShowing() {
+        final Providing providing = this.providing;
+        if (providing != null) {
+            provide(providing);
+        }
+
+        if (!hasNativeEntries) {
+            // the menu it is in was not shown first (the platform did not tell us), so the entries are made now. The platform puts them
+            // into the menu while it is open, it does not rebuild it
+            EventDispatch.runLater(new Runnable() {
+                @Override
+                public
+                void run() {
+                    addNativeEntries_();
+                }
+            });
+        }
+
+        // this never changes, even if the menu does
+        final List<Entry> copy = menuEntries.getAll();
+
+        // the sub-menus can be opened next. Their entries are made now, so they are (usually) ready before the sub-menu is shown
+        for (int i = 0, menuEntriesSize = copy.size(); i < menuEntriesSize; i++) {
+            final Entry menuEntry = copy.get(i);
+            if (menuEntry instanceof Menu) {
+                final Menu subMenu = (Menu) menuEntry;
+
+                if (!subMenu.hasNativeEntries) {
+                    // we are on the UI thread, and adding entries has to happen on the event dispatch
+                    EventDispatch.runLater(new Runnable() {
+                        @Override
+                        public
+                        void run() {
+                            subMenu.addNativeEntries_();
+                        }
+                    });
+                }
+
+                final Providing subMenuProviding = subMenu.providing;
+                if (subMenuProviding != null) {
+                    subMenu.provide(subMenuProviding);
+                }
+            }
+        }
+
+        if (hasBeenShown) {
+            return;
+        }
+        hasBeenShown = true;
+
+        for (int i = 0, menuEntriesSize = copy.size(); i < menuEntriesSize; i++) {
+            final Entry menuEntry = copy.get(i);
+            if (menuEntry instanceof MenuItem) {
+                ((MenuItem) menuEntry).resolveImage();
+            }
+        }
+    }
+
+    boolean hasBeenShown() {
+        return hasBeenShown;
+    }
+
+    /**
+     * Makes the entries of this menu with the provider, unless the entries it made last time are still good.
+     */
+    private
+    void provide(final Providing providing) {
+        if (!providing.isProviding.compareAndSet(false, true)) {
+            // the entries are already being made
+            return;
+        }
+
+        final long timeout = providing.timeoutNanos;
+        if (providing.hasProvided && (timeout < 0 || System.nanoTime() - providing.providedTime < timeout)) {
+            providing.isProviding.set(false);
+            return;
+        }
+
+        // this can be slow (it is the user's code) so it never runs on the UI thread (which is where we are told the menu is showing)
+        EventDispatch.runLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    final MenuModel model = providing.provider.getMenu(Menu.this);
+
+                    if (model != null && Menu.this.providing == providing) {
+                        // everything is changed as a single event, and the entries that are still the same are kept
+                        reconcile(model);
+                    }
+
+                    providing.providedTime = System.nanoTime();
+                    providing.hasProvided = true;
+                } catch (Throwable throwable) {
+                    SystemTray.logger.error("Error getting the entries of menu {}.", getText(), throwable);
+                } finally {
+                    providing.isProviding.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #setProvider(Provider, long)}, but the provider is called every time this menu is about to be shown.
+     */
+    public
+    void setProvider(final Provider provider) {
+        setProvider(provider, 0L);
+    }
+
+    /**
+     * Sets what makes the entries of this menu. Instead of being made (and kept) up front, the entries are only made when the menu this is
+     * in is shown (so that they are usually ready before this menu can be opened), and again right before this menu is shown. This is
+     * much less work for menus that are big or are not opened often.
+     * <p>
+     * The entries made by the provider replace the entries of this menu (except for the status), by using {@link #reconcile(MenuModel)}.
+     * <p>
+     * Some native menus (AppIndicator and macOS) cannot tell us when a sub-menu is about to be shown, so the provider is called right
+     * away for them (and is not called again).
+     *
+     * @param provider makes the entries of this menu, null to stop making them (the entries are kept)
+     * @param timeoutMillis how long the entries that were made are good for. The provider is not called again (when the menu is about to
+     *                      be shown) until this has passed. 0 to call it every time, or negative to only ever call it once.
+     */
+    public
+    void setProvider(final Provider provider, final long timeoutMillis) {
+        if (provider == null) {
+            this.providing = null;
+            return;
         }
 
+        final Providing providing = new Providing(provider, timeoutMillis < 0 ? -1L : TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        this.providing = providing;
+
+        if (hasBeenShown) {
+            // the menu was already shown, and some native menus will never tell us again
+            provide(providing);
+        }
+    }
+
+    /**
+     * Resizes the images of this menu and of all of its entries (and sub-menus) again, because the image size has changed.
+     *
+     * @param updates collects what must run to show the resized images, so that they can all be shown at the same time
+     */
+    void refreshImages(final List<Runnable> updates) {
+        final Runnable update = refreshImage();
+        if (update != null) {
+            updates.add(update);
+        }
+
+        // this never changes, even if the menu does
+        final List<Entry> copy = menuEntries.getAll();
+
         for (int i = 0, menuEntriesSize = copy.size(); i < menuEntriesSize; i++) {
             final Entry menuEntry = copy.get(i);
-            peer.add(this, menuEntry, i);
+            if (menuEntry instanceof Menu) {
+                ((Menu) menuEntry).refreshImages(updates);
+            }
+            else if (menuEntry instanceof MenuItem) {
+                final Runnable entryUpdate = ((MenuItem) menuEntry).refreshImage();
+                if (entryUpdate != null) {
+                    updates.add(entryUpdate);
+                }
+            }
         }
     }
 
@@ -218,14 +474,15 @@ class Menu extends MenuItem {
      */
     public
     <T extends Entry> T add(final T entry, final int index) {
+        entry.setParent(this);
+
         final int insertIndex;
         synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
+            // changes on this object must be synchronized, so that the status check and the add happen together
             if (index == -1) {
-                insertIndex = menuEntries.size();
-                menuEntries.add(entry);
+                insertIndex = menuEntries.add(entry);
             } else {
-                if (!menuEntries.isEmpty() && menuEntries.get(0) instanceof Status) {
+                if (menuEntries.getFirstEntry() instanceof Status) {
                     // the "status" menu entry is ALWAYS first
                     insertIndex = index+1;
                 } else {
@@ -242,7 +499,9 @@ class Menu extends MenuItem {
                 @Override
                 public
                 void run() {
-                    ((MenuPeer) peer).add(Menu.this, entry, insertIndex);
+                    if (needsNativeEntry_(entry)) {
+                        ((MenuPeer) peer).add(Menu.this, entry, insertIndex);
+                    }
                 }
             });
         }
@@ -251,76 +510,480 @@ class Menu extends MenuItem {
     }
 
     /**
-     * Gets the first menu entry or sub-menu, ignoring status and separators
+     * Adds all of the entries to the end of this menu, as a single event for the platform specific implementation.
      */
-    public final
-    Entry getFirst() {
-        return get(0);
+    void addAll(final List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            entries.get(i).setParent(this);
+        }
+
+        final int startIndex = menuEntries.addAll(entries);
+
+        if (peer != null) {
+            // all ADD/REMOVE events have to be queued on our own dispatch thread, so the execution order of the events can be maintained.
+            EventDispatch.run(new Runnable() {
+                @Override
+                public
+                void run() {
+                    final List<Entry> added = new ArrayList<Entry>(entries.size());
+                    final int[] indexes = new int[entries.size()];
+
+                    for (int i = 0, size = entries.size(); i < size; i++) {
+                        final Entry entry = entries.get(i);
+                        if (needsNativeEntry_(entry)) {
+                            indexes[added.size()] = startIndex + i;
+                            added.add(entry);
+                        }
+                    }
+
+                    if (!added.isEmpty()) {
+                        ((MenuPeer) peer).addAll(Menu.this, added, indexes);
+                    }
+                }
+            });
+        }
     }
 
     /**
-     * Gets the last menu entry or sub-menu, ignoring status and separators
+     * Moves a menu entry, separator, or sub-menu (which is already in this menu) to a different place in this menu. The native entry is
+     * moved, it is not re-created.
+     *
+     * @param entry the entry to move
+     * @param index the index it is moved to. The status is ALWAYS first, so it is not counted.
+     *
+     * @throws IllegalArgumentException if the entry is the status
+     * @throws IndexOutOfBoundsException if the index is not in this menu
      */
     public
-    Entry getLast() {
+    void move(final Entry entry, final int index) {
+        if (entry instanceof Status) {
+            throw new IllegalArgumentException("The status is always first, and cannot be moved");
+        }
+
+        final int moveIndex;
         synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            if (!menuEntries.isEmpty()) {
-                Entry entry;
-                for (int i = menuEntries.size() - 1; i >= 0; i--) {
-                    entry = menuEntries.get(i);
-
-                    if (!(entry instanceof Separator || entry instanceof Status)) {
-                        return entry;
-                    }
+            // changes on this object must be synchronized, so that the status check and the move happen together
+            if (menuEntries.getFirstEntry() instanceof Status) {
+                // the "status" menu entry is ALWAYS first
+                moveIndex = index+1;
+            } else {
+                moveIndex = index;
+            }
+
+            if (!menuEntries.move(entry, moveIndex)) {
+                // not in this menu, or it is already there
+                return;
+            }
+        }
+
+        if (peer != null) {
+            // all ADD/REMOVE events have to be queued on our own dispatch thread, so the execution order of the events can be maintained.
+            EventDispatch.run(new Runnable() {
+                @Override
+                public
+                void run() {
+                    moveNative_(entry, moveIndex);
                 }
+            });
+        }
+    }
+
+    /**
+     * Replaces a menu entry, separator, or sub-menu in this menu with a different one, in the same place.
+     * <p>
+     * If they are the same type (and are not sub-menus), the native entry is kept and is changed to look like the replacement.
+     * Otherwise, the entry is removed and the replacement is added.
+     *
+     * @param entry the entry to replace, which is removed from this menu
+     * @param replacement the entry to put where it was
+     *
+     * @return the replacement
+     *
+     * @throws IllegalArgumentException if the entry is not in this menu
+     */
+    public
+    <T extends Entry> T replace(final Entry entry, final T replacement) {
+        if (entry == replacement) {
+            return replacement;
+        }
+
+        replacement.setParent(this);
+
+        final int index = menuEntries.replace(entry, replacement);
+        if (index == -1) {
+            throw new IllegalArgumentException("The entry is not in this menu");
+        }
+
+        if (peer != null) {
+            // all ADD/REMOVE events have to be queued on our own dispatch thread, so the execution order of the events can be maintained.
+            EventDispatch.run(new Runnable() {
+                @Override
+                public
+                void run() {
+                    replaceNative_(entry, replacement, index);
+                }
+            });
+        }
+
+        return replacement;
+    }
+
+    /**
+     * Moves the native entry to the exact index (the status is included in the index). Must be called on the event dispatch.
+     */
+    private
+    void moveNative_(final Entry entry, final int index) {
+        final EntryPeer entryPeer = entry.peer;
+        if (entryPeer != null) {
+            ((MenuPeer) peer).move(entry, entryPeer, index);
+        }
+    }
+
+    /**
+     * Gives the native entry to the replacement if they are the same type, otherwise removes it and adds a new one for the replacement.
+     * Must be called on the event dispatch.
+     */
+    private
+    void replaceNative_(final Entry entry, final Entry replacement, final int index) {
+        final EntryPeer entryPeer = entry.peer;
+
+        // sub-menus have all of their children, so there is nothing to keep
+        final boolean sameType = entry.getClass() == replacement.getClass() && !(entry instanceof Menu) && !(entry instanceof Status);
+
+        if (entryPeer == null || !sameType) {
+            entry.remove();
+
+            if (needsNativeEntry_(replacement)) {
+                ((MenuPeer) peer).add(this, replacement, index);
+
+                // not every platform adds at the index
+                moveNative_(replacement, index);
             }
+            return;
+        }
+
+        entry.unbind();
+
+        // binding changes everything about the native entry, all at once
+        if (replacement instanceof Checkbox) {
+            ((Checkbox) replacement).bind((CheckboxPeer) entryPeer, this, getSystemTray());
+        }
+        else if (replacement instanceof MenuItem) {
+            ((MenuItem) replacement).bind((MenuItemPeer) entryPeer, this, getSystemTray());
+        }
+        else {
+            replacement.bind(entryPeer, this, getSystemTray());
         }
 
-        return null;
+        // binding only ever hides the native entry
+        if (!entry.isVisible() && replacement.isVisible()) {
+            entryPeer.setVisible(replacement);
+        }
     }
 
     /**
-     * Gets the menu entry or sub-menu for a specified index (zero-index), ignoring status and separators
+     * Changes this menu so that it looks like the model, by keeping the entries that have the same key (and type) and only changing
+     * what is different about them. Entries that are not in the model are removed (except for the status), and entries that are
+     * missing are added. Entries that are out of order are moved to where they belong (the fewest possible are moved), they are not
+     * re-created.
+     * <p>
+     * Everything is applied as a single event on the event dispatch.
      *
-     * @param menuIndex the menu entry index to use to retrieve the menu entry.
+     * @param model the entries this menu should have. The model itself is the top of the tree (see {@link MenuModel#root(MenuModel...)}),
+     *              only its children are used.
      */
     public
-    Entry get(final int menuIndex) {
-        if (menuIndex < 0) {
-            return null;
+    void reconcile(final MenuModel model) {
+        if (model == null) {
+            throw new NullPointerException("model");
         }
 
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            if (!menuEntries.isEmpty()) {
-                int count = 0;
-                for (Entry entry : menuEntries) {
-                    if (entry instanceof Separator || entry instanceof Status) {
-                        continue;
-                    }
+        if (peer == null) {
+            reconcile_(model);
+            return;
+        }
+
+        // all ADD/REMOVE events have to be queued on our own dispatch thread, so the execution order of the events can be maintained.
+        EventDispatch.run(new Runnable() {
+            @Override
+            public
+            void run() {
+                reconcile_(model);
+            }
+        });
+    }
+
+    void reconcile_(final MenuModel model) {
+        final List<MenuModel> desired = model.getChildren();
+        final List<Entry> live = menuEntries.getAll();
+
+        final Map<String, Entry> liveByKey = new HashMap<String, Entry>(live.size());
+        final Map<Entry, Integer> liveIndex = new IdentityHashMap<Entry, Integer>(live.size());
+        for (int i = 0, size = live.size(); i < size; i++) {
+            final Entry entry = live.get(i);
+            liveIndex.put(entry, i);
 
-                    if (count == menuIndex) {
-                        return entry;
+            final MenuModel entryModel = entry.model;
+            if (entryModel != null) {
+                liveByKey.put(entryModel.getKey(), entry);
+            }
+        }
+
+        // the entries that can be kept, at the index they should be at
+        final Entry[] matched = new Entry[desired.size()];
+        for (int i = 0; i < matched.length; i++) {
+            final MenuModel node = desired.get(i);
+            final Entry entry = liveByKey.get(node.getKey());
+
+            if (entry != null && node.isSameType(entry)) {
+                matched[i] = entry;
+            }
+        }
+
+        final boolean[] inOrder = findLongestInOrder(matched, liveIndex);
+
+        final Set<Entry> kept = Collections.newSetFromMap(new IdentityHashMap<Entry, Boolean>(matched.length));
+        for (Entry entry : matched) {
+            if (entry != null) {
+                kept.add(entry);
+            }
+        }
+
+        // the status is not part of the model, and is ALWAYS first
+        for (Entry entry : live) {
+            if (!(entry instanceof Status) && !kept.contains(entry)) {
+                removeEntry_(entry);
+            }
+        }
+
+        final int offset = menuEntries.getFirstEntry() instanceof Status ? 1 : 0;
+
+        // Each entry that is added or moved is put right after the entry that comes before it in the model. The entries that are not
+        // moved are already in the right order (between themselves), but they are not always at their final index until the end.
+        final List<Entry> order = new ArrayList<Entry>(menuEntries.getAll());
+        Entry previous = null;
+        int previousIndex = offset - 1;
+        boolean isPreviousIndexKnown = true;
+
+        // the native entries are changed after this menu has been changed, so that all of the new native entries are added at once.
+        // The kept entries are moved first (between themselves), then the new ones are added at their final index.
+        final List<Entry> keptOrder = new ArrayList<Entry>(order);
+        Entry previousKept = null;
+
+        final List<Entry> moved = new ArrayList<Entry>();
+        final List<Entry> added = new ArrayList<Entry>();
+        final int[] movedIndexes = new int[matched.length];
+        final int[] addedIndexes = new int[matched.length];
+
+        for (int i = 0; i < matched.length; i++) {
+            final MenuModel node = desired.get(i);
+            final Entry entry = matched[i];
+
+            if (entry != null && inOrder[i]) {
+                isPreviousIndexKnown = false;
+            }
+            else {
+                if (entry != null) {
+                    final int current = indexOf(order, entry);
+                    order.remove(current);
+
+                    if (isPreviousIndexKnown && current < previousIndex) {
+                        previousIndex--;
                     }
+                }
+
+                if (!isPreviousIndexKnown) {
+                    previousIndex = indexOf(order, previous);
+                    isPreviousIndexKnown = true;
+                }
+
+                final int index = previousIndex + 1;
+                previousIndex = index;
+
+                if (entry == null) {
+                    final Entry newEntry = node.create();
+                    newEntry.setParent(this);
+                    order.add(index, newEntry);
+                    menuEntries.add(index, newEntry);
 
-                    count++;
+                    // everything is in the same order as the model once this menu has been changed
+                    addedIndexes[added.size()] = offset + i;
+                    added.add(newEntry);
+
+                    previous = newEntry;
+                    continue;
                 }
+
+                order.add(index, entry);
+                menuEntries.move(entry, index);
+
+                keptOrder.remove(indexOf(keptOrder, entry));
+                final int keptIndex = previousKept == null ? offset : indexOf(keptOrder, previousKept) + 1;
+                keptOrder.add(keptIndex, entry);
+
+                movedIndexes[moved.size()] = keptIndex;
+                moved.add(entry);
+            }
+
+            previous = entry;
+            previousKept = entry;
+
+            node.update(entry);
+
+            if (entry instanceof Menu) {
+                ((Menu) entry).reconcile_(node);
             }
         }
 
-        return null;
+        if (peer == null) {
+            return;
+        }
+
+        // until the new entries are added, the kept entries are the only ones (after the status)
+        for (int i = 0, size = moved.size(); i < size; i++) {
+            moveNative_(moved.get(i), movedIndexes[i]);
+        }
+
+        addNative_(added, addedIndexes);
     }
 
     /**
-     * @return a copy of all of the current menu entries. It is safe to modify any of the entries in this list without concerning yourself with synchronize.
+     * @return the index of the entry (it is always there), by identity
+     */
+    private static
+    int indexOf(final List<Entry> entries, final Entry entry) {
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            if (entries.get(i) == entry) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the native entries (in the order of their index) at once, and then moves them to their index (not every platform adds at
+     * the index). Must be called on the event dispatch.
+     */
+    private
+    void addNative_(final List<Entry> entries, final int[] indexes) {
+        final List<Entry> added = new ArrayList<Entry>(entries.size());
+        final int[] addedIndexes = new int[entries.size()];
+
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            final Entry entry = entries.get(i);
+            if (needsNativeEntry_(entry)) {
+                addedIndexes[added.size()] = indexes[i];
+                added.add(entry);
+            }
+        }
+
+        if (added.isEmpty()) {
+            return;
+        }
+
+        ((MenuPeer) peer).addAll(this, added, addedIndexes);
+
+        // everything before each index is already correct, because they are in the order of their index
+        for (int i = 0, size = added.size(); i < size; i++) {
+            moveNative_(added.get(i), addedIndexes[i]);
+        }
+    }
+
+    /**
+     * Finds the longest run of entries that are already in the right order (the longest increasing sub-sequence of their current
+     * index), so that the fewest possible entries are moved. Only the others are moved.
+     *
+     * @return true for every entry (in the array) that does not have to be moved
+     */
+    private static
+    boolean[] findLongestInOrder(final Entry[] matched, final Map<Entry, Integer> liveIndex) {
+        final int length = matched.length;
+
+        // tails[k] is the index (into matched) of the smallest tail of all the in-order runs of length k+1
+        final int[] tails = new int[length];
+        final int[] previous = new int[length];
+        int runLength = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (matched[i] == null) {
+                continue;
+            }
+
+            final int index = liveIndex.get(matched[i]);
+
+            int low = 0;
+            int high = runLength;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                if (liveIndex.get(matched[tails[middle]]) < index) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == runLength) {
+                runLength++;
+            }
+        }
+
+        final boolean[] inOrder = new boolean[length];
+        for (int i = runLength > 0 ? tails[runLength - 1] : -1; i >= 0; i = previous[i]) {
+            inOrder[i] = true;
+        }
+
+        return inOrder;
+    }
+
+    /**
+     * Removes the entry, without removing the separators that are left at the top or bottom. Must be called on the event dispatch.
+     */
+    private
+    void removeEntry_(final Entry entry) {
+        if (menuEntries.remove(entry)) {
+            entry.remove();
+        }
+    }
+
+    /**
+     * Gets the first menu entry or sub-menu, ignoring status, separators and hidden entries
+     */
+    public final
+    Entry getFirst() {
+        return get(0);
+    }
+
+    /**
+     * Gets the last menu entry or sub-menu, ignoring status, separators and hidden entries
+     */
+    public
+    Entry getLast() {
+        return menuEntries.getLastReal();
+    }
+
+    /**
+     * Gets the menu entry or sub-menu for a specified index (zero-index), ignoring status, separators and hidden entries
+     *
+     * @param menuIndex the menu entry index to use to retrieve the menu entry.
+     */
+    public
+    Entry get(final int menuIndex) {
+        return menuEntries.getReal(menuIndex);
+    }
+
+    /**
+     * @return all of the current menu entries. This list never changes (even when the menu does), so it is safe to use it without
+     *         concerning yourself with synchronize.
      */
     public
     List<Entry> getEntries() {
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            return Collections.unmodifiableList(new ArrayList<Entry>(menuEntries));
-        }
+        return menuEntries.getAll();
     }
 
 
@@ -332,8 +995,9 @@ class Menu extends MenuItem {
     JMenu asSwingComponent() {
         JMenu jMenu = new JMenu();
 
-        if (getImage() != null) {
-            jMenu.setIcon(new ImageIcon(getImage().getAbsolutePath()));
+        File imageFile = getImageNow();
+        if (imageFile != null) {
+            jMenu.setIcon(new ImageIcon(imageFile.getAbsolutePath()));
         }
         jMenu.setText(getText());
         jMenu.setToolTipText(getTooltip());
@@ -341,28 +1005,26 @@ class Menu extends MenuItem {
         jMenu.setMnemonic(SwingUtil.getVirtualKey(getShortcut()));
 
 
-        synchronized (menuEntries) {
-            for (final Entry menuEntry : menuEntries) {
-                if (menuEntry instanceof Menu) {
-                    Menu entry = (Menu) menuEntry;
-                    jMenu.add(entry.asSwingComponent());
-                }
-                else if (menuEntry instanceof Checkbox) {
-                    Checkbox entry = (Checkbox) menuEntry;
-                    jMenu.add(entry.asSwingComponent());
-                }
-                else if (menuEntry instanceof MenuItem) {
-                    MenuItem entry = (MenuItem) menuEntry;
-                    jMenu.add(entry.asSwingComponent());
-                }
-                else if (menuEntry instanceof Separator) {
-                    Separator entry = (Separator) menuEntry;
-                    jMenu.add(entry.asSwingComponent());
-                }
-                else if (menuEntry instanceof Status) {
-                    Status entry = (Status) menuEntry;
-                    jMenu.add(entry.asSwingComponent());
-                }
+        for (final Entry menuEntry : menuEntries.getAll()) {
+            if (menuEntry instanceof Menu) {
+                Menu entry = (Menu) menuEntry;
+                jMenu.add(entry.asSwingComponent());
+            }
+            else if (menuEntry instanceof Checkbox) {
+                Checkbox entry = (Checkbox) menuEntry;
+                jMenu.add(entry.asSwingComponent());
+            }
+            else if (menuEntry instanceof MenuItem) {
+                MenuItem entry = (MenuItem) menuEntry;
+                jMenu.add(entry.asSwingComponent());
+            }
+            else if (menuEntry instanceof Separator) {
+                Separator entry = (Separator) menuEntry;
+                jMenu.add(entry.asSwingComponent());
+            }
+            else if (menuEntry instanceof Status) {
+                Status entry = (Status) menuEntry;
+                jMenu.add(entry.asSwingComponent());
             }
         }
 
@@ -381,16 +1043,8 @@ class Menu extends MenuItem {
         if (entry != null) {
             Entry toRemove = null;
 
-            synchronized (menuEntries) {
-                // access on this object must be synchronized for object visibility
-                for (Iterator<Entry> iterator = menuEntries.iterator(); iterator.hasNext(); ) {
-                    final Entry entry__ = iterator.next();
-                    if (entry__ == entry) {
-                        iterator.remove();
-                        toRemove = entry__;
-                        break;
-                    }
-                }
+            if (menuEntries.remove(entry)) {
+                toRemove = entry;
             }
             if (toRemove != null) {
                 final Entry reference = toRemove;
@@ -408,13 +1062,10 @@ class Menu extends MenuItem {
 
 
             // now check to see if a spacer is at the TOP of the list (and remove it if so. This is a recursive function.
-            synchronized (menuEntries) {
-                // access on this object must be synchronized for object visibility. When it runs recursively, it will correctly remove the entry.
-                if (!menuEntries.isEmpty()) {
-                    if (menuEntries.get(0) instanceof dorkbox.systemTray.Separator) {
-                        toRemove = menuEntries.get(0);
-                    }
-                }
+            // When it runs recursively, it will correctly remove the entry.
+            final Entry first = menuEntries.getFirstEntry();
+            if (first instanceof dorkbox.systemTray.Separator) {
+                toRemove = first;
             }
             if (toRemove != null) {
                 remove(toRemove);
@@ -423,13 +1074,10 @@ class Menu extends MenuItem {
 
 
             // now check to see if a spacer is at the BOTTOM of the list (and remove it if so. This is a recursive function.
-            synchronized (menuEntries) {
-                // access on this object must be synchronized for object visibility. When it runs recursively, it will correctly remove the entry.
-                if (!menuEntries.isEmpty()) {
-                    if (menuEntries.get(menuEntries.size()-1) instanceof dorkbox.systemTray.Separator) {
-                        toRemove = menuEntries.get(menuEntries.size() - 1);
-                    }
-                }
+            // When it runs recursively, it will correctly remove the entry.
+            final Entry last = menuEntries.getLastEntry();
+            if (last instanceof dorkbox.systemTray.Separator) {
+                toRemove = last;
             }
             if (toRemove != null) {
                 remove(toRemove);
@@ -443,9 +1091,7 @@ class Menu extends MenuItem {
     @Override
     public
     void remove() {
-        synchronized (menuEntries) {
-            menuEntries.clear();
-        }
+        menuEntries.clear();
 
         // all ADD/REMOVE events have to be queued on our own dispatch thread, so the execution order of the events can be maintained.
         EventDispatch.run(new Runnable() {
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The entries of a menu, stored copy-on-write.
+ * <p>
+ * Every change creates a new (immutable) snapshot, so reading never locks and never copies -- which is what happens most of the time.
+ * The snapshot also has the "real" entries (everything except separators, the status and hidden entries), so that they can be accessed
+ * by index directly.
+ * <p>
+ * Changes are guarded by this object, so several changes can be made together by synchronizing on it.
+ */
+final
+class MenuEntries {
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private static final
+    class Real {
+        private final int version;
+        private final Entry[] entries;
+
+        private
+        Real(final int version, final Entry[] entries) {
+            this.version = version;
+            this.entries = entries;
+        }
+    }
+
+    private static final
+    class Snapshot {
+        private final Entry[] all;
+        private final List<Entry> list;
+
+        // found again (only) when an entry has been hidden or shown since the last time
+        private volatile Real real;
+
+        private
+        Snapshot(final Entry[] all) {
+            this.all = all;
+            this.list = Collections.unmodifiableList(Arrays.asList(all));
+        }
+
+        private
+        Entry[] getReal(final int version) {
+            Real real = this.real;
+            if (real == null || real.version != version) {
+                // this can happen on more than one thread at the same time, but they all find the same entries
+                real = new Real(version, findReal(all));
+                this.real = real;
+            }
+
+            return real.entries;
+        }
+
+        private static
+        Entry[] findReal(final Entry[] all) {
+            int count = 0;
+            for (Entry entry : all) {
+                if (isReal(entry)) {
+                    count++;
+                }
+            }
+
+            if (count == all.length) {
+                return all;
+            }
+
+            final Entry[] real = new Entry[count];
+
+            int i = 0;
+            for (Entry entry : all) {
+                if (isReal(entry)) {
+                    real[i++] = entry;
+                }
+            }
+
+            return real;
+        }
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(EMPTY);
+
+    // changed every time an entry (in this menu) is hidden or shown, so that the snapshot knows its "real" entries have to be found again
+    private volatile int visibilityVersion = 0;
+
+    MenuEntries() {
+    }
+
+    private static
+    boolean isReal(final Entry entry) {
+        return !(entry instanceof Separator || entry instanceof Status) && entry.isVisible();
+    }
+
+    /**
+     * Called when an entry in this menu is hidden or shown
+     */
+    synchronized
+    void visibilityChanged() {
+        visibilityVersion++;
+    }
+
+    /**
+     * @return all of the entries, which will never change (even if the menu does).
+     */
+    List<Entry> getAll() {
+        return snapshot.list;
+    }
+
+    int size() {
+        return snapshot.all.length;
+    }
+
+    boolean isEmpty() {
+        return snapshot.all.length == 0;
+    }
+
+    /**
+     * @return the first entry (including separators and the status), or null if there are none
+     */
+    Entry getFirstEntry() {
+        final Entry[] all = snapshot.all;
+        return all.length == 0 ? null : all[0];
+    }
+
+    /**
+     * @return the last entry (including separators and the status), or null if there are none
+     */
+    Entry getLastEntry() {
+        final Entry[] all = snapshot.all;
+        return all.length == 0 ? null : all[all.length - 1];
+    }
+
+    /**
+     * @return the entry at the specified index, ignoring separators, the status and hidden entries, or null if there is none
+     */
+    Entry getReal(final int index) {
+        final Entry[] real = snapshot.getReal(visibilityVersion);
+        if (index < 0 || index >= real.length) {
+            return null;
+        }
+
+        return real[index];
+    }
+
+    /**
+     * @return the last entry, ignoring separators, the status and hidden entries, or null if there is none
+     */
+    Entry getLastReal() {
+        final Entry[] real = snapshot.getReal(visibilityVersion);
+        return real.length == 0 ? null : real[real.length - 1];
+    }
+
+    /**
+     * Adds the entry to the end
+     *
+     * @return the index the entry was added at
+     */
+    synchronized
+    int add(final Entry entry) {
+        final Entry[] all = snapshot.all;
+        final Entry[] copy = Arrays.copyOf(all, all.length + 1);
+        copy[all.length] = entry;
+
+        snapshot = new Snapshot(copy);
+        return all.length;
+    }
+
+    /**
+     * Adds the entry at the specified index
+     */
+    synchronized
+    void add(final int index, final Entry entry) {
+        final Entry[] all = snapshot.all;
+        if (index < 0 || index > all.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + all.length);
+        }
+
+        final Entry[] copy = new Entry[all.length + 1];
+        System.arraycopy(all, 0, copy, 0, index);
+        copy[index] = entry;
+        System.arraycopy(all, index, copy, index + 1, all.length - index);
+
+        snapshot = new Snapshot(copy);
+    }
+
+    /**
+     * Adds all of the entries to the end
+     *
+     * @return the index the first entry was added at
+     */
+    synchronized
+    int addAll(final List<Entry> entries) {
+        final Entry[] all = snapshot.all;
+        final Entry[] copy = Arrays.copyOf(all, all.length + entries.size());
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            copy[all.length + i] = entries.get(i);
+        }
+
+        snapshot = new Snapshot(copy);
+        return all.length;
+    }
+
+    /**
+     * Moves the entry (which is already here) to the specified index
+     *
+     * @return true if the entry was moved, false if it is not here (or is already at the index)
+     */
+    synchronized
+    boolean move(final Entry entry, final int index) {
+        final Entry[] all = snapshot.all;
+        if (index < 0 || index >= all.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + all.length);
+        }
+
+        int current = -1;
+        for (int i = 0; i < all.length; i++) {
+            if (all[i] == entry) {
+                current = i;
+                break;
+            }
+        }
+
+        if (current == -1 || current == index) {
+            return false;
+        }
+
+        final Entry[] copy = all.clone();
+        if (current < index) {
+            System.arraycopy(all, current + 1, copy, current, index - current);
+        }
+        else {
+            System.arraycopy(all, index, copy, index + 1, current - index);
+        }
+        copy[index] = entry;
+
+        snapshot = new Snapshot(copy);
+        return true;
+    }
+
+    /**
+     * Puts the replacement where the entry is
+     *
+     * @return the index of the entry that was replaced, or -1 if it is not here
+     */
+    synchronized
+    int replace(final Entry entry, final Entry replacement) {
+        final Entry[] all = snapshot.all;
+        for (int i = 0; i < all.length; i++) {
+            if (all[i] == entry) {
+                final Entry[] copy = all.clone();
+                copy[i] = replacement;
+
+                snapshot = new Snapshot(copy);
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return true if the entry was removed
+     */
+    synchronized
+    boolean remove(final Entry entry) {
+        final Entry[] all = snapshot.all;
+        for (int i = 0; i < all.length; i++) {
+            if (all[i] == entry) {
+                final Entry[] copy = new Entry[all.length - 1];
+                System.arraycopy(all, 0, copy, 0, i);
+                System.arraycopy(all, i + 1, copy, i, all.length - i - 1);
+
+                snapshot = new Snapshot(copy);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes all of the entries
+     *
+     * @return the entries that were removed
+     */
+    synchronized
+    List<Entry> clear() {
+        final List<Entry> removed = snapshot.list;
+        snapshot = new Snapshot(EMPTY);
+        return removed;
+    }
+}
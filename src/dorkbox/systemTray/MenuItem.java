@@ -29,7 +29,8 @@ import javax.swing.ImageIcon;
 import javax.swing.JMenuItem;
 
 import dorkbox.systemTray.peer.MenuItemPeer;
-import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.LazyImage;
+import dorkbox.systemTray.util.UrlImageFetcher;
 import dorkbox.util.SwingUtil;
 
 /**
@@ -42,15 +43,19 @@ class MenuItem extends Entry {
 
     private volatile String text;
     private volatile File imageFile;
-    private volatile ActionListener callback;
+    private volatile String imageThemeName;
 
-    // default enabled is always true
-    private volatile boolean enabled = true;
+    // the original image, so that it can be resized again when the image size changes (null if the image was assigned as a file).
+    // Images are only resized + cached once this entry can actually be seen (it's bound to a peer, and the menu it is in is shown),
+    // until then the image is pending (see STATE_IMAGE_PENDING)
+    private volatile LazyImage imageSource;
 
-    // default is 0, which will remove the shortcut key from the native peer
-    private volatile char mnemonicKey = 0;
+    private volatile ActionListener callback;
     private volatile String tooltip;
 
+    // enabled (default is true), and the shortcut key (default is 0, which will remove the shortcut key from the native peer) are in
+    // the state of the entry
+
     public
     MenuItem() {
         this(null, null, null, false);
@@ -93,32 +98,32 @@ class MenuItem extends Entry {
 
     public
     MenuItem(final String text, final String imagePath, final ActionListener callback) {
-        this(text, ImageResizeUtil.shouldResizeOrCache(false, imagePath), callback, false);
+        this(text, LazyImage.from(false, imagePath), callback, false);
     }
 
     public
     MenuItem(final String text, final File imageFile, final ActionListener callback) {
-        this(text, ImageResizeUtil.shouldResizeOrCache(false, imageFile), callback, false);
+        this(text, LazyImage.from(false, imageFile), callback, false);
     }
 
     public
     MenuItem(final String text, final URL imageUrl, final ActionListener callback) {
-        this(text, ImageResizeUtil.shouldResizeOrCache(false, imageUrl), callback, false);
+        this(text, LazyImage.from(false, imageUrl), callback, false);
     }
 
     public
     MenuItem(final String text, final InputStream imageStream, final ActionListener callback) {
-        this(text, ImageResizeUtil.shouldResizeOrCache(false, imageStream), callback, false);
+        this(text, LazyImage.from(false, imageStream), callback, false);
     }
 
     public
     MenuItem(final String text, final Image image, final ActionListener callback) {
-        this(text, ImageResizeUtil.shouldResizeOrCache(false, image), callback, false);
+        this(text, LazyImage.from(false, image), callback, false);
     }
 
     public
     MenuItem(final String text, final ImageInputStream imageStream, final ActionListener callback) {
-        this(text, ImageResizeUtil.shouldResizeOrCache(false, imageStream), callback, false);
+        this(text, LazyImage.from(false, imageStream), callback, false);
     }
 
     public
@@ -156,9 +161,10 @@ class MenuItem extends Entry {
 
     // the last parameter (unused) is there so the signature is different
     private
-    MenuItem(final String text, final File imageFile, final ActionListener callback, final boolean unused) {
+    MenuItem(final String text, final LazyImage image, final ActionListener callback, final boolean unused) {
         this.text = text;
-        this.imageFile = imageFile;
+        this.imageSource = image;
+        setState(STATE_IMAGE_PENDING, image != null);
         this.callback = callback;
     }
 
@@ -171,16 +177,24 @@ class MenuItem extends Entry {
     void bind(final MenuItemPeer peer, final Menu parent, final SystemTray systemTray) {
         super.bind(peer, parent, systemTray);
 
-        peer.setImage(this);
-        peer.setEnabled(this);
-        peer.setText(this);
-        peer.setCallback(this);
-        peer.setShortcut(this);
-        peer.setTooltip(this);
+        // everything at once, so the native entry is only updated (and laid out) once
+        peer.update(this, MenuItemPeer.ALL);
+
+        if (isShowable()) {
+            resolveImage();
+        }
     }
 
     protected
     void setImage_(final File imageFile) {
+        setImage_(null, imageFile);
+    }
+
+    // the theme name always wins on GTK. Every other peer only ever uses the file
+    void setImage_(final String imageThemeName, final File imageFile) {
+        setState(STATE_IMAGE_PENDING, false);
+        this.imageSource = null;
+        this.imageThemeName = imageThemeName;
         this.imageFile = imageFile;
 
         if (peer != null) {
@@ -188,16 +202,165 @@ class MenuItem extends Entry {
         }
     }
 
+    // the image is only resized + cached (in the background) once the user can see this entry
+    void setImage_(final String imageThemeName, final LazyImage image) {
+        if (image == null) {
+            setImage_(imageThemeName, (File) null);
+            return;
+        }
+
+        this.imageThemeName = imageThemeName;
+        this.imageSource = image;
+        setState(STATE_IMAGE_PENDING, true);
+
+        if (peer != null) {
+            if (imageFile == null || usesThemeIcon()) {
+                // the peer shows a placeholder (the transparent spacer) until the image is resolved, or the theme icon right away
+                ((MenuItemPeer) peer).setImage(this);
+            }
+
+            if (isShowable()) {
+                resolveImage();
+            }
+        }
+    }
+
+    // remote URLs must not block the caller, so they are downloaded (or revalidated) in the background
+    void setImage_(final String imageThemeName, final boolean isTrayImage, final URL imageUrl) {
+        if (UrlImageFetcher.isRemote(imageUrl)) {
+            setImage_(imageThemeName, LazyImage.from(isTrayImage, imageUrl));
+        } else {
+            setImageNow_(imageThemeName, LazyImage.from(isTrayImage, imageUrl));
+        }
+    }
+
+    /**
+     * Resolves the image (in the background) if it has not been resized + cached yet. Called once this entry can be seen.
+     */
+    void resolveImage() {
+        final LazyImage image = getPendingImage();
+        if (image == null || usesThemeIcon()) {
+            // the fallback image is not needed when the theme icon is shown
+            return;
+        }
+
+        image.resolve(new LazyImage.Callback() {
+            @Override
+            public
+            void onResolved(final File imageFile) {
+                // only if no other image was assigned in the meantime
+                if (getPendingImage() == image) {
+                    setResolvedImage(image, imageFile);
+                }
+            }
+        });
+    }
+
+    // the image is resolved right away on the calling thread, but the source is kept so it can be resized again later
+    void setImageNow_(final String imageThemeName, final LazyImage image) {
+        if (image == null) {
+            setImage_(imageThemeName, (File) null);
+            return;
+        }
+
+        this.imageThemeName = imageThemeName;
+        setResolvedImage(image, image.resolveNow());
+    }
+
+    private
+    void setResolvedImage(final LazyImage image, final File imageFile) {
+        setState(STATE_IMAGE_PENDING, false);
+        this.imageSource = image;
+        this.imageFile = imageFile;
+
+        if (peer != null) {
+            ((MenuItemPeer) peer).setImage(this);
+        }
+    }
+
+    /**
+     * Resizes the image again (on the calling thread) because the image size has changed. Entries that cannot be seen yet are only
+     * resized once they can be.
+     *
+     * @return what must run to show the resized image, or null if there is nothing to show (yet)
+     */
+    Runnable refreshImage() {
+        final LazyImage image = imageSource;
+        if (image == null || peer == null) {
+            return null;
+        }
+
+        if (!isShowable()) {
+            setState(STATE_IMAGE_PENDING, true);
+            return null;
+        }
+
+        final File imageFile = image.resolveNow();
+        return new Runnable() {
+            @Override
+            public
+            void run() {
+                // only if no other image was assigned in the meantime
+                if (imageSource == image) {
+                    setResolvedImage(image, imageFile);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the image, if it has not been resized + cached yet. Otherwise null.
+     */
+    private
+    LazyImage getPendingImage() {
+        return hasState(STATE_IMAGE_PENDING) ? imageSource : null;
+    }
+
+    /**
+     * @return true if this entry can be seen by the user, which is when it is in the tray menu, or in a sub-menu that has been shown.
+     */
+    private
+    boolean isShowable() {
+        final Menu parent = getParent();
+        return parent == null || parent instanceof Tray || parent.hasBeenShown();
+    }
+
+    /**
+     * @return the image file, resolving it on the calling thread if it has not been resized + cached yet.
+     */
+    File getImageNow() {
+        final LazyImage image = getPendingImage();
+        if (image != null) {
+            return image.resolveNow();
+        }
+
+        return imageFile;
+    }
+
     /**
      * Gets the File (which is the only cross-platform solution) that is assigned to this menu entry.
      * <p>
      * This file can also be a cached file, depending on how the image was assigned to this entry.
+     * <p>
+     * Images are only resized + cached once this entry can be seen (it is in the tray menu, or in a sub-menu that has been shown), so
+     * until then this is the previous image (or null).
      */
     public
     File getImage() {
         return imageFile;
     }
 
+    /**
+     * Gets the name of the icon (from the current desktop icon theme) that is assigned to this menu entry, or null if there is none (or
+     * the tray this entry is in cannot show it).
+     * <p>
+     * This is only used by the GTK and AppIndicator peers, all others use {@link #getImage()}.
+     */
+    public
+    String getImageThemeName() {
+        return usesThemeIcon() ? imageThemeName : null;
+    }
+
     /**
      * Gets the callback assigned to this menu entry
      */
@@ -211,7 +374,7 @@ class MenuItem extends Entry {
      */
     public
     boolean getEnabled() {
-        return this.enabled;
+        return hasState(STATE_ENABLED);
     }
 
     /**
@@ -219,7 +382,9 @@ class MenuItem extends Entry {
      */
     public
     void setEnabled(final boolean enabled) {
-        this.enabled = enabled;
+        if (!setState(STATE_ENABLED, enabled)) {
+            return;
+        }
 
         if (peer != null) {
             ((MenuItemPeer) peer).setEnabled(this);
@@ -241,6 +406,9 @@ class MenuItem extends Entry {
      */
     public
     void setText(final String text) {
+        if (equal(this.text, text)) {
+            return;
+        }
         this.text = text;
 
         if (peer != null) {
@@ -257,7 +425,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final File imageFile) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(false, imageFile));
+        setImage_(null, LazyImage.from(false, imageFile));
     }
 
     /**
@@ -269,19 +437,20 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final String imagePath) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(false, imagePath));
+        setImage_(null, LazyImage.from(false, imagePath));
     }
 
     /**
      * Specifies the new image to set for a menu entry, NULL to delete the image
      * <p>
-     * This method will cache the image if it needs to be resized to fit.
+     * This method will cache the image if it needs to be resized to fit. Remote (http/https) images are downloaded in the background,
+     * and are assigned once they are available.
      *
      * @param imageUrl the URL of the image to use or null
      */
     public
     void setImage(final URL imageUrl) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(false, imageUrl));
+        setImage_(null, LazyImage.from(false, imageUrl));
     }
 
     /**
@@ -293,7 +462,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final InputStream imageStream) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(false, imageStream));
+        setImage_(null, LazyImage.from(false, imageStream));
     }
 
     /**
@@ -305,7 +474,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final Image image) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(false, image));
+        setImage_(null, LazyImage.from(false, image));
     }
 
     /**
@@ -317,15 +486,118 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final ImageInputStream imageStream) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(false, imageStream));
+        setImage_(null, LazyImage.from(false, imageStream));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme (for example, "mail-unread") to use as the image for this menu entry.
+     * <p>
+     * GTK and AppIndicator trays load the icon by name, directly from the icon theme, so it is not resized or cached and it will
+     * follow theme changes. Every other tray type will use the fallback image instead (which is resized or cached as usual).
+     * <p>
+     * Which one is used is decided once this entry is in a menu of the tray, so this can be called before the tray exists.
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImage the file of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final File fallbackImage) {
+        setImageByThemeName_(themeName, LazyImage.from(isTrayImage(), fallbackImage));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use as the image for this menu entry.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImagePath the full path of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final String fallbackImagePath) {
+        setImageByThemeName_(themeName, LazyImage.from(isTrayImage(), fallbackImagePath));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use as the image for this menu entry.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImageUrl the URL of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final URL fallbackImageUrl) {
+        setImageByThemeName_(themeName, LazyImage.from(isTrayImage(), fallbackImageUrl));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use as the image for this menu entry.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImageStream the InputStream of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final InputStream fallbackImageStream) {
+        setImageByThemeName_(themeName, LazyImage.from(isTrayImage(), fallbackImageStream));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use as the image for this menu entry.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImage the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final Image fallbackImage) {
+        setImageByThemeName_(themeName, LazyImage.from(isTrayImage(), fallbackImage));
+    }
+
+
+    /**
+     * Every setImageByThemeName() is this. The fallback image is kept (and only resolved when the theme icon is not used), because
+     * which one is used is only known once this entry is in the menu of a tray.
+     */
+    void setImageByThemeName_(final String themeName, final LazyImage fallbackImage) {
+        if (themeName == null) {
+            throw new NullPointerException("themeName");
+        }
+
+        setImage_(themeName, fallbackImage);
     }
 
+    /**
+     * @return true if the images of this entry are the size of the tray icon (instead of the size of a menu entry)
+     */
+    boolean isTrayImage() {
+        return false;
+    }
+
+    /**
+     * @return true if this entry has an icon from the desktop icon theme, and it is in the menu of a tray that can show it
+     */
+    boolean usesThemeIcon() {
+        if (imageThemeName == null) {
+            return false;
+        }
+
+        Menu root = this instanceof Menu ? (Menu) this : getParent();
+        while (root != null && root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        return SystemTray.supportsThemeIcons(root);
+    }
 
     /**
      * @return true if this menu entry has an image assigned to it, or is just text.
      */
     public
-    boolean hasImage() {return imageFile != null;}
+    boolean hasImage() {return imageFile != null || getPendingImage() != null || usesThemeIcon();}
 
     /**
      * Sets a callback for a menu entry. This is the action that occurs when one clicks the menu entry
@@ -334,6 +606,9 @@ class MenuItem extends Entry {
      */
     public
     void setCallback(final ActionListener callback) {
+        if (this.callback == callback) {
+            return;
+        }
         this.callback = callback;
 
         if (peer != null) {
@@ -350,7 +625,7 @@ class MenuItem extends Entry {
      */
     public
     char getShortcut() {
-        return this.mnemonicKey;
+        return getMnemonic_();
     }
 
     /**
@@ -363,7 +638,9 @@ class MenuItem extends Entry {
      */
     public
     void setShortcut(final char key) {
-        this.mnemonicKey = key;
+        if (!setMnemonic_(key)) {
+            return;
+        }
 
         if (peer != null) {
             ((MenuItemPeer) peer).setShortcut(this);
@@ -380,7 +657,9 @@ class MenuItem extends Entry {
      */
     public
     void setShortcut(final int key) {
-        this.mnemonicKey = SwingUtil.getFromVirtualKey(key);
+        if (!setMnemonic_(SwingUtil.getFromVirtualKey(key))) {
+            return;
+        }
 
         if (peer != null) {
             ((MenuItemPeer) peer).setShortcut(this);
@@ -399,6 +678,20 @@ class MenuItem extends Entry {
      */
     public
     void setTooltip(final String tooltipText) {
+        checkTooltip(tooltipText);
+
+        if (equal(this.tooltip, tooltipText)) {
+            return;
+        }
+        this.tooltip = tooltipText;
+
+        if (peer != null) {
+            ((MenuItemPeer) peer).setTooltip(this);
+        }
+    }
+
+    static
+    void checkTooltip(final String tooltipText) {
         if (tooltipText != null) {
             // this is a safety precaution, since the behavior of really long text is undefined.
             if (tooltipText.length() > 64) {
@@ -410,12 +703,6 @@ class MenuItem extends Entry {
                 SystemTray.logger.warn("Please disable tooltips, as they are not consistent across all platforms and tray types.");
             }
         }
-
-        this.tooltip = tooltipText;
-
-        if (peer != null) {
-            ((MenuItemPeer) peer).setTooltip(this);
-        }
     }
 
     /**
@@ -428,6 +715,70 @@ class MenuItem extends Entry {
         return this.tooltip;
     }
 
+    /**
+     * Changes several properties of this entry at once. Only what is actually different is changed, and everything is changed with
+     * a single update of the native entry (instead of one update, and re-layout, per property). For example:
+     * <pre>
+     * {@code
+     * menuItem.update()
+     *         .setText("Downloading")
+     *         .setImage(downloadingImage)
+     *         .setEnabled(false)
+     *         .apply();
+     * }
+     * </pre>
+     * Nothing is changed until {@link Update#apply()} is called.
+     */
+    public
+    Update update() {
+        return new Update(this);
+    }
+
+    void apply(final Update update) {
+        int changes = 0;
+
+        if ((update.changes & MenuItemPeer.IMAGE) != 0) {
+            // resolved here, so that it can be shown together with everything else
+            final LazyImage image = update.image;
+            final File imageFile = image == null ? null : image.resolveNow();
+
+            if (getPendingImage() != null || !equal(this.imageFile, imageFile) || !equal(this.imageThemeName, update.imageThemeName)) {
+                setState(STATE_IMAGE_PENDING, false);
+                this.imageSource = image;
+                this.imageThemeName = update.imageThemeName;
+                this.imageFile = imageFile;
+                changes |= MenuItemPeer.IMAGE;
+            }
+        }
+        if ((update.changes & MenuItemPeer.ENABLED) != 0 && setState(STATE_ENABLED, update.enabled)) {
+            changes |= MenuItemPeer.ENABLED;
+        }
+        if ((update.changes & MenuItemPeer.TEXT) != 0 && !equal(this.text, update.text)) {
+            this.text = update.text;
+            changes |= MenuItemPeer.TEXT;
+        }
+        if ((update.changes & MenuItemPeer.CALLBACK) != 0 && this.callback != update.callback) {
+            this.callback = update.callback;
+            changes |= MenuItemPeer.CALLBACK;
+        }
+        if ((update.changes & MenuItemPeer.SHORTCUT) != 0 && setMnemonic_(update.mnemonicKey)) {
+            changes |= MenuItemPeer.SHORTCUT;
+        }
+        if ((update.changes & MenuItemPeer.TOOLTIP) != 0 && !equal(this.tooltip, update.tooltip)) {
+            this.tooltip = update.tooltip;
+            changes |= MenuItemPeer.TOOLTIP;
+        }
+
+        if (changes != 0 && peer != null) {
+            ((MenuItemPeer) peer).update(this, changes);
+        }
+    }
+
+    static
+    boolean equal(final Object a, final Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     /**
      * @return a copy of this MenuItem as a swing JMenuItem, with all elements converted to their respective swing elements.
      */
@@ -435,8 +786,9 @@ class MenuItem extends Entry {
     JMenuItem asSwingComponent() {
         JMenuItem jMenuItem = new JMenuItem();
 
-        if (getImage() != null) {
-            jMenuItem.setIcon(new ImageIcon(getImage().getAbsolutePath()));
+        File imageFile = getImageNow();
+        if (imageFile != null) {
+            jMenuItem.setIcon(new ImageIcon(imageFile.getAbsolutePath()));
         }
         jMenuItem.setText(getText());
         jMenuItem.setToolTipText(getTooltip());
@@ -447,4 +799,136 @@ class MenuItem extends Entry {
 
         return jMenuItem;
     }
+
+
+    /**
+     * Several changes to a {@link MenuItem} that are applied all at once, see {@link MenuItem#update()}.
+     */
+    public static final
+    class Update {
+        private final MenuItem menuItem;
+
+        // what has been set, see MenuItemPeer
+        private int changes = 0;
+
+        private LazyImage image;
+        private String imageThemeName;
+        private boolean enabled;
+        private String text;
+        private ActionListener callback;
+        private char mnemonicKey;
+        private String tooltip;
+
+        private
+        Update(final MenuItem menuItem) {
+            this.menuItem = menuItem;
+        }
+
+        public
+        Update setText(final String text) {
+            this.text = text;
+            changes |= MenuItemPeer.TEXT;
+            return this;
+        }
+
+        public
+        Update setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+            changes |= MenuItemPeer.ENABLED;
+            return this;
+        }
+
+        public
+        Update setCallback(final ActionListener callback) {
+            this.callback = callback;
+            changes |= MenuItemPeer.CALLBACK;
+            return this;
+        }
+
+        public
+        Update setShortcut(final char key) {
+            this.mnemonicKey = key;
+            changes |= MenuItemPeer.SHORTCUT;
+            return this;
+        }
+
+        public
+        Update setShortcut(final int key) {
+            return setShortcut(SwingUtil.getFromVirtualKey(key));
+        }
+
+        /**
+         * See {@link MenuItem#setTooltip(String)}
+         */
+        public
+        Update setTooltip(final String tooltipText) {
+            checkTooltip(tooltipText);
+
+            this.tooltip = tooltipText;
+            changes |= MenuItemPeer.TOOLTIP;
+            return this;
+        }
+
+        /**
+         * Specifies the new image, NULL to delete the image. Unlike {@link MenuItem#setImage(File)}, the image is resized + cached
+         * when this update is applied (on the calling thread), so that it can be shown together with the other changes.
+         */
+        public
+        Update setImage(final File imageFile) {
+            return setImage(LazyImage.from(isTrayImage(), imageFile));
+        }
+
+        /**
+         * See {@link #setImage(File)}
+         */
+        public
+        Update setImage(final String imagePath) {
+            return setImage(LazyImage.from(isTrayImage(), imagePath));
+        }
+
+        /**
+         * See {@link #setImage(File)}. Remote (http/https) images are downloaded on the calling thread.
+         */
+        public
+        Update setImage(final URL imageUrl) {
+            return setImage(LazyImage.from(isTrayImage(), imageUrl));
+        }
+
+        /**
+         * See {@link #setImage(File)}
+         */
+        public
+        Update setImage(final InputStream imageStream) {
+            return setImage(LazyImage.from(isTrayImage(), imageStream));
+        }
+
+        /**
+         * See {@link #setImage(File)}
+         */
+        public
+        Update setImage(final Image image) {
+            return setImage(LazyImage.from(isTrayImage(), image));
+        }
+
+        private
+        Update setImage(final LazyImage image) {
+            this.image = image;
+            this.imageThemeName = null;
+            changes |= MenuItemPeer.IMAGE;
+            return this;
+        }
+
+        private
+        boolean isTrayImage() {
+            return menuItem instanceof Tray;
+        }
+
+        /**
+         * Applies everything that was set (and is different) to the menu entry, with a single update of the native entry.
+         */
+        public
+        void apply() {
+            menuItem.apply(this);
+        }
+    }
 }
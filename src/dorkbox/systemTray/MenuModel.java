@@ -0,0 +1,368 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable description of what a menu should look like, see {@link Menu#reconcile(MenuModel)}.
+ * <p>
+ * Every entry has a key, which must be unique within the menu it is in. Entries with the same key (and type) are kept the next time
+ * the menu is reconciled, and only what is different about them is changed. For example:
+ * <pre>
+ * {@code
+ * systemTray.getMenu().reconcile(MenuModel.root(
+ *         MenuModel.item("status", "Connected").enabled(false).build(),
+ *         MenuModel.separator("separator"),
+ *         MenuModel.checkbox("sync", "Sync").checked(true).callback(syncListener).build(),
+ *         MenuModel.menu("servers", "Servers").add(
+ *                 MenuModel.item("server-1", "Server 1").callback(serverListener).build()).build()));
+ * }
+ * </pre>
+ */
+public final
+class MenuModel {
+    static final int ITEM = 0;
+    static final int CHECKBOX = 1;
+    static final int SEPARATOR = 2;
+    static final int MENU = 3;
+
+    /**
+     * Builds a {@link MenuModel}. Nothing can be changed once it is built.
+     */
+    public static final
+    class Builder {
+        private final int type;
+        private final String key;
+        private final String text;
+
+        private File image = null;
+        private boolean enabled = true;
+        private boolean checked = false;
+        private ActionListener callback = null;
+        private char shortcut = 0;
+        private String tooltip = null;
+        private final List<MenuModel> children = new ArrayList<MenuModel>();
+
+        private
+        Builder(final int type, final String key, final String text) {
+            this.type = type;
+            this.key = key;
+            this.text = text;
+        }
+
+        /**
+         * Not used by checkboxes
+         *
+         * @param image the file of the image to use, or null
+         */
+        public
+        Builder image(final File image) {
+            this.image = image;
+            return this;
+        }
+
+        public
+        Builder enabled(final boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        /**
+         * Only used by checkboxes
+         */
+        public
+        Builder checked(final boolean checked) {
+            this.checked = checked;
+            return this;
+        }
+
+        public
+        Builder callback(final ActionListener callback) {
+            this.callback = callback;
+            return this;
+        }
+
+        public
+        Builder shortcut(final char shortcut) {
+            this.shortcut = shortcut;
+            return this;
+        }
+
+        public
+        Builder tooltip(final String tooltip) {
+            this.tooltip = tooltip;
+            return this;
+        }
+
+        /**
+         * Only used by menus
+         */
+        public
+        Builder add(final MenuModel... children) {
+            Collections.addAll(this.children, children);
+            return this;
+        }
+
+        /**
+         * Only used by menus
+         */
+        public
+        Builder add(final List<MenuModel> children) {
+            this.children.addAll(children);
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if two of the children have the same key
+         */
+        public
+        MenuModel build() {
+            return new MenuModel(this);
+        }
+    }
+
+    /**
+     * @param key identifies this entry within its menu
+     * @param text the text of the menu entry
+     */
+    public static
+    Builder item(final String key, final String text) {
+        return new Builder(ITEM, key, text);
+    }
+
+    /**
+     * @param key identifies this entry within its menu
+     * @param text the text of the checkbox
+     */
+    public static
+    Builder checkbox(final String key, final String text) {
+        return new Builder(CHECKBOX, key, text);
+    }
+
+    /**
+     * @param key identifies this entry within its menu
+     * @param text the text of the sub-menu
+     */
+    public static
+    Builder menu(final String key, final String text) {
+        return new Builder(MENU, key, text);
+    }
+
+    /**
+     * @param key identifies this entry within its menu
+     */
+    public static
+    MenuModel separator(final String key) {
+        return new Builder(SEPARATOR, key, null).build();
+    }
+
+    /**
+     * @return the top of the tree, which only has children (since it is the menu that is reconciled)
+     */
+    public static
+    MenuModel root(final MenuModel... children) {
+        return new Builder(MENU, null, null).add(children).build();
+    }
+
+    /**
+     * @return the top of the tree, which only has children (since it is the menu that is reconciled)
+     */
+    public static
+    MenuModel root(final List<MenuModel> children) {
+        return new Builder(MENU, null, null).add(children).build();
+    }
+
+
+    final int type;
+    private final String key;
+    private final String text;
+    private final File image;
+    private final boolean enabled;
+    private final boolean checked;
+    private final ActionListener callback;
+    private final char shortcut;
+    private final String tooltip;
+    private final List<MenuModel> children;
+
+    private
+    MenuModel(final Builder builder) {
+        this.type = builder.type;
+        this.key = builder.key;
+        this.text = builder.text;
+        this.image = builder.image;
+        this.enabled = builder.enabled;
+        this.checked = builder.checked;
+        this.callback = builder.callback;
+        this.shortcut = builder.shortcut;
+        this.tooltip = builder.tooltip;
+
+        final Set<String> keys = new HashSet<String>(builder.children.size());
+        for (MenuModel child : builder.children) {
+            if (child.key == null) {
+                throw new IllegalArgumentException("Every entry must have a key");
+            }
+            if (!keys.add(child.key)) {
+                throw new IllegalArgumentException("The key '" + child.key + "' is used more than once in the same menu");
+            }
+        }
+        this.children = Collections.unmodifiableList(new ArrayList<MenuModel>(builder.children));
+    }
+
+    public
+    String getKey() {
+        return key;
+    }
+
+    public
+    String getText() {
+        return text;
+    }
+
+    public
+    File getImage() {
+        return image;
+    }
+
+    public
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    public
+    boolean isChecked() {
+        return checked;
+    }
+
+    public
+    ActionListener getCallback() {
+        return callback;
+    }
+
+    public
+    char getShortcut() {
+        return shortcut;
+    }
+
+    public
+    String getTooltip() {
+        return tooltip;
+    }
+
+    public
+    List<MenuModel> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return true if the entry is the same type as this (so that it can be kept, and changed to look like this)
+     */
+    boolean isSameType(final Entry entry) {
+        switch (type) {
+            case MENU:
+                return entry instanceof Menu;
+            case CHECKBOX:
+                return entry instanceof Checkbox;
+            case SEPARATOR:
+                return entry instanceof Separator;
+            default:
+                return entry instanceof MenuItem && !(entry instanceof Menu);
+        }
+    }
+
+    /**
+     * @return a new entry that looks like this. Sub-menus are created with all of their children.
+     */
+    Entry create() {
+        final Entry entry;
+
+        switch (type) {
+            case MENU:
+                final Menu menu = new Menu(text, image, callback);
+                menu.setEnabled(enabled);
+                menu.setShortcut(shortcut);
+                menu.setTooltip(tooltip);
+                menu.reconcile_(this);
+                entry = menu;
+                break;
+
+            case CHECKBOX:
+                final Checkbox checkbox = new Checkbox(text, callback);
+                checkbox.setEnabled(enabled);
+                checkbox.setChecked(checked);
+                checkbox.setShortcut(shortcut);
+                checkbox.setTooltip(tooltip);
+                entry = checkbox;
+                break;
+
+            case SEPARATOR:
+                entry = new Separator();
+                break;
+
+            default:
+                final MenuItem menuItem = new MenuItem(text, image, callback);
+                menuItem.setEnabled(enabled);
+                menuItem.setShortcut(shortcut);
+                menuItem.setTooltip(tooltip);
+                entry = menuItem;
+                break;
+        }
+
+        entry.model = this;
+        return entry;
+    }
+
+    /**
+     * Changes the entry (which was created from the previous model) so that it looks like this. Only what is different is changed, and
+     * it is changed all at once.
+     */
+    void update(final Entry entry) {
+        final MenuModel previous = entry.model;
+
+        if (entry instanceof Checkbox) {
+            ((Checkbox) entry).update()
+                              .setText(text)
+                              .setEnabled(enabled)
+                              .setChecked(checked)
+                              .setCallback(callback)
+                              .setShortcut(shortcut)
+                              .setTooltip(tooltip)
+                              .apply();
+        }
+        else if (entry instanceof MenuItem) {
+            final MenuItem.Update update = ((MenuItem) entry).update()
+                                                             .setText(text)
+                                                             .setEnabled(enabled)
+                                                             .setCallback(callback)
+                                                             .setShortcut(shortcut)
+                                                             .setTooltip(tooltip);
+
+            // the entry only has the resized image, so the image is compared to what it was created from
+            if (previous == null || !MenuItem.equal(previous.image, image)) {
+                update.setImage(image);
+            }
+            update.apply();
+        }
+
+        entry.model = this;
+    }
+}
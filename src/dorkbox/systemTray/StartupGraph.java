@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * Runs the steps of the initialization that do not depend on each other at the same time.
+ * <p>
+ * Every step starts as soon as the steps it depends on have finished. The tray is only created once all of the critical steps have
+ * finished, the other steps (ie: installing/upgrading the gnome-shell extensions) finish in the background.
+ */
+final
+class StartupGraph {
+    final
+    class Task implements Runnable {
+        private final String name;
+        private final boolean isCritical;
+        private final boolean isNativeLibrary;
+        private final Runnable work;
+        private final Task[] dependencies;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Throwable error = null;
+
+        private
+        Task(final String name, final boolean isCritical, final boolean isNativeLibrary, final Runnable work, final Task[] dependencies) {
+            this.name = name;
+            this.isCritical = isCritical;
+            this.isNativeLibrary = isNativeLibrary;
+            this.work = work;
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public
+        void run() {
+            try {
+                for (Task dependency : dependencies) {
+                    dependency.done.await();
+
+                    if (dependency.error != null) {
+                        error = new IllegalStateException("'" + name + "' cannot run, because '" + dependency.name + "' failed",
+                                                          dependency.error);
+                        return;
+                    }
+                }
+
+                final long start = System.nanoTime();
+                work.run();
+                report.phase(name, start, isNativeLibrary);
+            } catch (Throwable throwable) {
+                error = throwable;
+
+                if (!isCritical) {
+                    // nobody waits for this, so nobody else will know about it
+                    SystemTray.logger.error("Error during '{}'", name, throwable);
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+
+    private final StartupReport report;
+
+    // the pool grows as needed, so a step that waits for another step can never prevent that step from running
+    private final ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("SystemTrayStartup", false));
+
+    // access is guarded by 'criticalTasks'
+    private final List<Task> criticalTasks = new ArrayList<Task>();
+
+    StartupGraph(final StartupReport report) {
+        this.report = report;
+    }
+
+    /**
+     * Starts a step of the initialization, as soon as the steps it depends on have finished. The tray is not created until it finishes.
+     */
+    Task critical(final String name, final boolean isNativeLibrary, final Runnable work, final Task... dependencies) {
+        final Task task = new Task(name, true, isNativeLibrary, work, dependencies);
+        synchronized (criticalTasks) {
+            criticalTasks.add(task);
+        }
+
+        start(task);
+        return task;
+    }
+
+    /**
+     * Starts a step of the initialization that is allowed to finish after the tray has been created.
+     */
+    Task background(final String name, final Runnable work, final Task... dependencies) {
+        final Task task = new Task(name, false, false, work, dependencies);
+        start(task);
+        return task;
+    }
+
+    private
+    void start(final Task task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // we are already finished, so there is no reason to wait for a thread
+            task.run();
+        }
+    }
+
+    /**
+     * Waits for all of the critical steps to finish.
+     *
+     * @throws Exception the first error of a critical step
+     */
+    void awaitCritical() throws Exception {
+        final List<Task> tasks;
+        synchronized (criticalTasks) {
+            tasks = new ArrayList<Task>(criticalTasks);
+        }
+
+        for (Task task : tasks) {
+            task.done.await();
+        }
+
+        for (Task task : tasks) {
+            final Throwable error = task.error;
+            if (error instanceof Exception) {
+                throw (Exception) error;
+            }
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+        }
+    }
+
+    /**
+     * No more steps are started on a different thread after this. The background steps that are still running will finish.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import dorkbox.util.OS;
+
+/**
+ * How long each phase of the SystemTray initialization took, and on which thread it ran.
+ * <p>
+ * This is always recorded (it is only a few calls to {@link System#nanoTime()}), see {@link SystemTray#getStartupReport()}.
+ */
+public final
+class StartupReport {
+    /**
+     * A single phase of the initialization
+     */
+    public static final
+    class Phase {
+        private final String name;
+        private final String thread;
+        private final boolean isNativeLibrary;
+        private final double startMillis;
+        private final double durationMillis;
+
+        private
+        Phase(final String name, final String thread, final boolean isNativeLibrary, final double startMillis, final double durationMillis) {
+            this.name = name;
+            this.thread = thread;
+            this.isNativeLibrary = isNativeLibrary;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+        }
+
+        public
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return the name of the thread this phase ran on
+         */
+        public
+        String getThread() {
+            return thread;
+        }
+
+        /**
+         * @return true if this phase is (mostly) loading a native library
+         */
+        public
+        boolean isNativeLibrary() {
+            return isNativeLibrary;
+        }
+
+        /**
+         * @return when this phase started, in milliseconds since the initialization started
+         */
+        public
+        double getStartMillis() {
+            return startMillis;
+        }
+
+        public
+        double getDurationMillis() {
+            return durationMillis;
+        }
+    }
+
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<Phase>();
+
+    // access is guarded by 'phases'
+    private double totalMillis = -1;
+    private boolean isSuccess = false;
+    private String trayType = null;
+
+    StartupReport() {
+    }
+
+    /**
+     * Records a phase that started at the specified time, and ended now (on the current thread).
+     */
+    void phase(final String name, final long phaseStartNanos) {
+        phase(name, phaseStartNanos, false);
+    }
+
+    /**
+     * Records a phase that started at the specified time, and ended now (on the current thread).
+     */
+    void phase(final String name, final long phaseStartNanos, final boolean isNativeLibrary) {
+        final long now = System.nanoTime();
+        final Phase phase = new Phase(name, Thread.currentThread().getName(), isNativeLibrary,
+                                      toMillis(phaseStartNanos - startNanos), toMillis(now - phaseStartNanos));
+
+        synchronized (phases) {
+            phases.add(phase);
+        }
+    }
+
+    void finish(final boolean isSuccess, final String trayType) {
+        synchronized (phases) {
+            this.totalMillis = toMillis(System.nanoTime() - startNanos);
+            this.isSuccess = isSuccess;
+            this.trayType = trayType;
+        }
+    }
+
+    /**
+     * @return the phases, in the order they finished
+     */
+    public
+    List<Phase> getPhases() {
+        synchronized (phases) {
+            return Collections.unmodifiableList(new ArrayList<Phase>(phases));
+        }
+    }
+
+    /**
+     * @return how long the entire initialization took, or -1 if it is still running
+     */
+    public
+    double getTotalMillis() {
+        synchronized (phases) {
+            return totalMillis;
+        }
+    }
+
+    /**
+     * @return true if the SystemTray was created
+     */
+    public
+    boolean isSuccess() {
+        synchronized (phases) {
+            return isSuccess;
+        }
+    }
+
+    /**
+     * @return the simple name of the tray type that was used, or null if there was none
+     */
+    public
+    String getTrayType() {
+        synchronized (phases) {
+            return trayType;
+        }
+    }
+
+    /**
+     * @return this report as a JSON object
+     */
+    public
+    String toJson() {
+        final StringBuilder builder = new StringBuilder(1024);
+
+        synchronized (phases) {
+            builder.append("{\n");
+            builder.append("  \"version\": ").append(quote(SystemTray.getVersion())).append(",\n");
+            builder.append("  \"success\": ").append(isSuccess).append(",\n");
+            builder.append("  \"trayType\": ").append(trayType == null ? "null" : quote(trayType)).append(",\n");
+            builder.append("  \"totalMillis\": ").append(format(totalMillis)).append(",\n");
+            builder.append("  \"phases\": [");
+
+            for (int i = 0, size = phases.size(); i < size; i++) {
+                final Phase phase = phases.get(i);
+                builder.append(i == 0 ? "\n" : ",\n");
+                builder.append("    {\"name\": ").append(quote(phase.name))
+                       .append(", \"thread\": ").append(quote(phase.thread))
+                       .append(", \"nativeLibrary\": ").append(phase.isNativeLibrary)
+                       .append(", \"startMillis\": ").append(format(phase.startMillis))
+                       .append(", \"durationMillis\": ").append(format(phase.durationMillis))
+                       .append("}");
+            }
+
+            builder.append("\n  ]\n");
+            builder.append("}\n");
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Writes this report as JSON to the specified file.
+     */
+    public
+    void writeJson(final File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            //noinspection ResultOfMethodCallIgnored
+            parent.mkdirs();
+        }
+
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(toJson().getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    @Override
+    public
+    String toString() {
+        final StringBuilder builder = new StringBuilder(1024);
+
+        synchronized (phases) {
+            builder.append("SystemTray startup: ").append(format(totalMillis)).append(" ms");
+            if (trayType != null) {
+                builder.append(" (").append(trayType).append(")");
+            }
+            if (!isSuccess) {
+                builder.append(" FAILED");
+            }
+
+            for (Phase phase : phases) {
+                builder.append(OS.LINE_SEPARATOR)
+                       .append("  ").append(format(phase.startMillis)).append(" ms\t+").append(format(phase.durationMillis)).append(" ms\t")
+                       .append(phase.name);
+
+                if (phase.isNativeLibrary) {
+                    builder.append(" [native]");
+                }
+                builder.append(" [").append(phase.thread).append("]");
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static
+    double toMillis(final long nanos) {
+        return nanos / 1000000.0D;
+    }
+
+    private static
+    String format(final double millis) {
+        // 0.01 ms is more than precise enough
+        return Double.toString(Math.round(millis * 100.0D) / 100.0D);
+    }
+
+    private static
+    String quote(final String text) {
+        final StringBuilder builder = new StringBuilder(text.length() + 2);
+        builder.append('"');
+
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '"': builder.append("\\\""); break;
+                case '\\': builder.append("\\\\"); break;
+                case '\n': builder.append("\\n"); break;
+                case '\r': builder.append("\\r"); break;
+                case '\t': builder.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+
+        return builder.append('"').toString();
+    }
+}
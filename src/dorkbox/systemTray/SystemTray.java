@@ -19,11 +19,17 @@ import java.awt.Component;
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.stream.ImageInputStream;
@@ -54,12 +60,17 @@ import dorkbox.systemTray.ui.swing._SwingTray;
 import dorkbox.systemTray.ui.swing._WindowsNativeTray;
 import dorkbox.systemTray.util.EventDispatch;
 import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.ImageSizeWatcher;
+import dorkbox.systemTray.util.IndicatorServiceDetector;
+import dorkbox.systemTray.util.LazyImage;
 import dorkbox.systemTray.util.LinuxSwingUI;
 import dorkbox.systemTray.util.SizeAndScalingUtil;
 import dorkbox.systemTray.util.SystemTrayFixes;
+import dorkbox.systemTray.util.TrayDetectionCache;
+import dorkbox.systemTray.util.UrlImageFetcher;
 import dorkbox.systemTray.util.WindowsSwingUI;
 import dorkbox.util.CacheUtil;
-import dorkbox.util.IO;
+import dorkbox.util.NamedThreadFactory;
 import dorkbox.util.OS;
 import dorkbox.util.OSUtil;
 import dorkbox.util.Property;
@@ -86,6 +97,17 @@ public final
 class SystemTray {
     public static final Logger logger = LoggerFactory.getLogger(SystemTray.class);
 
+    public
+    interface MenuOpeningListener {
+        /**
+         * Called (on the event dispatch) when the menu of the tray is about to be shown, see
+         * {@link SystemTray#setMenuOpeningListener(MenuOpeningListener)}.
+         *
+         * @param systemTray the SystemTray whose menu is about to be shown
+         */
+        void onMenuOpening(SystemTray systemTray);
+    }
+
     public enum TrayType {
         /** Will choose as a 'best guess' which tray type to use */
         AutoDetect, Gtk,
@@ -159,10 +181,98 @@ class SystemTray {
     public static boolean DEBUG = false;
 
 
+    @Property
+    /**
+     * If set, the startup report (how long each phase of the initialization took) is written to this file as JSON.
+     * <p>
+     * See {@link #getStartupReport()}
+     */
+    public static String STARTUP_REPORT_FILE = null;
+
+    @Property
+    /**
+     * Keeps the GTK main loop, the detected tray type and the image sizes after {@link #shutdown()}, so that calling {@link #get()}
+     * again only has to create the tray (which is very fast).
+     * <p>
+     * Because the GTK main loop keeps running, call {@link #releaseWarm()} once the tray will not be shown again.
+     */
+    public static boolean KEEP_WARM = false;
+
+    @Property
+    /**
+     * How long (in milliseconds) {@link #shutdown()} waits for the events that are still queued (ie: menu changes) to finish. What has
+     * not finished by then is abandoned, and logged.
+     * <p>
+     * See {@link #getAbandonedOnShutdown()}
+     */
+    public static int SHUTDOWN_TIMEOUT = 1000;
+
+    @Property
+    /**
+     * Makes the native entries of a sub-menu only once the menu it is in has been shown (which is before the sub-menu can be opened),
+     * instead of making the native entries of the entire menu tree when it is added. Until then, the entries are only kept in the menu.
+     * <p>
+     * This only makes a difference on platforms that tell us when a menu is shown (GtkStatusIcon and Swing).
+     */
+    public static boolean LAZY_MENUS = true;
+
+    @Property
+    /**
+     * How long (in milliseconds) showing the menu is put off for the {@link MenuOpeningListener}, so that what the listener changes can
+     * be shown right away. The UI thread is not blocked while it is. If the listener takes longer, the menu is shown anyways (and the
+     * changes show up when they are done). 0 to show the menu right away.
+     */
+    public static int MENU_OPENING_TIMEOUT = 100;
+
+    @Property
+    /**
+     * Entries (and the tray) that use the same image file, path or URL share it, so it is only resized + cached once and only one copy of
+     * it is kept. This makes a difference for very large menus where many entries use the same few images.
+     * <p>
+     * A shared image is not read again, so if the file (or what is at the URL) changes, it is not seen until it is no longer used by
+     * anything. Use a different file name (or an Image or InputStream) for images that change.
+     */
+    public static boolean SHARE_IMAGES = false;
+
+    @Property
+    /**
+     * Sub-menus show their entries as the rows of a single scrolling list, instead of making a menu item for every entry. Only the rows
+     * that can be seen are laid out and painted, so opening a sub-menu with thousands of entries is as fast as opening a small one.
+     * Sub-menus of these are opened in the same list (with a row at the top to go back).
+     * <p>
+     * This only makes a difference for the Swing tray types.
+     */
+    public static boolean SWING_LIST_MENUS = false;
+
+
     private static volatile SystemTray systemTray = null;
     private static volatile Tray systemTrayMenu = null;
+    private static volatile StartupReport startupReport = null;
+    private static volatile StartupGraph startupGraph = null;
+    private static volatile SystemTrayFuture asyncInit = null;
     private static volatile boolean shutdownHooksAdded = false;
 
+    // the tray type of the last tray that was created with KEEP_WARM. The next tray is created with this, without detecting it again.
+    private static volatile Class<? extends Tray> warmTrayType = null;
+    private static volatile boolean isGuiKeptWarm = false;
+
+    // the gnome-shell extensions (or config files) that a tray type can need. Which one was needed is cached with the tray type.
+    private static final String EXTENSION_LEGACY = "legacy";
+    private static final String EXTENSION_APP_INDICATOR = "appIndicator";
+    private static final String EXTENSION_DUMMY_FILE = "dummyFile";
+
+    // which of those the tray type that is being started needs (or null). Only used during init.
+    private static volatile String detectedExtension = null;
+
+    // the events that were still queued (and abandoned) during the last shutdown
+    private static volatile List<String> abandonedOnShutdown = Collections.emptyList();
+
+    // called (on the event dispatch) when the menu of the tray is about to be shown
+    private volatile MenuOpeningListener menuOpeningListener = null;
+
+    // shows the menu if the menu opening listener takes too long, only made once it is needed
+    private ScheduledExecutorService menuOpeningTimer = null;
+
 
     private static
     boolean isTrayType(final Class<? extends Tray> tray, final TrayType trayType) {
@@ -239,9 +349,10 @@ class SystemTray {
         return null;
     }
 
-    // This will return what the default "autodetect" tray type should be
+    // This will return what the default "autodetect" tray type should be.
+    //  When verifying (a cached result), nothing is changed or installed. The tray that is already up keeps what it started with.
     private static
-    Class<? extends Tray> getAutoDetectTrayType() {
+    Class<? extends Tray> getAutoDetectTrayType(final boolean isVerifying) {
         if (OS.isWindows()) {
             try {
                 return selectType(TrayType.WindowsNative);
@@ -359,9 +470,11 @@ class SystemTray {
                                 return selectTypeQuietly(TrayType.Gtk);
                             }
                             else if (minorAndPatch < 26.0D) {
-                                Tray.gtkGnomeWorkaround = true;
-
-                                LegacyExtension.install();
+                                if (!isVerifying) {
+                                    Tray.gtkGnomeWorkaround = true;
+                                    detectedExtension = EXTENSION_LEGACY;
+                                    installDesktopExtension(EXTENSION_LEGACY);
+                                }
 
                                 // now, what VERSION of fedora? "normal" fedora doesn't have AppIndicator installed, so we have to use GtkStatusIcon
                                 // 23 is gtk, 24/25/26 is gtk (but also wrong size unless we adjust it. ImageUtil automatically does this)
@@ -372,11 +485,16 @@ class SystemTray {
                                 // the work-around for fedora is to install libappindicator + the appindicator extension
 
                                 // install the appindicator Gnome extension
-                                if (!AppIndicatorExtension.isInstalled()) {
-                                    AppIndicatorExtension.install();
-
-                                    logger.error("You must log out and then in again for system tray settings to apply.");
-                                    return null;
+                                if (isVerifying) {
+                                    if (!AppIndicatorExtension.isPresent()) {
+                                        return null;
+                                    }
+                                }
+                                else {
+                                    detectedExtension = EXTENSION_APP_INDICATOR;
+                                    if (!installDesktopExtension(EXTENSION_APP_INDICATOR)) {
+                                        return null;
+                                    }
                                 }
 
                                 return selectTypeQuietly(TrayType.AppIndicator);
@@ -405,14 +523,20 @@ class SystemTray {
                         // ubuntu 17.10+ uses the NEW gnome DE, which screws up previous Ubuntu workarounds, since it's now mostly Gnome
                         if (version[0] == 17 && version[1] == 10) {
                             // this is gnome 3.26.1, so we install the Gnome extension
-                            Tray.gtkGnomeWorkaround = true;
-                            LegacyExtension.install();
+                            if (!isVerifying) {
+                                Tray.gtkGnomeWorkaround = true;
+                                detectedExtension = EXTENSION_LEGACY;
+                                installDesktopExtension(EXTENSION_LEGACY);
+                            }
                         }
                         else if (version[0] >= 18) {
                             // ubuntu 18.04 doesn't need the extension BUT does need a logout-login (or gnome-shell restart) for it to work
 
                             // we copy over a config file so we know if we have already restarted the shell or shown the warning. A logout-login will also work.
-                            DummyFile.install();
+                            if (!isVerifying) {
+                                detectedExtension = EXTENSION_DUMMY_FILE;
+                                installDesktopExtension(EXTENSION_DUMMY_FILE);
+                            }
                         }
 
                         return selectTypeQuietly(TrayType.AppIndicator);
@@ -491,52 +615,25 @@ class SystemTray {
             }
 
             // Try to autodetect if we can use app indicators (or if we need to fallback to GTK indicators)
-            BufferedReader bin = null;
             try {
                 // the ONLY guaranteed way to determine if indicator-application-service is running (and thus, using app-indicator),
-                // is to look through all /proc/<pid>/status, and first line should be Name:\tindicator-appli
-                File proc = new File("/proc");
-                File[] listFiles = proc.listFiles();
-                if (listFiles != null) {
-                    for (File procs : listFiles) {
-                        String name = procs.getName();
-
-                        if (!Character.isDigit(name.charAt(0))) {
-                            continue;
-                        }
-
-                        File status = new File(procs, "status");
-                        if (!status.canRead()) {
-                            continue;
+                // is to ask the session bus, or to look through all of the processes for 'indicator-appli'
+                if (IndicatorServiceDetector.isRunning()) {
+                    // make sure we can also load the library (it might be the wrong version)
+                    try {
+                        return selectType(TrayType.AppIndicator);
+                    } catch (Exception e) {
+                        if (DEBUG) {
+                            logger.error("AppIndicator support detected, but unable to load the library. Falling back to GTK", e);
                         }
-
-                        try {
-                            bin = new BufferedReader(new FileReader(status));
-                            String readLine = bin.readLine();
-
-                            if (readLine != null && readLine.contains("indicator-app")) {
-                                // make sure we can also load the library (it might be the wrong version)
-                                try {
-                                    return selectType(TrayType.AppIndicator);
-                                } catch (Exception e) {
-                                    if (DEBUG) {
-                                        logger.error("AppIndicator support detected, but unable to load the library. Falling back to GTK",
-                                                     e);
-                                    }
-                                    else {
-                                        logger.error("AppIndicator support detected, but unable to load the library. Falling back to GTK");
-                                    }
-                                }
-                                break;
-                            }
-                        } finally {
-                            IO.closeQuietly(bin);
+                        else {
+                            logger.error("AppIndicator support detected, but unable to load the library. Falling back to GTK");
                         }
                     }
                 }
             } catch (Throwable e) {
                 if (DEBUG) {
-                    logger.error("Error detecting gnome version", e);
+                    logger.error("Error detecting the indicator service", e);
                 }
             }
 
@@ -557,9 +654,112 @@ class SystemTray {
         throw new RuntimeException("This OS is not supported. Please create an issue with the details from `SystemTray.DEBUG=true;`");
     }
 
-    @SuppressWarnings({"ConstantConditions", "StatementWithEmptyBody"})
+    /**
+     * Installs (or checks) the gnome-shell extension (or config file) that the detected tray type needs. This is done on every start,
+     * also when the tray type was cached, since the extension can be removed (or upgraded) by the user at any time.
+     *
+     * @param extension one of the EXTENSION_ names, or null for none
+     *
+     * @return false if the tray cannot be used until the user logs out and then in again
+     */
+    private static
+    boolean installDesktopExtension(final String extension) {
+        if (EXTENSION_LEGACY.equals(extension)) {
+            runInBackground("gnome legacy extension install", new Runnable() {
+                @Override
+                public
+                void run() {
+                    LegacyExtension.install();
+                }
+            });
+        }
+        else if (EXTENSION_DUMMY_FILE.equals(extension)) {
+            runInBackground("gnome shell restart check", new Runnable() {
+                @Override
+                public
+                void run() {
+                    DummyFile.install();
+                }
+            });
+        }
+        else if (EXTENSION_APP_INDICATOR.equals(extension)) {
+            // only the disk is checked here. Asking gsettings (a new process) if it is enabled does not hold up the tray.
+            if (!AppIndicatorExtension.isPresent()) {
+                runInBackground("gnome appindicator extension install", new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        AppIndicatorExtension.install();
+                    }
+                });
+
+                logger.error("You must log out and then in again for system tray settings to apply.");
+                return false;
+            }
+
+            runInBackground("gnome appindicator extension check", new Runnable() {
+                @Override
+                public
+                void run() {
+                    if (!AppIndicatorExtension.isInstalled()) {
+                        // it is there, but it is not enabled
+                        AppIndicatorExtension.install();
+                        logger.error("You must log out and then in again for system tray settings to apply.");
+                    }
+                }
+            });
+        }
+
+        return true;
+    }
+
+    // installing (or upgrading) the gnome-shell extensions does not have to finish before the tray is created
+    private static
+    void runInBackground(final String name, final Runnable work) {
+        final StartupGraph graph = startupGraph;
+        if (graph != null) {
+            graph.background(name, work);
+        }
+        else {
+            work.run();
+        }
+    }
+
     private static
     void init() {
+        final StartupReport report = new StartupReport();
+        startupReport = report;
+
+        final StartupGraph graph = new StartupGraph(report);
+        startupGraph = graph;
+
+        try {
+            init(report, graph);
+        } finally {
+            startupGraph = null;
+            graph.shutdown();
+
+            final Tray menu = systemTrayMenu;
+            report.finish(menu != null, menu == null ? null : menu.getClass().getSimpleName());
+
+            if (DEBUG) {
+                logger.debug(report.toString());
+            }
+
+            final String reportFile = STARTUP_REPORT_FILE;
+            if (reportFile != null) {
+                try {
+                    report.writeJson(new File(reportFile));
+                } catch (Exception e) {
+                    logger.error("Unable to write the startup report to '{}'", reportFile, e);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings({"ConstantConditions", "StatementWithEmptyBody"})
+    private static
+    void init(final StartupReport report, final StartupGraph graph) {
         // have to RECREATE the menu if we call get() after remove()!
 
 //        if (DEBUG) {
@@ -569,6 +769,8 @@ class SystemTray {
 //            }
 //        }
 
+        long phaseStart = System.nanoTime();
+
         // no tray in a headless environment
         if (GraphicsEnvironment.isHeadless()) {
             logger.error("Cannot use the SystemTray in a headless environment");
@@ -577,6 +779,8 @@ class SystemTray {
             systemTray = null;
             return;
         }
+        report.phase("headless check", phaseStart);
+        phaseStart = System.nanoTime();
 
         boolean isNix = OS.isLinux() || OS.isUnix();
         boolean isWindows = OS.isWindows();
@@ -831,6 +1035,7 @@ class SystemTray {
                 }
             }
         }
+        report.phase("GTK version reconciliation", phaseStart);
 
 
 
@@ -871,110 +1076,173 @@ class SystemTray {
 
 
         // this has to happen BEFORE any sort of swing system tray stuff is accessed
-        Class<? extends Tray> trayType;
-        if (SystemTray.FORCE_TRAY_TYPE == TrayType.AutoDetect) {
-            trayType = getAutoDetectTrayType();
+        phaseStart = System.nanoTime();
+
+        // probing the desktop environment is slow (processes, files, /proc), so on linux the result is remembered for the next start.
+        // The environment fingerprint is cheap, and a cached result is verified again once the tray is already up.
+        // when kept warm, everything was already detected + started by the previous tray
+        final Class<? extends Tray> warmType = KEEP_WARM ? warmTrayType : null;
+
+        detectedExtension = null;
+
+        final String detectionFingerprint;
+        final TrayDetectionCache.Result cachedDetection;
+        if (warmType == null && isNix && SystemTray.FORCE_TRAY_TYPE == TrayType.AutoDetect) {
+            detectionFingerprint = TrayDetectionCache.fingerprint(GtkCheck.getLoadedGtkVersion());
+            cachedDetection = TrayDetectionCache.load(detectionFingerprint);
         } else {
-            trayType = selectTypeQuietly(SystemTray.FORCE_TRAY_TYPE);
+            detectionFingerprint = null;
+            cachedDetection = null;
         }
 
-        if (trayType == null) {
-            if (OSUtil.DesktopEnv.isChromeOS()) {
-                logger.error("ChromeOS detected and it is not supported. Aborting.");
+        Class<? extends Tray> detectedType = null;
+        Class<? extends Tray> trayType;
+        if (warmType != null) {
+            detectedType = warmType;
+            trayType = warmType;
+
+            if (DEBUG) {
+                logger.debug("Using the tray type that was kept warm: {}", warmType.getSimpleName());
             }
+        }
+        else if (cachedDetection != null) {
+            detectedType = selectTypeQuietly(cachedDetection.detectedType);
+            trayType = selectTypeQuietly(cachedDetection.trayType);
 
-            systemTrayMenu = null;
-            systemTray = null;
-            return;
+            // these are the adjustments that were made the last time
+            SystemTray.FORCE_TRAY_TYPE = cachedDetection.forceTrayType;
+            FORCE_GTK2 = cachedDetection.forceGtk2;
+            PREFER_GTK3 = cachedDetection.preferGtk3;
+            Tray.gtkGnomeWorkaround = cachedDetection.gtkGnomeWorkaround;
+
+            if (DEBUG) {
+                logger.debug("Using the cached tray type: {}", cachedDetection.trayType);
+            }
+
+            // the extension checks are not cached, only which one is needed
+            detectedExtension = cachedDetection.desktopExtension;
+            if (!installDesktopExtension(detectedExtension)) {
+                TrayDetectionCache.invalidate();
+
+                systemTrayMenu = null;
+                systemTray = null;
+                return;
+            }
         }
+        else {
+            if (SystemTray.FORCE_TRAY_TYPE == TrayType.AutoDetect) {
+                trayType = getAutoDetectTrayType(false);
+                detectedType = trayType;
+            } else {
+                trayType = selectTypeQuietly(SystemTray.FORCE_TRAY_TYPE);
+            }
 
+            if (trayType == null) {
+                if (OSUtil.DesktopEnv.isChromeOS()) {
+                    logger.error("ChromeOS detected and it is not supported. Aborting.");
+                }
 
+                systemTrayMenu = null;
+                systemTray = null;
+                return;
+            }
 
-        // fix various incompatibilities with selected tray types
-        if (isNix) {
-            // Ubuntu UNITY has issues with GtkStatusIcon (it won't work at all...)
-            if (isTrayType(trayType, TrayType.Gtk)) {
-                OSUtil.DesktopEnv.Env de = OSUtil.DesktopEnv.get();
 
-                if (OSUtil.Linux.isUbuntu() && OSUtil.DesktopEnv.isUnity(de)) {
-                    if (AUTO_FIX_INCONSISTENCIES) {
-                        // GTK2 does not support AppIndicators!
-                        if (Gtk.isGtk2) {
-                            trayType = selectTypeQuietly(TrayType.Swing);
-                            logger.warn("Forcing Swing Tray type because Ubuntu Unity display environment removed support for GtkStatusIcons " +
-                                        "and GTK2+ was specified.");
+
+            // fix various incompatibilities with selected tray types
+            if (isNix) {
+                // Ubuntu UNITY has issues with GtkStatusIcon (it won't work at all...)
+                if (isTrayType(trayType, TrayType.Gtk)) {
+                    OSUtil.DesktopEnv.Env de = OSUtil.DesktopEnv.get();
+
+                    if (OSUtil.Linux.isUbuntu() && OSUtil.DesktopEnv.isUnity(de)) {
+                        if (AUTO_FIX_INCONSISTENCIES) {
+                            // GTK2 does not support AppIndicators!
+                            if (Gtk.isGtk2) {
+                                trayType = selectTypeQuietly(TrayType.Swing);
+                                logger.warn("Forcing Swing Tray type because Ubuntu Unity display environment removed support for GtkStatusIcons " +
+                                            "and GTK2+ was specified.");
+                            }
+                            else {
+                                // we must use AppIndicator because Ubuntu Unity removed GtkStatusIcon support
+                                SystemTray.FORCE_TRAY_TYPE = TrayType.AppIndicator; // this is required because of checks inside of AppIndicator...
+                                trayType = selectTypeQuietly(TrayType.AppIndicator);
+
+                                logger.warn("Forcing AppIndicator because Ubuntu Unity display environment removed support for GtkStatusIcons.");
+                            }
                         }
                         else {
-                            // we must use AppIndicator because Ubuntu Unity removed GtkStatusIcon support
-                            SystemTray.FORCE_TRAY_TYPE = TrayType.AppIndicator; // this is required because of checks inside of AppIndicator...
-                            trayType = selectTypeQuietly(TrayType.AppIndicator);
+                            logger.error("Unable to use the GtkStatusIcons when running on Ubuntu with the Unity display environment, and thus" +
+                                         " the SystemTray will not work. " +
+                                         "Please set `SystemTray.AUTO_FIX_INCONSISTENCIES=true;` to automatically fix this problem.");
 
-                            logger.warn("Forcing AppIndicator because Ubuntu Unity display environment removed support for GtkStatusIcons.");
+                            systemTrayMenu = null;
+                            systemTray = null;
+                            return;
                         }
                     }
-                    else {
-                        logger.error("Unable to use the GtkStatusIcons when running on Ubuntu with the Unity display environment, and thus" +
-                                     " the SystemTray will not work. " +
-                                     "Please set `SystemTray.AUTO_FIX_INCONSISTENCIES=true;` to automatically fix this problem.");
-
-                        systemTrayMenu = null;
-                        systemTray = null;
-                        return;
-                    }
-                }
 
-                if (de == OSUtil.DesktopEnv.Env.Gnome) {
-                    boolean hasWeirdOsProblems = OSUtil.Linux.isKali() || (OSUtil.Linux.isFedora());
-                    if (hasWeirdOsProblems) {
-                        // Fedora and Kali linux has some WEIRD graphical oddities via GTK3. GTK2 looks just fine.
-                        PREFER_GTK3 = false;
+                    if (de == OSUtil.DesktopEnv.Env.Gnome) {
+                        boolean hasWeirdOsProblems = OSUtil.Linux.isKali() || (OSUtil.Linux.isFedora());
+                        if (hasWeirdOsProblems) {
+                            // Fedora and Kali linux has some WEIRD graphical oddities via GTK3. GTK2 looks just fine.
+                            PREFER_GTK3 = false;
 
-                        if (DEBUG) {
-                            logger.debug("Preferring GTK2 because this OS has weird graphical issues with GTK3 status icons");
+                            if (DEBUG) {
+                                logger.debug("Preferring GTK2 because this OS has weird graphical issues with GTK3 status icons");
+                            }
                         }
                     }
                 }
-            }
 
-            if (isTrayType(trayType, TrayType.AppIndicator)) {
-                if (SystemTray.ENABLE_ROOT_CHECK &&  OSUtil.Linux.isRoot()) {
-                    // if are we running as ROOT, there can be issues (definitely on Ubuntu 16.04, maybe others)!
-                    if (AUTO_FIX_INCONSISTENCIES) {
-                        trayType = selectTypeQuietly(TrayType.Swing);
+                if (isTrayType(trayType, TrayType.AppIndicator)) {
+                    if (SystemTray.ENABLE_ROOT_CHECK &&  OSUtil.Linux.isRoot()) {
+                        // if are we running as ROOT, there can be issues (definitely on Ubuntu 16.04, maybe others)!
+                        if (AUTO_FIX_INCONSISTENCIES) {
+                            trayType = selectTypeQuietly(TrayType.Swing);
 
-                        logger.warn("Attempting to load the SystemTray as the 'root/sudo' user. This will likely not work because of dbus " +
-                                     "restrictions. Using the Swing Tray type instead. Please refer to the readme notes or issue #63 on " +
-                                    "how to work around this.");
+                            logger.warn("Attempting to load the SystemTray as the 'root/sudo' user. This will likely not work because of dbus " +
+                                         "restrictions. Using the Swing Tray type instead. Please refer to the readme notes or issue #63 on " +
+                                        "how to work around this.");
 
-                    } else {
-                        logger.error("Attempting to load the SystemTray as the 'root/sudo' user. This will likely NOT WORK because of dbus " +
-                                     "restrictions. Please refer to the readme notes or issue #63 on how to work around this.");
+                        } else {
+                            logger.error("Attempting to load the SystemTray as the 'root/sudo' user. This will likely NOT WORK because of dbus " +
+                                         "restrictions. Please refer to the readme notes or issue #63 on how to work around this.");
+                        }
                     }
-                }
 
 
-                if (OSUtil.Linux.isElementaryOS() && OSUtil.Linux.getElementaryOSVersion()[0] >= 5) {
-                    // in version 5.0+, they REMOVED support for appindicators. You can add it back via some extra work.
-                    // see: https://git.dorkbox.com/dorkbox/elementary-indicators
+                    if (OSUtil.Linux.isElementaryOS() && OSUtil.Linux.getElementaryOSVersion()[0] >= 5) {
+                        // in version 5.0+, they REMOVED support for appindicators. You can add it back via some extra work.
+                        // see: https://git.dorkbox.com/dorkbox/elementary-indicators
 
-                    // or you can download
-                    // https://launchpad.net/~elementary-os/+archive/ubuntu/stable/+files/wingpanel-indicator-ayatana_2.0.3+r27+pkg17~ubuntu0.4.1.1_amd64.deb
-                    // then dpkg -i filename
+                        // or you can download
+                        // https://launchpad.net/~elementary-os/+archive/ubuntu/stable/+files/wingpanel-indicator-ayatana_2.0.3+r27+pkg17~ubuntu0.4.1.1_amd64.deb
+                        // then dpkg -i filename
 
-                    // check if this library is installed.
-                    if (!new File("/usr/share/doc/wingpanel-indicator-ayatana").isDirectory()) {
-                        logger.error("Unable to use the SystemTray as-is with this version of ElementaryOS. By default, tray icons *are not* supported, but a" +
-                                     " workaround has been developed. Please see: https://git.dorkbox.com/dorkbox/elementary-indicators");
+                        // check if this library is installed.
+                        if (!new File("/usr/share/doc/wingpanel-indicator-ayatana").isDirectory()) {
+                            logger.error("Unable to use the SystemTray as-is with this version of ElementaryOS. By default, tray icons *are not* supported, but a" +
+                                         " workaround has been developed. Please see: https://git.dorkbox.com/dorkbox/elementary-indicators");
 
-                        systemTrayMenu = null;
-                        systemTray = null;
-                        return;
+                            systemTrayMenu = null;
+                            systemTray = null;
+                            return;
+                        }
                     }
                 }
             }
         }
 
 
+
+        if (warmType != null) {
+            report.phase("tray type detection (warm)", phaseStart);
+        }
+        else {
+            report.phase(cachedDetection != null ? "tray type detection (cached)" : "tray type detection", phaseStart);
+        }
+
         if (trayType == null) {
             // unsupported tray, or unknown type
             trayType = selectTypeQuietly(TrayType.Swing);
@@ -994,8 +1262,16 @@ class SystemTray {
             if (isNix) {
                 // linux/unix need access to GTK, so load it up before the tray is loaded!
                 // Swing gets the image size info VIA gtk, so this is important as well.
-                GtkEventDispatch.startGui(FORCE_GTK2, PREFER_GTK3, DEBUG);
-                GtkEventDispatch.waitForEventsToComplete();
+                if (warmType == null) {
+                    phaseStart = System.nanoTime();
+                    GtkEventDispatch.startGui(FORCE_GTK2, PREFER_GTK3, DEBUG);
+                    report.phase("GTK library load + start", phaseStart, true);
+
+                    phaseStart = System.nanoTime();
+                    GtkEventDispatch.waitForEventsToComplete();
+                    report.phase("GTK wait for events", phaseStart);
+                }
+                // otherwise the GTK main loop is still running
 
                 if (DEBUG) {
                     // output what version of GTK we have loaded.
@@ -1011,7 +1287,11 @@ class SystemTray {
 
                 // this will to load the app-indicator library
                 else if (isTrayType(trayType, TrayType.AppIndicator)) {
-                    if (!AppIndicator.isLoaded) {
+                    phaseStart = System.nanoTime();
+                    final boolean isAppIndicatorLoaded = AppIndicator.isLoaded;
+                    report.phase("AppIndicator library load", phaseStart, true);
+
+                    if (!isAppIndicatorLoaded) {
                         // YIKES. AppIndicator couldn't load.
 
                         // can we fallback to swing? KDE does not work for this...
@@ -1047,34 +1327,74 @@ class SystemTray {
             }
 
 
+            // everything below (until the tray is created) does not depend on each other, except where noted. These run at the same time.
+            final Class<? extends Tray> finalTrayType = trayType;
+            final AtomicInteger trayImageSize = new AtomicInteger();
+
             // initialize tray/menu image sizes. This must be BEFORE the system tray has been created
-            int trayImageSize = SizeAndScalingUtil.getTrayImageSize();
-            int menuImageSize = SizeAndScalingUtil.getMenuImageSize(trayType);
+            final StartupGraph.Task imageSizes = graph.critical("image sizes", false, new Runnable() {
+                @Override
+                public
+                void run() {
+                    trayImageSize.set(SizeAndScalingUtil.getTrayImageSize());
+                    int menuImageSize = SizeAndScalingUtil.getMenuImageSize(finalTrayType);
 
-            if (DEBUG) {
-                logger.debug("Tray indicator image size: {}", trayImageSize);
-                logger.debug("Tray menu image size: {}", menuImageSize);
-            }
+                    if (DEBUG) {
+                        logger.debug("Tray indicator image size: {}", trayImageSize.get());
+                        logger.debug("Tray menu image size: {}", menuImageSize);
+                    }
+                }
+            });
 
-            if (AUTO_FIX_INCONSISTENCIES) {
+            // when kept warm, the fixes have already been applied (and cannot be applied twice)
+            if (AUTO_FIX_INCONSISTENCIES && warmType == null) {
                 // this logic has to be before we create the system Tray, but after GTK is started (if applicable)
                 if (isWindows && isTrayType(trayType, TrayType.Swing)) {
                     // we don't permit AWT for windows (it looks absolutely HORRID)
 
                     // Our default for windows is now a native tray icon (instead of the swing tray icon), but we preserve the use of Swing
                     // windows hard-codes the image size for AWT/SWING tray types
-                    SystemTrayFixes.fixWindows(trayImageSize);
+                    graph.critical("SystemTrayFixes", false, new Runnable() {
+                        @Override
+                        public
+                        void run() {
+                            SystemTrayFixes.fixWindows(trayImageSize.get());
+                        }
+                    }, imageSizes);
                 }
                 else if (isMacOsX && (isTrayType(trayType, TrayType.Awt) || isTrayType(trayType, TrayType.Swing))) {
                     // macosx doesn't respond to all buttons (but should)
-                    SystemTrayFixes.fixMacOS();
+                    graph.critical("SystemTrayFixes", false, new Runnable() {
+                        @Override
+                        public
+                        void run() {
+                            SystemTrayFixes.fixMacOS();
+                        }
+                    });
                 }
                 else if (isNix && isTrayType(trayType, TrayType.Swing)) {
                     // linux/mac doesn't have transparent backgrounds for swing and hard-codes the image size
-                    SystemTrayFixes.fixLinux(trayImageSize);
+                    graph.critical("SystemTrayFixes", false, new Runnable() {
+                        @Override
+                        public
+                        void run() {
+                            SystemTrayFixes.fixLinux(trayImageSize.get());
+                        }
+                    }, imageSizes);
                 }
             }
 
+            if (isTrayType(trayType, TrayType.Gtk) || isTrayType(trayType, TrayType.AppIndicator)) {
+                // every GTK menu entry uses this as a spacer
+                graph.critical("menu assets", false, new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        ImageResizeUtil.getTransparentImage();
+                    }
+                });
+            }
+
 
 
 
@@ -1090,9 +1410,18 @@ class SystemTray {
 
             if (isTrayType(trayType, TrayType.Swing) || isTrayType(trayType, TrayType.Awt) || isTrayType(trayType, TrayType.WindowsNative)) {
                 // ensure AWT toolkit is initialized.
-                java.awt.Toolkit.getDefaultToolkit();
+                graph.critical("AWT toolkit", true, new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        java.awt.Toolkit.getDefaultToolkit();
+                    }
+                });
             }
 
+            // this is the critical path. Nothing else has to finish before the tray is created
+            graph.awaitCritical();
+
 
 
             // javaFX and SWT **CAN NOT** start on the EDT!!
@@ -1116,7 +1445,9 @@ class SystemTray {
                     public
                     void run() {
                         try {
+                            long start = System.nanoTime();
                             reference.set((Tray) finalTrayType.getConstructors()[0].newInstance(systemTray));
+                            report.phase("tray construction", start);
                         } catch (Exception e) {
                             logger.error("Unable to create tray type: '" + finalTrayType.getSimpleName() + "'", e);
                         }
@@ -1124,7 +1455,9 @@ class SystemTray {
                 });
             }
             else {
+                phaseStart = System.nanoTime();
                 reference.set((Tray) trayType.getConstructors()[0].newInstance(systemTray));
+                report.phase("tray construction", phaseStart);
             }
         } catch (Exception e) {
             logger.error("Unable to create tray type: '" + trayType.getSimpleName() + "'", e);
@@ -1134,12 +1467,52 @@ class SystemTray {
         systemTrayMenu = reference.get();
 
         if (systemTrayMenu != null) {
+            if (KEEP_WARM) {
+                warmTrayType = trayType;
+            }
+
             if (DEBUG) {
                 logger.info("Successfully loaded type: {}", trayType.getSimpleName());
             } else {
                 logger.info("Successfully loaded");
             }
 
+            // when the scale factor (or theme) changes, all of the images are resized again and then shown at the same time
+            ImageSizeWatcher.start(trayType, new ImageSizeWatcher.Listener() {
+                @Override
+                public
+                void onImageSizeChanged() {
+                    final Tray menu = systemTrayMenu;
+                    if (menu == null) {
+                        return;
+                    }
+
+                    final List<Runnable> updates = new ArrayList<Runnable>();
+                    menu.refreshImages(updates);
+
+                    if (!updates.isEmpty()) {
+                        EventDispatch.runLater(new Runnable() {
+                            @Override
+                            public
+                            void run() {
+                                for (Runnable update : updates) {
+                                    update.run();
+                                }
+                            }
+                        });
+                    }
+                }
+            });
+
+            if (detectionFingerprint != null) {
+                if (cachedDetection != null) {
+                    verifyCachedDetection(cachedDetection, detectedType, trayType);
+                } else {
+                    TrayDetectionCache.save(detectionFingerprint, fromClass(detectedType), fromClass(trayType), Tray.gtkGnomeWorkaround,
+                                            detectedExtension, System.currentTimeMillis());
+                }
+            }
+
             // These install a shutdown hook in JavaFX/SWT, so that when the main window is closed -- the system tray is ALSO closed.
             if (ENABLE_SHUTDOWN_HOOK && !shutdownHooksAdded) {
                 // have to make sure that we only add this ONCE!
@@ -1202,6 +1575,79 @@ class SystemTray {
         }
     }
 
+    /**
+     * Checks the image sizes again (in the background), and once the cached result is older than
+     * {@link TrayDetectionCache#VERIFY_INTERVAL}, also detects the tray type again to make sure that it still matches the environment.
+     * <p>
+     * The tray that is already up is never changed. If the environment is different, the cache is removed so that the next start
+     * detects everything again.
+     */
+    private static
+    void verifyCachedDetection(final TrayDetectionCache.Result cached, final Class<? extends Tray> cachedType,
+                               final Class<? extends Tray> trayType) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    long verifiedTime = cached.verifiedTime;
+
+                    if (cached.needsVerify()) {
+                        // nothing that the tray uses is changed by this
+                        final Class<? extends Tray> detected = getAutoDetectTrayType(true);
+
+                        if (detected != cachedType) {
+                            logger.warn("The desktop environment has changed since the tray type was cached. It will be detected again on " +
+                                        "the next start.");
+                            TrayDetectionCache.invalidate();
+                            return;
+                        }
+
+                        verifiedTime = System.currentTimeMillis();
+                    }
+
+                    // if the cached image sizes are wrong, this also updates all of the images
+                    ImageSizeWatcher.checkNow();
+                    TrayDetectionCache.save(cached.fingerprint, fromClass(cachedType), fromClass(trayType), cached.gtkGnomeWorkaround,
+                                            cached.desktopExtension, verifiedTime);
+                } catch (Throwable throwable) {
+                    logger.error("Unable to verify the cached tray type.", throwable);
+                    TrayDetectionCache.invalidate();
+                }
+            }
+        }, "SystemTrayDetectionCheck");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops everything that was kept running after {@link #shutdown()} because of {@link #KEEP_WARM} (the GTK main loop), so the next
+     * tray is detected and started from the beginning again.
+     * <p>
+     * This does nothing to a tray that is currently shown, call it after {@link #shutdown()}.
+     */
+    public static synchronized
+    void releaseWarm() {
+        warmTrayType = null;
+
+        if (isGuiKeptWarm && systemTrayMenu == null) {
+            isGuiKeptWarm = false;
+
+            // does not need to be called on the dispatch (it does that)
+            GtkEventDispatch.shutdownGui();
+        }
+    }
+
+    /**
+     * Gets how long each phase of the last initialization took (and on which thread it ran), including loading the native libraries.
+     *
+     * @return the report, or null if the SystemTray has not been initialized yet
+     */
+    public static
+    StartupReport getStartupReport() {
+        return startupReport;
+    }
+
     /**
      * Gets the version number.
      */
@@ -1222,13 +1668,91 @@ class SystemTray {
      */
     public static
     SystemTray get() {
-        init();
-        return systemTray;
+        final SystemTrayFuture pending;
+
+        // the same lock as getAsync(), so that only one of them can start the initialization
+        synchronized (SystemTray.class) {
+            if (isReady()) {
+                // already initialized (via get() or getAsync()), and not shut down since
+                return systemTray;
+            }
+
+            pending = asyncInit;
+            if (pending == null || pending.isDone()) {
+                init();
+                return systemTray;
+            }
+        }
+
+        // it is already being initialized on a different thread. This waits outside of the lock, since that does not need it.
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return systemTray;
+        }
+    }
+
+    // true if there is a tray, and it has not been shut down
+    private static
+    boolean isReady() {
+        return systemTray != null && systemTrayMenu != null;
+    }
+
+    /**
+     * Initializes the SystemTray on a different thread, so that the caller does not have to wait for it (which can take a while on
+     * some Linux desktops, since GTK has to start and the desktop environment is probed).
+     * <p>
+     * Entries can be added to {@link SystemTrayFuture#getMenu()} right away. They are kept until the tray is ready, and are then
+     * added to the tray menu all at once. The image and tooltip can be set on that menu as well (and the status on the future), and
+     * are applied once the tray is ready. Everything else should be done via
+     * {@link SystemTrayFuture#addListener(SystemTrayFuture.Listener)}.
+     * <p>
+     * Calling this again while the SystemTray is being initialized returns the same future, and {@link #get()} will wait for it.
+     *
+     * @return the future, which is completed with the SystemTray (or null, if the system tray is not supported)
+     */
+    public static synchronized
+    SystemTrayFuture getAsync() {
+        final SystemTrayFuture pending = asyncInit;
+        if (pending != null && (!pending.isDone() || isReady())) {
+            // either it's still being initialized, or it is ready (and was not shut down in the meantime)
+            return pending;
+        }
+
+        final SystemTrayFuture future = new SystemTrayFuture();
+        asyncInit = future;
+
+        if (isReady()) {
+            // already initialized via get()
+            future.complete(systemTray);
+            return future;
+        }
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    init();
+                } catch (Throwable throwable) {
+                    logger.error("Unable to initialize the SystemTray.", throwable);
+                } finally {
+                    future.complete(systemTray);
+                }
+            }
+        }, "SystemTrayInit");
+        thread.start();
+
+        return future;
     }
 
     /**
      * Shuts-down the SystemTray, by removing the menus + tray icon. After calling this method, you MUST call `get()` or `getNative()`
      * again to obtain a new reference to the SystemTray.
+     * <p>
+     * The native menu is released as a whole, and events that are still queued get (at most) {@link #SHUTDOWN_TIMEOUT} milliseconds to
+     * finish before they are abandoned.
      */
     public
     void shutdown() {
@@ -1240,6 +1764,16 @@ class SystemTray {
         }
     }
 
+    /**
+     * @return the names of the events that were still queued when the SystemTray was last shutdown, and did not finish within
+     *         {@link #SHUTDOWN_TIMEOUT}. Empty if everything finished (or if the SystemTray was never shutdown). When the SystemTray
+     *         was shutdown from a menu callback, this is only known once that time has run out.
+     */
+    public static
+    List<String> getAbandonedOnShutdown() {
+        return abandonedOnShutdown;
+    }
+
     /**
      * Gets the 'status' string assigned to the system tray
      */
@@ -1324,6 +1858,101 @@ class SystemTray {
         }
     }
 
+    /**
+     * Sets what is called when the menu of the tray is about to be shown, so that the menu can be changed right before it is shown
+     * (instead of keeping it current all of the time, even though nobody sees it).
+     * <p>
+     * The menu is shown once the listener is done (at most {@link #MENU_OPENING_TIMEOUT} milliseconds later), so that what it changes
+     * is shown right away. Nothing waits for it, the UI keeps running while it does. Changing what entries look like is quick, adding and
+     * removing entries is better done before the menu is opened.
+     * <p>
+     * Not every tray can tell us when its menu is about to be shown. The AppIndicator menu is shown by a different process, so it is
+     * shown without waiting. macOS shows its menu natively, so the listener is never called there.
+     *
+     * @param listener called when the menu is about to be shown, null to remove it
+     */
+    public
+    void setMenuOpeningListener(final MenuOpeningListener listener) {
+        this.menuOpeningListener = listener;
+    }
+
+    /**
+     * Called by the tray (on the UI thread) when its menu is about to be shown. This never blocks the UI thread, because that is where
+     * the changes the listener makes to the menu are applied.
+     *
+     * @param showMenu shows the menu (it posts that to the UI thread itself), after the listener has changed the menu or once
+     *                 {@link #MENU_OPENING_TIMEOUT} has passed, whichever is first. Null if the menu is shown anyways.
+     */
+    void onMenuOpening(final Runnable showMenu) {
+        final MenuOpeningListener listener = menuOpeningListener;
+        final int timeout = MENU_OPENING_TIMEOUT;
+
+        if (listener == null || showMenu == null || timeout <= 0) {
+            if (listener != null) {
+                callMenuOpeningListener(listener, null);
+            }
+            if (showMenu != null) {
+                showMenu.run();
+            }
+            return;
+        }
+
+        final AtomicBoolean isShown = new AtomicBoolean(false);
+        final Runnable showOnce = new Runnable() {
+            @Override
+            public
+            void run() {
+                if (isShown.compareAndSet(false, true)) {
+                    showMenu.run();
+                }
+            }
+        };
+
+        getMenuOpeningTimer().schedule(new Runnable() {
+            @Override
+            public
+            void run() {
+                if (!isShown.get()) {
+                    logger.trace("The menu opening listener took longer than {} ms, showing the menu anyways.", timeout);
+                    showOnce.run();
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        callMenuOpeningListener(listener, showOnce);
+    }
+
+    /**
+     * The listener is the user's code, so it runs on the event dispatch just like every other callback. What it changes in the menu is
+     * posted to the UI thread while it runs, so the menu (which is posted after it) is shown with those changes.
+     */
+    private
+    void callMenuOpeningListener(final MenuOpeningListener listener, final Runnable showMenu) {
+        EventDispatch.runLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                try {
+                    listener.onMenuOpening(SystemTray.this);
+                } catch (Throwable throwable) {
+                    logger.error("Error calling the menu opening listener.", throwable);
+                } finally {
+                    if (showMenu != null) {
+                        showMenu.run();
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized
+    ScheduledExecutorService getMenuOpeningTimer() {
+        if (menuOpeningTimer == null) {
+            menuOpeningTimer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("SystemTrayMenuOpening", true));
+        }
+        return menuOpeningTimer;
+    }
+
     /**
      * Specifies the tooltip text, usually this is used to brand the SystemTray icon with your product's name.
      * <p>
@@ -1396,7 +2025,7 @@ class SystemTray {
 
         final Tray menu = systemTrayMenu;
         if (menu != null) {
-            menu.setImage_(ImageResizeUtil.shouldResizeOrCache(true, imageUrl));
+            menu.setImage_(null, true, imageUrl);
         }
     }
 
@@ -1457,6 +2086,72 @@ class SystemTray {
         }
     }
 
+    /**
+     * Specifies an icon from the current desktop icon theme (for example, "mail-unread") to use for the tray icon.
+     * <p>
+     * GTK and AppIndicator trays load the icon by name, directly from the icon theme, so it is not resized or cached and it will
+     * follow theme changes. Every other tray type will use the fallback image instead (which is resized or cached as usual).
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImage the file of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final File fallbackImage) {
+        setImageByThemeName_(themeName, LazyImage.from(true, fallbackImage));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use for the tray icon.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImagePath the full path of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final String fallbackImagePath) {
+        setImageByThemeName_(themeName, LazyImage.from(true, fallbackImagePath));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use for the tray icon.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImageUrl the URL of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final URL fallbackImageUrl) {
+        setImageByThemeName_(themeName, LazyImage.from(true, fallbackImageUrl));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use for the tray icon.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImageStream the InputStream of the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final InputStream fallbackImageStream) {
+        setImageByThemeName_(themeName, LazyImage.from(true, fallbackImageStream));
+    }
+
+    /**
+     * Specifies an icon from the current desktop icon theme to use for the tray icon.
+     * <p>
+     * See {@link #setImageByThemeName(String, File)}
+     *
+     * @param themeName the name of the icon in the desktop icon theme
+     * @param fallbackImage the image to use when icon themes are not supported, or null
+     */
+    public
+    void setImageByThemeName(final String themeName, final Image fallbackImage) {
+        setImageByThemeName_(themeName, LazyImage.from(true, fallbackImage));
+    }
+
     /**
      * @return the system tray image size, accounting for OS and theme differences
      */
@@ -1507,13 +2202,54 @@ class SystemTray {
         }
     }
 
+    private
+    void setImageByThemeName_(final String themeName, final LazyImage fallbackImage) {
+        final Tray tray = systemTrayMenu;
+        if (tray != null) {
+            tray.setImageByThemeName_(themeName, fallbackImage);
+        }
+    }
+
+    /**
+     * @return true if the tray (the top of the menu) can display icons from the desktop icon theme by name (GTK and AppIndicator)
+     */
+    static
+    boolean supportsThemeIcons(final Menu tray) {
+        return tray instanceof _AppIndicatorNativeTray || tray instanceof _GtkStatusIconNativeTray;
+    }
+
     /**
      * Permits us to take action when the menu is "removed" from the system tray, so we can correctly add it back later.
      */
     void remove_() {
         // we just check for null
         systemTrayMenu = null;
-        EventDispatch.shutdown();
+
+        // the tray implementations leave the GTK main loop running when kept warm
+        isGuiKeptWarm = KEEP_WARM && warmTrayType != null && (OS.isLinux() || OS.isUnix());
+
+        // these do not wait for anything, so they are stopped first
+        synchronized (this) {
+            if (menuOpeningTimer != null) {
+                menuOpeningTimer.shutdownNow();
+                menuOpeningTimer = null;
+            }
+        }
+        ImageSizeWatcher.stop();
+        UrlImageFetcher.shutdown();
+        LazyImage.shutdown();
+
+        // when we are shutdown from a menu callback, this is only known once the time runs out
+        abandonedOnShutdown = Collections.emptyList();
+
+        // this is the only one that waits (for what is still queued), and only as long as we allow
+        EventDispatch.shutdown(SHUTDOWN_TIMEOUT, new EventDispatch.ShutdownCallback() {
+            @Override
+            public
+            void onShutdown(final List<String> abandoned) {
+                abandonedOnShutdown = Collections.unmodifiableList(abandoned);
+            }
+        });
     }
 }
 
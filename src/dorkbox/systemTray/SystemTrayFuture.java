@@ -0,0 +1,586 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.awt.Image;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.imageio.stream.ImageInputStream;
+
+import dorkbox.systemTray.util.LazyImage;
+
+/**
+ * The SystemTray, while it is being initialized on a different thread. See {@link SystemTray#getAsync()}.
+ * <p>
+ * The menu returned by {@link #getMenu()} can be used right away. Entries added to it before the tray is ready are kept, and are then
+ * added to the menu of the tray all at once. Everything else that is changed on it (the image, tooltip, etc.) is applied to the tray
+ * once it is ready.
+ * <p>
+ * If the system tray is not supported, the result is null (just like {@link SystemTray#get()}).
+ */
+public final
+class SystemTrayFuture implements Future<SystemTray> {
+    public
+    interface Listener {
+        /**
+         * Called once the SystemTray is ready, on the thread that initialized it (or right away, if it is already ready).
+         *
+         * @param systemTray the SystemTray, or null if the system tray is not supported
+         */
+        void onReady(SystemTray systemTray);
+    }
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final PendingMenu menu = new PendingMenu();
+
+    // access is guarded by 'this'
+    private List<Listener> listeners = new ArrayList<Listener>();
+    private SystemTray systemTray = null;
+
+    SystemTrayFuture() {
+    }
+
+    /**
+     * Gets the menu of the SystemTray. Before the SystemTray is ready, entries added to this menu are queued and are then added to the
+     * tray menu all at once. Afterwards, this is the tray menu itself (and a menu that was gotten before forwards everything to it).
+     * <p>
+     * If the system tray is not supported, entries added here are never shown.
+     */
+    public
+    Menu getMenu() {
+        final Menu target = menu.getTarget();
+        if (target != null) {
+            return target;
+        }
+        return menu;
+    }
+
+    /**
+     * Sets the 'status' string of the tray, once it is ready. See {@link SystemTray#setStatus(String)}
+     */
+    public
+    void setStatus(final String statusText) {
+        menu.call(new Call() {
+            @Override
+            public
+            void on(final Menu target) {
+                if (target instanceof Tray) {
+                    ((Tray) target).setStatus(statusText);
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a listener that is notified once the SystemTray is ready. This is where the image, tooltip, status, etc. of the tray should
+     * be set.
+     */
+    public
+    void addListener(final Listener listener) {
+        final SystemTray systemTray;
+        synchronized (this) {
+            if (listeners != null) {
+                listeners.add(listener);
+                return;
+            }
+
+            systemTray = this.systemTray;
+        }
+
+        listener.onReady(systemTray);
+    }
+
+    /**
+     * Called once the initialization has finished.
+     */
+    void complete(final SystemTray systemTray) {
+        final List<Listener> listeners;
+        synchronized (this) {
+            if (this.listeners == null) {
+                return;
+            }
+
+            this.systemTray = systemTray;
+            listeners = this.listeners;
+            this.listeners = null;
+        }
+
+        if (systemTray != null) {
+            final Menu trayMenu = systemTray.getMenu();
+            if (trayMenu != null) {
+                menu.bindTo(trayMenu);
+            }
+        }
+
+        latch.countDown();
+
+        for (Listener listener : listeners) {
+            try {
+                listener.onReady(systemTray);
+            } catch (Throwable throwable) {
+                SystemTray.logger.error("Error notifying the SystemTray listener.", throwable);
+            }
+        }
+    }
+
+    /**
+     * The initialization cannot be cancelled.
+     *
+     * @return false
+     */
+    @Override
+    public
+    boolean cancel(final boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public
+    boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public
+    boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * Waits for the SystemTray to be ready.
+     *
+     * @return the SystemTray, or null if the system tray is not supported
+     */
+    @Override
+    public
+    SystemTray get() throws InterruptedException {
+        latch.await();
+
+        synchronized (this) {
+            return systemTray;
+        }
+    }
+
+    /**
+     * Waits (at most the specified time) for the SystemTray to be ready.
+     *
+     * @return the SystemTray, or null if the system tray is not supported
+     */
+    @Override
+    public
+    SystemTray get(final long timeout, final TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("The SystemTray is not ready yet");
+        }
+
+        synchronized (this) {
+            return systemTray;
+        }
+    }
+
+
+    /**
+     * Something that is done to the tray menu, once it exists.
+     */
+    private
+    interface Call {
+        void on(Menu target);
+    }
+
+    /**
+     * Keeps the entries until the tray menu exists, then moves them over and forwards everything to the tray menu. Everything else that
+     * is changed before then is done to the tray menu (in the same order) once it exists.
+     */
+    private static final
+    class PendingMenu extends Menu {
+        // access is guarded by 'menuEntries'
+        private Menu target = null;
+        private final List<Call> calls = new ArrayList<Call>();
+
+        void bindTo(final Menu target) {
+            synchronized (menuEntries) {
+                final List<Entry> entries = menuEntries.clear();
+
+                // this is inside the lock, so that entries added (or changes made) while they are moved over are done after them
+                target.addAll(entries);
+
+                for (Call call : calls) {
+                    try {
+                        call.on(target);
+                    } catch (Throwable throwable) {
+                        SystemTray.logger.error("Error applying a change to the SystemTray menu.", throwable);
+                    }
+                }
+                calls.clear();
+
+                this.target = target;
+            }
+        }
+
+        Menu getTarget() {
+            synchronized (menuEntries) {
+                return target;
+            }
+        }
+
+        /**
+         * Does this to the tray menu, now if it exists or otherwise once it does.
+         */
+        void call(final Call call) {
+            final Menu target;
+            synchronized (menuEntries) {
+                target = this.target;
+                if (target == null) {
+                    calls.add(call);
+                    return;
+                }
+            }
+
+            call.on(target);
+        }
+
+        @Override
+        public
+        <T extends Entry> T add(final T entry, final int index) {
+            final Menu target;
+            synchronized (menuEntries) {
+                target = this.target;
+                if (target == null) {
+                    return super.add(entry, index);
+                }
+            }
+
+            return target.add(entry, index);
+        }
+
+        @Override
+        void addAll(final List<Entry> entries) {
+            final Menu target;
+            synchronized (menuEntries) {
+                target = this.target;
+                if (target == null) {
+                    super.addAll(entries);
+                    return;
+                }
+            }
+
+            target.addAll(entries);
+        }
+
+        @Override
+        public
+        void move(final Entry entry, final int index) {
+            final Menu target;
+            synchronized (menuEntries) {
+                target = this.target;
+                if (target == null) {
+                    super.move(entry, index);
+                    return;
+                }
+            }
+
+            target.move(entry, index);
+        }
+
+        @Override
+        public
+        <T extends Entry> T replace(final Entry entry, final T replacement) {
+            final Menu target;
+            synchronized (menuEntries) {
+                target = this.target;
+                if (target == null) {
+                    return super.replace(entry, replacement);
+                }
+            }
+
+            return target.replace(entry, replacement);
+        }
+
+        @Override
+        public
+        void reconcile(final MenuModel model) {
+            final Menu target;
+            synchronized (menuEntries) {
+                target = this.target;
+                if (target == null) {
+                    super.reconcile(model);
+                    return;
+                }
+            }
+
+            target.reconcile(model);
+        }
+
+        @Override
+        public
+        Entry get(final int menuIndex) {
+            final Menu target = getTarget();
+            if (target != null) {
+                return target.get(menuIndex);
+            }
+            return super.get(menuIndex);
+        }
+
+        @Override
+        public
+        Entry getLast() {
+            final Menu target = getTarget();
+            if (target != null) {
+                return target.getLast();
+            }
+            return super.getLast();
+        }
+
+        @Override
+        public
+        List<Entry> getEntries() {
+            final Menu target = getTarget();
+            if (target != null) {
+                return target.getEntries();
+            }
+            return super.getEntries();
+        }
+
+        @Override
+        public
+        void remove(final Entry entry) {
+            final Menu target;
+            synchronized (menuEntries) {
+                target = this.target;
+                if (target == null) {
+                    super.remove(entry);
+                    return;
+                }
+            }
+
+            target.remove(entry);
+        }
+
+        // everything below is only done to the tray menu
+
+        @Override
+        public
+        void setProvider(final Provider provider, final long timeoutMillis) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setProvider(provider, timeoutMillis);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setProvider(final Provider provider) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setProvider(provider);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setVisible(final boolean visible) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setVisible(visible);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setEnabled(final boolean enabled) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setEnabled(enabled);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setText(final String text) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setText(text);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setCallback(final ActionListener callback) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setCallback(callback);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setShortcut(final char key) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setShortcut(key);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setShortcut(final int key) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setShortcut(key);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setTooltip(final String tooltipText) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setTooltip(tooltipText);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setImage(final File imageFile) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setImage(imageFile);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setImage(final String imagePath) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setImage(imagePath);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setImage(final URL imageUrl) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setImage(imageUrl);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setImage(final InputStream imageStream) {
+            // the stream might be closed (or reused) by the caller before the tray exists
+            final LazyImage image = LazyImage.from(true, imageStream);
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setImageNow_(null, image);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setImage(final ImageInputStream imageStream) {
+            final LazyImage image = LazyImage.from(true, imageStream);
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setImageNow_(null, image);
+                }
+            });
+        }
+
+        @Override
+        public
+        void setImage(final Image image) {
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setImage(image);
+                }
+            });
+        }
+
+        @Override
+        void setImageByThemeName_(final String themeName, final LazyImage fallbackImage) {
+            if (themeName == null) {
+                throw new NullPointerException("themeName");
+            }
+
+            call(new Call() {
+                @Override
+                public
+                void on(final Menu target) {
+                    target.setImageByThemeName_(themeName, fallbackImage);
+                }
+            });
+        }
+
+        @Override
+        boolean isTrayImage() {
+            return true;
+        }
+    }
+}
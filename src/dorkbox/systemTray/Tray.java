@@ -22,7 +22,7 @@ import java.net.URL;
 
 import javax.imageio.stream.ImageInputStream;
 
-import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.LazyImage;
 
 // This is public ONLY so that it is in the scope for SwingUI and NativeUI system tray components
 public
@@ -61,14 +61,7 @@ class Tray extends Menu {
         this.statusText = statusText;
 
         // status is ALWAYS at 0 index...
-        Entry menuEntry = null;
-
-        synchronized (menuEntries) {
-            // access on this object must be synchronized for object visibility
-            if (!menuEntries.isEmpty()) {
-                menuEntry = menuEntries.get(0);
-            }
-        }
+        final Entry menuEntry = menuEntries.getFirstEntry();
 
         if (menuEntry instanceof Status) {
             // set the text or delete...
@@ -102,7 +95,7 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final File imageFile) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(true, imageFile));
+        setImageNow_(null, LazyImage.from(true, imageFile));
     }
 
     /**
@@ -115,7 +108,7 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final String imagePath) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(true, imagePath));
+        setImageNow_(null, LazyImage.from(true, imagePath));
     }
 
     /**
@@ -128,7 +121,7 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final URL imageUrl) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(true, imageUrl));
+        setImage_(null, true, imageUrl);
     }
 
     /**
@@ -141,7 +134,7 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final InputStream imageStream) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(true, imageStream));
+        setImageNow_(null, LazyImage.from(true, imageStream));
     }
 
     /**
@@ -154,7 +147,7 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final Image image) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(true, image));
+        setImageNow_(null, LazyImage.from(true, image));
     }
 
     /**
@@ -167,7 +160,57 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final ImageInputStream imageStream) {
-        setImage_(ImageResizeUtil.shouldResizeOrCache(true, imageStream));
+        setImageNow_(null, LazyImage.from(true, imageStream));
+    }
+
+    @Override
+    boolean isTrayImage() {
+        return true;
+    }
+
+    // the tray icon is always shown, so the theme icon (or the fallback image) is decided (and resolved) right away
+    @Override
+    void setImageByThemeName_(final String themeName, final LazyImage fallbackImage) {
+        if (themeName == null) {
+            throw new NullPointerException("themeName");
+        }
+
+        if (SystemTray.supportsThemeIcons(this)) {
+            setImage_(themeName, (File) null);
+        }
+        else if (fallbackImage != null && fallbackImage.isRemote()) {
+            // remote images must not block the caller
+            setImage_(themeName, fallbackImage);
+        }
+        else {
+            setImageNow_(themeName, fallbackImage);
+        }
+    }
+
+    /**
+     * Called by the platform specific implementation (on the UI thread) right before the menu of the tray is shown.
+     * <p>
+     * This is called internally, and should not be called by anything else.
+     *
+     * @param showMenu shows the menu, and posts that to the UI thread itself. It is run once the menu opening listener has changed the
+     *                 menu (which does not block the UI thread), or right away if there is none. Null if the menu is shown anyways.
+     */
+    public
+    void onMenuOpening(final Runnable showMenu) {
+        // the sub-menus in the tray menu can be opened next, so their native entries are made now
+        onShowing();
+
+        systemTray.onMenuOpening(showMenu);
+    }
+
+    /**
+     * The tray is not an entry in a menu, so this shows or hides the tray icon instead. This is the same as
+     * {@link SystemTray#setEnabled(boolean)}.
+     */
+    @Override
+    public
+    void setVisible(final boolean visible) {
+        setEnabled(visible);
     }
 
     /**
@@ -72,6 +72,23 @@ class AppIndicatorExtension extends ExtensionSupport {
         return enabledExtensions.contains(UID);
     }
 
+    /**
+     * This only looks at the disk (our marker, or the extension itself), so unlike {@link #isInstalled()} it does not start gsettings
+     * and can be checked before the tray exists. Whether it is also enabled is checked (and fixed) in the background.
+     *
+     * @return true if the extension is on disk, either installed by us (or the user) or by the OS
+     */
+    public static
+    boolean isPresent() {
+        final File userDirectory = new File(System.getProperty("user.home") + "/.local/share/gnome-shell/extensions/" + UID);
+        if (hasMarker(userDirectory)) {
+            // we installed it before
+            return true;
+        }
+
+        return new File(userDirectory, "metadata.json").isFile() || new File("/usr/share/gnome-shell/extensions/" + UID, "metadata.json").isFile();
+    }
+
 
     /**
      * Only install a version that specifically moves only our icon next to the clock
@@ -112,7 +129,8 @@ class AppIndicatorExtension extends ExtensionSupport {
             logger.debug("Checking the appindicator gnome-shell extension");
         }
 
-        if (isInstalled && !ExtensionSupport.needsUpgrade(metadata, metaDatafile)) {
+        String contentHash = ExtensionSupport.createContentHash("appindicator.zip", metadata, "SystemTray");
+        if (isInstalled && !ExtensionSupport.needsUpgrade(contentHash, directory)) {
             // this means that our version info, etc. is the same - there is no need to update anything
             return;
         }
@@ -127,7 +145,9 @@ class AppIndicatorExtension extends ExtensionSupport {
         boolean success = ExtensionSupport.writeFile(metadata, metaDatafile);
         if (success) {
             // copies our provided extension files to the correct location on disk
-            ExtensionSupport.installZip("appindicator.zip", directory);
+            if (ExtensionSupport.installZip("appindicator.zip", directory)) {
+                ExtensionSupport.writeMarker(contentHash, directory);
+            }
 
             if (SystemTray.DEBUG) {
                 logger.debug("Enabling appindicator gnome-shell extension");
@@ -27,6 +27,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -44,8 +45,31 @@ import dorkbox.util.OSUtil;
 @SuppressWarnings({"DanglingJavadoc", "WeakerAccess"})
 public
 class ExtensionSupport {
-    public static
+    // the marker (in the extension directory) that has the hash of what we installed there
+    private static final String MARKER_FILE = ".systemtray.hash";
+
+    // asking gsettings starts a new process, so what it says is kept for a little while (everything is checked within this time)
+    private static final long ENABLED_EXTENSIONS_TIMEOUT = 10000L;
+
+    // access is guarded by the class
+    private static List<String> enabledExtensions = null;
+    private static long enabledExtensionsTime = 0L;
+
+    /**
+     * @return a copy of the enabled extensions. gsettings is only asked once for all of the checks/changes that happen at startup.
+     */
+    public static synchronized
     List<String> getEnabledExtensions() {
+        if (enabledExtensions == null || System.currentTimeMillis() - enabledExtensionsTime > ENABLED_EXTENSIONS_TIMEOUT) {
+            enabledExtensions = readEnabledExtensions();
+            enabledExtensionsTime = System.currentTimeMillis();
+        }
+
+        return new ArrayList<String>(enabledExtensions);
+    }
+
+    private static
+    List<String> readEnabledExtensions() {
         // gsettings get org.gnome.shell enabled-extensions
         final ShellExecutor gsettings = new ShellExecutor();
         gsettings.setExecutable("gsettings");
@@ -116,7 +140,7 @@ class ExtensionSupport {
         return strings;
     }
 
-    public static
+    public static synchronized
     void setEnabledExtensions(List<String> extensions) {
         StringBuilder stringBuilder = new StringBuilder("[");
 
@@ -151,6 +175,10 @@ class ExtensionSupport {
         setGsettings.addArgument("enabled-extensions");
         setGsettings.addArgument(stringBuilder.toString());
         setGsettings.start();
+
+        // we already know what it is now, so there is no reason to ask again
+        enabledExtensions = new ArrayList<String>(extensions);
+        enabledExtensionsTime = System.currentTimeMillis();
     }
 
     public static
@@ -190,11 +218,11 @@ class ExtensionSupport {
     }
 
     protected static
-    String readFile(final File metaDatafile) {
+    String readFile(final File file) {
         StringBuilder builder = new StringBuilder(256);
         BufferedReader bin = null;
         try {
-            bin = new BufferedReader(new FileReader(metaDatafile));
+            bin = new BufferedReader(new FileReader(file));
             String line;
             while ((line = bin.readLine()) != null) {
                 builder.append(line)
@@ -214,6 +242,61 @@ class ExtensionSupport {
         return builder.toString();
     }
 
+    /**
+     * @return the hash of everything we install for an extension (the bundled resource, the metadata and the app name), so that we
+     *          only have to compare the hash to know if the installed extension is current.
+     */
+    protected static
+    String createContentHash(final String resourceName, final String metadata, final String appName) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+
+            final InputStream inputStream = ExtensionSupport.class.getResourceAsStream(resourceName);
+            if (inputStream != null) {
+                try {
+                    final byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                } finally {
+                    IO.closeQuietly(inputStream);
+                }
+            }
+
+            digest.update(metadata.getBytes("UTF-8"));
+            digest.update(appName.getBytes("UTF-8"));
+
+            final byte[] bytes = digest.digest();
+            final StringBuilder builder = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (Exception e) {
+            // SHA-1 is always available. If we cannot read our own resource, the hash will never match, so we always install it.
+            logger.error("Unable to create the hash for the '{}' extension", resourceName, e);
+            return "";
+        }
+    }
+
+    /**
+     * @return true if we have installed an extension into this directory before (regardless of which version)
+     */
+    protected static
+    boolean hasMarker(final File extensionDirectory) {
+        return new File(extensionDirectory, MARKER_FILE).isFile();
+    }
+
+    /**
+     * Remembers what was installed, so the next start knows that it does not have to do anything.
+     */
+    protected static
+    void writeMarker(final String contentHash, final File extensionDirectory) {
+        writeFile(contentHash, new File(extensionDirectory, MARKER_FILE));
+    }
+
     /**
      * @return true if successful, false if there was a failure
      */
@@ -411,18 +494,16 @@ class ExtensionSupport {
      * @return true if we need to upgrade/re-install the extension, false if we do not need to do anything
      */
     protected static
-    boolean needsUpgrade(final String metadata, final File metaDatafile) {
-        String existingMetadata = ExtensionSupport.readFile(metaDatafile);
+    boolean needsUpgrade(final String contentHash, final File extensionDirectory) {
+        // this is a single (short) line. The extension itself is not read or compared.
+        String installedHash = ExtensionSupport.readFile(new File(extensionDirectory, MARKER_FILE)).trim();
 
         if (SystemTray.DEBUG) {
             logger.debug("Extension already installed, checking for upgrade");
         }
 
-        // have to check to see if the version is correct as well (otherwise we have to reinstall it)
-        // compat for java 1.6
-
-        // the metadata string we CHECK should equal the metadata string we PROVIDE
-        if (metadata.equals(existingMetadata)) {
+        // the hash of what is installed should equal the hash of what we PROVIDE
+        if (contentHash.equals(installedHash)) {
             // this means that our version info, etc. is the same - there is no need to update anything
             if (!SystemTray.DEBUG) {
                 return false;
@@ -83,7 +83,8 @@ class LegacyExtension extends ExtensionSupport {
             logger.debug("Checking the legacy gnome-shell extension");
         }
 
-        if (hasSystemTray && !ExtensionSupport.needsUpgrade(metadata, metaDatafile)) {
+        String contentHash = ExtensionSupport.createContentHash("extension.js", metadata, SystemTray.APP_NAME);
+        if (hasSystemTray && !ExtensionSupport.needsUpgrade(contentHash, directory)) {
             // this means that our version info, etc. is the same - there is no need to update anything
             return;
         }
@@ -97,10 +98,12 @@ class LegacyExtension extends ExtensionSupport {
 
         boolean success = ExtensionSupport.writeFile(metadata, metaDatafile);
 
-        if (success && !hasSystemTray) {
-            // copies our provided extension files to the correct location on disk. Also sets the APP NAME in the extension file
-            ExtensionSupport.installFile("extension.js", directory, SystemTray.APP_NAME);
+        // copies our provided extension files to the correct location on disk. Also sets the APP NAME in the extension file
+        if (success && ExtensionSupport.installFile("extension.js", directory, SystemTray.APP_NAME)) {
+            ExtensionSupport.writeMarker(contentHash, directory);
+        }
 
+        if (success && !hasSystemTray) {
             if (SystemTray.DEBUG) {
                 logger.debug("Enabling legacy gnome-shell extension");
             }
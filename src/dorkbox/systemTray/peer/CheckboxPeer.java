@@ -22,6 +22,14 @@ import dorkbox.systemTray.Checkbox;
  */
 public
 interface CheckboxPeer extends EntryPeer {
+    // what has changed, see update()
+    int ENABLED = 1;
+    int TEXT = 2;
+    int CALLBACK = 4;
+    int SHORTCUT = 8;
+    int TOOLTIP = 16;
+    int CHECKED = 32;
+    int ALL = ENABLED | TEXT | CALLBACK | SHORTCUT | TOOLTIP | CHECKED;
 
     void setEnabled(Checkbox menuItem);
 
@@ -34,4 +42,11 @@ interface CheckboxPeer extends EntryPeer {
     void setTooltip(Checkbox menuItem);
 
     void setChecked(Checkbox menuItem);
+
+    /**
+     * Applies everything that has changed at once (as few native calls and re-layouts as possible).
+     *
+     * @param changes what has changed, ie: {@link #TEXT} | {@link #CHECKED}
+     */
+    void update(Checkbox menuItem, int changes);
 }
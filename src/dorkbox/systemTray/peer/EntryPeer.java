@@ -15,10 +15,14 @@
  */
 package dorkbox.systemTray.peer;
 
+import dorkbox.systemTray.Entry;
+
 /**
  * Internal component used to bind the API to the implementation
  */
 public
 interface EntryPeer {
     void remove();
+
+    void setVisible(Entry entry);
 }
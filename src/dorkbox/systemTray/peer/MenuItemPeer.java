@@ -22,6 +22,15 @@ import dorkbox.systemTray.MenuItem;
  */
 public
 interface MenuItemPeer extends EntryPeer {
+    // what has changed, see update()
+    int IMAGE = 1;
+    int ENABLED = 2;
+    int TEXT = 4;
+    int CALLBACK = 8;
+    int SHORTCUT = 16;
+    int TOOLTIP = 32;
+    int ALL = IMAGE | ENABLED | TEXT | CALLBACK | SHORTCUT | TOOLTIP;
+
     void setImage(MenuItem menuItem);
 
     void setEnabled(MenuItem menuItem);
@@ -33,4 +42,11 @@ interface MenuItemPeer extends EntryPeer {
     void setShortcut(MenuItem menuItem);
 
     void setTooltip(MenuItem menuItem);
+
+    /**
+     * Applies everything that has changed at once (as few native calls and re-layouts as possible).
+     *
+     * @param changes what has changed, ie: {@link #TEXT} | {@link #IMAGE}
+     */
+    void update(MenuItem menuItem, int changes);
 }
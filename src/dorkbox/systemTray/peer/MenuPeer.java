@@ -15,6 +15,8 @@
  */
 package dorkbox.systemTray.peer;
 
+import java.util.List;
+
 import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.Menu;
 
@@ -24,4 +26,22 @@ import dorkbox.systemTray.Menu;
 public
 interface MenuPeer extends MenuItemPeer {
     void add(Menu parentMenu, Entry entry, int index);
+
+    /**
+     * Adds all of the entries at once, so that the native menu is only changed (or re-created) one time for all of them.
+     *
+     * @param parentMenu the menu the entries are in
+     * @param entries the entries to add, in the order of their index
+     * @param indexes the index of each entry. Each entry is added after the ones before it, so the index includes them.
+     */
+    void addAll(Menu parentMenu, List<Entry> entries, int[] indexes);
+
+    /**
+     * Moves the native entry (which is already in this menu) to the index, without re-creating it.
+     *
+     * @param entry the entry, which is already at the index in the menu
+     * @param entryPeer the peer of the entry
+     * @param index the index (including the status, if there is one) the entry is moved to
+     */
+    void move(Entry entry, EntryPeer entryPeer, int index);
 }
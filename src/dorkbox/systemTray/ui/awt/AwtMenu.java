@@ -18,6 +18,7 @@ package dorkbox.systemTray.ui.awt;
 
 import java.awt.MenuShortcut;
 import java.awt.PopupMenu;
+import java.util.List;
 
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.Entry;
@@ -25,6 +26,7 @@ import dorkbox.systemTray.Menu;
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
+import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.systemTray.peer.MenuPeer;
 import dorkbox.util.SwingUtil;
 
@@ -60,6 +62,9 @@ class AwtMenu implements MenuPeer {
             void run() {
                 if (entry instanceof Menu) {
                     AwtMenu menu = new AwtMenu(AwtMenu.this);
+
+                    // we are never told when a native sub-menu is shown, so everything in it is made right away
+                    ((Menu) entry).onShowing();
                     ((Menu) entry).bind(menu, parentMenu, parentMenu.getSystemTray());
                 }
                 else if (entry instanceof Separator) {
@@ -82,6 +87,56 @@ class AwtMenu implements MenuPeer {
         });
     }
 
+    @Override
+    public
+    void addAll(final Menu parentMenu, final List<Entry> entries, final int[] indexes) {
+        // each native entry is added to the native menu directly, nothing is re-created
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            add(parentMenu, entries.get(i), indexes[i]);
+        }
+    }
+
+    @Override
+    public
+    void move(final Entry entry, final EntryPeer entryPeer, final int index) {
+        // must always be called on the EDT
+        SwingUtil.invokeAndWaitQuietly(new Runnable() {
+            @Override
+            public
+            void run() {
+                final java.awt.MenuItem item = getNative(entryPeer);
+                if (item == null || item.getParent() != _native) {
+                    // hidden entries are put in the right place when they are shown
+                    return;
+                }
+
+                // hidden entries are not in the AWT menu, so the index of the native entry is found the same way as when it is shown
+                _native.remove(item);
+                showOrHide(entry, item);
+            }
+        });
+    }
+
+    private static
+    java.awt.MenuItem getNative(final EntryPeer entryPeer) {
+        if (entryPeer instanceof AwtMenuItem) {
+            return ((AwtMenuItem) entryPeer)._native;
+        }
+        if (entryPeer instanceof AwtMenuItemCheckbox) {
+            return ((AwtMenuItemCheckbox) entryPeer)._native;
+        }
+        if (entryPeer instanceof AwtMenu) {
+            return ((AwtMenu) entryPeer)._native;
+        }
+        if (entryPeer instanceof AwtMenuItemSeparator) {
+            return ((AwtMenuItemSeparator) entryPeer)._native;
+        }
+        if (entryPeer instanceof AwtMenuItemStatus) {
+            return ((AwtMenuItemStatus) entryPeer)._native;
+        }
+        return null;
+    }
+
     // is overridden in tray impl
     @Override
     public
@@ -143,6 +198,117 @@ class AwtMenu implements MenuPeer {
         // no op. (awt menus cannot show tooltips)
     }
 
+    /**
+     * Everything that has changed is applied in a single invokeLater. (awt menus cannot show images or tooltips)
+     */
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        if (parent == null) {
+            // the tray implementations override the individual setters, so they must be used here
+            if ((changes & IMAGE) != 0) {
+                setImage(menuItem);
+            }
+            if ((changes & ENABLED) != 0) {
+                setEnabled(menuItem);
+            }
+            if ((changes & TEXT) != 0) {
+                setText(menuItem);
+            }
+            if ((changes & CALLBACK) != 0) {
+                setCallback(menuItem);
+            }
+            if ((changes & SHORTCUT) != 0) {
+                setShortcut(menuItem);
+            }
+            if ((changes & TOOLTIP) != 0) {
+                setTooltip(menuItem);
+            }
+            return;
+        }
+
+        if ((changes & (ENABLED | TEXT | SHORTCUT)) == 0) {
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                update_(menuItem, changes);
+            }
+        });
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed.
+     */
+    private
+    void update_(final MenuItem menuItem, final int changes) {
+        if ((changes & ENABLED) != 0) {
+            _native.setEnabled(menuItem.getEnabled());
+        }
+        if ((changes & TEXT) != 0) {
+            _native.setLabel(menuItem.getText());
+        }
+        if ((changes & SHORTCUT) != 0) {
+            // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+            _native.setShortcut(new MenuShortcut(SwingUtil.getVirtualKey(menuItem.getShortcut())));
+        }
+    }
+
+    /**
+     * AWT menus cannot hide an entry, so a hidden entry is removed from the menu instead (and is inserted back at the same place when
+     * it is shown again). The entry itself is kept.
+     * <p>
+     * ALWAYS CALLED ON THE EDT
+     */
+    void showOrHide(final Entry entry, final java.awt.MenuItem item) {
+        final boolean isShown = item.getParent() == _native;
+        if (entry.isVisible() == isShown) {
+            return;
+        }
+
+        if (!isShown) {
+            // the place it goes is after all of the entries (before it) that are shown
+            int index = 0;
+
+            final Menu menu = entry.getParent();
+            if (menu != null) {
+                for (Entry entry__ : menu.getEntries()) {
+                    if (entry__ == entry) {
+                        break;
+                    }
+                    if (entry__.isVisible()) {
+                        index++;
+                    }
+                }
+            }
+
+            _native.insert(item, Math.min(index, _native.getItemCount()));
+        }
+        else {
+            _native.remove(item);
+        }
+    }
+
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        if (parent == null) {
+            // the root menu is shown/hidden by the tray
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                parent.showOrHide(entry, _native);
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
@@ -19,6 +19,7 @@ import java.awt.MenuShortcut;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuItemPeer;
@@ -28,7 +29,7 @@ import dorkbox.util.SwingUtil;
 class AwtMenuItem implements MenuItemPeer {
 
     private final AwtMenu parent;
-    private final java.awt.MenuItem _native = new java.awt.MenuItem();
+    final java.awt.MenuItem _native = new java.awt.MenuItem();
 
     private volatile ActionListener callback;
 
@@ -125,7 +126,59 @@ class AwtMenuItem implements MenuItemPeer {
         // no op. (awt menus cannot show tooltips)
     }
 
+    /**
+     * Everything that has changed is applied in a single invokeLater. (awt menus cannot show images or tooltips)
+     */
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        if ((changes & CALLBACK) != 0) {
+            setCallback(menuItem);
+        }
+
+        if ((changes & (ENABLED | TEXT | SHORTCUT)) == 0) {
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                update_(menuItem, changes);
+            }
+        });
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed.
+     */
+    private
+    void update_(final MenuItem menuItem, final int changes) {
+        if ((changes & ENABLED) != 0) {
+            _native.setEnabled(menuItem.getEnabled());
+        }
+        if ((changes & TEXT) != 0) {
+            _native.setLabel(menuItem.getText());
+        }
+        if ((changes & SHORTCUT) != 0) {
+            // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+            _native.setShortcut(new MenuShortcut(SwingUtil.getVirtualKey(menuItem.getShortcut())));
+        }
+    }
+
     @SuppressWarnings("Duplicates")
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                parent.showOrHide(entry, _native);
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
@@ -22,6 +22,7 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 
 import dorkbox.systemTray.Checkbox;
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.CheckboxPeer;
 import dorkbox.systemTray.util.EventDispatch;
@@ -30,7 +31,7 @@ import dorkbox.util.SwingUtil;
 class AwtMenuItemCheckbox implements CheckboxPeer {
 
     private final AwtMenu parent;
-    private final java.awt.CheckboxMenuItem _native = new java.awt.CheckboxMenuItem();
+    final java.awt.CheckboxMenuItem _native = new java.awt.CheckboxMenuItem();
 
     // these have to be volatile, because they can be changed from any thread
     private volatile ItemListener callback;
@@ -127,6 +128,63 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
         // no op. (awt menus cannot show tooltips)
     }
 
+    /**
+     * Everything that has changed is applied in a single invokeLater. (awt menus cannot show tooltips)
+     */
+    @Override
+    public
+    void update(final Checkbox menuItem, final int changes) {
+        if ((changes & CALLBACK) != 0) {
+            setCallback(menuItem);
+        }
+
+        int awtChanges = changes & (ENABLED | TEXT | SHORTCUT | CHECKED);
+        if ((changes & CHECKED) != 0) {
+            boolean checked = menuItem.getChecked();
+
+            // only changed if it's actually different
+            if (checked != this.isChecked) {
+                this.isChecked = checked;
+            }
+            else {
+                awtChanges &= ~CHECKED;
+            }
+        }
+
+        if (awtChanges == 0) {
+            return;
+        }
+
+        final int updates = awtChanges;
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                update_(menuItem, updates);
+            }
+        });
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed.
+     */
+    private
+    void update_(final Checkbox menuItem, final int changes) {
+        if ((changes & ENABLED) != 0) {
+            _native.setEnabled(menuItem.getEnabled());
+        }
+        if ((changes & TEXT) != 0) {
+            _native.setLabel(menuItem.getText());
+        }
+        if ((changes & SHORTCUT) != 0) {
+            // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+            _native.setShortcut(new MenuShortcut(SwingUtil.getVirtualKey(menuItem.getShortcut())));
+        }
+        if ((changes & CHECKED) != 0) {
+            _native.setState(isChecked);
+        }
+    }
+
     @Override
     public
     void setChecked(final Checkbox menuItem) {
@@ -147,6 +205,18 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
     }
 
     @SuppressWarnings("Duplicates")
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                parent.showOrHide(entry, _native);
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
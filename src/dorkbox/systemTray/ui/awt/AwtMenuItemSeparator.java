@@ -16,13 +16,14 @@
 package dorkbox.systemTray.ui.awt;
 
 
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.util.SwingUtil;
 
 class AwtMenuItemSeparator implements EntryPeer {
 
     private final AwtMenu parent;
-    private final java.awt.MenuItem _native = new java.awt.MenuItem("-");
+    final java.awt.MenuItem _native = new java.awt.MenuItem("-");
 
 
     // this is ALWAYS called on the EDT.
@@ -31,6 +32,18 @@ class AwtMenuItemSeparator implements EntryPeer {
         parent._native.add(_native);
     }
 
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                parent.showOrHide(entry, _native);
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
@@ -20,6 +20,7 @@ import static java.awt.Font.DIALOG;
 import java.awt.Font;
 import java.awt.MenuItem;
 
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.peer.StatusPeer;
 import dorkbox.util.SwingUtil;
@@ -27,7 +28,7 @@ import dorkbox.util.SwingUtil;
 class AwtMenuItemStatus implements StatusPeer {
 
     private final AwtMenu parent;
-    private final MenuItem _native = new MenuItem();
+    final MenuItem _native = new MenuItem();
 
     AwtMenuItemStatus(final AwtMenu parent) {
         this.parent = parent;
@@ -60,6 +61,18 @@ class AwtMenuItemStatus implements StatusPeer {
         });
     }
 
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                parent.showOrHide(entry, _native);
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
@@ -20,6 +20,8 @@ import java.awt.Image;
 import java.awt.PopupMenu;
 import java.awt.SystemTray;
 import java.awt.TrayIcon;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
 
 import javax.swing.ImageIcon;
@@ -154,6 +156,14 @@ class _AwtTray extends Tray {
                             trayIcon = new TrayIcon(trayImage);
 
                             trayIcon.setPopupMenu((PopupMenu) _native);
+                            trayIcon.addMouseListener(new MouseAdapter() {
+                                @Override
+                                public
+                                void mousePressed(MouseEvent e) {
+                                    // AWT shows the popup menu on its own, so it cannot wait for the menu to be changed
+                                    onMenuOpening(null);
+                                }
+                            });
 
                             try {
                                 tray.add(trayIcon);
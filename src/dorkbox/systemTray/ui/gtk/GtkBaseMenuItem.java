@@ -21,6 +21,7 @@ import java.io.File;
 
 import com.sun.jna.Pointer;
 
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.systemTray.util.ImageResizeUtil;
 import dorkbox.jna.linux.GObject;
@@ -38,6 +39,9 @@ class GtkBaseMenuItem implements EntryPeer {
     // the native GTK component
     protected final Pointer _native;
 
+    // gtk_widget_show_all() shows EVERYTHING, so hidden entries have to be hidden again after it is called
+    private volatile boolean isHidden = false;
+
     GtkBaseMenuItem(final Pointer _native) {
         this._native = _native;
     }
@@ -123,6 +127,54 @@ class GtkBaseMenuItem implements EntryPeer {
         // NOTE: We cannot show the menu until AFTER items have been added, otherwise we get GLIB warnings
     }
 
+    /**
+     * Shows this entry and everything in it, unless this entry is hidden (in which case only the things in it are shown)
+     * <p>
+     * called on the DISPATCH thread
+     */
+    void showAll() {
+        Gtk2.gtk_widget_show_all(_native);
+
+        if (isHidden) {
+            GtkFunctions.gtk_widget_hide(_native);
+        }
+    }
+
+    /**
+     * Hides this entry again, if it is hidden, after it was shown by gtk_widget_show_all() being called on the menu it is in.
+     * <p>
+     * called on the DISPATCH thread
+     */
+    void hideIfHidden() {
+        if (isHidden) {
+            GtkFunctions.gtk_widget_hide(_native);
+        }
+    }
+
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        GtkEventDispatch.dispatch(new Runnable() {
+            @Override
+            public
+            void run() {
+                isHidden = !entry.isVisible();
+
+                if (_native == null) {
+                    // the root menu has nothing to hide
+                    return;
+                }
+
+                if (isHidden) {
+                    GtkFunctions.gtk_widget_hide(_native);
+                }
+                else {
+                    GtkFunctions.gtk_widget_show(_native);
+                }
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
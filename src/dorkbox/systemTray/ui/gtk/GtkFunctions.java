@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.jna.Function;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+import dorkbox.jna.linux.Gtk;
+
+/**
+ * GTK functions that we need, but that are not part of the GTK bindings from the utilities project.
+ * <p>
+ * GTK is already loaded into the process (with RTLD_GLOBAL) by the time any of these are called, so we look the symbols up directly
+ * instead of registering another direct-mapped library. All of these exist in GTK2 and GTK3 with the same signature.
+ * <p>
+ * These MUST be called on the GTK dispatch thread.
+ */
+final
+class GtkFunctions {
+    // from gtkenums.h
+    static final int GTK_ICON_SIZE_MENU = 1;
+
+    private static final Map<String, Function> functions = new HashMap<String, Function>();
+
+    private static synchronized
+    Function get(final String name) {
+        Function function = functions.get(name);
+        if (function == null) {
+            try {
+                function = NativeLibrary.getProcess().getFunction(name);
+            } catch (UnsatisfiedLinkError e) {
+                // not globally visible (should never happen), so look in the specific library instead
+                function = NativeLibrary.getInstance(Gtk.isGtk2 ? "gtk-x11-2.0" : "gtk-3").getFunction(name);
+            }
+
+            functions.put(name, function);
+        }
+
+        return function;
+    }
+
+    /**
+     * Creates a GtkImage displaying an icon from the current icon theme. If the icon name isn't known, the image will contain a
+     * "broken image" icon.
+     */
+    static
+    Pointer gtk_image_new_from_icon_name(final String iconName, final int iconSize) {
+        return (Pointer) get("gtk_image_new_from_icon_name").invoke(Pointer.class, new Object[] {iconName, iconSize});
+    }
+
+    /**
+     * Makes the status icon display the icon named iconName from the current icon theme.
+     */
+    static
+    void gtk_status_icon_set_from_icon_name(final Pointer statusIcon, final String iconName) {
+        get("gtk_status_icon_set_from_icon_name").invokeVoid(new Object[] {statusIcon, iconName});
+    }
+
+    /**
+     * Hides the widget (but not its children). The widget is kept, so it can be shown again later.
+     */
+    static
+    void gtk_widget_hide(final Pointer widget) {
+        get("gtk_widget_hide").invokeVoid(new Object[] {widget});
+    }
+
+    /**
+     * Shows the widget (but not its children, which keep whatever they were set to).
+     */
+    static
+    void gtk_widget_show(final Pointer widget) {
+        get("gtk_widget_show").invokeVoid(new Object[] {widget});
+    }
+
+    /**
+     * @return true if the widget is on the screen right now (for a menu, that it is open)
+     */
+    static
+    boolean gtk_widget_get_mapped(final Pointer widget) {
+        return get("gtk_widget_get_mapped").invokeInt(new Object[] {widget}) != 0;
+    }
+
+    /**
+     * Adds the child to the menu at the position. This does not rebuild the menu.
+     */
+    static
+    void gtk_menu_shell_insert(final Pointer menuShell, final Pointer child, final int position) {
+        get("gtk_menu_shell_insert").invokeVoid(new Object[] {menuShell, child, position});
+    }
+
+    /**
+     * Moves the child (which must already be in the menu) to the new position. This does not rebuild the menu.
+     */
+    static
+    void gtk_menu_reorder_child(final Pointer menu, final Pointer child, final int position) {
+        get("gtk_menu_reorder_child").invokeVoid(new Object[] {menu, child, position});
+    }
+
+    /**
+     * Gets the GtkSettings object for the default screen. This is owned by GTK, and must not be unreferenced.
+     */
+    static
+    Pointer gtk_settings_get_default() {
+        return (Pointer) get("gtk_settings_get_default").invoke(Pointer.class, new Object[0]);
+    }
+
+    /**
+     * Gets the value of a string property of a GObject (ie: a GTK setting).
+     *
+     * @return the value, or null if it is not set
+     */
+    static
+    String g_object_get_string(final Pointer object, final String property) {
+        final PointerByReference value = new PointerByReference();
+        get("g_object_get").invokeVoid(new Object[] {object, property, value, null});
+
+        final Pointer pointer = value.getValue();
+        if (pointer == null) {
+            return null;
+        }
+
+        try {
+            return pointer.getString(0);
+        } finally {
+            get("g_free").invokeVoid(new Object[] {pointer});
+        }
+    }
+
+    /**
+     * Gets the value of an int property of a GObject (ie: a GTK setting).
+     */
+    static
+    int g_object_get_int(final Pointer object, final String property) {
+        final IntByReference value = new IntByReference();
+        get("g_object_get").invokeVoid(new Object[] {object, property, value, null});
+        return value.getValue();
+    }
+
+    private
+    GtkFunctions() {
+    }
+}
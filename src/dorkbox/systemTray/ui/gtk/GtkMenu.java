@@ -17,6 +17,7 @@ package dorkbox.systemTray.ui.gtk;
 
 import static dorkbox.jna.linux.Gtk.Gtk2;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -30,7 +31,11 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.PendingUpdate;
+import dorkbox.jna.linux.GCallback;
+import dorkbox.jna.linux.GObject;
 import dorkbox.jna.linux.GtkEventDispatch;
 
 @SuppressWarnings("deprecation")
@@ -40,6 +45,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
 
     final SystemTray systemTray;
     private final GtkMenu parent;  // null when we are the main menu attached to the tray icon
+    private final Menu menu;  // null when we are the main menu attached to the tray icon
 
     volatile Pointer _nativeMenu;  // must ONLY be created at the end of delete!
 
@@ -50,33 +56,84 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     // GtkStatusIconTray will show on mouse+keyboard movement
     private volatile char mnemonicKey = 0;
 
+    // changes are collected here until they are applied, so a change does not need a new Runnable (and quick changes only dispatch once)
+    private final PendingUpdate<MenuItem> pending = new PendingUpdate<MenuItem>() {
+        @Override
+        protected
+        void dispatch(final Runnable runnable) {
+            GtkEventDispatch.dispatch(runnable);
+        }
+
+        @Override
+        protected
+        void apply(final MenuItem menuItem, final int changes) {
+            update_(menuItem, changes);
+        }
+    };
+
     // have to make sure no other methods can call obliterate, delete, or create menu once it's already started
     private AtomicBoolean obliterateInProgress = new AtomicBoolean(false);
 
+    // once the menu is obliterated, the native menu (and everything in it) is gone. Children do not remove themselves one at a time.
+    private volatile boolean isReleased = false;
+
+    // have to save these in a field to prevent GC on the objects (since they go out-of-scope from java)
+    // see: https://github.com/java-native-access/jna/blob/master/www/CallbacksAndClosures.md
+    private final GCallback showCallback = new GCallback() {
+        // called by native code, always on the GTK event dispatch thread
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer data) {
+            menu.onShowing();
+            return Gtk2.TRUE;
+        }
+    };
+
     // called by the system tray constructors
     // This is NOT a copy constructor!
     @SuppressWarnings("IncompleteCopyConstructor")
     GtkMenu(final SystemTray systemTray) {
         super(null);
         this.parent = null;
+        this.menu = null;
         this.systemTray = systemTray;
     }
 
     // This is NOT a copy constructor!
     @SuppressWarnings("IncompleteCopyConstructor")
     private
-    GtkMenu(final GtkMenu parent) {
+    GtkMenu(final GtkMenu parent, final Menu menu) {
         super(Gtk2.gtk_image_menu_item_new_with_mnemonic("")); // is what is added to the parent menu (so images work)
         this.parent = parent;
+        this.menu = menu;
 
         // we have to propagate instances of the system tray
         this.systemTray = parent.systemTray;
+
+        if (_AppIndicatorNativeTray.isLoaded) {
+            // app indicator menus are drawn by the indicator service (over dbus), and we are never told when a sub-menu is shown
+            menu.onShowing();
+        }
     }
 
     GtkMenu getParent() {
         return parent;
     }
 
+    /**
+     * @return true if this menu (or a menu it is in) has been obliterated. The native widgets of the children are destroyed together
+     *         with the native menu, so the children do not have to remove (and rebuild) anything themselves.
+     */
+    boolean isReleased() {
+        for (GtkMenu menu = this; menu != null; menu = menu.parent) {
+            if (menu.isReleased) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Called inside the gdk_threads block
      *
@@ -138,6 +195,9 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
         // binds sub-menu to entry (if it exists! it does not for the root menu)
         if (parent != null) {
             Gtk2.gtk_menu_item_set_submenu(_native, _nativeMenu);
+
+            // the native menu is recreated every time, so we have to reconnect every time
+            GObject.g_signal_connect_object(_nativeMenu, "show", showCallback, null, 0);
         }
 
         if (parent != null && recursiveCreateParentMenu) {
@@ -179,6 +239,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     void obliterateMenu() {
         if (_nativeMenu != null && !obliterateInProgress.get()) {
             obliterateInProgress.set(true);
+            isReleased = true;
 
             // have to remove all other menu entries
 
@@ -193,6 +254,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             }
             menuEntriesCopy.clear();
 
+            // this destroys all of the children as well, in one operation
             Gtk2.gtk_widget_destroy(_nativeMenu);
             _nativeMenu = null;
 
@@ -200,6 +262,30 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
         }
     }
 
+    /**
+     * gtk_widget_show_all() also shows the entries that are hidden (in this menu and in all of the sub-menus), so they are hidden again
+     * <p>
+     * ALWAYS CALLED ON THE EDT
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    void hideHiddenEntries() {
+        for (int i = 0, menuEntriesSize = menuEntries.size(); i < menuEntriesSize; i++) {
+            final GtkBaseMenuItem menuEntry__ = menuEntries.get(i);
+            menuEntry__.hideIfHidden();
+
+            if (menuEntry__ instanceof GtkMenu) {
+                ((GtkMenu) menuEntry__).hideHiddenEntries();
+            }
+        }
+    }
+
+    // ALWAYS CALLED ON THE EDT
+    @Override
+    void showAll() {
+        super.showAll();
+        hideHiddenEntries();
+    }
+
     @Override
     public
     void add(final Menu parentMenu, final Entry entry, final int index) {
@@ -208,62 +294,208 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             @Override
             public
             void run() {
+                if (_nativeMenu != null && isOpen()) {
+                    // rebuilding an open menu closes it (or shows it empty, and then again), so the entry is put into it instead
+                    final List<GtkBaseMenuItem> items = new ArrayList<GtkBaseMenuItem>(1);
+                    items.add(addItem(parentMenu, entry, index));
+                    insertItems(items);
+                    return;
+                }
+
                 // some GTK libraries DO NOT let us add items AFTER the menu has been attached to the indicator.
                 // To work around this issue, we destroy then recreate the menu every time something is changed.
 
                 // when adding/removing menus DURING the `add` operation for a menu, we DO NOT want to recursively add/remove menus!
                 deleteMenu(false);
 
-                GtkBaseMenuItem item = null;
+                addItem(parentMenu, entry, index);
 
-                if (entry instanceof Menu) {
-                    // some implementations of appindicator, do NOT like having a menu added, which has no menu items yet.
-                    // see: https://bugs.launchpad.net/glipper/+bug/1203888
-                    item = new GtkMenu(GtkMenu.this);
-                    menuEntries.add(index, item);
-                }
-                else if (entry instanceof Separator) {
-                    item = new GtkMenuItemSeparator(GtkMenu.this);
-                    menuEntries.add(index, item);
-                }
-                else if (entry instanceof Checkbox) {
-                    item = new GtkMenuItemCheckbox(GtkMenu.this);
-                    menuEntries.add(index, item);
-                }
-                else if (entry instanceof Status) {
-                    item = new GtkMenuItemStatus(GtkMenu.this);
-                    menuEntries.add(index, item);
+                // when adding/removing menus DURING the `add` operation for a menu, we DO NOT want to recursively add/remove menus!
+                createMenu(false);
+
+                // only call show on the ROOT menu! (or on a sub-menu that can be opened right now)
+                if (parent == null || isOpen()) {
+                    Gtk2.gtk_widget_show_all(_nativeMenu);
+                    hideHiddenEntries();
                 }
-                else if (entry instanceof MenuItem) {
-                    item = new GtkMenuItem(GtkMenu.this);
-                    menuEntries.add(index, item);
+            }
+        });
+    }
+
+    @Override
+    public
+    void addAll(final Menu parentMenu, final List<Entry> entries, final int[] indexes) {
+        // must always be called on the GTK dispatch. This must be dispatchAndWait() so it will properly executed immediately
+        GtkEventDispatch.dispatchAndWait(new Runnable() {
+            @Override
+            public
+            void run() {
+                if (_nativeMenu != null && isOpen()) {
+                    // rebuilding an open menu closes it (or shows it empty, and then again), so the entries are put into it instead
+                    final List<GtkBaseMenuItem> items = new ArrayList<GtkBaseMenuItem>(entries.size());
+                    for (int i = 0, size = entries.size(); i < size; i++) {
+                        items.add(addItem(parentMenu, entries.get(i), indexes[i]));
+                    }
+                    insertItems(items);
+                    return;
                 }
 
+                // the menu is destroyed + recreated only one time for all of the entries, instead of one time for each of them
+                deleteMenu(false);
 
-                // we must create the menu BEFORE binding the menu, otherwise the menus' children's GTK element can be added before
-                // their parent GTK elements are added (and the menu won't show up)
-                if (entry instanceof Menu) {
-                    ((Menu) entry).bind((GtkMenu) item, parentMenu, parentMenu.getSystemTray());
-                }
-                else if (entry instanceof Separator) {
-                    ((Separator)entry).bind((GtkMenuItemSeparator) item, parentMenu, parentMenu.getSystemTray());
-                }
-                else if (entry instanceof Checkbox) {
-                    ((Checkbox) entry).bind((GtkMenuItemCheckbox) item, parentMenu, parentMenu.getSystemTray());
-                }
-                else if (entry instanceof Status) {
-                    ((Status) entry).bind((GtkMenuItemStatus) item, parentMenu, parentMenu.getSystemTray());
-                }
-                else if (entry instanceof MenuItem) {
-                    ((MenuItem) entry).bind((GtkMenuItem) item, parentMenu, parentMenu.getSystemTray());
+                for (int i = 0, size = entries.size(); i < size; i++) {
+                    addItem(parentMenu, entries.get(i), indexes[i]);
                 }
 
-                // when adding/removing menus DURING the `add` operation for a menu, we DO NOT want to recursively add/remove menus!
                 createMenu(false);
 
-                // only call show on the ROOT menu!
-                if (parent == null) {
+                // only call show on the ROOT menu! (or on a sub-menu that can be opened right now)
+                if (parent == null || isOpen()) {
                     Gtk2.gtk_widget_show_all(_nativeMenu);
+                    hideHiddenEntries();
+                }
+            }
+        });
+    }
+
+    /**
+     * Makes the item for the entry and binds it. The native menu must be deleted before, and created again after this is called (or
+     * the item must be inserted into it).
+     *
+     * ALWAYS CALLED ON THE EDT
+     *
+     * @return the item that was made
+     */
+    private
+    GtkBaseMenuItem addItem(final Menu parentMenu, final Entry entry, final int index) {
+        GtkBaseMenuItem item = null;
+
+        if (entry instanceof Menu) {
+            // some implementations of appindicator, do NOT like having a menu added, which has no menu items yet.
+            // see: https://bugs.launchpad.net/glipper/+bug/1203888
+            item = new GtkMenu(GtkMenu.this, (Menu) entry);
+            menuEntries.add(index, item);
+        }
+        else if (entry instanceof Separator) {
+            item = new GtkMenuItemSeparator(GtkMenu.this);
+            menuEntries.add(index, item);
+        }
+        else if (entry instanceof Checkbox) {
+            item = new GtkMenuItemCheckbox(GtkMenu.this);
+            menuEntries.add(index, item);
+        }
+        else if (entry instanceof Status) {
+            item = new GtkMenuItemStatus(GtkMenu.this);
+            menuEntries.add(index, item);
+        }
+        else if (entry instanceof MenuItem) {
+            item = new GtkMenuItem(GtkMenu.this);
+            menuEntries.add(index, item);
+        }
+
+
+        // we must create the menu BEFORE binding the menu, otherwise the menus' children's GTK element can be added before
+        // their parent GTK elements are added (and the menu won't show up)
+        if (entry instanceof Menu) {
+            ((Menu) entry).bind((GtkMenu) item, parentMenu, parentMenu.getSystemTray());
+        }
+        else if (entry instanceof Separator) {
+            ((Separator)entry).bind((GtkMenuItemSeparator) item, parentMenu, parentMenu.getSystemTray());
+        }
+        else if (entry instanceof Checkbox) {
+            ((Checkbox) entry).bind((GtkMenuItemCheckbox) item, parentMenu, parentMenu.getSystemTray());
+        }
+        else if (entry instanceof Status) {
+            ((Status) entry).bind((GtkMenuItemStatus) item, parentMenu, parentMenu.getSystemTray());
+        }
+        else if (entry instanceof MenuItem) {
+            ((MenuItem) entry).bind((GtkMenuItem) item, parentMenu, parentMenu.getSystemTray());
+        }
+
+        return item;
+    }
+
+    /**
+     * Puts the items (which were just made) into the native menu, without destroying + recreating it. Only for when the menu is open,
+     * it is rebuilt otherwise.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    private
+    void insertItems(final List<GtkBaseMenuItem> items) {
+        for (int i = 0, size = items.size(); i < size; i++) {
+            final GtkBaseMenuItem item = items.get(i);
+            if (item == null) {
+                continue;
+            }
+
+            GtkFunctions.gtk_menu_shell_insert(_nativeMenu, item._native, menuEntries.indexOf(item));
+            GObject.g_object_ref_sink(item._native);  // undoes "floating"
+        }
+
+        updateSpacerImages();
+
+        Gtk2.gtk_widget_show_all(_nativeMenu);
+        hideHiddenEntries();
+    }
+
+    /**
+     * The menu entry looks FUNKY when there are a mis-match of entries WITH and WITHOUT images. Creating the menu does this as well,
+     * so this is only needed when the native menu was changed without destroying + recreating it.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    @SuppressWarnings("ForLoopReplaceableByForEach")
+    private
+    void updateSpacerImages() {
+        boolean hasImages = false;
+
+        for (int i = 0, menuEntriesSize = menuEntries.size(); i < menuEntriesSize; i++) {
+            hasImages |= menuEntries.get(i).hasImage();
+        }
+
+        for (int i = 0, menuEntriesSize = menuEntries.size(); i < menuEntriesSize; i++) {
+            menuEntries.get(i).setSpacerImage(hasImages);
+        }
+    }
+
+    /**
+     * @return true if this menu (or a menu it is in) is open right now. Destroying + recreating an open menu closes it, so an open
+     *         menu is changed in place instead.
+     *
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    boolean isOpen() {
+        for (GtkMenu menu = this; menu != null; menu = menu.parent) {
+            final Pointer nativeMenu = menu._nativeMenu;
+            if (nativeMenu != null && GtkFunctions.gtk_widget_get_mapped(nativeMenu)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    @Override
+    public
+    void move(final Entry entry, final EntryPeer entryPeer, final int index) {
+        // must always be called on the GTK dispatch. This must be dispatchAndWait() so it will properly executed immediately
+        GtkEventDispatch.dispatchAndWait(new Runnable() {
+            @Override
+            public
+            void run() {
+                final GtkBaseMenuItem item = (GtkBaseMenuItem) entryPeer;
+                if (!menuEntries.remove(item)) {
+                    return;
+                }
+                menuEntries.add(Math.min(index, menuEntries.size()), item);
+
+                // the native entry is moved inside of the native menu, so the menu does not have to be rebuilt
+                if (_nativeMenu != null) {
+                    GtkFunctions.gtk_menu_reorder_child(_nativeMenu, item._native, index);
                 }
             }
         });
@@ -275,33 +507,40 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     // see: https://git.gnome.org/browse/gtk+/commit/?id=627a03683f5f41efbfc86cc0f10e1b7c11e9bb25
 
     // is overridden in tray impl
-    @SuppressWarnings("Duplicates")
     @Override
     public
     void setImage(final MenuItem menuItem) {
         // is overridden by system tray
-        setLegitImage(menuItem.getImage() != null);
-
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                if (image != null) {
-                    Gtk2.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
-                    image = null;
-                }
+        pending.request(menuItem, IMAGE);
+    }
 
-                if (menuItem.getImage() != null) {
-                    image = Gtk2.gtk_image_new_from_file(menuItem.getImage().getAbsolutePath());
-                    Gtk2.gtk_image_menu_item_set_image(_native, image);
+    /**
+     * ALWAYS CALLED ON THE EDT. The widget must be shown afterwards.
+     */
+    private
+    void setImage_(final String themeName, final File imageFile, final boolean isPending) {
+        if (image != null) {
+            Gtk2.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
+            image = null;
+        }
 
-                    //  must always re-set always-show after setting the image
-                    Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
-                }
+        if (themeName != null || imageFile != null) {
+            removeSpacerImage();
 
-                Gtk2.gtk_widget_show_all(_native);
+            if (themeName != null) {
+                // GTK loads (and sizes) this from the icon theme. No resize or cache is necessary.
+                image = GtkFunctions.gtk_image_new_from_icon_name(themeName, GtkFunctions.GTK_ICON_SIZE_MENU);
+            } else {
+                image = Gtk2.gtk_image_new_from_file(imageFile.getAbsolutePath());
             }
-        });
+            Gtk2.gtk_image_menu_item_set_image(_native, image);
+
+            //  must always re-set always-show after setting the image
+            Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
+        }
+        else if (isPending) {
+            addSpacerImage();
+        }
     }
 
     // is overridden in tray impl
@@ -309,53 +548,33 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     public
     void setEnabled(final MenuItem menuItem) {
         // is overridden by system tray
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled());
-            }
-        });
+        pending.request(menuItem, ENABLED);
     }
 
     // is overridden in tray impl
-    @SuppressWarnings("Duplicates")
     @Override
     public
     void setText(final MenuItem menuItem) {
         // is overridden by system tray
-        final String textWithMnemonic;
+        pending.request(menuItem, TEXT);
+    }
 
-        if (mnemonicKey != 0) {
-            String text = menuItem.getText();
+    @SuppressWarnings("Duplicates")
+    private
+    String getTextWithMnemonic(final MenuItem menuItem) {
+        final String text = menuItem.getText();
 
-            if (text != null) {
-                // they are CASE INSENSITIVE!
-                int i = text.toLowerCase()
-                            .indexOf(mnemonicKey);
+        if (mnemonicKey != 0 && text != null) {
+            // they are CASE INSENSITIVE!
+            int i = text.toLowerCase()
+                        .indexOf(mnemonicKey);
 
-                if (i >= 0) {
-                    textWithMnemonic = text.substring(0, i) + "_" + text.substring(i);
-                }
-                else {
-                    textWithMnemonic = menuItem.getText();
-                }
-            } else {
-                textWithMnemonic = null;
+            if (i >= 0) {
+                return text.substring(0, i) + "_" + text.substring(i);
             }
         }
-        else {
-            textWithMnemonic = menuItem.getText();
-        }
 
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                Gtk2.gtk_menu_item_set_label(_native, textWithMnemonic);
-                Gtk2.gtk_widget_show_all(_native);
-            }
-        });
+        return text;
     }
 
     // is overridden in tray impl
@@ -369,6 +588,12 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     @Override
     public
     void setShortcut(final MenuItem menuItem) {
+        // is overridden by system tray
+        pending.request(menuItem, SHORTCUT);
+    }
+
+    private
+    void setShortcut_(final MenuItem menuItem) {
         char shortcut = menuItem.getShortcut();
 
         if (shortcut != 0) {
@@ -376,22 +601,86 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
         } else {
             this.mnemonicKey = 0;
         }
-
-        setText(menuItem);
     }
 
+    // is overridden in tray impl
     @Override
     public
     void setTooltip(final MenuItem menuItem) {
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                // NOTE: this will not work for AppIndicator tray types!
-                // null will remove the tooltip
-                Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
+        // is overridden by system tray
+        pending.request(menuItem, TOOLTIP);
+    }
+
+    /**
+     * Everything that has changed is applied in a single dispatch, and the widget is only shown (re-layout) once.
+     */
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        if (parent == null) {
+            // the tray implementations override the individual setters, so they must be used here
+            if ((changes & IMAGE) != 0) {
+                setImage(menuItem);
             }
-        });
+            if ((changes & ENABLED) != 0) {
+                setEnabled(menuItem);
+            }
+            if ((changes & TEXT) != 0) {
+                setText(menuItem);
+            }
+            if ((changes & CALLBACK) != 0) {
+                setCallback(menuItem);
+            }
+            if ((changes & SHORTCUT) != 0) {
+                setShortcut(menuItem);
+            }
+            if ((changes & TOOLTIP) != 0) {
+                setTooltip(menuItem);
+            }
+            return;
+        }
+
+        // can't have a callback for menus!
+        pending.request(menuItem, changes & ~CALLBACK);
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed since the last time.
+     */
+    private
+    void update_(final MenuItem menuItem, final int changes) {
+        if ((changes & SHORTCUT) != 0) {
+            setShortcut_(menuItem);
+        }
+
+        final boolean updateImage = (changes & IMAGE) != 0;
+        final boolean updateText = (changes & (TEXT | SHORTCUT)) != 0;
+
+        if (updateImage) {
+            final String themeName = menuItem.getImageThemeName();
+            final File imageFile = menuItem.getImage();
+
+            // the image is still being resized + cached. It counts as an image, so the menu spacing does not change when it shows up
+            final boolean isPending = themeName == null && imageFile == null && menuItem.hasImage();
+            setLegitImage(menuItem.hasImage());
+
+            setImage_(themeName, imageFile, isPending);
+        }
+        if ((changes & ENABLED) != 0) {
+            Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled());
+        }
+        if (updateText) {
+            Gtk2.gtk_menu_item_set_label(_native, getTextWithMnemonic(menuItem));
+        }
+        if ((changes & TOOLTIP) != 0) {
+            // NOTE: this will not work for AppIndicator tray types!
+            // null will remove the tooltip
+            Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
+        }
+
+        if (updateImage || updateText) {
+            showAll();
+        }
     }
 
     /**
@@ -403,6 +692,12 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     void remove(final GtkBaseMenuItem item) {
         menuEntries.remove(item);
 
+        if (isOpen()) {
+            // the native entry is already out of the native menu. Rebuilding the menu now would close it
+            updateSpacerImages();
+            return;
+        }
+
         // have to rebuild the menu now...
         deleteMenu(true);  // must be on EDT
         createMenu(true);  // must be on EDT
@@ -417,6 +712,10 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             public
             void run() {
                 GtkMenu parent = getParent();
+                if (parent != null && parent.isReleased()) {
+                    // our parent is being destroyed as a whole, there is nothing to rebuild
+                    parent = null;
+                }
 
                 if (parent != null) {
                     // have to remove from the  parent.menuEntries first
@@ -430,6 +729,13 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
                     // remove the gtk entry item from our menu NATIVE components
                     Gtk2.gtk_menu_item_set_submenu(_native, null);
 
+                    if (parent.isOpen()) {
+                        // rebuilding the menu would close it, so only our entry is taken out of it
+                        Gtk2.gtk_container_remove(parent._nativeMenu, _native);
+                        parent.updateSpacerImages();
+                        return;
+                    }
+
                     // have to rebuild the menu now...
                     parent.deleteMenu(true);  // must be on EDT
                     parent.createMenu(true);  // must be on EDT
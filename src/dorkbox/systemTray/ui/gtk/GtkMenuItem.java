@@ -19,6 +19,7 @@ import static dorkbox.jna.linux.Gtk.Gtk2;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 
 import com.sun.jna.Pointer;
 
@@ -26,6 +27,7 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuItemPeer;
 import dorkbox.systemTray.util.EventDispatch;
+import dorkbox.systemTray.util.PendingUpdate;
 import dorkbox.jna.linux.GCallback;
 import dorkbox.jna.linux.GObject;
 import dorkbox.jna.linux.GtkEventDispatch;
@@ -42,6 +44,21 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     // GtkStatusIconTray will show on mouse+keyboard movement
     private volatile char mnemonicKey = 0;
 
+    // changes are collected here until they are applied, so a change does not need a new Runnable (and quick changes only dispatch once)
+    private final PendingUpdate<MenuItem> pending = new PendingUpdate<MenuItem>() {
+        @Override
+        protected
+        void dispatch(final Runnable runnable) {
+            GtkEventDispatch.dispatch(runnable);
+        }
+
+        @Override
+        protected
+        void apply(final MenuItem menuItem, final int changes) {
+            update_(menuItem, changes);
+        }
+    };
+
     /**
      * called from inside dispatch thread. ONLY creates the menu item, but DOES NOT attach it!
      * this is a FLOATING reference. See: https://developer.gnome.org/gobject/stable/gobject-The-Base-Object-Type.html#floating-ref
@@ -69,92 +86,73 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     // NOTE: XFCE used to use appindicator3, which DOES NOT support images in the menu. This change was reverted.
     // see: https://ask.fedoraproject.org/en/question/23116/how-to-fix-missing-icons-in-program-menus-and-context-menus/
     // see: https://git.gnome.org/browse/gtk+/commit/?id=627a03683f5f41efbfc86cc0f10e1b7c11e9bb25
-    @SuppressWarnings("Duplicates")
     @Override
     public
     void setImage(final MenuItem menuItem) {
-        final boolean hadImage = hasImage();
-        setLegitImage(menuItem.getImage() != null);
-
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                if (image != null) {
-                    Gtk2.gtk_container_remove(_native, image);  // will automatically get destroyed if no other references to it
-                    image = null;
-                }
-
-                if (menuItem.getImage() != null) {
-                    // always remove the spacer image in case it's there. The spacer image will correctly added when the menu is created.
-                    removeSpacerImage();
+        pending.request(menuItem, IMAGE);
+    }
 
-                    image = Gtk2.gtk_image_new_from_file(menuItem.getImage()
-                                                                 .getAbsolutePath());
-                    Gtk2.gtk_image_menu_item_set_image(_native, image);
+    /**
+     * ALWAYS CALLED ON THE EDT. The widget must be shown afterwards.
+     */
+    private
+    void setImage_(final String themeName, final File imageFile, final boolean hadImage, final boolean isPending) {
+        if (image != null) {
+            Gtk2.gtk_container_remove(_native, image);  // will automatically get destroyed if no other references to it
+            image = null;
+        }
 
-                    //  must always re-set always-show after setting the image
-                    Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
-                }
-                else if (hadImage) {
-                    // if at one point, we had an image, we should set the spacer image back, so that menu spacing looks correct.
-                    // since we USED to have an image, it is safe to assume that we should have a spacer image.
-                    addSpacerImage();
-                }
+        if (themeName != null || imageFile != null) {
+            // always remove the spacer image in case it's there. The spacer image will correctly added when the menu is created.
+            removeSpacerImage();
 
-                Gtk2.gtk_widget_show_all(_native);
+            if (themeName != null) {
+                // GTK loads (and sizes) this from the icon theme. No resize or cache is necessary.
+                image = GtkFunctions.gtk_image_new_from_icon_name(themeName, GtkFunctions.GTK_ICON_SIZE_MENU);
+            } else {
+                image = Gtk2.gtk_image_new_from_file(imageFile.getAbsolutePath());
             }
-        });
+            Gtk2.gtk_image_menu_item_set_image(_native, image);
+
+            //  must always re-set always-show after setting the image
+            Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
+        }
+        else if (hadImage || isPending) {
+            // if at one point, we had an image, we should set the spacer image back, so that menu spacing looks correct.
+            // since we USED to have an image, it is safe to assume that we should have a spacer image.
+            // The spacer is also the placeholder while an image is still being resolved.
+            addSpacerImage();
+        }
     }
 
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled());
-            }
-        });
+        pending.request(menuItem, ENABLED);
     }
 
-    @SuppressWarnings("Duplicates")
     @Override
     public
     void setText(final MenuItem menuItem) {
-        final String textWithMnemonic;
+        pending.request(menuItem, TEXT);
+    }
 
-        if (mnemonicKey != 0) {
-            String text = menuItem.getText();
+    @SuppressWarnings("Duplicates")
+    private
+    String getTextWithMnemonic(final MenuItem menuItem) {
+        final String text = menuItem.getText();
 
-            if (text != null) {
-                // they are CASE INSENSITIVE!
-                int i = text.toLowerCase()
-                            .indexOf(mnemonicKey);
+        if (mnemonicKey != 0 && text != null) {
+            // they are CASE INSENSITIVE!
+            int i = text.toLowerCase()
+                        .indexOf(mnemonicKey);
 
-                if (i >= 0) {
-                    textWithMnemonic = text.substring(0, i) + "_" + text.substring(i);
-                }
-                else {
-                    textWithMnemonic = menuItem.getText();
-                }
-            } else {
-                textWithMnemonic = null;
+            if (i >= 0) {
+                return text.substring(0, i) + "_" + text.substring(i);
             }
         }
-        else {
-            textWithMnemonic = menuItem.getText();
-        }
 
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                Gtk2.gtk_menu_item_set_label(_native, textWithMnemonic);
-                Gtk2.gtk_widget_show_all(_native);
-            }
-        });
+        return text;
     }
 
     @SuppressWarnings("Duplicates")
@@ -190,6 +188,11 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     @Override
     public
     void setShortcut(final MenuItem menuItem) {
+        pending.request(menuItem, SHORTCUT);
+    }
+
+    private
+    void setShortcut_(final MenuItem menuItem) {
         char shortcut = menuItem.getShortcut();
 
         if (shortcut != 0) {
@@ -197,22 +200,66 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
         } else {
             this.mnemonicKey = 0;
         }
-
-        setText(menuItem);
     }
 
     @Override
     public
     void setTooltip(final MenuItem menuItem) {
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                // NOTE: this will not work for AppIndicator tray types!
-                // null will remove the tooltip
-                Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
-            }
-        });
+        pending.request(menuItem, TOOLTIP);
+    }
+
+    /**
+     * Everything that has changed is applied in a single dispatch, and the widget is only shown (re-layout) once.
+     */
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        if ((changes & CALLBACK) != 0) {
+            // not a native call
+            setCallback(menuItem);
+        }
+
+        pending.request(menuItem, changes & ~CALLBACK);
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed since the last time.
+     */
+    private
+    void update_(final MenuItem menuItem, final int changes) {
+        if ((changes & SHORTCUT) != 0) {
+            setShortcut_(menuItem);
+        }
+
+        final boolean updateImage = (changes & IMAGE) != 0;
+        final boolean updateText = (changes & (TEXT | SHORTCUT)) != 0;
+
+        if (updateImage) {
+            final boolean hadImage = hasImage();
+            final String themeName = menuItem.getImageThemeName();
+            final File imageFile = menuItem.getImage();
+
+            // the image is still being resized + cached. It counts as an image, so the menu spacing does not change when it shows up
+            final boolean isPending = themeName == null && imageFile == null && menuItem.hasImage();
+            setLegitImage(menuItem.hasImage());
+
+            setImage_(themeName, imageFile, hadImage, isPending);
+        }
+        if ((changes & ENABLED) != 0) {
+            Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled());
+        }
+        if (updateText) {
+            Gtk2.gtk_menu_item_set_label(_native, getTextWithMnemonic(menuItem));
+        }
+        if ((changes & TOOLTIP) != 0) {
+            // NOTE: this will not work for AppIndicator tray types!
+            // null will remove the tooltip
+            Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
+        }
+
+        if (updateImage || updateText) {
+            showAll();
+        }
     }
 
     @SuppressWarnings("Duplicates")
@@ -227,6 +274,12 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
 
                 callback = null;
 
+                if (parent.isReleased()) {
+                    // the whole menu is destroyed at once (which also destroys us), so there is nothing to remove or rebuild
+                    image = null;
+                    return;
+                }
+
                 Gtk2.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
 
                 if (image != null) {
@@ -27,13 +27,13 @@ import com.sun.jna.Pointer;
 import dorkbox.jna.linux.GCallback;
 import dorkbox.jna.linux.GObject;
 import dorkbox.jna.linux.GtkEventDispatch;
-import dorkbox.jna.linux.GtkTheme;
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.CheckboxPeer;
 import dorkbox.systemTray.util.EventDispatch;
 import dorkbox.systemTray.util.HeavyCheckMark;
 import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.PendingUpdate;
 import dorkbox.util.OSUtil;
 
 @SuppressWarnings("deprecation")
@@ -79,6 +79,21 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     private volatile char mnemonicKey = 0;
     private final long handlerId;
 
+    // changes are collected here until they are applied, so a change does not need a new Runnable (and quick changes only dispatch once)
+    private final PendingUpdate<Checkbox> pending = new PendingUpdate<Checkbox>() {
+        @Override
+        protected
+        void dispatch(final Runnable runnable) {
+            GtkEventDispatch.dispatch(runnable);
+        }
+
+        @Override
+        protected
+        void apply(final Checkbox checkbox, final int changes) {
+            update_(checkbox, changes);
+        }
+    };
+
 
 
     /**
@@ -104,7 +119,7 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
 
         if (useFakeCheckMark) {
             if (checkedFile == null) {
-                Color color = GtkTheme.getTextColor();
+                Color color = GtkThemeCache.getTextColor();
                 if (color == null) {
                     SystemTray.logger.error("Unable to determine the text color in use by your system. Please create an issue and include your " +
                                             "full OS configuration and desktop environment, including theme details, such as the theme name, color " +
@@ -113,7 +128,7 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
                 }
 
                 if (checkedFile == null) {
-                    Rectangle size = GtkTheme.getPixelTextHeight("X");
+                    Rectangle size = GtkThemeCache.getPixelTextHeight("X");
                     int imageHeight = parent.systemTray.getMenuImageSize();
                     int height = size.height;
 
@@ -165,46 +180,30 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     @Override
     public
     void setEnabled(final Checkbox menuItem) {
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled());
-            }
-        });
+        pending.request(menuItem, ENABLED);
     }
 
     @Override
     public
     void setText(final Checkbox menuItem) {
-        final String textWithMnemonic;
+        pending.request(menuItem, TEXT);
+    }
 
-        if (mnemonicKey != 0) {
-            String text = menuItem.getText();
+    private
+    String getTextWithMnemonic(final Checkbox menuItem) {
+        final String text = menuItem.getText();
 
+        if (mnemonicKey != 0) {
             // they are CASE INSENSITIVE!
             int i = text.toLowerCase()
                         .indexOf(mnemonicKey);
 
             if (i >= 0) {
-                textWithMnemonic = text.substring(0, i) + "_" + text.substring(i);
-            }
-            else {
-                textWithMnemonic = menuItem.getText();
+                return text.substring(0, i) + "_" + text.substring(i);
             }
         }
-        else {
-            textWithMnemonic = menuItem.getText();
-        }
 
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                Gtk2.gtk_menu_item_set_label(_native, textWithMnemonic);
-                Gtk2.gtk_widget_show_all(_native);
-            }
-        });
+        return text;
     }
 
     @SuppressWarnings({"Duplicates", "StatementWithEmptyBody"})
@@ -248,39 +247,32 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
         // only dispatch if it's actually different
         if (checked != this.isChecked) {
             this.isChecked = checked;
+            pending.request(menuItem, CHECKED);
+        }
+    }
 
-            GtkEventDispatch.dispatch(new Runnable() {
-                @Override
-                public
-                void run() {
-                    if (useFakeCheckMark) {
-                        setCheckedIconForFakeCheckMarks();
-                    } else {
-                        // note: this will trigger "activate", which will then trigger the callback.
-                        // we assume this is consistent across ALL versions and variants of GTK
-                        // https://github.com/GNOME/gtk/blob/master/gtk/gtkcheckmenuitem.c#L317
-                        // this disables the signal handler, then enables it
-                        GObject.g_signal_handler_block(_native, handlerId);
-                        Gtk2.gtk_check_menu_item_set_active(_native, isChecked);
-                        GObject.g_signal_handler_unblock(_native, handlerId);
-                    }
-                }
-            });
+    /**
+     * ALWAYS CALLED ON THE EDT
+     */
+    private
+    void setChecked_() {
+        if (useFakeCheckMark) {
+            setCheckedIconForFakeCheckMarks();
+        } else {
+            // note: this will trigger "activate", which will then trigger the callback.
+            // we assume this is consistent across ALL versions and variants of GTK
+            // https://github.com/GNOME/gtk/blob/master/gtk/gtkcheckmenuitem.c#L317
+            // this disables the signal handler, then enables it
+            GObject.g_signal_handler_block(_native, handlerId);
+            Gtk2.gtk_check_menu_item_set_active(_native, isChecked);
+            GObject.g_signal_handler_unblock(_native, handlerId);
         }
     }
 
     @Override
     public
     void setTooltip(final Checkbox menuItem) {
-        GtkEventDispatch.dispatch(new Runnable() {
-            @Override
-            public
-            void run() {
-                // NOTE: this will not work for AppIndicator tray types!
-                // null will remove the tooltip
-                Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
-            }
-        });
+        pending.request(menuItem, TOOLTIP);
     }
 
     // this is pretty much ONLY for Ubuntu AppIndicators
@@ -303,12 +295,17 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
         //  must always re-set always-show after setting the image
         Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
 
-        Gtk2.gtk_widget_show_all(_native);
+        showAll();
     }
 
     @Override
     public
     void setShortcut(final Checkbox checkbox) {
+        pending.request(checkbox, SHORTCUT);
+    }
+
+    private
+    void setShortcut_(final Checkbox checkbox) {
         char shortcut = checkbox.getShortcut();
 
         if (shortcut != 0) {
@@ -316,8 +313,60 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
         } else {
             this.mnemonicKey = 0;
         }
+    }
+
+    /**
+     * Everything that has changed is applied in a single dispatch, and the widget is only shown (re-layout) once.
+     */
+    @Override
+    public
+    void update(final Checkbox menuItem, final int changes) {
+        if ((changes & CALLBACK) != 0) {
+            // not a native call
+            setCallback(menuItem);
+        }
+
+        int nativeChanges = changes & ~(CALLBACK | CHECKED);
+        if ((changes & CHECKED) != 0) {
+            final boolean checked = menuItem.getChecked();
+            if (checked != this.isChecked) {
+                this.isChecked = checked;
+                nativeChanges |= CHECKED;
+            }
+        }
+
+        pending.request(menuItem, nativeChanges);
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed since the last time.
+     */
+    private
+    void update_(final Checkbox menuItem, final int changes) {
+        if ((changes & SHORTCUT) != 0) {
+            setShortcut_(menuItem);
+        }
+
+        final boolean updateText = (changes & (TEXT | SHORTCUT)) != 0;
+
+        if ((changes & ENABLED) != 0) {
+            Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled());
+        }
+        if (updateText) {
+            Gtk2.gtk_menu_item_set_label(_native, getTextWithMnemonic(menuItem));
+        }
+        if ((changes & TOOLTIP) != 0) {
+            // NOTE: this will not work for AppIndicator tray types!
+            // null will remove the tooltip
+            Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
+        }
+        if ((changes & CHECKED) != 0) {
+            setChecked_();
+        }
 
-        setText(checkbox);
+        if (updateText) {
+            showAll();
+        }
     }
 
     @SuppressWarnings("Duplicates")
@@ -332,6 +381,12 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
 
                 callback = null;
 
+                if (parent.isReleased()) {
+                    // the whole menu is destroyed at once (which also destroys us), so there is nothing to remove or rebuild
+                    image = null;
+                    return;
+                }
+
                 Gtk2.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
 
                 if (image != null) {
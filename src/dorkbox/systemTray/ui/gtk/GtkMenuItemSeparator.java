@@ -41,6 +41,11 @@ class GtkMenuItemSeparator extends GtkBaseMenuItem implements SeparatorPeer {
             @Override
             public
             void run() {
+                if (parent.isReleased()) {
+                    // the whole menu is destroyed at once (which also destroys us), so there is nothing to remove or rebuild
+                    return;
+                }
+
                 Gtk2.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
 
                 parent.remove(GtkMenuItemSeparator.this);
@@ -50,7 +50,7 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
                 // https://mail.gnome.org/archives/commits-list/2016-March/msg05444.html
 
                 Gtk2.gtk_menu_item_set_label(_native, menuItem.getText());
-                Gtk2.gtk_widget_show_all(_native);
+                showAll();
 
                 Gtk2.gtk_widget_set_sensitive(_native, false);
             }
@@ -67,6 +67,11 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
             void run() {
                 GtkMenuItemStatus.super.remove();
 
+                if (parent.isReleased()) {
+                    // the whole menu is destroyed at once (which also destroys us), so there is nothing to remove or rebuild
+                    return;
+                }
+
                 Gtk2.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
 
                 parent.remove(GtkMenuItemStatus.this);
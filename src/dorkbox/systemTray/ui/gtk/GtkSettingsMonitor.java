@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import static dorkbox.jna.linux.Gtk.Gtk2;
+
+import com.sun.jna.Pointer;
+
+import dorkbox.jna.linux.GCallback;
+import dorkbox.jna.linux.GObject;
+import dorkbox.jna.linux.GtkEventDispatch;
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Notifies us when the GTK settings that change the size of images (the DPI/scale factor and the theme) are changed by the desktop
+ * environment. GTK tells us directly, so (unlike AWT) there is nothing to poll.
+ */
+public final
+class GtkSettingsMonitor {
+    private static final String[] SIGNALS = new String[] {"notify::gtk-xft-dpi",
+                                                          "notify::gtk-theme-name",
+                                                          "notify::gtk-icon-theme-name",
+                                                          "notify::gtk-icon-sizes",
+                                                          "notify::gtk-font-name"};
+
+    private static volatile Runnable listener = null;
+    private static boolean isConnected = false;
+
+    // have to save this in a field to prevent GC on the object (since it goes out-of-scope from java)
+    private static final GCallback notifyCallback = new GCallback() {
+        // called by native code, always on the GTK event dispatch thread
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer data) {
+            // this must happen before the listener looks at the theme again
+            GtkThemeCache.invalidate();
+
+            final Runnable listener = GtkSettingsMonitor.listener;
+            if (listener != null) {
+                listener.run();
+            }
+            return Gtk2.TRUE;
+        }
+    };
+
+    /**
+     * Starts notifying the listener (on the GTK event dispatch thread) when the GTK settings change. The signals are only ever
+     * connected once, after that only the listener is replaced.
+     */
+    public static
+    void start(final Runnable listener) {
+        GtkSettingsMonitor.listener = listener;
+        connect();
+    }
+
+    /**
+     * Connects to the GTK settings signals (if that has not happened yet), so that the {@link GtkThemeCache} is invalidated when the
+     * settings change, even if nothing else is listening.
+     */
+    static
+    void connect() {
+        GtkEventDispatch.dispatch(new Runnable() {
+            @Override
+            public
+            void run() {
+                if (isConnected) {
+                    return;
+                }
+
+                final Pointer settings = GtkFunctions.gtk_settings_get_default();
+                if (settings == null) {
+                    SystemTray.logger.warn("Unable to get the GTK settings. Changes to the scale factor or theme will not be noticed.");
+                    return;
+                }
+
+                for (String signal : SIGNALS) {
+                    GObject.g_signal_connect_object(settings, signal, notifyCallback, null, 0);
+                }
+                isConnected = true;
+            }
+        });
+    }
+
+    /**
+     * Stops notifying the listener.
+     */
+    public static
+    void stop() {
+        listener = null;
+    }
+
+    private
+    GtkSettingsMonitor() {
+    }
+}
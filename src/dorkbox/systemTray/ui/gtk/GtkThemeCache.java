@@ -0,0 +1,277 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import com.sun.jna.Pointer;
+
+import dorkbox.jna.linux.Gtk;
+import dorkbox.jna.linux.GtkEventDispatch;
+import dorkbox.jna.linux.GtkTheme;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.util.TrayDetectionCache;
+import dorkbox.util.Property;
+
+/**
+ * Remembers what was measured from the GTK theme (the indicator size, the menu image size, the text color and the text height).
+ * Measuring these creates GTK widgets on the GTK thread, which is slow, and the results only change when the theme changes.
+ * <p>
+ * The results are kept for the next start, keyed by the GTK version and the GTK settings that change them (the theme, icon theme,
+ * font and DPI). When GTK tells us that one of those settings has changed, everything is measured again.
+ */
+public final
+class GtkThemeCache {
+    @Property
+    /** Remembers what was measured from the GTK theme, so that it does not have to be measured again on every start. */
+    public static boolean ENABLE = true;
+
+    private static final String KEY = "key";
+    private static final String INDICATOR_SIZE = "indicatorSize";
+    private static final String MENU_ENTRY_IMAGE_SIZE = "menuEntryImageSize";
+    private static final String TEXT_COLOR = "textColor";
+    private static final String TEXT_HEIGHT = "textHeight.";
+
+    private static final String[] ENVIRONMENT = new String[] {"XDG_CURRENT_DESKTOP", "GDK_SCALE", "GDK_DPI_SCALE", "QT_SCALE_FACTOR"};
+
+    // access is guarded by the class. null when it has not been loaded yet (or it was invalidated)
+    private static Properties values = null;
+
+    /**
+     * See {@link GtkTheme#getIndicatorSize()}
+     */
+    public static
+    int getIndicatorSize() {
+        final String value = get(INDICATOR_SIZE);
+        if (value != null) {
+            return Integer.parseInt(value);
+        }
+
+        final int size = GtkTheme.getIndicatorSize();
+        put(INDICATOR_SIZE, Integer.toString(size));
+        return size;
+    }
+
+    /**
+     * See {@link GtkTheme#getMenuEntryImageSize()}
+     */
+    public static
+    int getMenuEntryImageSize() {
+        final String value = get(MENU_ENTRY_IMAGE_SIZE);
+        if (value != null) {
+            return Integer.parseInt(value);
+        }
+
+        final int size = GtkTheme.getMenuEntryImageSize();
+        put(MENU_ENTRY_IMAGE_SIZE, Integer.toString(size));
+        return size;
+    }
+
+    /**
+     * See {@link GtkTheme#getTextColor()}
+     *
+     * @return the text color, or null if it cannot be determined
+     */
+    public static
+    Color getTextColor() {
+        final String value = get(TEXT_COLOR);
+        if (value != null) {
+            return new Color(Integer.parseInt(value), true);
+        }
+
+        final Color color = GtkTheme.getTextColor();
+        if (color != null) {
+            // not being able to determine it is not remembered, so that it is tried again
+            put(TEXT_COLOR, Integer.toString(color.getRGB()));
+        }
+        return color;
+    }
+
+    /**
+     * See {@link GtkTheme#getPixelTextHeight(String)}
+     */
+    public static
+    Rectangle getPixelTextHeight(final String text) {
+        final String value = get(TEXT_HEIGHT + text);
+        if (value != null) {
+            final String[] split = value.split(",");
+            return new Rectangle(Integer.parseInt(split[0]), Integer.parseInt(split[1]), Integer.parseInt(split[2]), Integer.parseInt(split[3]));
+        }
+
+        final Rectangle size = GtkTheme.getPixelTextHeight(text);
+        put(TEXT_HEIGHT + text, size.x + "," + size.y + "," + size.width + "," + size.height);
+        return size;
+    }
+
+    /**
+     * Forgets everything, because the GTK settings have changed. Called by {@link GtkSettingsMonitor}.
+     */
+    static synchronized
+    void invalidate() {
+        if (values == null) {
+            return;
+        }
+
+        values = null;
+
+        //noinspection ResultOfMethodCallIgnored
+        getFile().delete();
+
+        if (SystemTray.DEBUG) {
+            SystemTray.logger.debug("The GTK settings have changed, the GTK theme will be measured again.");
+        }
+    }
+
+    private static
+    String get(final String name) {
+        if (!ENABLE) {
+            return null;
+        }
+
+        final Properties values = load();
+        synchronized (GtkThemeCache.class) {
+            return values.getProperty(name);
+        }
+    }
+
+    private static
+    void put(final String name, final String value) {
+        if (!ENABLE) {
+            return;
+        }
+
+        final Properties copy = new Properties();
+        synchronized (GtkThemeCache.class) {
+            if (values == null) {
+                // invalidated while it was being measured, so this value might already be wrong
+                return;
+            }
+
+            values.setProperty(name, value);
+            copy.putAll(values);
+        }
+
+        final File file = getFile();
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().mkdirs();
+
+            OutputStream outputStream = new FileOutputStream(file);
+            try {
+                copy.store(outputStream, "SystemTray GTK theme cache. This can be safely deleted.");
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            SystemTray.logger.warn("Unable to save the GTK theme cache.", e);
+        }
+    }
+
+    /**
+     * NOTE: The lock is not held while GTK is asked for its settings, since that waits for the GTK thread (which might be waiting for
+     * the lock)
+     */
+    private static
+    Properties load() {
+        synchronized (GtkThemeCache.class) {
+            if (values != null) {
+                return values;
+            }
+        }
+
+        // we want to know when the settings change, regardless of the tray type
+        GtkSettingsMonitor.connect();
+
+        final String key = createKey();
+        final Properties loaded = new Properties();
+
+        final File file = getFile();
+        if (file.canRead()) {
+            try {
+                InputStream inputStream = new FileInputStream(file);
+                try {
+                    loaded.load(inputStream);
+                } finally {
+                    inputStream.close();
+                }
+
+                if (!key.equals(loaded.getProperty(KEY))) {
+                    // a different theme (or font, DPI, etc.)
+                    loaded.clear();
+                }
+            } catch (IOException e) {
+                SystemTray.logger.warn("Unable to read the GTK theme cache. Measuring the theme again.", e);
+                loaded.clear();
+            }
+        }
+        loaded.setProperty(KEY, key);
+
+        synchronized (GtkThemeCache.class) {
+            if (values == null) {
+                values = loaded;
+            }
+            return values;
+        }
+    }
+
+    /**
+     * @return the GTK version and the GTK settings (and environment) that change what is measured
+     */
+    private static
+    String createKey() {
+        final StringBuilder builder = new StringBuilder(128);
+        builder.append(Gtk.MAJOR).append('.').append(Gtk.MINOR).append('.').append(Gtk.MICRO);
+
+        for (String name : ENVIRONMENT) {
+            builder.append('|').append(name).append('=').append(System.getenv(name));
+        }
+
+        GtkEventDispatch.dispatchAndWait(new Runnable() {
+            @Override
+            public
+            void run() {
+                final Pointer settings = GtkFunctions.gtk_settings_get_default();
+                if (settings == null) {
+                    return;
+                }
+
+                builder.append("|theme=").append(GtkFunctions.g_object_get_string(settings, "gtk-theme-name"))
+                       .append("|iconTheme=").append(GtkFunctions.g_object_get_string(settings, "gtk-icon-theme-name"))
+                       .append("|font=").append(GtkFunctions.g_object_get_string(settings, "gtk-font-name"))
+                       .append("|dpi=").append(GtkFunctions.g_object_get_int(settings, "gtk-xft-dpi"));
+            }
+        });
+
+        return builder.toString();
+    }
+
+    private static
+    File getFile() {
+        return new File(TrayDetectionCache.getCacheDir(), "gtkTheme.properties");
+    }
+
+    private
+    GtkThemeCache() {
+    }
+}
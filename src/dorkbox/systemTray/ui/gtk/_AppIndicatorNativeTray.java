@@ -15,6 +15,8 @@
  */
 package dorkbox.systemTray.ui.gtk;
 
+import static dorkbox.jna.linux.Gtk.Gtk2;
+
 import java.io.File;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -25,6 +27,7 @@ import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.Tray;
 import dorkbox.systemTray.util.ImageResizeUtil;
 import dorkbox.jna.linux.AppIndicator;
+import dorkbox.jna.linux.GCallback;
 import dorkbox.jna.linux.GObject;
 import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.jna.linux.structs.AppIndicatorInstanceStruct;
@@ -88,10 +91,23 @@ class _AppIndicatorNativeTray extends Tray {
     // is the system tray visible or not.
     private volatile boolean visible = true;
     private volatile File imageFile;
+    private volatile String imageThemeName;
 
     // has the name already been set for the indicator?
     private volatile boolean setName = false;
 
+    // the menu is shown by the indicator service (over dbus), which "shows" our menu when it is opened. It cannot wait for us.
+    // This is a field, so it is not garbage collected while GTK still has it
+    private final GCallback menuShowCallback = new GCallback() {
+        // called by native code, always on the GTK event dispatch thread
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer data) {
+            onMenuOpening(null);
+            return Gtk2.TRUE;
+        }
+    };
+
     // appindicators DO NOT support anything other than PLAIN gtk-menus
     //   they ALSO do not support tooltips!!
     //  https://bugs.launchpad.net/indicator-application/+bug/527458/comments/12
@@ -115,6 +131,9 @@ class _AppIndicatorNativeTray extends Tray {
                 // see: https://code.launchpad.net/~mterry/libappindicator/fix-menu-leak/+merge/53247
                 appIndicator.app_indicator_set_menu(menu);
 
+                // the native menu is recreated every time, so we have to reconnect every time
+                GObject.g_signal_connect_object(menu, "show", menuShowCallback, null, 0);
+
                 if (!setName) {
                     setName = true;
 
@@ -158,16 +177,21 @@ class _AppIndicatorNativeTray extends Tray {
             @Override
             public
             void setImage(final MenuItem menuItem) {
+                final String themeName = menuItem.getImageThemeName();
                 imageFile = menuItem.getImage();
-                if (imageFile == null) {
+                imageThemeName = themeName;
+                if (imageFile == null && themeName == null) {
                     return;
                 }
 
+                // app indicators accept either a theme icon name or a full path to an image
+                final String icon = themeName != null ? themeName : imageFile.getAbsolutePath();
+
                 GtkEventDispatch.dispatch(new Runnable() {
                     @Override
                     public
                     void run() {
-                        appIndicator.app_indicator_set_icon(imageFile.getAbsolutePath());
+                        appIndicator.app_indicator_set_icon(icon);
 
                         if (!isActive) {
                             isActive = true;
@@ -215,7 +239,10 @@ class _AppIndicatorNativeTray extends Tray {
                             Pointer p = savedAppIndicator.getPointer();
                             GObject.g_object_unref(p);
 
-                            GtkEventDispatch.shutdownGui();
+                            // when kept warm, it keeps running for the next tray
+                            if (!SystemTray.KEEP_WARM) {
+                                GtkEventDispatch.shutdownGui();
+                            }
                         }
                     });
                 }
@@ -244,6 +271,6 @@ class _AppIndicatorNativeTray extends Tray {
     @Override
     public
     boolean hasImage() {
-        return imageFile != null;
+        return imageFile != null || imageThemeName != null;
     }
 }
@@ -56,6 +56,7 @@ class _GtkStatusIconNativeTray extends Tray {
     // is the system tray visible or not.
     private volatile boolean visible = true;
     private volatile File imageFile;
+    private volatile String imageThemeName;
     private volatile String tooltipText = "";
 
     private final GtkMenu gtkMenu;
@@ -91,8 +92,11 @@ class _GtkStatusIconNativeTray extends Tray {
             @Override
             public
             void setImage(final MenuItem menuItem) {
-                imageFile = menuItem.getImage();
-                if (imageFile == null) {
+                final String themeName = menuItem.getImageThemeName();
+                final File file = menuItem.getImage();
+                imageFile = file;
+                imageThemeName = themeName;
+                if (file == null && themeName == null) {
                     return;
                 }
 
@@ -100,7 +104,12 @@ class _GtkStatusIconNativeTray extends Tray {
                     @Override
                     public
                     void run() {
-                        Gtk2.gtk_status_icon_set_from_file(trayIcon, imageFile.getAbsolutePath());
+                        if (themeName != null) {
+                            // GTK loads (and sizes) this from the icon theme. No resize or cache is necessary.
+                            GtkFunctions.gtk_status_icon_set_from_icon_name(trayIcon, themeName);
+                        } else {
+                            Gtk2.gtk_status_icon_set_from_file(trayIcon, file.getAbsolutePath());
+                        }
 
                         if (!isActive) {
                             isActive = true;
@@ -164,8 +173,10 @@ class _GtkStatusIconNativeTray extends Tray {
 
                     super.remove();
 
-                    // does not need to be called on the dispatch (it does that)
-                    GtkEventDispatch.shutdownGui();
+                    // does not need to be called on the dispatch (it does that). When kept warm, it keeps running for the next tray.
+                    if (!SystemTray.KEEP_WARM) {
+                        GtkEventDispatch.shutdownGui();
+                    }
                 }
             }
         };
@@ -183,8 +194,24 @@ class _GtkStatusIconNativeTray extends Tray {
                         // show the swing menu on the EDT
                         // BUTTON_PRESS only (any mouse click)
                         if (event.type == 4) {
-                            Gtk2.gtk_menu_popup(gtkMenu._nativeMenu, null, null, Gtk2.gtk_status_icon_position_menu,
-                                                trayIcon, 0, event.time);
+                            final int time = event.time;
+
+                            // the menu can be changed (quickly) right before it is shown. It is shown after those changes (which are
+                            // queued on the GTK dispatch), so this cannot wait for them here
+                            onMenuOpening(new Runnable() {
+                                @Override
+                                public
+                                void run() {
+                                    GtkEventDispatch.dispatch(new Runnable() {
+                                        @Override
+                                        public
+                                        void run() {
+                                            Gtk2.gtk_menu_popup(gtkMenu._nativeMenu, null, null, Gtk2.gtk_status_icon_position_menu,
+                                                                trayIcon, 0, time);
+                                        }
+                                    });
+                                }
+                            });
                         }
                     }
                 };
@@ -226,6 +253,6 @@ class _GtkStatusIconNativeTray extends Tray {
     @Override
     public
     boolean hasImage() {
-        return imageFile != null;
+        return imageFile != null || imageThemeName != null;
     }
 }
@@ -17,12 +17,18 @@ package dorkbox.systemTray.ui.osx;
 
 import java.awt.image.BufferedImage;
 
+import com.sun.jna.Function;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.util.ImageUtil;
 import dorkbox.jna.macos.cocoa.NSImage;
 import dorkbox.jna.macos.cocoa.NSInteger;
 import dorkbox.jna.macos.cocoa.NSMenuItem;
+import dorkbox.jna.macos.foundation.ObjectiveC;
 
 abstract
 class OsxBaseMenuItem implements EntryPeer {
@@ -48,6 +54,27 @@ class OsxBaseMenuItem implements EntryPeer {
         return transparentIcon;
     }
 
+    // NSMenu/NSMenuItem (from the utilities project) do not have everything we need, so those messages are sent directly
+    private static final Pointer setHidden = ObjectiveC.sel_registerName("setHidden:");
+    private static Function objc_msgSend = null;
+
+    static synchronized
+    Function objc_msgSend() {
+        if (objc_msgSend == null) {
+            objc_msgSend = NativeLibrary.getInstance("objc").getFunction("objc_msgSend");
+        }
+
+        return objc_msgSend;
+    }
+
+    /**
+     * Hides or shows the menu item, without removing it from the menu.
+     */
+    static
+    void setHidden(final NSMenuItem item, final boolean hidden) {
+        objc_msgSend().invoke(Pointer.class, new Object[] {item.asPointer(), setHidden, (byte) (hidden ? 1 : 0)});
+    }
+
     // the native OSX components
     protected final OsxMenu parent;
     protected final NSMenuItem _native = new NSMenuItem();
@@ -68,6 +95,12 @@ class OsxBaseMenuItem implements EntryPeer {
         parent.addItem(_native);
     }
 
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        setHidden(_native, !entry.isVisible());
+    }
+
     @Override
     public
     void remove() {
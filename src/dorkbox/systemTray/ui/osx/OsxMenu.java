@@ -15,6 +15,10 @@
  */
 package dorkbox.systemTray.ui.osx;
 
+import java.util.List;
+
+import com.sun.jna.Pointer;
+
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.Menu;
@@ -22,6 +26,7 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.systemTray.peer.MenuPeer;
 import dorkbox.jna.macos.cocoa.NSCellStateValue;
 import dorkbox.jna.macos.cocoa.NSImage;
@@ -29,8 +34,11 @@ import dorkbox.jna.macos.cocoa.NSInteger;
 import dorkbox.jna.macos.cocoa.NSMenu;
 import dorkbox.jna.macos.cocoa.NSMenuItem;
 import dorkbox.jna.macos.cocoa.NSString;
+import dorkbox.jna.macos.foundation.ObjectiveC;
 
 class OsxMenu implements MenuPeer {
+    private static final Pointer insertItemAtIndex = ObjectiveC.sel_registerName("insertItem:atIndex:");
+
     final SystemTray systemTray;
 
     // the native OSX components
@@ -55,7 +63,7 @@ class OsxMenu implements MenuPeer {
         this.systemTray = systemTray;
     }
 
-    OsxMenu(final OsxMenu parent) {
+    OsxMenu(final OsxMenu parent, final Menu menu) {
         this.parent = parent;
         this.systemTray = parent.systemTray;
         _nativeMenu = new NSMenu();
@@ -66,13 +74,16 @@ class OsxMenu implements MenuPeer {
         // this is to provide reasonable spacing for the menu item, otherwise it looks weird
         _native.setIndentationLevel(indentationLevel);
         _native.setImage(OsxBaseMenuItem.getTransparentIcon(parent.systemTray));
+
+        // we are never told when a native sub-menu is shown, so the images of the entries are resolved right away (in the background)
+        menu.onShowing();
     }
 
     @Override
     public
     void add(final Menu parentMenu, final Entry entry, final int index) {
         if (entry instanceof Menu) {
-            OsxMenu menu = new OsxMenu(OsxMenu.this);
+            OsxMenu menu = new OsxMenu(OsxMenu.this, (Menu) entry);
             ((Menu) entry).bind(menu, parentMenu, parentMenu.getSystemTray());
         }
         else if (entry instanceof Separator) {
@@ -93,6 +104,15 @@ class OsxMenu implements MenuPeer {
         }
     }
 
+    @Override
+    public
+    void addAll(final Menu parentMenu, final List<Entry> entries, final int[] indexes) {
+        // each native entry is added to the native menu directly, nothing is re-created
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            add(parentMenu, entries.get(i), indexes[i]);
+        }
+    }
+
     @SuppressWarnings("Duplicates")
     @Override
     public
@@ -164,6 +184,41 @@ class OsxMenu implements MenuPeer {
         _native.setToolTip(this.tooltip);
     }
 
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        // these are all cheap property changes on the native menu item
+        if ((changes & IMAGE) != 0) {
+            setImage(menuItem);
+        }
+        if ((changes & ENABLED) != 0) {
+            setEnabled(menuItem);
+        }
+        if ((changes & TEXT) != 0) {
+            setText(menuItem);
+        }
+        if ((changes & CALLBACK) != 0) {
+            setCallback(menuItem);
+        }
+        if ((changes & SHORTCUT) != 0) {
+            setShortcut(menuItem);
+        }
+        if ((changes & TOOLTIP) != 0) {
+            setTooltip(menuItem);
+        }
+    }
+
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        if (parent == null) {
+            // the root menu is shown/hidden by the tray
+            return;
+        }
+
+        OsxBaseMenuItem.setHidden(_native, !entry.isVisible());
+    }
+
     @Override
     public
     void remove() {
@@ -183,6 +238,29 @@ class OsxMenu implements MenuPeer {
 
 
     // to make native add/remove easier for children
+    @Override
+    public
+    void move(final Entry entry, final EntryPeer entryPeer, final int index) {
+        final NSMenuItem item;
+        if (entryPeer instanceof OsxBaseMenuItem) {
+            item = ((OsxBaseMenuItem) entryPeer)._native;
+        }
+        else if (entryPeer instanceof OsxMenu) {
+            item = ((OsxMenu) entryPeer)._native;
+        }
+        else if (entryPeer instanceof OsxMenuItemSeparator) {
+            item = ((OsxMenuItemSeparator) entryPeer)._native;
+        }
+        else {
+            return;
+        }
+
+        // the same native item is put back at the index.
+        // NSMenu (from the utilities project) cannot insert at an index, so the message is sent directly
+        _nativeMenu.removeItem(item);
+        OsxBaseMenuItem.objc_msgSend().invoke(Pointer.class, new Object[] {_nativeMenu.asPointer(), insertItemAtIndex, item.asPointer(), (long) index});
+    }
+
     void addItem(final NSMenuItem item) {
         _nativeMenu.addItem(item);
     }
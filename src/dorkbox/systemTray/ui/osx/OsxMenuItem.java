@@ -157,6 +157,30 @@ class OsxMenuItem extends OsxBaseMenuItem implements MenuItemPeer, OsxClickCallb
         _native.setToolTip(this.tooltip);
     }
 
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        // these are all cheap property changes on the native menu item
+        if ((changes & IMAGE) != 0) {
+            setImage(menuItem);
+        }
+        if ((changes & ENABLED) != 0) {
+            setEnabled(menuItem);
+        }
+        if ((changes & TEXT) != 0) {
+            setText(menuItem);
+        }
+        if ((changes & CALLBACK) != 0) {
+            setCallback(menuItem);
+        }
+        if ((changes & SHORTCUT) != 0) {
+            setShortcut(menuItem);
+        }
+        if ((changes & TOOLTIP) != 0) {
+            setTooltip(menuItem);
+        }
+    }
+
     @Override
     public
     void remove() {
@@ -165,6 +165,30 @@ class OsxMenuItemCheckbox extends OsxBaseMenuItem implements CheckboxPeer, OsxCl
         _native.setToolTip(this.tooltip);
     }
 
+    @Override
+    public
+    void update(final Checkbox menuItem, final int changes) {
+        // these are all cheap property changes on the native menu item
+        if ((changes & ENABLED) != 0) {
+            setEnabled(menuItem);
+        }
+        if ((changes & TEXT) != 0) {
+            setText(menuItem);
+        }
+        if ((changes & CALLBACK) != 0) {
+            setCallback(menuItem);
+        }
+        if ((changes & SHORTCUT) != 0) {
+            setShortcut(menuItem);
+        }
+        if ((changes & TOOLTIP) != 0) {
+            setTooltip(menuItem);
+        }
+        if ((changes & CHECKED) != 0) {
+            setChecked(menuItem);
+        }
+    }
+
     @Override
     public
     void remove() {
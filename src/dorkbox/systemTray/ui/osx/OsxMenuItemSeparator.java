@@ -15,12 +15,13 @@
  */
 package dorkbox.systemTray.ui.osx;
 
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.jna.macos.cocoa.NSMenuItem;
 
 class OsxMenuItemSeparator implements EntryPeer {
 
-    private final NSMenuItem _native = NSMenuItem.separatorItem();
+    final NSMenuItem _native = NSMenuItem.separatorItem();
     private final OsxMenu parent;
 
     OsxMenuItemSeparator(final OsxMenu parent) {
@@ -28,6 +29,12 @@ class OsxMenuItemSeparator implements EntryPeer {
         parent.addItem(_native);
     }
 
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        OsxBaseMenuItem.setHidden(_native, !entry.isVisible());
+    }
+
     @Override
     public
     void remove() {
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.swing;
+
+import dorkbox.systemTray.Checkbox;
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.MenuItem;
+import dorkbox.systemTray.Status;
+import dorkbox.systemTray.peer.CheckboxPeer;
+import dorkbox.systemTray.peer.MenuItemPeer;
+import dorkbox.systemTray.peer.SeparatorPeer;
+import dorkbox.systemTray.peer.StatusPeer;
+
+/**
+ * An entry (of any kind) that is a row of a {@link SwingMenuList}. There is no native entry, the row is painted from the entry itself,
+ * so this only tells the list when something has changed.
+ */
+class SwingListEntry implements MenuItemPeer, CheckboxPeer, StatusPeer, SeparatorPeer {
+    private final SwingMenuList list;
+
+    SwingListEntry(final SwingMenuList list) {
+        this.list = list;
+    }
+
+    @Override
+    public
+    void setImage(final MenuItem menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setEnabled(final MenuItem menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setText(final MenuItem menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setCallback(final MenuItem menuItem) {
+        // the callback is called by the list
+    }
+
+    @Override
+    public
+    void setShortcut(final MenuItem menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setTooltip(final MenuItem menuItem) {
+        // the tooltip is read by the list when it is shown
+    }
+
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setEnabled(final Checkbox menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setText(final Checkbox menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setCallback(final Checkbox menuItem) {
+        // the callback is called by the list
+    }
+
+    @Override
+    public
+    void setShortcut(final Checkbox menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setTooltip(final Checkbox menuItem) {
+        // the tooltip is read by the list when it is shown
+    }
+
+    @Override
+    public
+    void setChecked(final Checkbox menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void update(final Checkbox menuItem, final int changes) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setText(final Status menuItem) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void remove() {
+        list.entriesChanged();
+    }
+}
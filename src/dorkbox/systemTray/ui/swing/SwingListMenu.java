@@ -0,0 +1,334 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.swing;
+
+import java.io.File;
+import java.util.List;
+
+import javax.swing.ImageIcon;
+import javax.swing.JMenu;
+import javax.swing.JPopupMenu;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
+
+import dorkbox.systemTray.Checkbox;
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.Menu;
+import dorkbox.systemTray.MenuItem;
+import dorkbox.systemTray.Separator;
+import dorkbox.systemTray.Status;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.peer.EntryPeer;
+import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.util.SwingUtil;
+
+/**
+ * A sub-menu that shows its entries in a {@link SwingMenuList}, instead of a menu item for every entry. See
+ * {@link SystemTray#SWING_LIST_MENUS}
+ * <p>
+ * The sub-menus of this menu (and their sub-menus) are shown in the same list, so they do not have a native menu of their own.
+ */
+@SuppressWarnings("Duplicates")
+class SwingListMenu implements MenuPeer {
+    private final SwingMenu swingParent;
+
+    // the list that every entry of this menu (and its sub-menus) is shown in
+    final SwingMenuList list;
+
+    // null for the sub-menus, which are rows of the list
+    final JMenu _native;
+
+    // this is ALWAYS called on the EDT.
+    SwingListMenu(final SwingMenu parent, final Menu entry) {
+        this.swingParent = parent;
+
+        JMenu jMenu = new JMenu();
+        JPopupMenu popupMenu = jMenu.getPopupMenu(); // ensure the popup menu is created
+
+        if (SystemTray.SWING_UI != null) {
+            jMenu.setUI(SystemTray.SWING_UI.getItemUI(jMenu, entry));
+            popupMenu.setUI(SystemTray.SWING_UI.getMenuUI(popupMenu, entry));
+        }
+
+        this.list = new SwingMenuList(parent.systemTray, entry);
+        popupMenu.add(list);
+
+        // images of the entries in this menu are only resized + cached once it's shown
+        popupMenu.addPopupMenuListener(new PopupMenuListener() {
+            @Override
+            public
+            void popupMenuWillBecomeVisible(final PopupMenuEvent e) {
+                list.onShowing();
+                entry.onShowing();
+            }
+
+            @Override
+            public
+            void popupMenuWillBecomeInvisible(final PopupMenuEvent e) {
+            }
+
+            @Override
+            public
+            void popupMenuCanceled(final PopupMenuEvent e) {
+            }
+        });
+
+        this._native = jMenu;
+        parent._native.add(jMenu);
+    }
+
+    // this is ALWAYS called on the EDT.
+    SwingListMenu(final SwingListMenu parent) {
+        this.swingParent = null;
+        this.list = parent.list;
+        this._native = null;
+    }
+
+    @Override
+    public
+    void add(final Menu parentMenu, final Entry entry, final int index) {
+        // must always be called on the EDT
+        SwingUtil.invokeAndWaitQuietly(new Runnable() {
+            @Override
+            public
+            void run() {
+                // don't add this entry if it's already been added via another method. Because of threading via swing/gtk, entries can
+                // POSSIBLY get added twice. Once via add() and once via bind().
+                if (entry.hasPeer()) {
+                    return;
+                }
+
+                // the rows are painted from the entries. These only tell the list when something has changed
+                if (entry instanceof Menu) {
+                    ((Menu) entry).bind(new SwingListMenu(SwingListMenu.this), parentMenu, parentMenu.getSystemTray());
+                }
+                else if (entry instanceof Separator) {
+                    entry.bind(new SwingListEntry(list), parentMenu, parentMenu.getSystemTray());
+                }
+                else if (entry instanceof Checkbox) {
+                    ((Checkbox) entry).bind(new SwingListEntry(list), parentMenu, parentMenu.getSystemTray());
+                }
+                else if (entry instanceof Status) {
+                    ((Status) entry).bind(new SwingListEntry(list), parentMenu, parentMenu.getSystemTray());
+                }
+                else if (entry instanceof MenuItem) {
+                    ((MenuItem) entry).bind(new SwingListEntry(list), parentMenu, parentMenu.getSystemTray());
+                }
+
+                list.entriesChanged();
+            }
+        });
+    }
+
+    @Override
+    public
+    void addAll(final Menu parentMenu, final List<Entry> entries, final int[] indexes) {
+        // the list is only refreshed once for all of them
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            add(parentMenu, entries.get(i), indexes[i]);
+        }
+    }
+
+    @Override
+    public
+    void move(final Entry entry, final EntryPeer entryPeer, final int index) {
+        list.entriesChanged();
+    }
+
+    @Override
+    public
+    void setImage(final MenuItem menuItem) {
+        if (_native == null) {
+            list.entriesChanged();
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                setImage_(menuItem);
+            }
+        });
+    }
+
+    // ALWAYS CALLED ON THE EDT
+    private
+    void setImage_(final MenuItem menuItem) {
+        File imageFile = menuItem.getImage();
+        if (imageFile != null) {
+            ImageIcon origIcon = new ImageIcon(imageFile.getAbsolutePath());
+            _native.setIcon(origIcon);
+        }
+        else {
+            _native.setIcon(null);
+        }
+    }
+
+    @Override
+    public
+    void setEnabled(final MenuItem menuItem) {
+        if (_native == null) {
+            list.entriesChanged();
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setEnabled(menuItem.getEnabled());
+            }
+        });
+    }
+
+    @Override
+    public
+    void setText(final MenuItem menuItem) {
+        if (_native == null) {
+            list.entriesChanged();
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setText(menuItem.getText());
+            }
+        });
+    }
+
+    @Override
+    public
+    void setCallback(final MenuItem menuItem) {
+        // can't have a callback for menus!
+    }
+
+    @Override
+    public
+    void setShortcut(final MenuItem menuItem) {
+        if (_native == null) {
+            list.entriesChanged();
+            return;
+        }
+
+        // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+        final int vKey = SwingUtil.getVirtualKey(menuItem.getShortcut());
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setMnemonic(vKey);
+            }
+        });
+    }
+
+    @Override
+    public
+    void setTooltip(final MenuItem menuItem) {
+
+    }
+
+    /**
+     * Everything that has changed is applied in a single invokeLater.
+     */
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        if (_native == null) {
+            // the row is painted again once, for everything
+            list.entriesChanged();
+            return;
+        }
+
+        // can't have a callback (or a tooltip) for menus!
+        if ((changes & (IMAGE | ENABLED | TEXT | SHORTCUT)) == 0) {
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                update_(menuItem, changes);
+            }
+        });
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed.
+     */
+    private
+    void update_(final MenuItem menuItem, final int changes) {
+        if ((changes & IMAGE) != 0) {
+            setImage_(menuItem);
+        }
+        if ((changes & ENABLED) != 0) {
+            _native.setEnabled(menuItem.getEnabled());
+        }
+        if ((changes & TEXT) != 0) {
+            _native.setText(menuItem.getText());
+        }
+        if ((changes & SHORTCUT) != 0) {
+            // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+            _native.setMnemonic(SwingUtil.getVirtualKey(menuItem.getShortcut()));
+        }
+    }
+
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        if (_native == null) {
+            list.entriesChanged();
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setVisible(entry.isVisible());
+            }
+        });
+    }
+
+    /**
+     * This removes all menu entries from this menu AND this menu from it's parent
+     */
+    @Override
+    public
+    void remove() {
+        if (_native == null) {
+            // if this sub-menu is shown in the list, the list goes back to the menu it is for
+            list.entriesChanged();
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setVisible(false);
+                list.close();
+                _native.removeAll();
+
+                swingParent._native.remove(_native);
+            }
+        });
+    }
+}
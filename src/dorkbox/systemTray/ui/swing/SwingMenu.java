@@ -16,11 +16,14 @@
 package dorkbox.systemTray.ui.swing;
 
 import java.io.File;
+import java.util.List;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.JMenu;
 import javax.swing.JPopupMenu;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
 
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.Entry;
@@ -29,6 +32,7 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.systemTray.peer.MenuPeer;
 import dorkbox.util.SwingUtil;
 
@@ -70,6 +74,25 @@ class SwingMenu implements MenuPeer {
             popupMenu.setUI(SystemTray.SWING_UI.getMenuUI(popupMenu, entry));
         }
 
+        // images of the entries in this menu are only resized + cached once it's shown
+        popupMenu.addPopupMenuListener(new PopupMenuListener() {
+            @Override
+            public
+            void popupMenuWillBecomeVisible(final PopupMenuEvent e) {
+                entry.onShowing();
+            }
+
+            @Override
+            public
+            void popupMenuWillBecomeInvisible(final PopupMenuEvent e) {
+            }
+
+            @Override
+            public
+            void popupMenuCanceled(final PopupMenuEvent e) {
+            }
+        });
+
         this._native = jMenu;
         parent._native.add(jMenu);
     }
@@ -89,8 +112,14 @@ class SwingMenu implements MenuPeer {
                 }
 
                 if (entry instanceof Menu) {
-                    SwingMenu swingMenu = new SwingMenu(SwingMenu.this, (Menu) entry);
-                    ((Menu) entry).bind(swingMenu, parentMenu, parentMenu.getSystemTray());
+                    if (SystemTray.SWING_LIST_MENUS) {
+                        SwingListMenu swingMenu = new SwingListMenu(SwingMenu.this, (Menu) entry);
+                        ((Menu) entry).bind(swingMenu, parentMenu, parentMenu.getSystemTray());
+                    }
+                    else {
+                        SwingMenu swingMenu = new SwingMenu(SwingMenu.this, (Menu) entry);
+                        ((Menu) entry).bind(swingMenu, parentMenu, parentMenu.getSystemTray());
+                    }
                 }
                 else if (entry instanceof Separator) {
                     SwingMenuItemSeparator item = new SwingMenuItemSeparator(SwingMenu.this);
@@ -112,6 +141,65 @@ class SwingMenu implements MenuPeer {
         });
     }
 
+    @Override
+    public
+    void addAll(final Menu parentMenu, final List<Entry> entries, final int[] indexes) {
+        // each native entry is added to the native menu directly, nothing is re-created
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            add(parentMenu, entries.get(i), indexes[i]);
+        }
+    }
+
+    @Override
+    public
+    void move(final Entry entry, final EntryPeer entryPeer, final int index) {
+        // must always be called on the EDT
+        SwingUtil.invokeAndWaitQuietly(new Runnable() {
+            @Override
+            public
+            void run() {
+                final JComponent component = getNative(entryPeer);
+                if (component == null || component.getParent() == null) {
+                    return;
+                }
+
+                // the same component is put back at the index (for a JMenu, this is in its popup menu)
+                _native.remove(component);
+                _native.add(component, Math.min(index, getComponentCount()));
+                _native.revalidate();
+            }
+        });
+    }
+
+    // ALWAYS CALLED ON THE EDT
+    private
+    int getComponentCount() {
+        if (_native instanceof JMenu) {
+            return ((JMenu) _native).getMenuComponentCount();
+        }
+        return _native.getComponentCount();
+    }
+
+    private static
+    JComponent getNative(final EntryPeer entryPeer) {
+        if (entryPeer instanceof SwingMenuItem) {
+            return ((SwingMenuItem) entryPeer)._native;
+        }
+        if (entryPeer instanceof SwingMenu) {
+            return ((SwingMenu) entryPeer)._native;
+        }
+        if (entryPeer instanceof SwingListMenu) {
+            return ((SwingListMenu) entryPeer)._native;
+        }
+        if (entryPeer instanceof SwingMenuItemSeparator) {
+            return ((SwingMenuItemSeparator) entryPeer)._native;
+        }
+        if (entryPeer instanceof SwingMenuItemStatus) {
+            return ((SwingMenuItemStatus) entryPeer)._native;
+        }
+        return null;
+    }
+
     // is overridden in tray impl
     @Override
     public
@@ -120,18 +208,24 @@ class SwingMenu implements MenuPeer {
             @Override
             public
             void run() {
-                File imageFile = menuItem.getImage();
-                if (imageFile != null) {
-                    ImageIcon origIcon = new ImageIcon(imageFile.getAbsolutePath());
-                    ((JMenu) _native).setIcon(origIcon);
-                }
-                else {
-                    ((JMenu) _native).setIcon(null);
-                }
+                setImage_(menuItem);
             }
         });
     }
 
+    // ALWAYS CALLED ON THE EDT
+    private
+    void setImage_(final MenuItem menuItem) {
+        File imageFile = menuItem.getImage();
+        if (imageFile != null) {
+            ImageIcon origIcon = new ImageIcon(imageFile.getAbsolutePath());
+            ((JMenu) _native).setIcon(origIcon);
+        }
+        else {
+            ((JMenu) _native).setIcon(null);
+        }
+    }
+
     // is overridden in tray impl
     @Override
     public
@@ -187,6 +281,86 @@ class SwingMenu implements MenuPeer {
 
     }
 
+    /**
+     * Everything that has changed is applied in a single invokeLater.
+     */
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        if (parent == null) {
+            // the tray implementations override the individual setters, so they must be used here
+            if ((changes & IMAGE) != 0) {
+                setImage(menuItem);
+            }
+            if ((changes & ENABLED) != 0) {
+                setEnabled(menuItem);
+            }
+            if ((changes & TEXT) != 0) {
+                setText(menuItem);
+            }
+            if ((changes & CALLBACK) != 0) {
+                setCallback(menuItem);
+            }
+            if ((changes & SHORTCUT) != 0) {
+                setShortcut(menuItem);
+            }
+            if ((changes & TOOLTIP) != 0) {
+                setTooltip(menuItem);
+            }
+            return;
+        }
+
+        // can't have a callback (or a tooltip) for menus!
+        if ((changes & (IMAGE | ENABLED | TEXT | SHORTCUT)) == 0) {
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                update_(menuItem, changes);
+            }
+        });
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed.
+     */
+    private
+    void update_(final MenuItem menuItem, final int changes) {
+        if ((changes & IMAGE) != 0) {
+            setImage_(menuItem);
+        }
+        if ((changes & ENABLED) != 0) {
+            _native.setEnabled(menuItem.getEnabled());
+        }
+        if ((changes & TEXT) != 0) {
+            ((JMenu) _native).setText(menuItem.getText());
+        }
+        if ((changes & SHORTCUT) != 0) {
+            // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+            ((JMenu) _native).setMnemonic(SwingUtil.getVirtualKey(menuItem.getShortcut()));
+        }
+    }
+
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        if (parent == null) {
+            // the root menu is shown/hidden by the tray
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setVisible(entry.isVisible());
+            }
+        });
+    }
+
     /**
      * This removes all menu entries from this menu AND this menu from it's parent
      */
@@ -87,18 +87,24 @@ class SwingMenuItem implements MenuItemPeer {
             @Override
             public
             void run() {
-                File imageFile = menuItem.getImage();
-                if (imageFile != null) {
-                    ImageIcon origIcon = new ImageIcon(imageFile.getAbsolutePath());
-                    _native.setIcon(origIcon);
-                }
-                else {
-                    _native.setIcon(transparentIcon);
-                }
+                setImage_(menuItem);
             }
         });
     }
 
+    // ALWAYS CALLED ON THE EDT
+    private
+    void setImage_(final MenuItem menuItem) {
+        File imageFile = menuItem.getImage();
+        if (imageFile != null) {
+            ImageIcon origIcon = new ImageIcon(imageFile.getAbsolutePath());
+            _native.setIcon(origIcon);
+        }
+        else {
+            _native.setIcon(transparentIcon);
+        }
+    }
+
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
@@ -186,6 +192,64 @@ class SwingMenuItem implements MenuItemPeer {
         });
     }
 
+    /**
+     * Everything that has changed is applied in a single invokeLater.
+     */
+    @Override
+    public
+    void update(final MenuItem menuItem, final int changes) {
+        if ((changes & CALLBACK) != 0) {
+            setCallback(menuItem);
+        }
+
+        if ((changes & ~CALLBACK) == 0) {
+            return;
+        }
+
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                update_(menuItem, changes);
+            }
+        });
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed.
+     */
+    private
+    void update_(final MenuItem menuItem, final int changes) {
+        if ((changes & IMAGE) != 0) {
+            setImage_(menuItem);
+        }
+        if ((changes & ENABLED) != 0) {
+            _native.setEnabled(menuItem.getEnabled());
+        }
+        if ((changes & TEXT) != 0) {
+            _native.setText(menuItem.getText());
+        }
+        if ((changes & SHORTCUT) != 0) {
+            // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+            _native.setMnemonic(SwingUtil.getVirtualKey(menuItem.getShortcut()));
+        }
+        if ((changes & TOOLTIP) != 0) {
+            _native.setToolTipText(menuItem.getTooltip());
+        }
+    }
+
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setVisible(entry.isVisible());
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
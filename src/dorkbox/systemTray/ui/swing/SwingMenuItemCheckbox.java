@@ -37,7 +37,7 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
 
     private static ImageIcon checkedIcon;
 
-    private static
+    static
     ImageIcon getCheckedIcon(SystemTray systemTray) {
         if (checkedIcon == null) {
             try {
@@ -168,17 +168,23 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
                 @Override
                 public
                 void run() {
-                    if (isChecked) {
-                        _native.setIcon(getCheckedIcon(parent.systemTray));
-                    }
-                    else {
-                        _native.setIcon(SwingMenuItem.getTransparentIcon(parent.systemTray));
-                    }
+                    setChecked_();
                 }
             });
         }
     }
 
+    // ALWAYS CALLED ON THE EDT
+    private
+    void setChecked_() {
+        if (isChecked) {
+            _native.setIcon(getCheckedIcon(parent.systemTray));
+        }
+        else {
+            _native.setIcon(SwingMenuItem.getTransparentIcon(parent.systemTray));
+        }
+    }
+
     @Override
     public
     void setTooltip(final Checkbox menuItem) {
@@ -190,4 +196,65 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
             }
         });
     }
+
+    /**
+     * Everything that has changed is applied in a single invokeLater.
+     */
+    @Override
+    public
+    void update(final Checkbox menuItem, final int changes) {
+        // these are qualified, because this is also a MenuItemPeer (which has the same names)
+        if ((changes & CheckboxPeer.CALLBACK) != 0) {
+            setCallback(menuItem);
+        }
+
+        int swingChanges = changes & ~CheckboxPeer.CALLBACK;
+        if ((changes & CheckboxPeer.CHECKED) != 0) {
+            boolean checked = menuItem.getChecked();
+
+            // only changed if it's actually different
+            if (checked != this.isChecked) {
+                this.isChecked = checked;
+            }
+            else {
+                swingChanges &= ~CheckboxPeer.CHECKED;
+            }
+        }
+
+        if (swingChanges == 0) {
+            return;
+        }
+
+        final int updates = swingChanges;
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                update_(menuItem, updates);
+            }
+        });
+    }
+
+    /**
+     * ALWAYS CALLED ON THE EDT, with everything that has changed.
+     */
+    private
+    void update_(final Checkbox menuItem, final int changes) {
+        if ((changes & CheckboxPeer.ENABLED) != 0) {
+            _native.setEnabled(menuItem.getEnabled());
+        }
+        if ((changes & CheckboxPeer.TEXT) != 0) {
+            _native.setText(menuItem.getText());
+        }
+        if ((changes & CheckboxPeer.SHORTCUT) != 0) {
+            // Will return 0 as the vKey if it's not set (which will remove the shortcut)
+            _native.setMnemonic(SwingUtil.getVirtualKey(menuItem.getShortcut()));
+        }
+        if ((changes & CheckboxPeer.TOOLTIP) != 0) {
+            _native.setToolTipText(menuItem.getTooltip());
+        }
+        if ((changes & CheckboxPeer.CHECKED) != 0) {
+            setChecked_();
+        }
+    }
 }
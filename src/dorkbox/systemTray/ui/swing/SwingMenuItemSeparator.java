@@ -17,6 +17,7 @@ package dorkbox.systemTray.ui.swing;
 
 import javax.swing.JSeparator;
 
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.util.SwingUtil;
@@ -24,7 +25,7 @@ import dorkbox.util.SwingUtil;
 class SwingMenuItemSeparator implements EntryPeer {
 
     private final SwingMenu parent;
-    private final JSeparator _native = new JSeparator(JSeparator.HORIZONTAL);
+    final JSeparator _native = new JSeparator(JSeparator.HORIZONTAL);
 
     // this is ALWAYS called on the EDT.
     SwingMenuItemSeparator(final SwingMenu parent) {
@@ -37,6 +38,18 @@ class SwingMenuItemSeparator implements EntryPeer {
         parent._native.add(_native);
     }
 
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setVisible(entry.isVisible());
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
@@ -29,7 +29,7 @@ import dorkbox.util.SwingUtil;
 class SwingMenuItemStatus implements StatusPeer {
 
     private final SwingMenu parent;
-    private final JMenuItem _native = new JMenuItem();
+    final JMenuItem _native = new JMenuItem();
 
     // this is ALWAYS called on the EDT.
     SwingMenuItemStatus(final SwingMenu parent, final Entry entry) {
@@ -63,6 +63,18 @@ class SwingMenuItemStatus implements StatusPeer {
         });
     }
 
+    @Override
+    public
+    void setVisible(final Entry entry) {
+        SwingUtil.invokeLater(new Runnable() {
+            @Override
+            public
+            void run() {
+                _native.setVisible(entry.isVisible());
+            }
+        });
+    }
+
     @Override
     public
     void remove() {
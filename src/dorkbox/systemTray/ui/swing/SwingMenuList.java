@@ -0,0 +1,772 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.swing;
+
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Point;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.ImageIcon;
+import javax.swing.JList;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JSeparator;
+import javax.swing.ListCellRenderer;
+import javax.swing.ListSelectionModel;
+import javax.swing.MenuElement;
+import javax.swing.MenuSelectionManager;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.ToolTipManager;
+
+import dorkbox.systemTray.Checkbox;
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.Menu;
+import dorkbox.systemTray.MenuItem;
+import dorkbox.systemTray.Separator;
+import dorkbox.systemTray.Status;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.util.EventDispatch;
+import dorkbox.util.SwingUtil;
+
+/**
+ * Shows the entries of a menu as the rows of a single list (in a scroll pane), instead of a menu item for every entry. See
+ * {@link SystemTray#SWING_LIST_MENUS}
+ * <p>
+ * Every row is the same size, so only the rows that can be seen are laid out and painted. The rows are painted by a few menu items that
+ * are shared by every row (like the cell renderer of a JList), so that they look the same as the rest of the menu.
+ * <p>
+ * Sub-menus are opened in the same list, with a row at the top that goes back to the menu they are in.
+ * <p>
+ * This is in the popup of a JMenu, and it is a MenuElement so that it gets the keys while that popup is open.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+class SwingMenuList extends JScrollPane implements MenuElement {
+    private static final long serialVersionUID = 1L;
+
+    private static final MenuElement[] NO_ELEMENTS = new MenuElement[0];
+    private static final Entry[] NO_ROWS = new Entry[0];
+
+    /**
+     * The rows of the list. Only changed on the EDT. Package-private for TestSwingMenuListRows.
+     */
+    static final
+    class Rows extends AbstractListModel {
+        private static final long serialVersionUID = 1L;
+
+        private Entry[] rows = NO_ROWS;
+
+        @Override
+        public
+        int getSize() {
+            return rows.length;
+        }
+
+        @Override
+        public
+        Object getElementAt(final int index) {
+            return rows[index];
+        }
+
+        Entry get(final int index) {
+            if (index < 0 || index >= rows.length) {
+                return null;
+            }
+            return rows[index];
+        }
+
+        int indexOf(final Entry entry) {
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] == entry) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Only the rows between what is the same at the start and at the end are removed + added. The rows are painted from the
+         * entries, so the others are only painted again.
+         */
+        void set(final Entry[] rows) {
+            final Entry[] previous = this.rows;
+
+            int start = 0;
+            while (start < previous.length && start < rows.length && previous[start] == rows[start]) {
+                start++;
+            }
+
+            int end = 0;
+            while (end < previous.length - start && end < rows.length - start &&
+                   previous[previous.length - 1 - end] == rows[rows.length - 1 - end]) {
+                end++;
+            }
+
+            final int removed = previous.length - start - end;
+            if (removed > 0) {
+                final Entry[] remaining = new Entry[previous.length - removed];
+                System.arraycopy(previous, 0, remaining, 0, start);
+                System.arraycopy(previous, previous.length - end, remaining, start, end);
+
+                this.rows = remaining;
+                fireIntervalRemoved(this, start, start + removed - 1);
+            }
+
+            this.rows = rows;
+
+            final int added = rows.length - start - end;
+            if (added > 0) {
+                fireIntervalAdded(this, start, start + added - 1);
+            }
+
+            if (rows.length > 0) {
+                fireContentsChanged(this, 0, rows.length - 1);
+            }
+        }
+    }
+
+    private final SystemTray systemTray;
+
+    // the menu this list is for
+    private final Menu menu;
+
+    // the menu that is shown, which is the menu this list is for or one of its sub-menus. Only changed on the EDT
+    private Menu current;
+
+    private final Rows rows = new Rows();
+    private final JList list = new JList(rows) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public
+        String getToolTipText(final MouseEvent event) {
+            final Entry entry = rows.get(locationToIndex(event.getPoint()));
+            if (entry instanceof Checkbox) {
+                return ((Checkbox) entry).getTooltip();
+            }
+            if (entry instanceof MenuItem && entry != current) {
+                return ((MenuItem) entry).getTooltip();
+            }
+            return null;
+        }
+    };
+
+    // true when the entries have changed, but the rows have not been made again
+    private volatile boolean isChanged = true;
+    private final AtomicBoolean isRefreshQueued = new AtomicBoolean(false);
+
+    // every change is queued with the same runnable, and the rows are only made again once for all of them
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public
+        void run() {
+            isRefreshQueued.set(false);
+
+            if (isShowing()) {
+                refresh();
+            }
+            // otherwise the rows are made again when the list is shown
+        }
+    };
+
+    // the images of the rows, which are only loaded when they are painted. Access is only on the EDT
+    private final Map<File, ImageIcon> icons = new WeakHashMap<File, ImageIcon>();
+
+    /**
+     * How wide the text of a row is. It is only measured again when the text has changed.
+     */
+    private static final
+    class TextWidth {
+        final String text;
+        final int width;
+
+        TextWidth(final String text, final int width) {
+            this.text = text;
+            this.width = width;
+        }
+    }
+
+    // the width of the text of every row that has been shown. Access is only on the EDT
+    private final Map<Entry, TextWidth> textWidths = new WeakHashMap<Entry, TextWidth>();
+
+    // these paint every row
+    private final JMenuItem itemRenderer = new JMenuItem();
+    private final JMenu menuRenderer = new JMenu();
+    private final JSeparator separatorRenderer = new JSeparator();
+
+    private final Font font;
+    private final Font boldFont;
+
+    // how wide a row is without any text (the icon, gaps, and the arrow of a sub-menu)
+    private final int emptyRowWidth;
+
+    // this is ALWAYS called on the EDT.
+    SwingMenuList(final SystemTray systemTray, final Menu menu) {
+        this.systemTray = systemTray;
+        this.menu = menu;
+        this.current = menu;
+
+        if (SystemTray.SWING_UI != null) {
+            itemRenderer.setUI(SystemTray.SWING_UI.getItemUI(itemRenderer, null));
+            menuRenderer.setUI(SystemTray.SWING_UI.getItemUI(menuRenderer, null));
+            separatorRenderer.setUI(SystemTray.SWING_UI.getSeparatorUI(separatorRenderer));
+        }
+        itemRenderer.setHorizontalAlignment(SwingConstants.LEFT);
+        menuRenderer.setHorizontalAlignment(SwingConstants.LEFT);
+
+        font = itemRenderer.getFont();
+        boldFont = font.deriveFont(Font.BOLD);
+
+        // every row is as tall as the tallest kind of row, and (because they are all the same) nothing is laid out for each row
+        final ImageIcon transparentIcon = SwingMenuItem.getTransparentIcon(systemTray);
+        itemRenderer.setIcon(transparentIcon);
+        menuRenderer.setIcon(transparentIcon);
+
+        itemRenderer.setText("");
+        menuRenderer.setText("");
+        emptyRowWidth = Math.max(itemRenderer.getPreferredSize().width, menuRenderer.getPreferredSize().width);
+
+        itemRenderer.setText("X");
+        menuRenderer.setText("X");
+        list.setFixedCellHeight(Math.max(itemRenderer.getPreferredSize().height, menuRenderer.getPreferredSize().height));
+        list.setFixedCellWidth(emptyRowWidth);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.setOpaque(false);
+        list.setCellRenderer(new ListCellRenderer() {
+            @Override
+            public
+            Component getListCellRendererComponent(final JList list,
+                                                   final Object value,
+                                                   final int index,
+                                                   final boolean isSelected,
+                                                   final boolean cellHasFocus) {
+                return getRenderer((Entry) value, isSelected);
+            }
+        });
+
+        final MouseAdapter mouseAdapter = new MouseAdapter() {
+            @Override
+            public
+            void mouseMoved(final MouseEvent e) {
+                select(list.locationToIndex(e.getPoint()));
+            }
+
+            @Override
+            public
+            void mouseDragged(final MouseEvent e) {
+                select(list.locationToIndex(e.getPoint()));
+            }
+
+            @Override
+            public
+            void mouseReleased(final MouseEvent e) {
+                final int index = list.locationToIndex(e.getPoint());
+                if (index >= 0 && list.getCellBounds(index, index).contains(e.getPoint())) {
+                    activate(rows.get(index));
+                }
+            }
+        };
+        list.addMouseListener(mouseAdapter);
+        list.addMouseMotionListener(mouseAdapter);
+        ToolTipManager.sharedInstance().registerComponent(list);
+
+        setViewportView(list);
+        setBorder(BorderFactory.createEmptyBorder());
+        setOpaque(false);
+        getViewport().setOpaque(false);
+        setHorizontalScrollBarPolicy(HORIZONTAL_SCROLLBAR_NEVER);
+        setVerticalScrollBarPolicy(VERTICAL_SCROLLBAR_AS_NEEDED);
+        getVerticalScrollBar().setUnitIncrement(list.getFixedCellHeight());
+    }
+
+    /**
+     * Called when the entries (or what they look like) have changed, from any thread. The rows are made again once, after all of the
+     * changes that are queued right now.
+     */
+    void entriesChanged() {
+        isChanged = true;
+
+        if (isRefreshQueued.compareAndSet(false, true)) {
+            // always queued (even when on the EDT), so that adding many entries at once only makes the rows again one time
+            SwingUtilities.invokeLater(refresh);
+        }
+    }
+
+    /**
+     * Called (on the EDT) when the popup this is in is about to be shown. It always opens with the menu this list is for.
+     */
+    void onShowing() {
+        final boolean isSameMenu = current == menu;
+        current = menu;
+
+        if (!isSameMenu || isChanged) {
+            refresh();
+        }
+
+        list.clearSelection();
+        list.ensureIndexIsVisible(0);
+    }
+
+    /**
+     * Called (on the EDT) when the menu this list is for is removed.
+     */
+    void close() {
+        rows.set(NO_ROWS);
+        icons.clear();
+        textWidths.clear();
+    }
+
+    /**
+     * Makes the rows again for the menu that is shown. ALWAYS CALLED ON THE EDT.
+     */
+    private
+    void refresh() {
+        isChanged = false;
+
+        // if the sub-menu that is shown was removed, go back to the menu this list is for
+        if (!isInMenu(current)) {
+            current = menu;
+        }
+
+        final Entry selected = rows.get(list.getSelectedIndex());
+        final List<Entry> entries = current.getEntries();
+
+        final List<Entry> rows = new ArrayList<Entry>(entries.size() + 1);
+        if (current != menu) {
+            // the row at the top goes back
+            rows.add(current);
+        }
+
+        final FontMetrics fontMetrics = list.getFontMetrics(boldFont);
+        int textWidth = 0;
+
+        for (int i = 0, size = entries.size(); i < size; i++) {
+            final Entry entry = entries.get(i);
+            if (entry.isVisible()) {
+                rows.add(entry);
+
+                textWidth = Math.max(textWidth, getTextWidth(fontMetrics, entry, getText(entry)));
+            }
+        }
+        if (current != menu) {
+            textWidth = Math.max(textWidth, getTextWidth(fontMetrics, current, getBackText(current)));
+        }
+
+        this.rows.set(rows.toArray(new Entry[0]));
+
+        final Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+        final int rowHeight = list.getFixedCellHeight();
+
+        // rows that are too long are cut off by the menu item UI
+        list.setFixedCellWidth(Math.min(emptyRowWidth + textWidth, screenSize.width / 2));
+        list.setVisibleRowCount(Math.max(1, Math.min(rows.size(), (screenSize.height * 2 / 3) / rowHeight)));
+
+        final int index = this.rows.indexOf(selected);
+        if (index >= 0) {
+            list.setSelectedIndex(index);
+        }
+
+        // the popup this is in has to be made the new size
+        final JPopupMenu popupMenu = (JPopupMenu) SwingUtilities.getAncestorOfClass(JPopupMenu.class, this);
+        if (popupMenu != null && popupMenu.isVisible()) {
+            popupMenu.pack();
+        }
+    }
+
+    /**
+     * @return how wide the text (of the row for the entry) is. It is only measured if it has changed since the last time.
+     */
+    private
+    int getTextWidth(final FontMetrics fontMetrics, final Entry entry, final String text) {
+        if (text == null) {
+            return 0;
+        }
+
+        TextWidth textWidth = textWidths.get(entry);
+        if (textWidth == null || !text.equals(textWidth.text)) {
+            textWidth = new TextWidth(text, fontMetrics.stringWidth(text));
+            textWidths.put(entry, textWidth);
+        }
+        return textWidth.width;
+    }
+
+    /**
+     * @return true if the sub-menu is (still) in the menu this list is for
+     */
+    private
+    boolean isInMenu(Menu subMenu) {
+        while (subMenu != null) {
+            if (subMenu == menu) {
+                return true;
+            }
+            subMenu = subMenu.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * Shows the sub-menu (of the menu that is shown) in the list
+     */
+    private
+    void open(final Menu subMenu) {
+        current = subMenu;
+        refresh();
+
+        // the first row goes back, so the first entry of the sub-menu is selected
+        list.clearSelection();
+        list.ensureIndexIsVisible(0);
+        selectNext(0, 1);
+
+        // the images, providers (and the native entries of its sub-menus) of this menu are made now
+        subMenu.onShowing();
+    }
+
+    /**
+     * Shows the menu that the sub-menu that is shown is in
+     */
+    private
+    void back() {
+        final Menu subMenu = current;
+        current = subMenu.getParent();
+        refresh();
+
+        select(rows.indexOf(subMenu));
+    }
+
+    /**
+     * Runs what the row does when it is clicked (or the enter key is pressed)
+     */
+    private
+    void activate(final Entry entry) {
+        if (entry == null) {
+            return;
+        }
+
+        if (entry == current && current != menu) {
+            back();
+            return;
+        }
+
+        if (!isSelectable(entry)) {
+            return;
+        }
+
+        if (entry instanceof Menu) {
+            open((Menu) entry);
+            return;
+        }
+
+        // the menu is closed, the same as when a menu item is clicked
+        MenuSelectionManager.defaultManager().clearSelectedPath();
+
+        final ActionListener callback;
+        final String text;
+        if (entry instanceof Checkbox) {
+            final Checkbox checkbox = (Checkbox) entry;
+            checkbox.setChecked(!checkbox.getChecked());
+
+            callback = checkbox.getCallback();
+            text = checkbox.getText();
+        }
+        else {
+            callback = ((MenuItem) entry).getCallback();
+            text = ((MenuItem) entry).getText();
+        }
+
+        if (callback != null) {
+            // we want it to run on our own with our own action event info (so it is consistent across all platforms)
+            EventDispatch.runLater(new Runnable() {
+                @Override
+                public
+                void run() {
+                    try {
+                        callback.actionPerformed(new ActionEvent(entry, ActionEvent.ACTION_PERFORMED, ""));
+                    } catch (Throwable throwable) {
+                        SystemTray.logger.error("Error calling menu entry {} click event.", text, throwable);
+                    }
+                }
+            });
+        }
+    }
+
+    private
+    boolean isSelectable(final Entry entry) {
+        if (entry == current && current != menu) {
+            // goes back
+            return true;
+        }
+        if (entry instanceof Checkbox) {
+            return ((Checkbox) entry).getEnabled();
+        }
+        if (entry instanceof MenuItem) {
+            return ((MenuItem) entry).getEnabled();
+        }
+
+        // separators and the status
+        return false;
+    }
+
+    private
+    void select(final int index) {
+        if (index >= 0 && isSelectable(rows.get(index))) {
+            list.setSelectedIndex(index);
+            list.ensureIndexIsVisible(index);
+        }
+    }
+
+    /**
+     * Selects the next row (in the direction) that can be selected, starting at the index
+     */
+    private
+    void selectNext(final int index, final int direction) {
+        final int size = rows.getSize();
+        for (int i = Math.max(0, Math.min(index, size - 1)); i >= 0 && i < size; i += direction) {
+            if (isSelectable(rows.get(i))) {
+                select(i);
+                return;
+            }
+        }
+    }
+
+    private
+    String getBackText(final Menu subMenu) {
+        // left arrow
+        return "\u2190 " + subMenu.getText();
+    }
+
+    private static
+    String getText(final Entry entry) {
+        if (entry instanceof Checkbox) {
+            return ((Checkbox) entry).getText();
+        }
+        if (entry instanceof MenuItem) {
+            return ((MenuItem) entry).getText();
+        }
+        if (entry instanceof Status) {
+            return ((Status) entry).getText();
+        }
+        return null;
+    }
+
+    private
+    ImageIcon getIcon(final File imageFile) {
+        if (imageFile == null) {
+            return SwingMenuItem.getTransparentIcon(systemTray);
+        }
+
+        ImageIcon icon = icons.get(imageFile);
+        if (icon == null) {
+            icon = new ImageIcon(imageFile.getAbsolutePath());
+            icons.put(imageFile, icon);
+        }
+        return icon;
+    }
+
+    /**
+     * @return the (shared) component that paints the row. ALWAYS CALLED ON THE EDT.
+     */
+    private
+    Component getRenderer(final Entry entry, final boolean isSelected) {
+        if (entry instanceof Separator) {
+            return separatorRenderer;
+        }
+
+        if (entry instanceof Menu && entry != current) {
+            final Menu subMenu = (Menu) entry;
+
+            menuRenderer.setText(subMenu.getText());
+            menuRenderer.setIcon(getIcon(subMenu.getImage()));
+            menuRenderer.setMnemonic(SwingUtil.getVirtualKey(subMenu.getShortcut()));
+            setArmed(menuRenderer, subMenu.getEnabled(), isSelected);
+            return menuRenderer;
+        }
+
+        final JMenuItem item = itemRenderer;
+        item.setFont(font);
+
+        if (entry == current) {
+            item.setText(getBackText(current));
+            item.setIcon(SwingMenuItem.getTransparentIcon(systemTray));
+            item.setMnemonic(0);
+            item.setFont(boldFont);
+            setArmed(item, true, isSelected);
+        }
+        else if (entry instanceof Checkbox) {
+            final Checkbox checkbox = (Checkbox) entry;
+
+            item.setText(checkbox.getText());
+            if (checkbox.getChecked()) {
+                item.setIcon(SwingMenuItemCheckbox.getCheckedIcon(systemTray));
+            }
+            else {
+                item.setIcon(SwingMenuItem.getTransparentIcon(systemTray));
+            }
+            item.setMnemonic(SwingUtil.getVirtualKey(checkbox.getShortcut()));
+            setArmed(item, checkbox.getEnabled(), isSelected);
+        }
+        else if (entry instanceof MenuItem) {
+            final MenuItem menuItem = (MenuItem) entry;
+
+            item.setText(menuItem.getText());
+            item.setIcon(getIcon(menuItem.getImage()));
+            item.setMnemonic(SwingUtil.getVirtualKey(menuItem.getShortcut()));
+            setArmed(item, menuItem.getEnabled(), isSelected);
+        }
+        else {
+            // the status can never be selected
+            item.setText(getText(entry));
+            item.setIcon(null);
+            item.setMnemonic(0);
+            item.setFont(boldFont);
+            setArmed(item, false, false);
+        }
+
+        return item;
+    }
+
+    private static
+    void setArmed(final JMenuItem item, final boolean enabled, final boolean isSelected) {
+        // a disabled item cannot be armed (or un-armed), so it is un-armed first
+        item.setArmed(false);
+        item.setEnabled(enabled);
+        if (enabled && isSelected) {
+            item.setArmed(true);
+        }
+    }
+
+    // the keys are given to us (by the popup menu) while the popup this is in is open
+    @Override
+    public
+    void processKeyEvent(final KeyEvent e, final MenuElement[] path, final MenuSelectionManager manager) {
+        if (e.getID() != KeyEvent.KEY_PRESSED) {
+            return;
+        }
+
+        final int index = list.getSelectedIndex();
+        final int pageSize = list.getVisibleRowCount();
+
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_UP:
+                selectNext(index < 0 ? rows.getSize() - 1 : index - 1, -1);
+                break;
+
+            case KeyEvent.VK_DOWN:
+                selectNext(index + 1, 1);
+                break;
+
+            case KeyEvent.VK_PAGE_UP:
+                selectNext(index - pageSize, -1);
+                break;
+
+            case KeyEvent.VK_PAGE_DOWN:
+                selectNext(index + pageSize, 1);
+                break;
+
+            case KeyEvent.VK_HOME:
+                selectNext(0, 1);
+                break;
+
+            case KeyEvent.VK_END:
+                selectNext(rows.getSize() - 1, -1);
+                break;
+
+            case KeyEvent.VK_ENTER:
+            case KeyEvent.VK_SPACE:
+                activate(rows.get(index));
+                break;
+
+            case KeyEvent.VK_RIGHT:
+                final Entry entry = rows.get(index);
+                if (!(entry instanceof Menu) || entry == current) {
+                    // not ours, the popup menu does what it normally does
+                    return;
+                }
+                activate(entry);
+                break;
+
+            case KeyEvent.VK_LEFT:
+                if (current == menu) {
+                    // not ours, the sub-menu is closed
+                    return;
+                }
+                back();
+                break;
+
+            default:
+                return;
+        }
+
+        e.consume();
+    }
+
+    // only called when the mouse is dragged here from a menu item (everything else is from the listeners of the list)
+    @Override
+    public
+    void processMouseEvent(final MouseEvent e, final MenuElement[] path, final MenuSelectionManager manager) {
+        final Point point = SwingUtilities.convertPoint(e.getComponent(), e.getPoint(), list);
+        final int index = list.locationToIndex(point);
+
+        if (e.getID() == MouseEvent.MOUSE_RELEASED) {
+            if (index >= 0 && list.getCellBounds(index, index).contains(point)) {
+                activate(rows.get(index));
+            }
+        }
+        else {
+            select(index);
+        }
+    }
+
+    @Override
+    public
+    void menuSelectionChanged(final boolean isIncluded) {
+        if (isIncluded && list.getSelectedIndex() < 0) {
+            // selected with the keyboard (from the sub-menu entry)
+            selectNext(0, 1);
+        }
+    }
+
+    @Override
+    public
+    MenuElement[] getSubElements() {
+        return NO_ELEMENTS;
+    }
+
+    @Override
+    public
+    Component getComponent() {
+        return this;
+    }
+}
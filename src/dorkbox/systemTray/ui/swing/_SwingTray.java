@@ -132,9 +132,23 @@ class _SwingTray extends Tray {
                             trayIcon.addMouseListener(new MouseAdapter() {
                                 @Override
                                 public
-                                void mousePressed(MouseEvent e) {
-                                    TrayPopup popupMenu = (TrayPopup) _native;
-                                    popupMenu.doShow(e.getPoint(), 0);
+                                void mousePressed(final MouseEvent e) {
+                                    // the menu can be changed (quickly) right before it is shown. It is shown after those changes (which
+                                    // are queued on the EDT), so this cannot wait for them here
+                                    onMenuOpening(new Runnable() {
+                                        @Override
+                                        public
+                                        void run() {
+                                            SwingUtil.invokeLater(new Runnable() {
+                                                @Override
+                                                public
+                                                void run() {
+                                                    TrayPopup popupMenu = (TrayPopup) _native;
+                                                    popupMenu.doShow(e.getPoint(), 0);
+                                                }
+                                            });
+                                        }
+                                    });
                                 }
                             });
 
@@ -214,7 +228,7 @@ class _SwingTray extends Tray {
                 super.remove();
 
 
-                if (OS.isLinux() || OS.isUnix()) {
+                if ((OS.isLinux() || OS.isUnix()) && !dorkbox.systemTray.SystemTray.KEEP_WARM) {
                     // does not need to be called on the dispatch (it does that). Startup happens in the SystemTray (in a special block),
                     // because we MUST startup the system tray BEFORE to access GTK before we create the swing version (to get size info)
                     GtkEventDispatch.shutdownGui();
@@ -197,8 +197,24 @@ class _WindowsNativeTray extends Tray {
                     case WM_LBUTTONUP:
                     case WM_RBUTTONUP:
                         if (popupMenu != null && User32.User32.GetCursorPos(mousePosition)) {
-                            Point point = new Point(mousePosition.x, mousePosition.y);
-                            popupMenu.doShow(point, 0);
+                            final TrayPopup popup = popupMenu;
+                            final Point point = new Point(mousePosition.x, mousePosition.y);
+
+                            // the menu can be changed (quickly) right before it is shown. It is shown after those changes (which are
+                            // queued on the EDT), so this cannot wait for them here
+                            onMenuOpening(new Runnable() {
+                                @Override
+                                public
+                                void run() {
+                                    SwingUtil.invokeLater(new Runnable() {
+                                        @Override
+                                        public
+                                        void run() {
+                                            popup.doShow(point, 0);
+                                        }
+                                    });
+                                }
+                            });
                         }
                         break;
 
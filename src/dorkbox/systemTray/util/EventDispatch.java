@@ -1,5 +1,7 @@
 package dorkbox.systemTray.util;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -17,6 +19,14 @@ import dorkbox.jna.linux.GtkEventDispatch;
  */
 public
 class EventDispatch {
+    public
+    interface ShutdownCallback {
+        /**
+         * Called once the event dispatch has shutdown, with the names of the events that were abandoned (empty if everything finished)
+         */
+        void onShutdown(List<String> abandoned);
+    }
+
     public static boolean DEBUG = false;
 
     public static final int TIMEOUT = 2;
@@ -45,8 +55,9 @@ class EventDispatch {
             return;
         }
 
+        // this is also released if the event is abandoned during shutdown, so we do not wait for something that will never run
         final CountDownLatch countDownLatch = new CountDownLatch(1);
-        runLater(new Runnable() {
+        execute(runnable.getClass().getName(), new Runnable() {
             @Override
             public
             void run() {
@@ -54,11 +65,9 @@ class EventDispatch {
                     runnable.run();
                 } catch (Exception e) {
                     LoggerFactory.getLogger(GtkEventDispatch.class).error("Error during Event dispatch run loop: ", e);
-                } finally {
-                    countDownLatch.countDown();
                 }
             }
-        });
+        }, countDownLatch);
 
         // this is slightly different than how swing does it. We have a timeout here so that we can make sure that updates on the GUI
         // thread occur in REASONABLE time-frames, and alert the user if not.
@@ -92,31 +101,154 @@ class EventDispatch {
             return;
         }
 
+        execute(runnable.getClass().getName(), runnable, null);
+    }
+
+    private static
+    void execute(final String name, final Runnable runnable, final CountDownLatch countDownLatch) {
         if (eventDispatchExecutor == null) {
             eventDispatchExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("SystemTrayEventDispatch", false));
         }
 
-        eventDispatchExecutor.execute(new Runnable() {
-            @Override
-            public
-            void run() {
-                EventDispatch.isDispatch.set(true);
-
-                runnable.run();
-
-                EventDispatch.isDispatch.set(false);
-            }
-        });
+        eventDispatchExecutor.execute(new DispatchTask(name, runnable, countDownLatch));
     }
 
     /**
-     * Shutdown the event dispatch
+     * Shutdown the event dispatch, without waiting for what is still queued.
      */
     public static
     void shutdown() {
-        if (eventDispatchExecutor != null) {
-            eventDispatchExecutor.shutdownNow();
+        final ExecutorService executor = eventDispatchExecutor;
+        if (executor != null) {
             eventDispatchExecutor = null;
+            abandon(executor.shutdownNow());
+        }
+    }
+
+    /**
+     * Shutdown the event dispatch. What is still queued is given (at most) the specified time to finish, everything that has not
+     * run by then is abandoned.
+     * <p>
+     * If this is called on the event dispatch thread (ie: from a menu callback), this does not wait, and what is still queued runs
+     * after the current event -- until the time runs out. The callback is then called on a different thread, once that happens.
+     *
+     * @param timeoutMillis how long (in milliseconds) what is still queued has to finish
+     * @param callback told which events were abandoned
+     */
+    public static
+    void shutdown(final long timeoutMillis, final ShutdownCallback callback) {
+        final ExecutorService executor = eventDispatchExecutor;
+        if (executor == null) {
+            callback.onShutdown(new ArrayList<String>(0));
+            return;
+        }
+        eventDispatchExecutor = null;
+
+        // nothing new is accepted, but what is already queued still runs
+        executor.shutdown();
+
+        if (EventDispatch.isDispatch.get()) {
+            // we cannot wait for ourselves, so something else has to enforce the timeout
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public
+                void run() {
+                    callback.onShutdown(awaitTermination(executor, timeoutMillis));
+                }
+            }, "SystemTrayEventDispatchShutdown");
+            thread.setDaemon(true);
+            thread.start();
+
+            return;
+        }
+
+        callback.onShutdown(awaitTermination(executor, timeoutMillis));
+    }
+
+    /**
+     * Waits for the executor to finish what is queued, and abandons (and reports) whatever has not run once the time runs out.
+     */
+    private static
+    List<String> awaitTermination(final ExecutorService executor, final long timeoutMillis) {
+        try {
+            if (executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return new ArrayList<String>(0);
+            }
+        } catch (InterruptedException ignored) {
+        }
+
+        // the event that is running (if any) is interrupted, the rest never run
+        final List<String> abandoned = abandon(executor.shutdownNow());
+
+        LoggerFactory.getLogger(EventDispatch.class).warn("The Event Dispatch did not finish within {} ms, {} queued event(s) were " +
+                                                          "abandoned: {}", timeoutMillis, abandoned.size(), abandoned);
+        return abandoned;
+    }
+
+    /**
+     * Releases whoever is waiting for the events that will never run.
+     *
+     * @return the names of the events
+     */
+    private static
+    List<String> abandon(final List<Runnable> queued) {
+        final List<String> abandoned = new ArrayList<String>(queued.size());
+        for (Runnable runnable : queued) {
+            if (runnable instanceof DispatchTask) {
+                final DispatchTask task = (DispatchTask) runnable;
+                task.release();
+                abandoned.add(task.getName());
+            }
+            else {
+                abandoned.add(runnable.getClass().getName());
+            }
+        }
+
+        return abandoned;
+    }
+
+    /**
+     * An event on the event dispatch. It knows what it is running, so that it can be reported if it is abandoned.
+     */
+    private static final
+    class DispatchTask implements Runnable {
+        // anonymous classes are named after where they were created (ie: dorkbox.systemTray.Menu$3), which is what we want to know
+        private final String name;
+        private final Runnable runnable;
+
+        // who is waiting for this event to finish, null if nobody is
+        private final CountDownLatch countDownLatch;
+
+        DispatchTask(final String name, final Runnable runnable, final CountDownLatch countDownLatch) {
+            this.name = name;
+            this.runnable = runnable;
+            this.countDownLatch = countDownLatch;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Called when this event has finished, or when it will never run.
+         */
+        void release() {
+            if (countDownLatch != null) {
+                countDownLatch.countDown();
+            }
+        }
+
+        @Override
+        public
+        void run() {
+            EventDispatch.isDispatch.set(true);
+
+            try {
+                runnable.run();
+            } finally {
+                EventDispatch.isDispatch.set(false);
+                release();
+            }
         }
     }
 }
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.imageio.ImageIO;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.IO;
+
+/**
+ * Icons that were already resized at build time (see the 'iconBundle' task in build.gradle.kts), so that they do not have to be
+ * resized at runtime.
+ * <p>
+ * A bundle is a single resource on the classpath ({@link #RESOURCE}). Every jar can have one, and all of them are used. Icons are
+ * looked up by size + the hash of the original image, so an icon is found regardless of how (or from where) it was loaded.
+ * <p>
+ * The format is:
+ * <pre>
+ *   int   MAGIC
+ *   int   VERSION
+ *   int   number of entries
+ *   for each entry:  UTF key ("size_hash"), int offset (from the start of the data), int length
+ *   data  (PNG images)
+ * </pre>
+ */
+public final
+class IconBundle {
+    public static final String RESOURCE = "META-INF/systemTray/icons.bundle";
+
+    private static final int MAGIC = 0x53544942; // STIB
+    private static final int VERSION = 1;
+
+    private static final class Entry {
+        private final URL bundle;
+        private final int dataStart;
+        private final int offset;
+        private final int length;
+
+        private
+        Entry(final URL bundle, final int dataStart, final int offset, final int length) {
+            this.bundle = bundle;
+            this.dataStart = dataStart;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    // only the index is kept in memory. The data is read from the bundle when (if) it is needed.
+    private static Map<String, Entry> index = null;
+
+    /**
+     * @return the pre-rendered image for the specified size and (original) image, or null if it's not in a bundle.
+     */
+    static synchronized
+    byte[] get(final int size, final ByteArrayInputStream originalImage) {
+        if (index == null) {
+            index = loadIndex();
+        }
+
+        if (index.isEmpty()) {
+            // nothing to look for (this is the common case, so we don't want to hash anything)
+            return null;
+        }
+
+        originalImage.mark(0);
+        final String hash = hash(IO.copyStream(originalImage));
+        originalImage.reset();
+
+        final Entry entry = index.get(size + "_" + hash);
+        if (entry == null) {
+            return null;
+        }
+
+        try {
+            InputStream inputStream = entry.bundle.openStream();
+            try {
+                DataInputStream dataInputStream = new DataInputStream(inputStream);
+                skipFully(dataInputStream, entry.dataStart + entry.offset);
+
+                byte[] bytes = new byte[entry.length];
+                dataInputStream.readFully(bytes);
+                return bytes;
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            SystemTray.logger.error("Error reading pre-rendered icon from '{}'", entry.bundle, e);
+            return null;
+        }
+    }
+
+    private static
+    Map<String, Entry> loadIndex() {
+        final Map<String, Entry> index = new HashMap<String, Entry>();
+
+        try {
+            ClassLoader classLoader = IconBundle.class.getClassLoader();
+            if (classLoader == null) {
+                classLoader = ClassLoader.getSystemClassLoader();
+            }
+
+            Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL bundle = resources.nextElement();
+
+                try {
+                    readIndex(bundle, index);
+                } catch (IOException e) {
+                    SystemTray.logger.error("Error reading icon bundle '{}'", bundle, e);
+                }
+            }
+        } catch (IOException e) {
+            SystemTray.logger.error("Error looking for icon bundles", e);
+        }
+
+        if (SystemTray.DEBUG && !index.isEmpty()) {
+            SystemTray.logger.debug("Loaded {} pre-rendered icons", index.size());
+        }
+
+        return index;
+    }
+
+    private static
+    void readIndex(final URL bundle, final Map<String, Entry> index) throws IOException {
+        final InputStream inputStream = bundle.openStream();
+        try {
+            final CountingInputStream countingStream = new CountingInputStream(inputStream);
+            final DataInputStream dataInputStream = new DataInputStream(countingStream);
+
+            if (dataInputStream.readInt() != MAGIC) {
+                throw new IOException("Not an icon bundle");
+            }
+            if (dataInputStream.readInt() != VERSION) {
+                throw new IOException("Unsupported icon bundle version");
+            }
+
+            final int count = dataInputStream.readInt();
+            final List<String> keys = new ArrayList<String>(count);
+            final int[] offsets = new int[count];
+            final int[] lengths = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                keys.add(dataInputStream.readUTF());
+                offsets[i] = dataInputStream.readInt();
+                lengths[i] = dataInputStream.readInt();
+            }
+
+            final int dataStart = countingStream.count;
+            for (int i = 0; i < count; i++) {
+                // the first bundle wins
+                String key = keys.get(i);
+                if (!index.containsKey(key)) {
+                    index.put(key, new Entry(bundle, dataStart, offsets[i], lengths[i]));
+                }
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static
+    void skipFully(final InputStream inputStream, long count) throws IOException {
+        while (count > 0) {
+            long skipped = inputStream.skip(count);
+            if (skipped <= 0) {
+                if (inputStream.read() == -1) {
+                    throw new IOException("Unexpected end of icon bundle");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    static
+    String hash(final ByteArrayOutputStream bytes) {
+        return hash(bytes.toByteArray());
+    }
+
+    static
+    String hash(final byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (Exception e) {
+            // SHA-1 is always available
+            throw new RuntimeException("Unable to create hash", e);
+        }
+    }
+
+    private static final
+    class CountingInputStream extends InputStream {
+        private final InputStream inputStream;
+        int count = 0;
+
+        CountingInputStream(final InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        @Override
+        public
+        int read() throws IOException {
+            int read = inputStream.read();
+            if (read != -1) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public
+        int read(final byte[] b, final int off, final int len) throws IOException {
+            int read = inputStream.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+
+    /**
+     * Creates an icon bundle. This is used by the 'iconBundle' build task.
+     * <p>
+     * Arguments are: the bundle file to create, the base sizes (comma separated), the scale factors (comma separated), and then the
+     * image files or directories with images to include.
+     * <p>
+     * Every image is resized with the same algorithm that is used at runtime, for every base size multiplied by every scale factor
+     * (rounded the same way as at runtime, see {@link SizeAndScalingUtil#scaleSize(int, double)}).
+     * <p>
+     * Temporary files are created in 'java.io.tmpdir', which the build task sets to its own temporary directory.
+     */
+    public static
+    void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: IconBundle <bundle file> <sizes, ie: 16,22,24,32,48> <scales, ie: 1,1.5,2> <image file or dir>...");
+            System.exit(1);
+        }
+
+        final File bundleFile = new File(args[0]);
+
+        final TreeSet<Integer> sizes = new TreeSet<Integer>();
+        for (String size : args[1].split(",")) {
+            for (String scale : args[2].split(",")) {
+                sizes.add(SizeAndScalingUtil.scaleSize(Integer.parseInt(size.trim()), Double.parseDouble(scale.trim())));
+            }
+        }
+
+        final List<File> images = new ArrayList<File>();
+        for (int i = 3; i < args.length; i++) {
+            collectImages(new File(args[i]), images);
+        }
+
+        final List<String> keys = new ArrayList<String>();
+        final Set<String> added = new HashSet<String>();
+        final List<byte[]> data = new ArrayList<byte[]>();
+
+        // not the cache of whoever is running the build
+        final File tempFile = File.createTempFile("icon_resize", ".png");
+
+        for (File image : images) {
+            byte[] original = readFile(image);
+            String hash = hash(original);
+
+            BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(original));
+            if (bufferedImage == null) {
+                System.err.println("Skipping (not an image): " + image);
+                continue;
+            }
+
+            for (Integer size : sizes) {
+                String key = size + "_" + hash;
+                if (!added.add(key)) {
+                    // the same image twice
+                    continue;
+                }
+
+                byte[] bytes;
+                if (bufferedImage.getWidth() == size && bufferedImage.getHeight() == size) {
+                    // this is what happens at runtime as well. The correct size is used as-is.
+                    bytes = original;
+                } else {
+                    bytes = readFile(ImageResizeUtil.resizeFileNoCheck(size, new ByteArrayInputStream(original), tempFile));
+                }
+
+                keys.add(key);
+                data.add(bytes);
+            }
+        }
+
+        //noinspection ResultOfMethodCallIgnored
+        tempFile.delete();
+
+        //noinspection ResultOfMethodCallIgnored
+        bundleFile.getAbsoluteFile().getParentFile().mkdirs();
+        DataOutputStream outputStream = new DataOutputStream(new FileOutputStream(bundleFile));
+        try {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(keys.size());
+
+            int offset = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                int length = data.get(i).length;
+
+                outputStream.writeUTF(keys.get(i));
+                outputStream.writeInt(offset);
+                outputStream.writeInt(length);
+
+                offset += length;
+            }
+
+            for (byte[] bytes : data) {
+                outputStream.write(bytes);
+            }
+        } finally {
+            outputStream.close();
+        }
+
+        System.out.println("Created icon bundle with " + images.size() + " images in sizes " + sizes + ": " + bundleFile);
+    }
+
+    private static
+    void collectImages(final File file, final List<File> images) {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                // always the same order, so the bundle is always the same
+                Arrays.sort(files);
+
+                for (File child : files) {
+                    collectImages(child, images);
+                }
+            }
+        }
+        else {
+            String name = file.getName().toLowerCase();
+            if (name.endsWith(".png") || name.endsWith(".gif") || name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".bmp")) {
+                images.add(file);
+            }
+        }
+    }
+
+    private static
+    byte[] readFile(final File file) throws IOException {
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            return IO.copyStream(inputStream).toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private
+    IconBundle() {
+    }
+}
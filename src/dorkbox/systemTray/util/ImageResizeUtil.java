@@ -36,11 +36,18 @@ import dorkbox.util.ImageUtil;
 
 public
 class ImageResizeUtil {
-    public static
+    // this is created while the SystemTray is starting up, and then used by every GTK menu entry
+    private static File transparentImage = null;
+
+    public static synchronized
     File getTransparentImage() {
-        // here, it doesn't matter what size the image is, as long as there is an image, the text in the menu will be shifted correctly
-        // it is HIGHLY unlikely that the menu entry will be smaller than 4px.
-        return getTransparentImage(4);
+        if (transparentImage == null) {
+            // here, it doesn't matter what size the image is, as long as there is an image, the text in the menu will be shifted correctly
+            // it is HIGHLY unlikely that the menu entry will be smaller than 4px.
+            transparentImage = getTransparentImage(4);
+        }
+
+        return transparentImage;
     }
 
     public static
@@ -140,6 +147,12 @@ class ImageResizeUtil {
                 return check;
             }
 
+            // maybe it was already resized at build time
+            final byte[] bundled = IconBundle.get(size, (ByteArrayInputStream) imageStream);
+            if (bundled != null) {
+                return CacheUtil.save(cacheName, new ByteArrayInputStream(bundled));
+            }
+
 
             imageStream.mark(0);
             Dimension imageSize = ImageUtil.getImageSize(imageStream);
@@ -212,7 +225,7 @@ class ImageResizeUtil {
      * @return the file on disk that is the resized icon
      */
     @SuppressWarnings("ResultOfMethodCallIgnored")
-    private static
+    static
     File resizeFileNoCheck(final int size, InputStream inputStream) throws IOException {
         // have to resize the file (and return the new path)
 
@@ -220,6 +233,14 @@ class ImageResizeUtil {
         // if it's already there, we have to delete it
         newFile.delete();
 
+        return resizeFileNoCheck(size, inputStream, newFile);
+    }
+
+    /**
+     * Resizes the image into the specified file, which is replaced if it already exists.
+     */
+    static
+    File resizeFileNoCheck(final int size, InputStream inputStream, final File newFile) throws IOException {
         Image image = ImageUtil.getImageImmediate(ImageIO.read(inputStream));
 
         BufferedImage bufferedImage = ImageUtil.getBufferedImage(image);
@@ -277,6 +298,11 @@ class ImageResizeUtil {
             return null;
         }
 
+        if (UrlImageFetcher.isRemote(imageUrl)) {
+            // timeouts, bounded concurrency and HTTP revalidation (a 304 reuses what is already in the cache)
+            return UrlImageFetcher.fetchAndWait(isTrayImage, imageUrl);
+        }
+
         try {
             if (SystemTray.AUTO_SIZE) {
                 InputStream inputStream = imageUrl.openStream();
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import static com.sun.jna.platform.win32.WinUser.SM_CYSMICON;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.geom.AffineTransform;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.jna.windows.User32;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.ui.gtk.GtkSettingsMonitor;
+import dorkbox.systemTray.ui.gtk._AppIndicatorNativeTray;
+import dorkbox.systemTray.ui.gtk._GtkStatusIconNativeTray;
+import dorkbox.util.NamedThreadFactory;
+import dorkbox.util.OS;
+import dorkbox.util.Property;
+
+/**
+ * Watches for changes to the scale factor (moving between monitors with a different scale, or changing the desktop scaling) and to
+ * the theme, and calculates the tray/menu image sizes again when that happens.
+ * <p>
+ * GTK tells us when its settings change. AWT does not, so for every other tray type a cheap fingerprint of the screens (bounds +
+ * scale + DPI) is checked every {@link #CHECK_INTERVAL} milliseconds, and the sizes are only calculated again when it changes.
+ * <p>
+ * The listener is only notified when the sizes are actually different, always on the watcher thread.
+ */
+public final
+class ImageSizeWatcher {
+    @Property
+    /**
+     * How often (in milliseconds) to check if the scale factor has changed, for the tray types that cannot be notified when it changes.
+     * 0 to disable.
+     */
+    public static int CHECK_INTERVAL = 2000;
+
+    public
+    interface Listener {
+        /**
+         * Called on the watcher thread after the tray/menu image sizes have changed.
+         */
+        void onImageSizeChanged();
+    }
+
+    // GTK sends a notification for each setting that changed, so those are combined into a single check
+    private static final int GTK_CHANGE_DELAY = 250;
+
+    // access is guarded by the class
+    private static ScheduledExecutorService executor = null;
+    private static Class<? extends Tray> trayType = null;
+    private static Listener listener = null;
+    private static boolean checkPending = false;
+
+    // only accessed on the watcher thread
+    private static String lastFingerprint = null;
+
+    /**
+     * Starts watching for changes.
+     *
+     * @param trayType the type of the tray that is in use, since the image sizes depend on it
+     * @param listener notified (on the watcher thread) after the image sizes have changed
+     */
+    public static synchronized
+    void start(final Class<? extends Tray> trayType, final Listener listener) {
+        stop();
+
+        ImageSizeWatcher.trayType = trayType;
+        ImageSizeWatcher.listener = listener;
+        executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("SystemTrayImageSizeWatcher", true));
+
+        if (trayType == _AppIndicatorNativeTray.class || trayType == _GtkStatusIconNativeTray.class) {
+            GtkSettingsMonitor.start(new Runnable() {
+                @Override
+                public
+                void run() {
+                    sizesMayHaveChanged();
+                }
+            });
+        }
+        else if (CHECK_INTERVAL > 0) {
+            executor.execute(new Runnable() {
+                @Override
+                public
+                void run() {
+                    lastFingerprint = fingerprint();
+                }
+            });
+
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public
+                void run() {
+                    final String fingerprint = fingerprint();
+                    if (!fingerprint.equals(lastFingerprint)) {
+                        lastFingerprint = fingerprint;
+                        check();
+                    }
+                }
+            }, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops watching for changes.
+     */
+    public static synchronized
+    void stop() {
+        GtkSettingsMonitor.stop();
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+
+        trayType = null;
+        listener = null;
+        checkPending = false;
+    }
+
+    /**
+     * Checks (shortly, on the watcher thread) if the image sizes have changed. Multiple calls in a short time are combined.
+     */
+    public static synchronized
+    void sizesMayHaveChanged() {
+        if (executor == null || checkPending) {
+            return;
+        }
+
+        checkPending = true;
+        executor.schedule(new Runnable() {
+            @Override
+            public
+            void run() {
+                synchronized (ImageSizeWatcher.class) {
+                    checkPending = false;
+                }
+                check();
+            }
+        }, GTK_CHANGE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks (on the calling thread) if the image sizes have changed, and notifies the listener if they have.
+     */
+    public static
+    void checkNow() {
+        check();
+    }
+
+    private static
+    void check() {
+        final Class<? extends Tray> trayType;
+        final Listener listener;
+        synchronized (ImageSizeWatcher.class) {
+            trayType = ImageSizeWatcher.trayType;
+            listener = ImageSizeWatcher.listener;
+        }
+
+        if (trayType == null || listener == null) {
+            // stopped in the meantime
+            return;
+        }
+
+        try {
+            if (SizeAndScalingUtil.refreshImageSizes(trayType)) {
+                listener.onImageSizeChanged();
+            }
+        } catch (Throwable throwable) {
+            SystemTray.logger.error("Error updating the image sizes.", throwable);
+        }
+    }
+
+    /**
+     * @return something that changes when the scale factor of any screen changes. This must be cheap, since it is called often.
+     */
+    private static
+    String fingerprint() {
+        final StringBuilder builder = new StringBuilder(64);
+
+        try {
+            builder.append(Toolkit.getDefaultToolkit().getScreenResolution());
+
+            for (GraphicsDevice device : GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices()) {
+                final GraphicsConfiguration configuration = device.getDefaultConfiguration();
+                final Rectangle bounds = configuration.getBounds();
+                final AffineTransform transform = configuration.getDefaultTransform();
+
+                builder.append('|')
+                       .append(bounds.width).append('x').append(bounds.height)
+                       .append('@').append(transform.getScaleX()).append(',').append(transform.getScaleY());
+            }
+
+            if (OS.isWindows()) {
+                builder.append('|').append(User32.User32.GetSystemMetrics(SM_CYSMICON));
+            }
+        } catch (Throwable ignored) {
+            // headless, or the screens changed while we were looking at them. We will look again next time
+        }
+
+        return builder.toString();
+    }
+
+    private
+    ImageSizeWatcher() {
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sun.jna.Function;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.NamedThreadFactory;
+import dorkbox.util.Property;
+
+/**
+ * Detects if something that shows app-indicators is running (the indicator-application-service, or a StatusNotifier host).
+ * <p>
+ * If the session bus is available, it is asked if the well-known names are owned, which is a single round-trip. Otherwise every
+ * process is checked instead, by reading /proc/[pid]/comm (which is a lot smaller than /proc/[pid]/status). The processes are checked
+ * in parallel, the check stops as soon as one is found, and it gives up after {@link #SCAN_TIMEOUT} milliseconds.
+ */
+public final
+class IndicatorServiceDetector {
+    @Property
+    /** The maximum amount of time (in milliseconds) to spend looking through all processes for the indicator-application-service. */
+    public static int SCAN_TIMEOUT = 500;
+
+    private static final String[] BUS_NAMES = new String[] {"com.canonical.indicator.application", "org.kde.StatusNotifierWatcher"};
+
+    // /proc/[pid]/comm is truncated to 15 characters ("indicator-appli")
+    private static final byte[] PROCESS_NAME = new byte[] {'i','n','d','i','c','a','t','o','r','-','a','p','p'};
+
+    // below this, starting threads takes longer than just looking
+    private static final int PARALLEL_THRESHOLD = 128;
+
+    // from gio/gioenums.h
+    private static final int G_BUS_TYPE_SESSION = 2;
+    private static final int DBUS_TIMEOUT = 250;
+
+    /**
+     * @return true if the indicator-application-service (or a StatusNotifier host) is running.
+     */
+    public static
+    boolean isRunning() {
+        final Boolean onBus = isOwnedOnSessionBus();
+        if (onBus != null) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Indicator service on the session bus: {}", onBus);
+            }
+            return onBus;
+        }
+
+        return isProcessRunning();
+    }
+
+    /**
+     * Asks the session bus (via GIO, which is always installed when GTK is) if one of the indicator bus names has an owner.
+     *
+     * @return null if the session bus is not available
+     */
+    static
+    Boolean isOwnedOnSessionBus() {
+        if (System.getenv("DBUS_SESSION_BUS_ADDRESS") == null) {
+            // there is no session bus to ask, and we do not want to auto-launch one
+            return null;
+        }
+
+        try {
+            final NativeLibrary gio = NativeLibrary.getInstance("gio-2.0");
+            final Function g_bus_get_sync = gio.getFunction("g_bus_get_sync");
+            final Function g_dbus_connection_call_sync = gio.getFunction("g_dbus_connection_call_sync");
+
+            final NativeLibrary glib = NativeLibrary.getInstance("glib-2.0");
+            final Function g_variant_new_string = glib.getFunction("g_variant_new_string");
+            final Function g_variant_new_tuple = glib.getFunction("g_variant_new_tuple");
+            final Function g_variant_get_child_value = glib.getFunction("g_variant_get_child_value");
+            final Function g_variant_get_boolean = glib.getFunction("g_variant_get_boolean");
+            final Function g_variant_unref = glib.getFunction("g_variant_unref");
+
+            final Function g_object_unref = NativeLibrary.getInstance("gobject-2.0").getFunction("g_object_unref");
+
+            final Pointer connection = (Pointer) g_bus_get_sync.invoke(Pointer.class, new Object[] {G_BUS_TYPE_SESSION, null, null});
+            if (connection == null) {
+                return null;
+            }
+
+            try {
+                for (String busName : BUS_NAMES) {
+                    // the parameters are floating, so they are consumed by the call
+                    final Pointer name = (Pointer) g_variant_new_string.invoke(Pointer.class, new Object[] {busName});
+                    final Pointer parameters = (Pointer) g_variant_new_tuple.invoke(Pointer.class,
+                                                                                    new Object[] {new Pointer[] {name}, new NativeLong(1)});
+
+                    final Pointer reply = (Pointer) g_dbus_connection_call_sync.invoke(Pointer.class, new Object[] {connection,
+                                                                                                                    "org.freedesktop.DBus",
+                                                                                                                    "/org/freedesktop/DBus",
+                                                                                                                    "org.freedesktop.DBus",
+                                                                                                                    "NameHasOwner",
+                                                                                                                    parameters,
+                                                                                                                    null,
+                                                                                                                    0,
+                                                                                                                    DBUS_TIMEOUT,
+                                                                                                                    null,
+                                                                                                                    null});
+                    if (reply == null) {
+                        // the bus did not answer (in time)
+                        return null;
+                    }
+
+                    final Pointer value = (Pointer) g_variant_get_child_value.invoke(Pointer.class, new Object[] {reply});
+                    final int hasOwner = g_variant_get_boolean.invokeInt(new Object[] {value});
+                    g_variant_unref.invokeVoid(new Object[] {value});
+                    g_variant_unref.invokeVoid(new Object[] {reply});
+
+                    if (hasOwner != 0) {
+                        return Boolean.TRUE;
+                    }
+                }
+            } finally {
+                g_object_unref.invokeVoid(new Object[] {connection});
+            }
+
+            return Boolean.FALSE;
+        } catch (Throwable e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to check the session bus for the indicator service", e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Looks through /proc/[pid]/comm for the indicator-application-service.
+     */
+    static
+    boolean isProcessRunning() {
+        final String[] names = new File("/proc").list();
+        if (names == null) {
+            return false;
+        }
+
+        final List<String> pids = new ArrayList<String>(names.length);
+        for (String name : names) {
+            if (Character.isDigit(name.charAt(0))) {
+                pids.add(name);
+            }
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SCAN_TIMEOUT);
+        final AtomicBoolean found = new AtomicBoolean(false);
+
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        if (threads <= 1 || pids.size() < PARALLEL_THRESHOLD) {
+            new Scanner(pids, 0, 1, deadline, found).run();
+            return found.get();
+        }
+
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory("SystemTrayProcessScanner", true));
+        try {
+            for (int i = 0; i < threads; i++) {
+                final Scanner scanner = new Scanner(pids, i, threads, deadline, found);
+                executor.execute(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        try {
+                            scanner.run();
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+
+            // the scanners also stop on their own at the deadline, this is so that a stuck read does not hold us up
+            latch.await(SCAN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ignored) {
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (SystemTray.DEBUG && !found.get() && System.nanoTime() > deadline) {
+            SystemTray.logger.debug("Unable to look through all processes within {} ms", SCAN_TIMEOUT);
+        }
+
+        return found.get();
+    }
+
+    /**
+     * Checks every n-th process (so that the processes are split evenly between the scanners), until one of the scanners has found it.
+     */
+    private static final
+    class Scanner implements Runnable {
+        private final List<String> pids;
+        private final int start;
+        private final int step;
+        private final long deadline;
+        private final AtomicBoolean found;
+
+        // reused for every process
+        private final ByteBuffer buffer = ByteBuffer.allocate(32);
+
+        private
+        Scanner(final List<String> pids, final int start, final int step, final long deadline, final AtomicBoolean found) {
+            this.pids = pids;
+            this.start = start;
+            this.step = step;
+            this.deadline = deadline;
+            this.found = found;
+        }
+
+        @Override
+        public
+        void run() {
+            for (int i = start, size = pids.size(); i < size; i += step) {
+                if (found.get() || System.nanoTime() > deadline) {
+                    return;
+                }
+
+                if (matches(pids.get(i))) {
+                    found.set(true);
+                    return;
+                }
+            }
+        }
+
+        private
+        boolean matches(final String pid) {
+            buffer.clear();
+
+            try {
+                FileInputStream inputStream = new FileInputStream("/proc/" + pid + "/comm");
+                try {
+                    FileChannel channel = inputStream.getChannel();
+                    while (buffer.position() < PROCESS_NAME.length) {
+                        if (channel.read(buffer) == -1) {
+                            return false;
+                        }
+                    }
+                } finally {
+                    inputStream.close();
+                }
+            } catch (IOException ignored) {
+                // the process is gone, or we cannot read it
+                return false;
+            }
+
+            for (int i = 0; i < PROCESS_NAME.length; i++) {
+                if (buffer.get(i) != PROCESS_NAME[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private
+    IndicatorServiceDetector() {
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.awt.Image;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.stream.ImageInputStream;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.IO;
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * Captures the source of an image, so that it is only decoded, resized and cached once it is actually needed.
+ * <p>
+ * Resolving happens on a background thread (remote URLs use the {@link UrlImageFetcher} pool instead), and the result is kept so that
+ * an image is only ever resolved once for each size.
+ * <p>
+ * The source is kept as well, so when the image size changes (the scale factor or the theme changed) the image is resized again
+ * from the original, instead of from an already resized copy.
+ * <p>
+ * Streams are copied when the image is captured, since they might be closed (or reused) by the caller before we get to them.
+ */
+public final
+class LazyImage {
+    public
+    interface Callback {
+        /**
+         * Called on the image loader thread, with the resized + cached image (or the error image if it could not be read)
+         */
+        void onResolved(File imageFile);
+    }
+
+    // resizing + caching is synchronized in ImageResizeUtil, so more than one thread does not help.
+    private static ExecutorService executor = null;
+
+    // images with the same source are shared, see SystemTray.SHARE_IMAGES. Access is guarded by 'shared'.
+    // The key is kept by the image, so it is only removed once nothing is using the image anymore
+    private static final Map<Key, WeakReference<LazyImage>> shared = new WeakHashMap<Key, WeakReference<LazyImage>>();
+
+    private final boolean isTrayImage;
+
+    // one of File, String (path), URL, byte[] or Image
+    private final Object source;
+
+    // only used when the image is shared
+    private Key key = null;
+
+    // access is guarded by 'this'. image size -> resized image (or the callbacks waiting for it)
+    private final Map<Integer, File> resolved = new HashMap<Integer, File>(2);
+    private final Map<Integer, List<Callback>> callbacks = new HashMap<Integer, List<Callback>>(2);
+
+    /**
+     * The source of an image that can be shared. URLs are compared by what they look like, because URL.equals() can do a DNS lookup.
+     */
+    private static final
+    class Key {
+        private final boolean isTrayImage;
+        private final int type;
+        private final String name;
+
+        private
+        Key(final boolean isTrayImage, final int type, final String name) {
+            this.isTrayImage = isTrayImage;
+            this.type = type;
+            this.name = name;
+        }
+
+        @Override
+        public
+        boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) o;
+            return isTrayImage == other.isTrayImage && type == other.type && name.equals(other.name);
+        }
+
+        @Override
+        public
+        int hashCode() {
+            return (name.hashCode() * 31 + type) * 2 + (isTrayImage ? 1 : 0);
+        }
+    }
+
+    public static
+    LazyImage from(final boolean isTrayImage, final File imageFile) {
+        if (imageFile == null) {
+            return null;
+        }
+
+        if (SystemTray.SHARE_IMAGES) {
+            return getShared(new Key(isTrayImage, 0, imageFile.getPath()), imageFile);
+        }
+
+        return new LazyImage(isTrayImage, imageFile);
+    }
+
+    public static
+    LazyImage from(final boolean isTrayImage, final String imagePath) {
+        if (imagePath == null) {
+            return null;
+        }
+
+        if (SystemTray.SHARE_IMAGES) {
+            return getShared(new Key(isTrayImage, 1, imagePath), imagePath);
+        }
+
+        return new LazyImage(isTrayImage, imagePath);
+    }
+
+    public static
+    LazyImage from(final boolean isTrayImage, final URL imageUrl) {
+        if (imageUrl == null) {
+            return null;
+        }
+
+        if (SystemTray.SHARE_IMAGES) {
+            return getShared(new Key(isTrayImage, 2, imageUrl.toExternalForm()), imageUrl);
+        }
+
+        return new LazyImage(isTrayImage, imageUrl);
+    }
+
+    /**
+     * @return the image that is already used for this source, or a new one (which is then shared)
+     */
+    private static
+    LazyImage getShared(final Key key, final Object source) {
+        synchronized (shared) {
+            final WeakReference<LazyImage> reference = shared.get(key);
+            if (reference != null) {
+                final LazyImage image = reference.get();
+                if (image != null) {
+                    return image;
+                }
+            }
+
+            final LazyImage image = new LazyImage(key.isTrayImage, source);
+            image.key = key;
+            shared.put(key, new WeakReference<LazyImage>(image));
+            return image;
+        }
+    }
+
+    public static
+    LazyImage from(final boolean isTrayImage, final Image image) {
+        return image == null ? null : new LazyImage(isTrayImage, image);
+    }
+
+    public static
+    LazyImage from(final boolean isTrayImage, final InputStream imageStream) {
+        if (imageStream == null) {
+            return null;
+        }
+
+        try {
+            return new LazyImage(isTrayImage, IO.copyStream(imageStream).toByteArray());
+        } catch (IOException e) {
+            SystemTray.logger.error("Error reading image. Using error icon instead", e);
+            return new LazyImage(isTrayImage, ImageResizeUtil.getErrorImage(size(isTrayImage)));
+        }
+    }
+
+    public static
+    LazyImage from(final boolean isTrayImage, final ImageInputStream imageStream) {
+        if (imageStream == null) {
+            return null;
+        }
+
+        try {
+            return new LazyImage(isTrayImage, IO.copyStream(imageStream).toByteArray());
+        } catch (IOException e) {
+            SystemTray.logger.error("Error reading image. Using error icon instead", e);
+            return new LazyImage(isTrayImage, ImageResizeUtil.getErrorImage(size(isTrayImage)));
+        }
+    }
+
+    private
+    LazyImage(final boolean isTrayImage, final Object source) {
+        this.isTrayImage = isTrayImage;
+        this.source = source;
+    }
+
+    public
+    boolean isTrayImage() {
+        return isTrayImage;
+    }
+
+    /**
+     * @return true if the image is downloaded from a remote (http/https) URL
+     */
+    public
+    boolean isRemote() {
+        return source instanceof URL && UrlImageFetcher.isRemote((URL) source);
+    }
+
+    /**
+     * @return the resized + cached image for the current image size, or null if it has not been resolved yet.
+     */
+    public synchronized
+    File getResolved() {
+        return resolved.get(size(isTrayImage));
+    }
+
+    /**
+     * Resolves the image for the current image size on the calling thread (if it is not already resolved).
+     *
+     * @return the resized + cached image
+     */
+    public
+    File resolveNow() {
+        final int size = size(isTrayImage);
+
+        synchronized (this) {
+            File file = resolved.get(size);
+            if (file != null) {
+                return file;
+            }
+        }
+
+        return onResolved(size, load());
+    }
+
+    /**
+     * Resolves the image in the background (if it is not already resolved), and notifies the callback when it is done.
+     * <p>
+     * If the image is already resolved, the callback is notified immediately, on the calling thread.
+     */
+    public
+    void resolve(final Callback callback) {
+        final int size = size(isTrayImage);
+        final File file;
+
+        synchronized (this) {
+            file = resolved.get(size);
+
+            if (file == null) {
+                List<Callback> waiting = callbacks.get(size);
+                if (waiting != null) {
+                    // already in progress
+                    waiting.add(callback);
+                    return;
+                }
+
+                waiting = new ArrayList<Callback>();
+                waiting.add(callback);
+                callbacks.put(size, waiting);
+            }
+        }
+
+        if (file != null) {
+            callback.onResolved(file);
+            return;
+        }
+
+        if (source instanceof URL && UrlImageFetcher.isRemote((URL) source)) {
+            // this has it's own pool, and we do not want a slow server to hold up everything else
+            UrlImageFetcher.fetch(isTrayImage, (URL) source, new UrlImageFetcher.Callback() {
+                @Override
+                public
+                void onFetched(final File imageFile) {
+                    onResolved(size, imageFile);
+                }
+
+                @Override
+                public
+                void onCancelled() {
+                    cancel(size);
+                }
+            });
+            return;
+        }
+
+        synchronized (LazyImage.class) {
+            if (executor == null) {
+                executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("SystemTrayImageLoader", true));
+            }
+
+            executor.execute(new Load(this, size));
+        }
+    }
+
+    /**
+     * Stops resolving images. The loader thread is recreated the next time an image is resolved.
+     * <p>
+     * Images that were waiting to be resolved forget their callbacks, so that the next time they are resolved it starts over.
+     */
+    public static
+    void shutdown() {
+        final List<Runnable> neverRan;
+
+        synchronized (LazyImage.class) {
+            if (executor == null) {
+                return;
+            }
+
+            neverRan = executor.shutdownNow();
+            executor = null;
+        }
+
+        for (Runnable runnable : neverRan) {
+            if (runnable instanceof Load) {
+                Load load = (Load) runnable;
+                load.image.cancel(load.size);
+            }
+        }
+    }
+
+    /**
+     * Resolves an image on the loader thread. This is a class (instead of an anonymous Runnable) so that it can be cancelled.
+     */
+    private static final
+    class Load implements Runnable {
+        private final LazyImage image;
+        private final int size;
+
+        private
+        Load(final LazyImage image, final int size) {
+            this.image = image;
+            this.size = size;
+        }
+
+        @Override
+        public
+        void run() {
+            image.onResolved(size, image.load());
+        }
+    }
+
+    private synchronized
+    void cancel(final int size) {
+        // the callbacks are never notified, they belong to a tray that is shutting down
+        callbacks.remove(size);
+    }
+
+    private
+    File onResolved(final int size, final File file) {
+        final List<Callback> toNotify;
+
+        synchronized (this) {
+            File existing = resolved.get(size);
+            if (existing != null) {
+                // someone else got here first
+                return existing;
+            }
+
+            resolved.put(size, file);
+            toNotify = callbacks.remove(size);
+        }
+
+        if (toNotify != null) {
+            for (Callback callback : toNotify) {
+                try {
+                    callback.onResolved(file);
+                } catch (Throwable throwable) {
+                    SystemTray.logger.error("Error notifying that an image was resolved.", throwable);
+                }
+            }
+        }
+
+        return file;
+    }
+
+    private
+    File load() {
+        if (source instanceof File) {
+            return ImageResizeUtil.shouldResizeOrCache(isTrayImage, (File) source);
+        }
+        else if (source instanceof String) {
+            return ImageResizeUtil.shouldResizeOrCache(isTrayImage, (String) source);
+        }
+        else if (source instanceof URL) {
+            return ImageResizeUtil.shouldResizeOrCache(isTrayImage, (URL) source);
+        }
+        else if (source instanceof byte[]) {
+            return ImageResizeUtil.shouldResizeOrCache(isTrayImage, (InputStream) new ByteArrayInputStream((byte[]) source));
+        }
+        else {
+            return ImageResizeUtil.shouldResizeOrCache(isTrayImage, (Image) source);
+        }
+    }
+
+    private static
+    int size(final boolean isTrayImage) {
+        return isTrayImage ? SizeAndScalingUtil.TRAY_SIZE : SizeAndScalingUtil.TRAY_MENU_SIZE;
+    }
+}
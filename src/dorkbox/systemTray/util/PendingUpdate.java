@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects what has changed about a menu entry until it is applied on the dispatch thread.
+ * <p>
+ * Peers keep one of these (instead of creating a new Runnable for every change), and it is only dispatched when nothing else is
+ * already waiting. Changes that are made before it runs are applied together, with whatever the values are at that time.
+ *
+ * @param <T> the menu entry that has changed
+ */
+public abstract
+class PendingUpdate<T> implements Runnable {
+    // what has changed (but has not been applied yet), ie: MenuItemPeer.TEXT | MenuItemPeer.IMAGE
+    private final AtomicInteger changes = new AtomicInteger(0);
+    private volatile T target;
+
+    /**
+     * Adds the changes, and dispatches this if it is not already waiting to run.
+     *
+     * @param target the menu entry that has changed
+     * @param changes what has changed (0 does nothing)
+     */
+    public final
+    void request(final T target, final int changes) {
+        if (changes == 0) {
+            return;
+        }
+
+        // set before the changes, so that it is always there when they are applied
+        this.target = target;
+
+        int previous;
+        do {
+            previous = this.changes.get();
+        } while (!this.changes.compareAndSet(previous, previous | changes));
+
+        if (previous == 0) {
+            dispatch(this);
+        }
+    }
+
+    /**
+     * Queues this on the dispatch thread the changes are applied on.
+     */
+    protected abstract
+    void dispatch(Runnable runnable);
+
+    /**
+     * Called on the dispatch thread, with everything that has changed since the last time.
+     */
+    protected abstract
+    void apply(T target, int changes);
+
+    @Override
+    public final
+    void run() {
+        final int changes = this.changes.getAndSet(0);
+        if (changes != 0) {
+            apply(target, changes);
+        }
+    }
+}
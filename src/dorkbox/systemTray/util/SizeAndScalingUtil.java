@@ -29,10 +29,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JMenuItem;
 
-import dorkbox.jna.linux.GtkTheme;
 import dorkbox.jna.windows.User32;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.ui.gtk.GtkThemeCache;
 import dorkbox.systemTray.ui.swing._SwingTray;
 import dorkbox.systemTray.ui.swing._WindowsNativeTray;
 import dorkbox.util.OS;
@@ -40,9 +40,9 @@ import dorkbox.util.SwingUtil;
 
 public
 class SizeAndScalingUtil {
-    // the tray size as best as possible for the current OS
-    static int TRAY_SIZE = 0;
-    static int TRAY_MENU_SIZE = 0;
+    // the tray size as best as possible for the current OS. These are updated when the scale (or theme) changes, see ImageSizeWatcher
+    static volatile int TRAY_SIZE = 0;
+    static volatile int TRAY_MENU_SIZE = 0;
 
     public static
     int getMacOSScaleFactor() {
@@ -88,91 +88,142 @@ class SizeAndScalingUtil {
     }
 
 
+    /**
+     * The size of an image at a scale factor, rounded half up. Icons that are pre-rendered at build time (see IconBundle) are scaled
+     * with this as well, so that they are the sizes that are looked up at runtime.
+     */
+    public static
+    int scaleSize(final int baseSize, final double scaleFactor) {
+        return (int) Math.floor(baseSize * scaleFactor + 0.5D);
+    }
+
     public static
     int getTrayImageSize() {
         if (TRAY_SIZE == 0) {
-            if (OS.isLinux()) {
-                TRAY_SIZE = GtkTheme.getIndicatorSize();
-            }
-            else if (OS.isMacOsX()) {
-                // The base (non-scaled) height is 22px tall, measured via a screen-shot. From what I can tell, they are Apple defined, and cannot be changed.
-                // we obviously do not want to be the exact same size, so we give 2px padding on each side.
-                TRAY_SIZE = SizeAndScalingUtil.getMacOSScaleFactor() * 18;
-            }
-            else if (OS.isWindows()) {
-                TRAY_SIZE = User32.User32.GetSystemMetrics(SM_CYSMICON);
-            } else {
-                // reasonable default
-                TRAY_SIZE = 32;
-            }
+            TRAY_SIZE = calculateTrayImageSize();
         }
 
-        if (TRAY_SIZE == 0) {
+        return TRAY_SIZE;
+    }
+
+    private static
+    int calculateTrayImageSize() {
+        int size;
+        if (OS.isLinux()) {
+            size = GtkThemeCache.getIndicatorSize();
+        }
+        else if (OS.isMacOsX()) {
+            // The base (non-scaled) height is 22px tall, measured via a screen-shot. From what I can tell, they are Apple defined, and cannot be changed.
+            // we obviously do not want to be the exact same size, so we give 2px padding on each side.
+            size = scaleSize(18, SizeAndScalingUtil.getMacOSScaleFactor());
+        }
+        else if (OS.isWindows()) {
+            size = User32.User32.GetSystemMetrics(SM_CYSMICON);
+        } else {
             // reasonable default
-            TRAY_SIZE = 32;
+            size = 32;
         }
 
-        return TRAY_SIZE;
-}
+        if (size == 0) {
+            // reasonable default
+            size = 32;
+        }
+
+        return size;
+    }
 
     public static
     int getMenuImageSize(final Class<? extends Tray> trayType) {
         if (TRAY_MENU_SIZE == 0) {
-            if (OS.isMacOsX()) {
-                // Note: Mac (AWT) does not have images in the menu.
-                // The base (non-scaled) height is 22px tall, measured via a screen-shot. From what I can tell, they are Apple defined, and cannot be changed.
-                // we obviously do not want to be the exact same size, so we give 2px padding on each side.
-                TRAY_MENU_SIZE = SizeAndScalingUtil.getMacOSScaleFactor() * 18;
-            }
-            else if ((trayType == _SwingTray.class) || (trayType == _WindowsNativeTray.class)) {
-                // Java does not scale the menu item IMAGE **AT ALL**, we must provide the correct size to begin with
+            TRAY_MENU_SIZE = calculateMenuImageSize(trayType);
+        }
 
-                if (OS.isWindows()) {
-                    // http://kynosarges.org/WindowsDpi.html
+        return TRAY_MENU_SIZE;
+    }
 
-                    //                     image-size/menu-height
-                    //  96 DPI = 100% actual size: 14/17
-                    // 144 DPI = 150% actual size: 24/29
+    private static
+    int calculateMenuImageSize(final Class<? extends Tray> trayType) {
+        int size;
+        if (OS.isMacOsX()) {
+            // Note: Mac (AWT) does not have images in the menu.
+            // The base (non-scaled) height is 22px tall, measured via a screen-shot. From what I can tell, they are Apple defined, and cannot be changed.
+            // we obviously do not want to be the exact same size, so we give 2px padding on each side.
+            size = scaleSize(18, SizeAndScalingUtil.getMacOSScaleFactor());
+        }
+        else if ((trayType == _SwingTray.class) || (trayType == _WindowsNativeTray.class)) {
+            // Java does not scale the menu item IMAGE **AT ALL**, we must provide the correct size to begin with
 
-                    // gets the height of the default checkmark size, adjusted
-                    // This is the closest image size we can get to the actual size programmatically. This is a LOT closer that checking the
-                    // largest size a JMenu image can be before the menu size changes.
-                    TRAY_MENU_SIZE = User32.User32.GetSystemMetrics(SM_CYMENUCHECK) - 1;
+            if (OS.isWindows()) {
+                // http://kynosarges.org/WindowsDpi.html
 
-                    //                   image-size/menu-height
-                    //  96 DPI = 100% mark size: 14/20
-                    // 144 DPI = 150% mark size: 24/30
-                } else {
-                    final AtomicInteger iconSize = new AtomicInteger();
-
-                    SwingUtil.invokeAndWaitQuietly(new Runnable() {
-                        @Override
-                        public
-                        void run() {
-                            JMenuItem jMenuItem = new JMenuItem();
-
-                            // do the same modifications that would also happen (if specified) for the actual displayed menu items
-                            if (SystemTray.SWING_UI != null) {
-                                jMenuItem.setUI(SystemTray.SWING_UI.getItemUI(jMenuItem, null));
-                            }
-
-                            // this is the largest size of an image used in a JMenuItem, before the size of the JMenuItem is forced to be larger
-                            int height = SwingUtil.getLargestIconHeightForButton(jMenuItem);
-                            iconSize.set(height);
-                        }
-                    });
-                    TRAY_MENU_SIZE = iconSize.get();
-                }
-            }
-            else if (OS.isLinux()) {
-                // AppIndicator or GtkStatusIcon
-                TRAY_MENU_SIZE = GtkTheme.getMenuEntryImageSize();
+                //                     image-size/menu-height
+                //  96 DPI = 100% actual size: 14/17
+                // 144 DPI = 150% actual size: 24/29
+
+                // gets the height of the default checkmark size, adjusted
+                // This is the closest image size we can get to the actual size programmatically. This is a LOT closer that checking the
+                // largest size a JMenu image can be before the menu size changes.
+                size = User32.User32.GetSystemMetrics(SM_CYMENUCHECK) - 1;
+
+                //                   image-size/menu-height
+                //  96 DPI = 100% mark size: 14/20
+                // 144 DPI = 150% mark size: 24/30
             } else {
-                // reasonable default
-                TRAY_MENU_SIZE = 16;
+                final AtomicInteger iconSize = new AtomicInteger();
+
+                SwingUtil.invokeAndWaitQuietly(new Runnable() {
+                    @Override
+                    public
+                    void run() {
+                        JMenuItem jMenuItem = new JMenuItem();
+
+                        // do the same modifications that would also happen (if specified) for the actual displayed menu items
+                        if (SystemTray.SWING_UI != null) {
+                            jMenuItem.setUI(SystemTray.SWING_UI.getItemUI(jMenuItem, null));
+                        }
+
+                        // this is the largest size of an image used in a JMenuItem, before the size of the JMenuItem is forced to be larger
+                        int height = SwingUtil.getLargestIconHeightForButton(jMenuItem);
+                        iconSize.set(height);
+                    }
+                });
+                size = iconSize.get();
             }
         }
+        else if (OS.isLinux()) {
+            // AppIndicator or GtkStatusIcon
+            size = GtkThemeCache.getMenuEntryImageSize();
+        } else {
+            // reasonable default
+            size = 16;
+        }
 
-        return TRAY_MENU_SIZE;
+        return size;
+    }
+
+    /**
+     * Calculates the tray/menu image sizes again, for example because the scale factor or the theme has changed.
+     * <p>
+     * Images that are resized after this use the new sizes.
+     *
+     * @return true if either size is different than before
+     */
+    public static synchronized
+    boolean refreshImageSizes(final Class<? extends Tray> trayType) {
+        final int oldTraySize = TRAY_SIZE;
+        final int oldMenuSize = TRAY_MENU_SIZE;
+
+        // images are still resized with the old sizes while we calculate the new ones
+        final int newTraySize = calculateTrayImageSize();
+        final int newMenuSize = calculateMenuImageSize(trayType);
+
+        TRAY_SIZE = newTraySize;
+        TRAY_MENU_SIZE = newMenuSize;
+
+        if (SystemTray.DEBUG && (newTraySize != oldTraySize || newMenuSize != oldMenuSize)) {
+            SystemTray.logger.debug("Image sizes changed. Tray: {} -> {}, menu: {} -> {}", oldTraySize, newTraySize, oldMenuSize, newMenuSize);
+        }
+
+        return newTraySize != oldTraySize || newMenuSize != oldMenuSize;
     }
 }
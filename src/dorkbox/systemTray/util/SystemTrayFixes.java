@@ -18,25 +18,27 @@ package dorkbox.systemTray.util;
 import static dorkbox.systemTray.SystemTray.logger;
 
 import java.awt.AWTException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.util.Locale;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 import dorkbox.jna.JnaClassUtils;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.util.OS;
-import javassist.ClassPool;
-import javassist.CtBehavior;
-import javassist.CtClass;
-import javassist.CtConstructor;
-import javassist.CtField;
-import javassist.CtMethod;
-import javassist.CtNewMethod;
-import javassist.Modifier;
-import javassist.bytecode.BadBytecode;
-import javassist.bytecode.CodeIterator;
-import javassist.bytecode.ConstPool;
-import javassist.bytecode.InstructionPrinter;
-import javassist.bytecode.MethodInfo;
-import javassist.bytecode.Mnemonic;
+import dorkbox.util.Property;
 
 
 /*
@@ -65,9 +67,24 @@ import javassist.bytecode.Mnemonic;
 
 /**
  * Fixes issues with some java runtimes
+ * <p>
+ * The modified classes are cached (per JDK), so that they only have to be created (and javassist only has to be loaded) once. Since they
+ * are defined directly (past the classloader), the cached classes are signed with a key that is created once per install (and is only
+ * readable by the user), and they are only used if the signature matches.
  */
 public
 class SystemTrayFixes {
+    @Property
+    /** Caches the modified JDK classes, so they do not have to be created again (with javassist) on every start. */
+    public static boolean CACHE_CLASSES = true;
+
+    // change this when the modified classes change, so that the previously cached classes are not used
+    private static final int FIX_VERSION = 1;
+    private static final int MAGIC = 0x53545847; // STXG (the classes are signed)
+
+    private static final String SIGNATURE = "HmacSHA256";
+    private static final int KEY_LENGTH = 32;
+
     private static
     boolean isSwingTrayLoaded() {
         String className;
@@ -142,105 +159,17 @@ class SystemTrayFixes {
             java.awt.Robot robot = new java.awt.Robot();
 
 
-            ClassPool pool = ClassPool.getDefault();
-            byte[] trayBytes;
-            byte[] trayIconBytes;
-
-            {
-                CtClass trayClass = pool.get("sun.awt.windows.WSystemTrayPeer");
-                // now have to make a new "system tray" (that is null) in order to init/load this class completely
-                // have to modify the SystemTray.getIconSize as well.
-                trayClass.setModifiers(trayClass.getModifiers() & javassist.Modifier.PUBLIC);
-                trayClass.getConstructors()[0].setModifiers(trayClass.getConstructors()[0].getModifiers() & javassist.Modifier.PUBLIC);
-
-
-                CtMethod method = trayClass.getDeclaredMethod("getTrayIconSize");
-                CtBehavior methodInfos[] = new CtBehavior[]{ method };
-
-                fixTraySize(methodInfos, 16, trayIconSize);
-
-                // perform pre-verification for the modified method
-                method.getMethodInfo().rebuildStackMapForME(trayClass.getClassPool());
-
-                trayBytes = trayClass.toBytecode();
-            }
-
-            {
-                CtClass trayIconClass = pool.get("sun.awt.windows.WTrayIconPeer");
-                CtMethod ctMethodCreate = trayIconClass.getDeclaredMethod("createNativeImage");
-                CtMethod ctMethodUpdate = trayIconClass.getDeclaredMethod("updateNativeImage");
-
-                int TRAY_MASK = (trayIconSize * trayIconSize) / 8;
-                ctMethodCreate.setBody("{" +
-                    "java.awt.image.BufferedImage bufferedImage = $1;" +
-
-                    "java.awt.image.Raster rasterImage = bufferedImage.getRaster();" +
-                    "final byte[] mask = new byte[" + TRAY_MASK + "];" +
-                    "final int pixels[] = ((java.awt.image.DataBufferInt)rasterImage.getDataBuffer()).getData();" +
-
-                    "int numberOfPixels = pixels.length;" +
-                    "int rasterImageWidth = rasterImage.getWidth();" +
-
-                    "for (int i = 0; i < numberOfPixels; i++) {" +
-                        "int iByte = i / 8;" +
-                        "int augmentMask = 1 << (7 - (i % 8));" +
-                        "if ((pixels[i] & 0xFF000000) == 0) {" +
-                            "if (iByte < mask.length) {" +
-                                "mask[iByte] |= augmentMask;" +
-                            "}" +
-                        "}" +
-                    "}" +
-
-                    "if (rasterImage instanceof sun.awt.image.IntegerComponentRaster) {" +
-                        "rasterImageWidth = ((sun.awt.image.IntegerComponentRaster)rasterImage).getScanlineStride();" +
-                    "}" +
-
-                    "setNativeIcon(((java.awt.image.DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData(), " +
-                                   "mask, rasterImageWidth, rasterImage.getWidth(), rasterImage.getHeight());" +
-                "}");
-
-                ctMethodUpdate.setBody("{" +
-                    "java.awt.Image image = $1;" +
-
-                    "if (isDisposed()) {" +
-                        "return;" +
-                    "}" +
-
-                    "int imageWidth = image.getWidth(observer);" +
-                    "int imageHeight = image.getWidth(observer);" +
-
-                    "java.awt.image.BufferedImage trayIcon = new java.awt.image.BufferedImage(imageWidth, imageHeight, java.awt.image.BufferedImage.TYPE_INT_ARGB);" +
-                    "java.awt.Graphics2D g = trayIcon.createGraphics();" +
-
-                    "if (g != null) {" +
-                        "try {" +
-                            // this will render the image "nicely"
-                            "g.addRenderingHints(new java.awt.RenderingHints(java.awt.RenderingHints.KEY_RENDERING," +
-                                                                            "java.awt.RenderingHints.VALUE_RENDER_QUALITY));" +
-                            "g.drawImage(image, 0, 0, imageWidth, imageHeight, observer);" +
-
-                            "createNativeImage(trayIcon);" +
-
-                            "updateNativeIcon(!firstUpdate);" +
-                            "if (firstUpdate) {" +
-                                "firstUpdate = false;" +
-                            "}" +
-                        "} finally {" +
-                            "g.dispose();" +
-                        "}" +
-                    "}" +
-                "}");
-
-                // perform pre-verification for the modified method
-                ctMethodCreate.getMethodInfo().rebuildStackMapForME(trayIconClass.getClassPool());
-                ctMethodUpdate.getMethodInfo().rebuildStackMapForME(trayIconClass.getClassPool());
-
-                trayIconBytes = trayIconClass.toBytecode();
+            final String key = "windows_" + trayIconSize;
+            byte[][] classes = loadCached(key);
+            if (classes == null) {
+                classes = SystemTrayFixesGenerator.windows(trayIconSize);
+                saveCached(key, classes);
             }
 
             // whoosh, past the classloader and directly into memory.
-            JnaClassUtils.defineClass(trayBytes);
-            JnaClassUtils.defineClass(trayIconBytes);
+            for (byte[] bytes : classes) {
+                JnaClassUtils.defineClass(bytes);
+            }
 
             if (SystemTray.DEBUG) {
                 logger.debug("Successfully changed tray icon size to: {}", trayIconSize);
@@ -285,149 +214,18 @@ class SystemTrayFixes {
             e.printStackTrace();
         }
 
-        ClassPool pool = ClassPool.getDefault();
-        byte[] mouseEventBytes;
-        int mouseDelay = 75;
-
         try {
-            CtClass trayClass = pool.get("sun.lwawt.macosx.CTrayIcon");
-            // now have to make a new "system tray" (that is null) in order to init/load this class completely
-            // have to modify the SystemTray.getIconSize as well.
-            trayClass.setModifiers(trayClass.getModifiers() & javassist.Modifier.PUBLIC);
-            trayClass.getConstructors()[0].setModifiers(trayClass.getConstructors()[0].getModifiers() & javassist.Modifier.PUBLIC);
-
-            CtField ctField = new CtField(CtClass.intType, "lastButton", trayClass);
-            trayClass.addField(ctField);
-
-            ctField = new CtField(CtClass.intType, "lastX", trayClass);
-            trayClass.addField(ctField);
-
-            ctField = new CtField(CtClass.intType, "lastY", trayClass);
-            trayClass.addField(ctField);
-
-            ctField = new CtField(pool.get("java.awt.Robot"), "robot", trayClass);
-            trayClass.addField(ctField);
-
-            CtMethod ctMethodGet = trayClass.getDeclaredMethod("handleMouseEvent");
-
-            String nsEventFQND;
-            if (OS.javaVersion <= 7) {
-                nsEventFQND = "sun.lwawt.macosx.event.NSEvent";
+            final String key = "macos";
+            byte[][] classes = loadCached(key);
+            if (classes == null) {
+                classes = SystemTrayFixesGenerator.macOS();
+                saveCached(key, classes);
             }
-            else {
-                nsEventFQND = "sun.lwawt.macosx.NSEvent";
-            }
-
-
-            ctMethodGet.setBody("{" +
-                nsEventFQND + " event = $1;" +
-
-                "sun.awt.SunToolkit toolKit = (sun.awt.SunToolkit)java.awt.Toolkit.getDefaultToolkit();" +
-                "int button = event.getButtonNumber();" +
-                "int mouseX = event.getAbsX();" +
-                "int mouseY = event.getAbsY();" +
-
-                // have to intercept to see if it was a button click redirect to preserve what button was used in the event
-                "if (lastButton == 1 && mouseX == lastX && mouseY == lastY) {" +
-                    // "java.lang.System.err.println(\"Redefining button press to 1\");" +
-
-                    "button = 1;" +
-                    "lastButton = -1;" +
-                    "lastX = 0;" +
-                    "lastY = 0;" +
-                "}" +
-
-                "if ((button <= 2 || toolKit.areExtraMouseButtonsEnabled()) && button <= toolKit.getNumberOfButtons() - 1) {" +
-                    "int eventType = " + nsEventFQND + ".nsToJavaEventType(event.getType());" +
-                    "int jButton = 0;" +
-                    "int jClickCount = 0;" +
-
-                    "if (eventType != 503) {" +
-                        "jButton = " + nsEventFQND + ".nsToJavaButton(button);" +
-                        "jClickCount = event.getClickCount();" +
-                    "}" +
-
-                    // "java.lang.System.err.println(\"Click \" + jButton + \" event: \" + eventType);" +
-
-                    "int mouseMods = " + nsEventFQND + ".nsToJavaMouseModifiers(button, event.getModifierFlags());" +
-                    // surprisingly, this is false when the popup is showing
-                    "boolean popupTrigger = " + nsEventFQND + ".isPopupTrigger(mouseMods);" +
-
-                    "int mouseMask = jButton > 0 ? java.awt.event.MouseEvent.getMaskForButton(jButton) : 0;" +
-                    "long event0 = System.currentTimeMillis();" +
-
-                    "if(eventType == 501) {" +
-                        "mouseClickButtons |= mouseMask;" +
-                    "} else if(eventType == 506) {" +
-                        "mouseClickButtons = 0;" +
-                    "}" +
-
-
-                    // have to swallow + re-dispatch events in specific cases. (right click)
-                    "if (eventType == 501 && popupTrigger && button == 1) {" +
-                        // "java.lang.System.err.println(\"Redispatching mouse press. Has popupTrigger \" + " + "popupTrigger + \" event: \" + " + "eventType);" +
-
-                        // we use Robot to left click where we right clicked, in order to "fool" the native part to show the popup
-                        // For what it's worth, this is the only way to get the native bits to behave.
-                        "if (robot == null) {" +
-                            "try {" +
-                                "robot = new java.awt.Robot();" +
-                                "robot.setAutoDelay(40);" +
-                                "robot.setAutoWaitForIdle(true);" +
-                            "} catch (java.awt.AWTException e) {" +
-                                "e.printStackTrace();" +
-                            "}" +
-                        "}" +
-
-                        "lastButton = 1;" +
-                        "lastX = mouseX;" +
-                        "lastY = mouseY;" +
-
-                        // the delay is necessary for this to work correctly. Mouse release is not necessary.
-                        // this simulates *just enough* of the default behavior so that right click behaves the same as left click.
-                        "int maskButton1 = java.awt.event.InputEvent.getMaskForButton(java.awt.event.MouseEvent.BUTTON1);" +
-                        "robot.mousePress(maskButton1);" +
-                        "robot.delay(" + mouseDelay + ");" +
-
-                        "return;" +
-                    "}" +
-
-
-                    "java.awt.event.MouseEvent mEvent = new java.awt.event.MouseEvent(this.dummyFrame, eventType, event0, mouseMods, mouseX, mouseY, mouseX, mouseY, jClickCount, popupTrigger, jButton);" +
-
-                    "mEvent.setSource(this.target);" +
-                    "this.postEvent(mEvent);" +
-
-                    // mouse press
-                    "if (eventType == 501) {" +
-                        "if (popupTrigger) {" +
-                            "String event5 = this.target.getActionCommand();" +
-                            "java.awt.event.ActionEvent event6 = new java.awt.event.ActionEvent(this.target, 1001, event5);" +
-                            "this.postEvent(event6);" +
-                        "}" +
-                    "}" +
-
-                    // mouse release
-                    "if (eventType == 502) {" +
-                        "if ((mouseClickButtons & mouseMask) != 0) {" +
-                            "java.awt.event.MouseEvent event7 = new java.awt.event.MouseEvent(this.dummyFrame, 500, event0, mouseMods, mouseX, mouseY, mouseX, mouseY, jClickCount, popupTrigger, jButton);" +
-
-                            "event7.setSource(this.target);" +
-                            "this.postEvent(event7);" +
-                        "}" +
-
-                        "mouseClickButtons &= ~mouseMask;" +
-                    "}" +
-                "}" +
-            "}");
-
-            // perform pre-verification for the modified method
-            ctMethodGet.getMethodInfo().rebuildStackMapForME(trayClass.getClassPool());
-
-            mouseEventBytes = trayClass.toBytecode();
 
             // whoosh, past the classloader and directly into memory.
-            JnaClassUtils.defineClass(mouseEventBytes);
+            for (byte[] bytes : classes) {
+                JnaClassUtils.defineClass(bytes);
+            }
 
             if (SystemTray.DEBUG) {
                 logger.debug("Successfully changed mouse trigger for MacOSX");
@@ -482,316 +280,254 @@ class SystemTrayFixes {
         }
 
         try {
-            ClassPool pool = ClassPool.getDefault();
-            CtField ctField;
-
-            String className = "sun.awt.X11.XTrayIconPeer";
-            byte[] eFrameBytes;
-            byte[] trayIconBytes;
-            byte[] trayPeerBytes;
-            byte[] runnableBytes;
-            byte[] iconCanvasBytes;
-
-            {
-                CtClass trayIconClass = pool.get(className);
-                CtClass eFrameClass = null;
-                CtClass iconCanvasClass = null;
-                CtClass trayPeerClass;
-
-                CtClass[] nestedClasses = trayIconClass.getNestedClasses();
-                String xEmbedFrameName = className + "$XTrayIconEmbeddedFrame";
-                String iconCanvasName = className + "$IconCanvas";
-                for (CtClass nestedClass : nestedClasses) {
-                    String name = nestedClass.getName();
-
-                    if (name.equals(xEmbedFrameName)) {
-                        eFrameClass = nestedClass;
-                    }
-
-                    if (name.equals(iconCanvasName)) {
-                        iconCanvasClass = nestedClass;
-                    }
-                }
+            final String key = "linux_" + trayIconSize;
+            byte[][] classes = loadCached(key);
+            if (classes == null) {
+                classes = SystemTrayFixesGenerator.linux(trayIconSize);
+                saveCached(key, classes);
+            }
 
-                if (eFrameClass == null || iconCanvasClass == null) {
-                    throw new RuntimeException("Unable to find required classes to fix. Unable to continue initialization.");
-                }
+            // whoosh, past the classloader and directly into memory.
+            for (byte[] bytes : classes) {
+                JnaClassUtils.defineClass(bytes);
+            }
 
+            if (SystemTray.DEBUG) {
+                logger.debug("Successfully changed tray icon background color");
+            }
+        } catch (Exception e) {
+            logger.error("Error setting tray icon background color", e);
+        }
+    }
 
-                ctField = new CtField(pool.get("java.awt.Robot"), "robot", trayIconClass);
-                ctField.setModifiers(Modifier.STATIC);
-                trayIconClass.addField(ctField);
+    /**
+     * @return the cached classes for this fix + JDK, or null if they have not been cached (or are broken)
+     */
+    private static
+    byte[][] loadCached(final String fix) {
+        if (!CACHE_CLASSES) {
+            return null;
+        }
 
-                ctField = new CtField(pool.get("java.awt.Color"), "color", trayIconClass);
-                ctField.setModifiers(Modifier.STATIC);
-                trayIconClass.addField(ctField);
+        final String key = getCacheKey(fix);
+        final File file = getCacheFile(key);
+        if (!file.canRead()) {
+            return null;
+        }
 
-                ctField = new CtField(pool.get("java.awt.image.BufferedImage"), "image", trayIconClass);
-                ctField.setModifiers(Modifier.STATIC);
-                trayIconClass.addField(ctField);
+        try {
+            DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (inputStream.readInt() != MAGIC || !key.equals(inputStream.readUTF())) {
+                    throw new IOException("Not the cached classes for: " + key);
+                }
 
-                ctField = new CtField(pool.get("java.awt.Rectangle"), "rectangle", trayIconClass);
-                ctField.setModifiers(Modifier.STATIC);
-                trayIconClass.addField(ctField);
+                final int count = inputStream.readInt();
+                if (count <= 0 || count > 16) {
+                    throw new IOException("Invalid number of classes: " + count);
+                }
 
-                // fix other classes for icon size.
-                trayPeerClass = pool.get("sun.awt.X11.XSystemTrayPeer");
+                final byte[][] classes = new byte[count][];
+                for (int i = 0; i < count; i++) {
+                    final int length = inputStream.readInt();
+                    if (length < 4 || length > 1024 * 1024) {
+                        throw new IOException("Invalid class length: " + length);
+                    }
 
-                // now we have to replace ALL instances (in the constructor and other methods), where the icon size is set (default is 24).
-                // Since, looking at the source code, there is NO other case where the number 24 is used (except for size), we just
-                // bytecode replace 24 with our specified size.
+                    final byte[] bytes = new byte[length];
+                    inputStream.readFully(bytes);
 
-                CtConstructor constructor = trayIconClass.getDeclaredConstructors()[0]; // only 1 constructor
-                CtMethod method1 = trayIconClass.getDeclaredMethod("getBounds");
-                CtMethod method2 = trayPeerClass.getDeclaredMethod("getTrayIconSize");
+                    // 0xCAFEBABE
+                    if ((bytes[0] & 0xFF) != 0xCA || (bytes[1] & 0xFF) != 0xFE || (bytes[2] & 0xFF) != 0xBA || (bytes[3] & 0xFF) != 0xBE) {
+                        throw new IOException("Not a class file");
+                    }
 
-                CtBehavior methodInfos[] = new CtBehavior[]{constructor, method1, method2};
+                    classes[i] = bytes;
+                }
 
-                fixTraySize(methodInfos, 24, trayIconSize);
+                final byte[] signature = new byte[inputStream.readInt() & 0xFF];
+                inputStream.readFully(signature);
 
-                // perform pre-verification for the modified method
-                constructor.getMethodInfo().rebuildStackMapForME(trayIconClass.getClassPool());
-                method1.getMethodInfo().rebuildStackMapForME(trayIconClass.getClassPool());
-                method2.getMethodInfo().rebuildStackMapForME(trayPeerClass.getClassPool());
+                // nothing is defined unless we wrote it ourselves
+                final byte[] expected = sign(key, classes);
+                if (expected == null) {
+                    return null;
+                }
+                if (!MessageDigest.isEqual(expected, signature)) {
+                    throw new IOException("The signature of the cached classes does not match");
+                }
 
+                if (SystemTray.DEBUG) {
+                    logger.debug("Using the cached SystemTray fixes for: {}", key);
+                }
+                return classes;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to read the cached SystemTray fixes. Creating them again.", e);
 
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
 
-                // The screenshot we capture, is just a 1-pixel wide strip, that we stretch to the correct size. This is so we can
-                // have the correct background when there is a gradient panel (which happens on Ubuntu and possibly others).
-                // NOTE: This method doesn't work for panel background images that are not a gradient, and there is no easy way to solve that problem.
+    private static
+    void saveCached(final String fix, final byte[][] classes) {
+        if (!CACHE_CLASSES) {
+            return;
+        }
 
-                // make our custom runnable (cannot do anonymous inner classes via javassist.
-                {
-                    CtClass runnable = pool.makeClass("sun.awt.X11.RunnableImpl");
-                    runnable.addInterface(pool.get("java.lang.Runnable"));
+        final String key = getCacheKey(fix);
+        final File file = getCacheFile(key);
 
-                    ctField = new CtField(pool.get(xEmbedFrameName), "frame", runnable);
-                    ctField.setModifiers(Modifier.PROTECTED);
-                    runnable.addField(ctField);
+        try {
+            final byte[] signature = sign(key, classes);
+            if (signature == null) {
+                // without a key, the classes could not be verified later
+                return;
+            }
 
-                    ctField = new CtField(pool.get("java.awt.Rectangle"), "size", runnable);
-                    ctField.setModifiers(Modifier.PROTECTED);
-                    runnable.addField(ctField);
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().mkdirs();
 
-                    ctField = new CtField(CtClass.intType, "attempts", runnable);
-                    ctField.setModifiers(Modifier.PROTECTED);
-                    runnable.addField(ctField);
+            // written to a different file first, so that another JVM never reads half of it
+            final File tempFile = new File(file.getParentFile(), file.getName() + "." + System.nanoTime() + ".tmp");
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                outputStream.writeInt(MAGIC);
+                outputStream.writeUTF(key);
+                outputStream.writeInt(classes.length);
 
-                    CtMethod method = CtNewMethod.make("public void run() { " +
-                        "java.awt.Point loc = frame.getLocationOnScreen();" +
+                for (byte[] bytes : classes) {
+                    outputStream.writeInt(bytes.length);
+                    outputStream.write(bytes);
+                }
 
-                        "if (loc.x == 0 && loc.y == 0 && attempts < 10) {" +
-                            // we still don't know! Reschedule.
-                            "attempts++;" +
-                            "java.awt.EventQueue.invokeLater(this);" +
-                            // "System.err.println(\"Reschedule: \" + loc.x + \" : \" + loc.y);" +
-                            "return;" +
-                        "}" +
+                outputStream.writeInt(signature.length);
+                outputStream.write(signature);
+            } finally {
+                outputStream.close();
+            }
 
-                        // "System.err.println(\"Actual location: \" + loc.x + \" : \" + loc.y);" +
+            if (!tempFile.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
 
-                        // offset the pixel grabbing location, if possible. If we go negative, weird colors happen.
-                        // which ever is the larger dimension (usually) is the orientation of the bar.
-                        "java.awt.Rectangle rect;" +
-                        "if (loc.x > loc.y) {" +
-                            // horizontal panel.
-                            "rect = new java.awt.Rectangle(loc.x-1, loc.y, 1, size.height);" +
+                if (!tempFile.renameTo(file)) {
+                    //noinspection ResultOfMethodCallIgnored
+                    tempFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to cache the SystemTray fixes.", e);
+        }
+    }
 
-                            // Sometimes the parent panel is LARGER than the icon, so we grab the color at the correct spot so there aren't any "weird" strips of color at the bottom of the icon.
-                            "if (loc.y < 300) {" +
-                                // panel is at the top of the screen (guessing...)
-                                className + ".color = " + className + ".robot.getPixelColor(rect.x, rect.y + rect.height-1);" +
-                            "} else {" +
-                                // panel is at the bottom of the screen (guessing)
-                                className + ".color = " + className + ".robot.getPixelColor(rect.x, rect.y);" +
-                            "}" +
-                        "} else {" +
-                            // vertical panel (don't think this will happen much, but in case it does...)
-                            "rect = new java.awt.Rectangle(loc.x, loc.y-1, size.width, 1);" +
-                            className + ".color = " + className + ".robot.getPixelColor(rect.x, rect.y);" +
-                        "}" +
+    /**
+     * @return the signature of the cached classes (and what they were cached for), or null if there is no key to sign them with
+     */
+    private static
+    byte[] sign(final String key, final byte[][] classes) {
+        final byte[] installKey = getInstallKey();
+        if (installKey == null) {
+            return null;
+        }
 
-                        // screen shot a strip, that we then modify the background of the tray icon
-                        className + ".image = " + className + ".robot.createScreenCapture(rect);" +
+        try {
+            final Mac mac = Mac.getInstance(SIGNATURE);
+            mac.init(new SecretKeySpec(installKey, SIGNATURE));
+            mac.update(key.getBytes("UTF-8"));
+
+            for (byte[] bytes : classes) {
+                final int length = bytes.length;
+                mac.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+                mac.update(bytes);
+            }
 
-                        // keeps track of the capture size, which can be DIFFERENT than the icon size
-                        className + ".rectangle = rect;" +
+            return mac.doFinal();
+        } catch (Exception e) {
+            logger.warn("Unable to sign the cached SystemTray fixes.", e);
+            return null;
+        }
+    }
 
-                        // "System.err.println(\"capture location: \" + rect);" +
+    /**
+     * The key is random, created the first time it is needed, and only readable (and writable) by the user.
+     *
+     * @return the key that the cached classes are signed with, or null if it cannot be read or created
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private static synchronized
+    byte[] getInstallKey() {
+        final File file = new File(TrayDetectionCache.getCacheDir(), "fixes/install.key");
 
-                        // this sets the background of the native component, NOT THE ICON (otherwise weird "grey" flashes occur)
-                        "frame.setBackground(" + className + ".color);" +
-                    "}", runnable);
-                    runnable.addMethod(method);
+        try {
+            if (!file.exists()) {
+                file.getParentFile().mkdirs();
 
-                    runnableBytes = runnable.toBytecode();
-                }
+                final byte[] key = new byte[KEY_LENGTH];
+                new SecureRandom().nextBytes(key);
 
+                // the permissions are set before anything is written to it
+                final File tempFile = new File(file.getParentFile(), file.getName() + "." + System.nanoTime() + ".tmp");
+                tempFile.createNewFile();
+                tempFile.setReadable(false, false);
+                tempFile.setWritable(false, false);
+                tempFile.setReadable(true, true);
+                tempFile.setWritable(true, true);
 
-                {
-                    // gets the pixel color just to the side of the icon. The CRITICAL thing to notice, is that this happens before the
-                    // AWT window is positioned, so there can be a different system tray icon at this position (at this exact point in
-                    // time). This means we cannot take a screen shot because before the window is placed, another icon is in this
-                    // spot; and when the window is placed, it's too late to take a screenshot. The second best option is to take a sample of
-                    // the pixel color, so at least we can fake transparency (this is what we do). This only works if the notification area
-                    // is a solid color, and not an image or gradient.
-                    CtMethod methodVisible = CtNewMethod.make("public void setVisible(boolean b) " +
-                    "{ " +
-                        "if (b) {" +
-                            "if (" + className + ".robot == null) {" +
-                                className + ".robot = new java.awt.Robot();" +
-
-                                "sun.awt.X11.RunnableImpl r = new sun.awt.X11.RunnableImpl();" +
-                                "r.frame = this;" +
-                                "r.size = getBoundsPrivate();" +
-
-                                // run our custom runnable on the event queue, so that we can get the location after it's been placed
-                                "java.awt.EventQueue.invokeLater(r);" +
-                            "}" +
-
-                            // the problem here is that on SOME linux OSes, the location is invalid! So we check again on the EDT
-                            "java.awt.Point loc = getPeer().getLocationOnScreen();" +
-
-                            "int locX = loc.x;" +
-                            "int locY = loc.y;" +
-
-                            "if (!(locX == 0 && locY == 0)) {" +
-                                // offset the pixel grabbing location, if possible. If we go negative, weird colors happen.
-                                "if (locX > 0) locX -= 1;" +
-                                "if (locY > 0) locY -= 1;" +
-
-                                className + ".color = " + className + ".robot.getPixelColor(locX, locY);" +
-
-                                // this sets the background of the native component, NOT THE ICON (otherwise weird "grey" flashes occur)
-                              "setBackground(" + className + ".color);" +
-                            "}" +
-                        "}" +
-                        "super.setVisible(b);" +
-                    "}", eFrameClass);
-                    eFrameClass.addMethod(methodVisible);
-                    methodVisible.getMethodInfo()
-                                 .rebuildStackMapForME(eFrameClass.getClassPool());
-
-                    eFrameBytes = eFrameClass.toBytecode();
+                OutputStream outputStream = new FileOutputStream(tempFile);
+                try {
+                    outputStream.write(key);
+                } finally {
+                    outputStream.close();
                 }
 
-                {
-                    CtMethod ctMethodPaint = iconCanvasClass.getDeclaredMethod("paint");
-                    String body = "{" + "java.awt.Graphics g = $1;" +
-                        "if (g != null && curW > 0 && curH > 0) {" +
-                            "java.awt.image.BufferedImage bufImage = new java.awt.image.BufferedImage(curW, curH, java.awt.image.BufferedImage.TYPE_INT_ARGB);" +
-                            "java.awt.Graphics2D gr = bufImage.createGraphics();" +
-
-                            "if (gr != null) {" +
-                                "try {" +
-                                    // this will render the image "nicely"
-                                    "gr.addRenderingHints(new java.awt.RenderingHints(java.awt.RenderingHints.KEY_RENDERING," +
-                                    "java.awt.RenderingHints.VALUE_RENDER_QUALITY));" +
-
-                                    "gr.setColor(getBackground());" +
-                                    "gr.fillRect(0, 0, curW, curH);" +
-
-                                    "if (" + className + ".image != null) {" +
-                                        "gr.drawImage(" + className + ".image, 0, 0, curW, curH, null);" +
-                                    "}" +
-
-                                    "gr.drawImage(image, 0, 0, curW, curH, observer);" +
-                                    "gr.dispose();" +
-                                    "g.drawImage(bufImage, 0, 0, curW, curH, null);" +
-                                "} finally {" +
-                                    "g.dispose();" +
-                                "}" +
-                            "}" +
-                        "}" +
-                    "}";
-                    ctMethodPaint.setBody(body);
-
-                    iconCanvasBytes = iconCanvasClass.toBytecode();
+                // if another JVM creates it at the same time, one of them wins. The classes cached with the other key are just
+                // created (and cached) again, since their signature does not match
+                if (!tempFile.renameTo(file)) {
+                    tempFile.delete();
                 }
-
-                trayIconBytes = trayIconClass.toBytecode();
-                trayPeerBytes = trayPeerClass.toBytecode();
             }
 
-            // whoosh, past the classloader and directly into memory.
-            JnaClassUtils.defineClass(runnableBytes);
-            JnaClassUtils.defineClass(eFrameBytes);
-            JnaClassUtils.defineClass(iconCanvasBytes);
-            JnaClassUtils.defineClass(trayIconBytes);
-            JnaClassUtils.defineClass(trayPeerBytes);
-
-            if (SystemTray.DEBUG) {
-                logger.debug("Successfully changed tray icon background color");
+            final byte[] key = new byte[KEY_LENGTH];
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                new DataInputStream(inputStream).readFully(key);
+            } finally {
+                inputStream.close();
             }
+            return key;
         } catch (Exception e) {
-            logger.error("Error setting tray icon background color", e);
+            logger.warn("Unable to read the key for the cached SystemTray fixes. They will not be cached.", e);
+            return null;
         }
     }
 
+    /**
+     * The modified classes depend on the exact JDK they were created from, and on the fix itself
+     */
     private static
-    void fixTraySize(final CtBehavior[] behaviors, final int oldTraySize, final int newTraySize) {
-        for (CtBehavior behavior : behaviors) {
-            MethodInfo methodInfo = behavior.getMethodInfo();
-            CodeIterator methodIterator = methodInfo.getCodeAttribute().iterator();
-
-            while (methodIterator.hasNext()) {
-                int index;
-                try {
-                    index = methodIterator.next();
-                    int opcode = methodIterator.byteAt(index);
-
-                    switch (opcode) {
-                        case javassist.bytecode.Opcode.BIPUSH: {
-                            int i = methodIterator.byteAt(index + 1);
-
-                            if (i == oldTraySize) {
-                                // re-write this to be our custom size.
-                                methodIterator.writeByte((byte) newTraySize, index + 1);
-                            }
-                        }
-                    }
-                } catch (BadBytecode badBytecode) {
-                    badBytecode.printStackTrace();
-                }
-            }
-        }
+    String getCacheKey(final String fix) {
+        return fix +
+               "|" + FIX_VERSION +
+               "|" + SystemTray.getVersion() +
+               "|" + System.getProperty("java.vendor") +
+               "|" + System.getProperty("java.version") +
+               "|" + System.getProperty("java.runtime.version") +
+               "|" + System.getProperty("java.vm.version") +
+               "|" + System.getProperty("java.home");
     }
 
     private static
-    void showMethodBytecode(final CtBehavior constructorOrMethod) throws BadBytecode {
-        MethodInfo methodInfo = constructorOrMethod.getMethodInfo(); // only 1 constructor
-        ConstPool pool2 = methodInfo.getConstPool();
-        CodeIterator ci = methodInfo.getCodeAttribute().iterator();
-        int lineNumber = -1;
-        StringBuilder collector = new StringBuilder();
-        int lastLine = -1;
-
-        while (ci.hasNext()) {
-            int index = ci.next();
-            lineNumber = methodInfo.getLineNumber(index);
-            int op = ci.byteAt(index);
-
-            if (lastLine == -1) {
-                lastLine = lineNumber;
-            }
-
-            if (lineNumber != lastLine) {
-                if (collector.length() > 0) {
-                    System.err.println(lastLine + " : " + collector);
-                }
-                lastLine = lineNumber;
-                collector.delete(0, collector.length());
-            }
-
-            collector.append(Mnemonic.OPCODE[op])
-                     .append(" ");
-
-            System.out.println(lineNumber + " * " + Mnemonic.OPCODE[op] + "  ");
-            System.out.println(lineNumber + " * " + InstructionPrinter.instructionString(ci, index, pool2));
-        }
-
-        if (collector.length() > 0) {
-            System.err.println(lineNumber + " : " + collector);
+    File getCacheFile(final String key) {
+        try {
+            return new File(TrayDetectionCache.getCacheDir(), "fixes/" + IconBundle.hash(key.getBytes("UTF-8")) + ".classes");
+        } catch (IOException e) {
+            // UTF-8 is always available
+            throw new RuntimeException(e);
         }
     }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.Property;
+
+/**
+ * Remembers which tray type was selected on Linux, so that the next start does not have to probe the desktop environment again (which
+ * spawns processes, parses the os-release files and scans all of /proc).
+ * <p>
+ * The result is only reused if the environment looks the same: the cache is keyed by a fingerprint that is cheap to calculate (the
+ * desktop session variables, the modification times of the os-release files and of the shell binaries, and the GTK preferences).
+ * <p>
+ * A cached result is verified in the background once the tray is already up, when it is older than {@link #VERIFY_INTERVAL}. If the
+ * environment has changed in a way the fingerprint did not notice, the cache is removed, so the next start detects everything again.
+ */
+public final
+class TrayDetectionCache {
+    @Property
+    /** Enables caching the detected tray type (Linux only), so the desktop environment is not probed on every start. */
+    public static boolean ENABLE = true;
+
+    @Property
+    /**
+     * How long (in milliseconds) a cached tray type is used before it is detected again (in the background, once the tray is up) to
+     * verify that it still matches the environment. 0 to verify on every start.
+     */
+    public static long VERIFY_INTERVAL = 7L * 24L * 60L * 60L * 1000L;
+
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String DETECTED_TYPE = "detectedType";
+    private static final String TRAY_TYPE = "trayType";
+    private static final String FORCE_TRAY_TYPE = "forceTrayType";
+    private static final String FORCE_GTK2 = "forceGtk2";
+    private static final String PREFER_GTK3 = "preferGtk3";
+    private static final String GNOME_WORKAROUND = "gtkGnomeWorkaround";
+    private static final String DESKTOP_EXTENSION = "desktopExtension";
+    private static final String VERIFIED_TIME = "verifiedTime";
+    private static final String TRAY_SIZE = "traySize";
+    private static final String MENU_SIZE = "menuSize";
+
+    private static final String[] ENVIRONMENT = new String[] {"XDG_CURRENT_DESKTOP",
+                                                              "XDG_SESSION_DESKTOP",
+                                                              "XDG_SESSION_TYPE",
+                                                              "GDMSESSION",
+                                                              "DESKTOP_SESSION"};
+
+    private static final String[] FILES = new String[] {"/etc/os-release",
+                                                        "/usr/lib/os-release",
+                                                        "/usr/bin/gnome-shell",
+                                                        "/usr/bin/plasmashell"};
+
+    /**
+     * The result of a previous detection
+     */
+    public static final
+    class Result {
+        public final String fingerprint;
+
+        // what the auto-detection returned, before any adjustments were made to it
+        public final SystemTray.TrayType detectedType;
+
+        // what was actually used
+        public final SystemTray.TrayType trayType;
+
+        // some adjustments also force the tray type
+        public final SystemTray.TrayType forceTrayType;
+
+        public final boolean forceGtk2;
+        public final boolean preferGtk3;
+        public final boolean gtkGnomeWorkaround;
+
+        // the gnome-shell extension that has to be checked (or installed) on every start, or null
+        public final String desktopExtension;
+
+        // when the tray type was last detected (instead of loaded from the cache)
+        public final long verifiedTime;
+
+        private
+        Result(final String fingerprint,
+               final SystemTray.TrayType detectedType,
+               final SystemTray.TrayType trayType,
+               final SystemTray.TrayType forceTrayType,
+               final boolean forceGtk2,
+               final boolean preferGtk3,
+               final boolean gtkGnomeWorkaround,
+               final String desktopExtension,
+               final long verifiedTime) {
+            this.fingerprint = fingerprint;
+            this.detectedType = detectedType;
+            this.trayType = trayType;
+            this.forceTrayType = forceTrayType;
+            this.forceGtk2 = forceGtk2;
+            this.preferGtk3 = preferGtk3;
+            this.gtkGnomeWorkaround = gtkGnomeWorkaround;
+            this.desktopExtension = desktopExtension;
+            this.verifiedTime = verifiedTime;
+        }
+
+        /**
+         * @return true if the tray type should be detected again, to verify that it still matches the environment
+         */
+        public
+        boolean needsVerify() {
+            final long age = System.currentTimeMillis() - verifiedTime;
+
+            // a time in the future means the clock was changed
+            return age < 0 || age >= VERIFY_INTERVAL;
+        }
+    }
+
+    /**
+     * @param loadedGtkVersion the version of GTK that is already loaded by something else (0 if none), since that changes what we can use
+     *
+     * @return a fingerprint of the current environment
+     */
+    public static
+    String fingerprint(final int loadedGtkVersion) {
+        final StringBuilder builder = new StringBuilder(256);
+        builder.append(SystemTray.getVersion());
+
+        for (String name : ENVIRONMENT) {
+            builder.append('|').append(name).append('=').append(System.getenv(name));
+        }
+
+        for (String name : FILES) {
+            // lastModified() is 0 when the file does not exist
+            builder.append('|').append(name).append('=').append(new File(name).lastModified());
+        }
+
+        builder.append("|user=").append(System.getProperty("user.name"))
+               .append("|gtk=").append(loadedGtkVersion)
+               .append("|forceGtk2=").append(SystemTray.FORCE_GTK2)
+               .append("|preferGtk3=").append(SystemTray.PREFER_GTK3)
+               .append("|autoFix=").append(SystemTray.AUTO_FIX_INCONSISTENCIES)
+               .append("|rootCheck=").append(SystemTray.ENABLE_ROOT_CHECK);
+
+        return builder.toString();
+    }
+
+    /**
+     * Gets the previous detection result. The cached image sizes (if any) are used as the tray/menu image sizes.
+     *
+     * @return the previous result, or null if there is none or if the environment is different
+     */
+    public static
+    Result load(final String fingerprint) {
+        if (!ENABLE) {
+            return null;
+        }
+
+        final File file = getFile();
+        if (!file.canRead()) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+        try {
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                properties.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+
+            if (!fingerprint.equals(properties.getProperty(FINGERPRINT))) {
+                if (SystemTray.DEBUG) {
+                    SystemTray.logger.debug("The environment has changed since the tray type was cached. Detecting it again.");
+                }
+                return null;
+            }
+
+            final Result result = new Result(fingerprint,
+                                             SystemTray.TrayType.valueOf(properties.getProperty(DETECTED_TYPE)),
+                                             SystemTray.TrayType.valueOf(properties.getProperty(TRAY_TYPE)),
+                                             SystemTray.TrayType.valueOf(properties.getProperty(FORCE_TRAY_TYPE)),
+                                             Boolean.parseBoolean(properties.getProperty(FORCE_GTK2)),
+                                             Boolean.parseBoolean(properties.getProperty(PREFER_GTK3)),
+                                             Boolean.parseBoolean(properties.getProperty(GNOME_WORKAROUND)),
+                                             properties.getProperty(DESKTOP_EXTENSION),
+                                             Long.parseLong(properties.getProperty(VERIFIED_TIME, "0")));
+
+            // these are verified (and updated if necessary) once the tray is up
+            final int traySize = Integer.parseInt(properties.getProperty(TRAY_SIZE, "0"));
+            final int menuSize = Integer.parseInt(properties.getProperty(MENU_SIZE, "0"));
+            if (traySize > 0 && menuSize > 0) {
+                SizeAndScalingUtil.TRAY_SIZE = traySize;
+                SizeAndScalingUtil.TRAY_MENU_SIZE = menuSize;
+            }
+
+            return result;
+        } catch (Exception e) {
+            // the file is broken (or from an incompatible version), so we just detect everything again
+            SystemTray.logger.warn("Unable to read the cached tray type. Detecting it again.", e);
+            invalidate();
+            return null;
+        }
+    }
+
+    /**
+     * Saves the detection result, together with the current GTK preferences and tray/menu image sizes.
+     *
+     * @param desktopExtension the gnome-shell extension that has to be checked on every start, or null
+     * @param verifiedTime when the tray type was last detected
+     */
+    public static
+    void save(final String fingerprint,
+              final SystemTray.TrayType detectedType,
+              final SystemTray.TrayType trayType,
+              final boolean gtkGnomeWorkaround,
+              final String desktopExtension,
+              final long verifiedTime) {
+        if (!ENABLE || detectedType == null || trayType == null) {
+            return;
+        }
+
+        final Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT, fingerprint);
+        properties.setProperty(DETECTED_TYPE, detectedType.name());
+        properties.setProperty(TRAY_TYPE, trayType.name());
+        properties.setProperty(FORCE_TRAY_TYPE, SystemTray.FORCE_TRAY_TYPE.name());
+        properties.setProperty(FORCE_GTK2, Boolean.toString(SystemTray.FORCE_GTK2));
+        properties.setProperty(PREFER_GTK3, Boolean.toString(SystemTray.PREFER_GTK3));
+        properties.setProperty(GNOME_WORKAROUND, Boolean.toString(gtkGnomeWorkaround));
+        if (desktopExtension != null) {
+            properties.setProperty(DESKTOP_EXTENSION, desktopExtension);
+        }
+        properties.setProperty(VERIFIED_TIME, Long.toString(verifiedTime));
+        properties.setProperty(TRAY_SIZE, Integer.toString(SizeAndScalingUtil.TRAY_SIZE));
+        properties.setProperty(MENU_SIZE, Integer.toString(SizeAndScalingUtil.TRAY_MENU_SIZE));
+
+        final File file = getFile();
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().mkdirs();
+
+            OutputStream outputStream = new FileOutputStream(file);
+            try {
+                properties.store(outputStream, "SystemTray detection cache. This can be safely deleted.");
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            SystemTray.logger.warn("Unable to save the detected tray type.", e);
+        }
+    }
+
+    /**
+     * Removes the cached result, so that the next start detects everything again.
+     */
+    public static
+    void invalidate() {
+        //noinspection ResultOfMethodCallIgnored
+        getFile().delete();
+    }
+
+    private static
+    File getFile() {
+        return new File(getCacheDir(), "detection.properties");
+    }
+
+    /**
+     * @return the directory where everything that is cached between runs is kept
+     */
+    public static
+    File getCacheDir() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        if (cacheHome == null || cacheHome.isEmpty()) {
+            cacheHome = System.getProperty("user.home") + "/.cache";
+        }
+
+        return new File(cacheHome, "SystemTray");
+    }
+
+    private
+    TrayDetectionCache() {
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.CacheUtil;
+import dorkbox.util.NamedThreadFactory;
+import dorkbox.util.Property;
+
+/**
+ * Downloads images from remote (http/https) URLs on a small background pool, so that the caller never blocks on the network.
+ * <p>
+ * Connect and read timeouts are always set, at most {@link #MAX_CONCURRENT_DOWNLOADS} downloads run at the same time, and requests
+ * for a URL that is already being downloaded share that download.
+ * <p>
+ * The body of every download is saved in the cache together with its ETag/Last-Modified headers, and the next request for that URL
+ * is a conditional request. A '304 Not Modified' response is then a cache hit, and the (already resized + cached) image is reused.
+ * If the server cannot be reached, the last downloaded body is used instead.
+ */
+@SuppressWarnings("WeakerAccess")
+public final
+class UrlImageFetcher {
+    @Property
+    /** Timeout (in milliseconds) for connecting to the server of a remote image. */
+    public static int CONNECT_TIMEOUT = 5000;
+
+    @Property
+    /** Timeout (in milliseconds) for reading the response of a remote image. */
+    public static int READ_TIMEOUT = 10000;
+
+    @Property
+    /** The maximum number of remote images that will be downloaded at the same time. */
+    public static int MAX_CONCURRENT_DOWNLOADS = 4;
+
+    public
+    interface Callback {
+        /**
+         * Called on the fetcher thread, with the resized + cached image (or the error image if it could not be downloaded)
+         */
+        void onFetched(File imageFile);
+
+        /**
+         * Called (instead of {@link #onFetched(File)}) when the fetcher was shut down before the image was downloaded.
+         */
+        void onCancelled();
+    }
+
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private static final Object lock = new Object();
+    private static final Map<String, Download> inProgress = new HashMap<String, Download>();
+    private static ExecutorService executor = null;
+
+    /**
+     * @return true if this URL must be downloaded over the network (and should not be read on the caller thread)
+     */
+    public static
+    boolean isRemote(final URL url) {
+        if (url == null) {
+            return false;
+        }
+
+        final String protocol = url.getProtocol();
+        return "http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol);
+    }
+
+    /**
+     * Downloads (or revalidates) the image on the fetcher pool, and then resizes + caches it as necessary.
+     *
+     * @param isTrayImage true if this image is for the tray icon, false if it is for a menu entry
+     * @param imageUrl the remote URL of the image
+     * @param callback notified when the image is available. Can be null.
+     *
+     * @return the future for the resized + cached image
+     */
+    public static
+    Future<File> fetch(final boolean isTrayImage, final URL imageUrl, final Callback callback) {
+        // two requests for the same URL (but different sizes) are not shared.
+        final String requestKey = requestKey(isTrayImage, imageUrl);
+
+        synchronized (lock) {
+            Download download = inProgress.get(requestKey);
+            if (download == null) {
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(Math.max(1, MAX_CONCURRENT_DOWNLOADS),
+                                                            new NamedThreadFactory("SystemTrayImageFetcher", true));
+                }
+
+                download = new Download(requestKey, isTrayImage, imageUrl);
+                download.future = executor.submit(download);
+                inProgress.put(requestKey, download);
+            }
+
+            if (callback != null) {
+                download.callbacks.add(callback);
+            }
+
+            return download.future;
+        }
+    }
+
+    /**
+     * @return the key that downloads (and their files in the cache) are shared by
+     */
+    static
+    String requestKey(final boolean isTrayImage, final URL imageUrl) {
+        return isTrayImage + imageUrl.toExternalForm();
+    }
+
+    /**
+     * Downloads (or revalidates) the image on the fetcher pool, and waits for it to be resized + cached.
+     *
+     * @return the resized + cached image, or the error image if it could not be downloaded
+     */
+    public static
+    File fetchAndWait(final boolean isTrayImage, final URL imageUrl) {
+        try {
+            return fetch(isTrayImage, imageUrl, null).get();
+        } catch (Exception e) {
+            SystemTray.logger.error("Error downloading image '{}'. Using error icon instead", imageUrl, e);
+            return ImageResizeUtil.getErrorImage(isTrayImage ? SizeAndScalingUtil.TRAY_SIZE : SizeAndScalingUtil.TRAY_MENU_SIZE);
+        }
+    }
+
+    /**
+     * Stops all downloads that are in progress, and tells everyone that is waiting for them that they were cancelled. The pool is
+     * recreated the next time an image is fetched.
+     */
+    public static
+    void shutdown() {
+        final List<Callback> toNotify = new ArrayList<Callback>();
+
+        synchronized (lock) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+
+            // a download that is still running (it can be stuck on the network) will no longer notify anyone
+            for (Download download : inProgress.values()) {
+                download.future.cancel(true);
+                toNotify.addAll(download.callbacks);
+                download.callbacks.clear();
+            }
+            inProgress.clear();
+        }
+
+        for (Callback callback : toNotify) {
+            try {
+                callback.onCancelled();
+            } catch (Throwable throwable) {
+                SystemTray.logger.error("Error notifying that an image download was cancelled.", throwable);
+            }
+        }
+    }
+
+    /**
+     * Downloads the URL into the cache (or revalidates the copy that is already in the cache).
+     * <p>
+     * The body, the temp file and the ETag/Last-Modified file are all named from the request key, so that the tray and the menu
+     * downloads of the same URL (which can run at the same time) never write to the same files.
+     *
+     * @param requestKey the key of this download, from {@link #fetch(boolean, URL, Callback)}
+     *
+     * @return the cached (not resized) body of the response.
+     */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    static
+    File download(final String requestKey, final URL imageUrl) throws IOException {
+        final String name = "url_" + hash(requestKey);
+        final File bodyFile = CacheUtil.create(name);
+        final File metaFile = CacheUtil.create(name + ".properties");
+
+        final Properties meta = new Properties();
+        if (bodyFile.canRead() && metaFile.canRead()) {
+            InputStream inputStream = new FileInputStream(metaFile);
+            try {
+                meta.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        }
+
+        final URLConnection urlConnection = imageUrl.openConnection();
+        urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
+        urlConnection.setReadTimeout(READ_TIMEOUT);
+        urlConnection.setUseCaches(false);
+
+        if (!(urlConnection instanceof HttpURLConnection)) {
+            throw new IOException("Unsupported protocol for " + imageUrl);
+        }
+
+        final HttpURLConnection connection = (HttpURLConnection) urlConnection;
+        final String etag = meta.getProperty(ETAG);
+        final String lastModified = meta.getProperty(LAST_MODIFIED);
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            connection.setRequestProperty("If-Modified-Since", lastModified);
+        }
+
+        final int responseCode;
+        try {
+            responseCode = connection.getResponseCode();
+        } catch (IOException e) {
+            if (bodyFile.canRead()) {
+                // the server is unreachable (or timed out), but we have downloaded this before.
+                SystemTray.logger.warn("Unable to reach '{}', using the previously downloaded image.", imageUrl);
+                return bodyFile;
+            }
+            throw e;
+        }
+
+        try {
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && bodyFile.canRead()) {
+                return bodyFile;
+            }
+
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                if (bodyFile.canRead()) {
+                    SystemTray.logger.warn("Unexpected response {} from '{}', using the previously downloaded image.", responseCode, imageUrl);
+                    return bodyFile;
+                }
+                throw new IOException("Unexpected response " + responseCode + " from " + imageUrl);
+            }
+
+            // download to a temp file first, so a half-finished download never replaces a good one
+            final File tempFile = CacheUtil.create(name + ".download");
+            InputStream inputStream = connection.getInputStream();
+            OutputStream outputStream = new FileOutputStream(tempFile);
+            try {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, read);
+                }
+            } finally {
+                outputStream.close();
+                inputStream.close();
+            }
+
+            bodyFile.delete();
+            if (!tempFile.renameTo(bodyFile)) {
+                throw new IOException("Unable to save downloaded image to " + bodyFile);
+            }
+
+            // the validators are only saved once the body is, otherwise a 304 could point to nothing
+            meta.clear();
+            final String newEtag = connection.getHeaderField("ETag");
+            final String newLastModified = connection.getHeaderField("Last-Modified");
+            if (newEtag != null) {
+                meta.setProperty(ETAG, newEtag);
+            }
+            if (newLastModified != null) {
+                meta.setProperty(LAST_MODIFIED, newLastModified);
+            }
+
+            if (meta.isEmpty()) {
+                metaFile.delete();
+            } else {
+                OutputStream metaStream = new FileOutputStream(metaFile);
+                try {
+                    meta.store(metaStream, imageUrl.toExternalForm());
+                } finally {
+                    metaStream.close();
+                }
+            }
+
+            return bodyFile;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static
+    class Download implements Callable<File> {
+        private final String requestKey;
+        private final boolean isTrayImage;
+        private final URL imageUrl;
+
+        // access is guarded by 'lock'
+        private final List<Callback> callbacks = new ArrayList<Callback>();
+        private Future<File> future;
+
+        private
+        Download(final String requestKey, final boolean isTrayImage, final URL imageUrl) {
+            this.requestKey = requestKey;
+            this.isTrayImage = isTrayImage;
+            this.imageUrl = imageUrl;
+        }
+
+        @Override
+        public
+        File call() {
+            File file;
+            try {
+                file = ImageResizeUtil.shouldResizeOrCache(isTrayImage, download(requestKey, imageUrl));
+            } catch (Exception e) {
+                SystemTray.logger.error("Error downloading image '{}'. Using error icon instead", imageUrl, e);
+                file = ImageResizeUtil.getErrorImage(isTrayImage ? SizeAndScalingUtil.TRAY_SIZE : SizeAndScalingUtil.TRAY_MENU_SIZE);
+            }
+
+            // once we are no longer 'in progress', no more callbacks can be added to us
+            final Callback[] toNotify;
+            synchronized (lock) {
+                // after a shutdown, this URL might already be downloading again (for someone else)
+                if (inProgress.get(requestKey) == this) {
+                    inProgress.remove(requestKey);
+                }
+                toNotify = callbacks.toArray(new Callback[0]);
+                callbacks.clear();
+            }
+
+            for (Callback callback : toNotify) {
+                try {
+                    callback.onFetched(file);
+                } catch (Throwable throwable) {
+                    SystemTray.logger.error("Error notifying that image '{}' was downloaded.", imageUrl, throwable);
+                }
+            }
+
+            return file;
+        }
+    }
+
+    private static
+    String hash(final String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(text.getBytes("UTF-8"));
+
+            StringBuilder builder = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (Exception e) {
+            // SHA-1 and UTF-8 are always available
+            throw new RuntimeException("Unable to create hash", e);
+        }
+    }
+
+    private
+    UrlImageFetcher() {
+    }
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox.systemTray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import dorkbox.systemTray.peer.CheckboxPeer;
+import dorkbox.systemTray.peer.EntryPeer;
+import dorkbox.systemTray.peer.MenuItemPeer;
+import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.peer.SeparatorPeer;
+import dorkbox.systemTray.peer.StatusPeer;
+import dorkbox.systemTray.util.EventDispatch;
+
+/**
+ * Reconciles a menu with random changes of its model (entries are moved, added, removed and change their type), on a platform that
+ * only records what it is told to do. Every time:
+ * - The entries are in the same order as the model, and so are the native entries.
+ * - Entries with the same key (and type) are kept, they are not created again.
+ * - Only the entries that are out of order are moved (all of them, except for the longest run that is already in order).
+ * - The entries that were read from the menu before it was changed are not changed by it.
+ * - Entries are found by their index, skipping separators and hidden entries.
+ * <p>
+ * This does not need a desktop, run it from the command line. It stops with an exception if something is not right.
+ */
+public
+class TestMenuReconcile {
+    private static final int ROUNDS = 2000;
+
+    public static
+    void main(String[] args) {
+        new TestMenuReconcile();
+    }
+
+    private final Random random = new Random(8675309);
+    private int nextKey = 0;
+
+    public
+    TestMenuReconcile() {
+        SystemTray.DEBUG = true; // for test apps, we always want to run in debug mode
+
+        // the native entries of every sub-menu are made right away, so that they can be checked as well
+        SystemTray.LAZY_MENUS = false;
+
+        final Menu menu = new Menu();
+        final RecordingMenu platform = new RecordingMenu(null, menu);
+        menu.bind(platform, null, null);
+
+        List<Node> model = new ArrayList<Node>();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final List<Node> next = change(model);
+
+            final List<Entry> before = menu.getEntries();
+            final List<Entry> beforeCopy = new ArrayList<Entry>(before);
+            final Map<String, Entry> beforeByKey = byKey(before);
+            final int expectedMoves = expectedMoves(before, next);
+
+            platform.clear();
+            menu.reconcile(toModel(next));
+
+            if (!before.equals(beforeCopy)) {
+                throw new RuntimeException("Round " + round + ": the entries that were read before the menu was changed have changed");
+            }
+            try {
+                before.clear();
+                throw new RuntimeException("Round " + round + ": the entries that were read from the menu can be changed");
+            } catch (UnsupportedOperationException ignored) {
+            }
+
+            checkOrder("Round " + round, menu, platform, next);
+
+            for (Node node : next) {
+                final Entry entry = beforeByKey.get(node.key);
+                if (entry != null && node.isSameType(entry) && menu.getEntries().get(indexOf(next, node)) != entry) {
+                    throw new RuntimeException("Round " + round + ": '" + node.key + "' was not kept");
+                }
+            }
+
+            if (platform.moves != expectedMoves) {
+                throw new RuntimeException("Round " + round + ": " + platform.moves + " entries were moved, instead of " + expectedMoves);
+            }
+
+            hideSome(menu);
+            checkReal("Round " + round, menu);
+
+            model = next;
+        }
+
+        System.err.println("Entries (and native entries) are in the order of the model after " + ROUNDS + " random changes, " +
+                           "with the fewest moves.");
+
+        // the event dispatch would keep running otherwise
+        EventDispatch.shutdown();
+    }
+
+    /**
+     * @return the model, with some of its entries removed, moved, added and changed to a different type
+     */
+    private
+    List<Node> change(final List<Node> model) {
+        final List<Node> next = new ArrayList<Node>(model.size() + 4);
+
+        for (Node node : model) {
+            final int dice = random.nextInt(10);
+            if (dice == 0) {
+                // removed
+                continue;
+            }
+            if (dice == 1) {
+                // same key, different type
+                next.add(newNode(node.key));
+                continue;
+            }
+            if (node.type == MenuModel.MENU) {
+                next.add(new Node(node.key, MenuModel.MENU, change(node.children)));
+                continue;
+            }
+            next.add(node);
+        }
+
+        // a few are moved to somewhere else
+        final int moves = next.isEmpty() ? 0 : random.nextInt(Math.min(4, next.size()) + 1);
+        for (int i = 0; i < moves; i++) {
+            final Node node = next.remove(random.nextInt(next.size()));
+            next.add(random.nextInt(next.size() + 1), node);
+        }
+
+        // and a few are added (more when there are only a few)
+        final int adds = random.nextInt(next.size() < 8 ? 6 : 3);
+        for (int i = 0; i < adds; i++) {
+            next.add(random.nextInt(next.size() + 1), newNode("k" + nextKey++));
+        }
+
+        return next;
+    }
+
+    private
+    Node newNode(final String key) {
+        final int type = random.nextInt(8);
+        if (type == 0) {
+            return new Node(key, MenuModel.SEPARATOR, null);
+        }
+        if (type == 1) {
+            // sub-menus are kept small, so that the menu does not grow all the time
+            return new Node(key, MenuModel.MENU, change(new ArrayList<Node>(0)));
+        }
+        if (type < 4) {
+            return new Node(key, MenuModel.CHECKBOX, null);
+        }
+        return new Node(key, MenuModel.ITEM, null);
+    }
+
+    private static
+    MenuModel toModel(final List<Node> nodes) {
+        final List<MenuModel> children = new ArrayList<MenuModel>(nodes.size());
+        for (Node node : nodes) {
+            children.add(node.toModel());
+        }
+        return MenuModel.root(children);
+    }
+
+    /**
+     * @return how many of the entries that are kept are not in the longest run of entries that are already in order
+     */
+    private static
+    int expectedMoves(final List<Entry> live, final List<Node> next) {
+        final Map<String, Entry> liveByKey = byKey(live);
+
+        // where each entry that is kept is now, in the order of the model
+        final List<Integer> positions = new ArrayList<Integer>();
+        for (Node node : next) {
+            final Entry entry = liveByKey.get(node.key);
+            if (entry != null && node.isSameType(entry)) {
+                positions.add(live.indexOf(entry));
+            }
+        }
+
+        // the longest increasing sub-sequence, the slow (and obvious) way
+        final int[] longest = new int[positions.size()];
+        int max = 0;
+        for (int i = 0; i < longest.length; i++) {
+            longest[i] = 1;
+            for (int j = 0; j < i; j++) {
+                if (positions.get(j) < positions.get(i) && longest[j] + 1 > longest[i]) {
+                    longest[i] = longest[j] + 1;
+                }
+            }
+            max = Math.max(max, longest[i]);
+        }
+
+        return positions.size() - max;
+    }
+
+    private static
+    Map<String, Entry> byKey(final List<Entry> entries) {
+        final Map<String, Entry> byKey = new HashMap<String, Entry>();
+        for (Entry entry : entries) {
+            if (entry.model != null) {
+                byKey.put(entry.model.getKey(), entry);
+            }
+        }
+        return byKey;
+    }
+
+    private static
+    int indexOf(final List<Node> nodes, final Node node) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The menu, the native menu and the model must have the same entries, in the same order (also for every sub-menu)
+     */
+    private static
+    void checkOrder(final String where, final Menu menu, final RecordingMenu platform, final List<Node> nodes) {
+        final List<Entry> entries = menu.getEntries();
+        if (entries.size() != nodes.size()) {
+            throw new RuntimeException(where + ": the menu has " + entries.size() + " entries, instead of " + nodes.size());
+        }
+        if (!platform.entries.equals(entries)) {
+            throw new RuntimeException(where + ": the native entries are not in the same order as the entries of the menu");
+        }
+
+        for (int i = 0; i < nodes.size(); i++) {
+            final Node node = nodes.get(i);
+            final Entry entry = entries.get(i);
+
+            if (entry.model == null || !entry.model.getKey().equals(node.key) || !node.isSameType(entry)) {
+                throw new RuntimeException(where + ": entry " + i + " is not '" + node.key + "'");
+            }
+
+            if (node.type == MenuModel.MENU) {
+                final RecordingMenu subPlatform = (RecordingMenu) entry.peer;
+                checkOrder(where + " > " + node.key, (Menu) entry, subPlatform, node.children);
+            }
+        }
+    }
+
+    private
+    void hideSome(final Menu menu) {
+        for (Entry entry : menu.getEntries()) {
+            entry.setVisible(random.nextInt(4) != 0);
+
+            if (entry instanceof Menu) {
+                hideSome((Menu) entry);
+            }
+        }
+    }
+
+    /**
+     * Menu.get() must skip separators and hidden entries (also for every sub-menu)
+     */
+    private static
+    void checkReal(final String where, final Menu menu) {
+        final List<Entry> real = new ArrayList<Entry>();
+        for (Entry entry : menu.getEntries()) {
+            if (!(entry instanceof Separator) && entry.isVisible()) {
+                real.add(entry);
+            }
+
+            if (entry instanceof Menu) {
+                checkReal(where + " > " + entry.model.getKey(), (Menu) entry);
+            }
+        }
+
+        for (int i = 0; i < real.size(); i++) {
+            if (menu.get(i) != real.get(i)) {
+                throw new RuntimeException(where + ": get(" + i + ") is not the " + i + "th entry that is shown");
+            }
+        }
+        if (menu.get(real.size()) != null) {
+            throw new RuntimeException(where + ": get(" + real.size() + ") should be nothing");
+        }
+
+        final Entry last = real.isEmpty() ? null : real.get(real.size() - 1);
+        if (menu.getLast() != last) {
+            throw new RuntimeException(where + ": getLast() is not the last entry that is shown");
+        }
+    }
+
+
+    /**
+     * What the model of an entry is in this test, so that it can be changed (the real model cannot)
+     */
+    private static
+    class Node {
+        final String key;
+        final int type;
+        final List<Node> children;
+
+        Node(final String key, final int type, final List<Node> children) {
+            this.key = key;
+            this.type = type;
+            this.children = children;
+        }
+
+        boolean isSameType(final Entry entry) {
+            return toModel().isSameType(entry);
+        }
+
+        MenuModel toModel() {
+            switch (type) {
+                case MenuModel.SEPARATOR:
+                    return MenuModel.separator(key);
+                case MenuModel.MENU:
+                    final List<MenuModel> models = new ArrayList<MenuModel>(children.size());
+                    for (Node child : children) {
+                        models.add(child.toModel());
+                    }
+                    return MenuModel.menu(key, key).add(models).build();
+                case MenuModel.CHECKBOX:
+                    return MenuModel.checkbox(key, key).build();
+                default:
+                    return MenuModel.item(key, key).build();
+            }
+        }
+    }
+
+    /**
+     * A native menu that only keeps its entries in order, and counts how many of them were moved
+     */
+    private static
+    class RecordingMenu extends RecordingEntry implements MenuPeer {
+        final List<Entry> entries = new ArrayList<Entry>();
+
+        // the entries that were added since the last time this was cleared. They are moved to their index, but that is not a move
+        private final Set<Entry> added = Collections.newSetFromMap(new IdentityHashMap<Entry, Boolean>());
+        int moves = 0;
+
+        RecordingMenu(final RecordingMenu parent, final Entry entry) {
+            super(parent, entry);
+        }
+
+        void clear() {
+            added.clear();
+            moves = 0;
+
+            for (Entry entry : entries) {
+                if (entry.peer instanceof RecordingMenu) {
+                    ((RecordingMenu) entry.peer).clear();
+                }
+            }
+        }
+
+        @Override
+        public
+        void add(final Menu parentMenu, final Entry entry, final int index) {
+            entries.add(index, entry);
+            added.add(entry);
+
+            if (entry instanceof Menu) {
+                ((Menu) entry).bind(new RecordingMenu(this, entry), parentMenu, null);
+            }
+            else if (entry instanceof Checkbox) {
+                ((Checkbox) entry).bind(new RecordingEntry(this, entry), parentMenu, null);
+            }
+            else if (entry instanceof MenuItem) {
+                ((MenuItem) entry).bind(new RecordingEntry(this, entry), parentMenu, null);
+            }
+            else if (entry instanceof Separator) {
+                ((Separator) entry).bind(new RecordingEntry(this, entry), parentMenu, null);
+            }
+            else if (entry instanceof Status) {
+                ((Status) entry).bind(new RecordingEntry(this, entry), parentMenu, null);
+            }
+        }
+
+        @Override
+        public
+        void addAll(final Menu parentMenu, final List<Entry> entries, final int[] indexes) {
+            for (int i = 0; i < entries.size(); i++) {
+                add(parentMenu, entries.get(i), indexes[i]);
+            }
+        }
+
+        @Override
+        public
+        void move(final Entry entry, final EntryPeer entryPeer, final int index) {
+            entries.remove(entry);
+            entries.add(Math.min(index, entries.size()), entry);
+
+            if (!added.contains(entry)) {
+                moves++;
+            }
+        }
+    }
+
+    /**
+     * A native entry, that only takes itself out of its native menu when it is removed
+     */
+    private static
+    class RecordingEntry implements MenuItemPeer, CheckboxPeer, SeparatorPeer, StatusPeer {
+        private final RecordingMenu parent;
+        private final Entry entry;
+
+        RecordingEntry(final RecordingMenu parent, final Entry entry) {
+            this.parent = parent;
+            this.entry = entry;
+        }
+
+        @Override
+        public
+        void remove() {
+            if (parent != null) {
+                parent.entries.remove(entry);
+            }
+        }
+
+        @Override
+        public
+        void setVisible(final Entry entry) {
+        }
+
+        @Override
+        public
+        void setImage(final MenuItem menuItem) {
+        }
+
+        @Override
+        public
+        void setEnabled(final MenuItem menuItem) {
+        }
+
+        @Override
+        public
+        void setText(final MenuItem menuItem) {
+        }
+
+        @Override
+        public
+        void setCallback(final MenuItem menuItem) {
+        }
+
+        @Override
+        public
+        void setShortcut(final MenuItem menuItem) {
+        }
+
+        @Override
+        public
+        void setTooltip(final MenuItem menuItem) {
+        }
+
+        @Override
+        public
+        void update(final MenuItem menuItem, final int changes) {
+        }
+
+        @Override
+        public
+        void setEnabled(final Checkbox menuItem) {
+        }
+
+        @Override
+        public
+        void setText(final Checkbox menuItem) {
+        }
+
+        @Override
+        public
+        void setCallback(final Checkbox menuItem) {
+        }
+
+        @Override
+        public
+        void setShortcut(final Checkbox menuItem) {
+        }
+
+        @Override
+        public
+        void setTooltip(final Checkbox menuItem) {
+        }
+
+        @Override
+        public
+        void setChecked(final Checkbox menuItem) {
+        }
+
+        @Override
+        public
+        void update(final Checkbox menuItem, final int changes) {
+        }
+
+        @Override
+        public
+        void setText(final Status menuItem) {
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox.systemTray.gnomeShell;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Checks the appindicator extension install against a fake 'gsettings' (and 'gnome-shell') on the PATH, with a temporary home
+ * directory. Nothing on the real desktop is changed.
+ * <p>
+ * - Checking if the extension is there (which happens before the tray exists) never starts gsettings.
+ * - Installing it asks gsettings once and sets it once, and writes the marker.
+ * - Installing it again (when nothing has changed) does not set anything.
+ * <p>
+ * This does not need a desktop, run it from the command line. It stops with an exception if something is not right.
+ */
+public
+class TestFakeGsettings {
+    public static
+    void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            child(new File(System.getenv("FAKE_GSETTINGS_LOG")));
+            return;
+        }
+
+        final File dir = File.createTempFile("fake_gsettings", "");
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+        final File bin = new File(dir, "bin");
+        final File home = new File(dir, "home");
+        //noinspection ResultOfMethodCallIgnored
+        bin.mkdirs();
+        //noinspection ResultOfMethodCallIgnored
+        home.mkdirs();
+
+        final File log = new File(dir, "gsettings.log");
+        final File state = new File(dir, "gsettings.state");
+
+        // remembers what was set, and logs every call
+        script(new File(bin, "gsettings"), "#!/bin/sh\n" +
+                                           "echo \"$1 $2 $3\" >> '" + log + "'\n" +
+                                           "if [ \"$1\" = \"get\" ]; then cat '" + state + "' 2>/dev/null || echo '@as []'; fi\n" +
+                                           "if [ \"$1\" = \"set\" ]; then echo \"$4\" > '" + state + "'; fi\n");
+        script(new File(bin, "gnome-shell"), "#!/bin/sh\necho 'GNOME Shell 3.38.1'\n");
+
+        final List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Duser.home=" + home.getAbsolutePath());
+        command.add(TestFakeGsettings.class.getName());
+        command.add("child");
+
+        final ProcessBuilder builder = new ProcessBuilder(command);
+        final Map<String, String> environment = builder.environment();
+        environment.put("PATH", bin.getAbsolutePath() + File.pathSeparator + environment.get("PATH"));
+        environment.put("FAKE_GSETTINGS_LOG", log.getAbsolutePath());
+        builder.redirectErrorStream(true);
+
+        final Process process = builder.start();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            System.err.println(line);
+        }
+
+        if (process.waitFor() != 0) {
+            throw new RuntimeException("The appindicator extension was not installed correctly, see above");
+        }
+        System.err.println("The appindicator extension is checked on disk, and installed with a single 'gsettings set'.");
+    }
+
+    private static
+    void child(final File log) throws IOException {
+        // not in debug mode, since that always installs the extension again
+        SystemTray.DEBUG = false;
+
+        if (AppIndicatorExtension.isPresent()) {
+            throw new RuntimeException("The extension is there before it was installed");
+        }
+        if (!calls(log).isEmpty()) {
+            throw new RuntimeException("Checking the disk started gsettings");
+        }
+
+        AppIndicatorExtension.install();
+        final List<String> calls = calls(log);
+        if (calls.size() != 2 || !calls.get(0).startsWith("get") || !calls.get(1).startsWith("set")) {
+            throw new RuntimeException("Installing did not ask gsettings once and set it once: " + calls);
+        }
+        if (!AppIndicatorExtension.isPresent()) {
+            throw new RuntimeException("Installing did not write the marker");
+        }
+        if (calls(log).size() != 2) {
+            throw new RuntimeException("Checking the disk (again) started gsettings");
+        }
+        if (!AppIndicatorExtension.isInstalled()) {
+            throw new RuntimeException("The extension is not enabled");
+        }
+
+        AppIndicatorExtension.install();
+        if (calls(log).size() != 2) {
+            throw new RuntimeException("Installing again set something: " + calls(log));
+        }
+    }
+
+    private static
+    List<String> calls(final File log) throws IOException {
+        final List<String> calls = new ArrayList<String>();
+        if (!log.isFile()) {
+            return calls;
+        }
+
+        final BufferedReader reader = new BufferedReader(new FileReader(log));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                calls.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return calls;
+    }
+
+    private static
+    void script(final File file, final String contents) throws IOException {
+        final FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(contents);
+        } finally {
+            writer.close();
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.setExecutable(true);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox.systemTray.ui.swing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.Separator;
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Checks the events of the rows of the swing list menu: a listener that only follows the 'added' and 'removed' events must end up
+ * with the same rows as the list, after random inserts, removes, swaps and replacements.
+ * <p>
+ * This does not need a desktop, run it from the command line. It stops with an exception if something is not right.
+ */
+public
+class TestSwingMenuListRows {
+    private static final int ROUNDS = 100000;
+
+    public static
+    void main(String[] args) {
+        new TestSwingMenuListRows();
+    }
+
+    public
+    TestSwingMenuListRows() {
+        SystemTray.DEBUG = true; // for test apps, we always want to run in debug mode
+
+        final SwingMenuList.Rows rows = new SwingMenuList.Rows();
+        final List<Entry> mirror = new ArrayList<Entry>();
+
+        rows.addListDataListener(new ListDataListener() {
+            @Override
+            public
+            void intervalAdded(final ListDataEvent e) {
+                for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+                    mirror.add(i, (Entry) rows.getElementAt(i));
+                }
+                check(rows, mirror, "added");
+            }
+
+            @Override
+            public
+            void intervalRemoved(final ListDataEvent e) {
+                for (int i = e.getIndex1(); i >= e.getIndex0(); i--) {
+                    mirror.remove(i);
+                }
+                check(rows, mirror, "removed");
+            }
+
+            @Override
+            public
+            void contentsChanged(final ListDataEvent e) {
+                check(rows, mirror, "changed");
+            }
+        });
+
+        final Entry[] pool = new Entry[30];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new Separator();
+        }
+
+        final Random random = new Random(8675309);
+        for (int round = 0; round < ROUNDS; round++) {
+            final List<Entry> next = new ArrayList<Entry>();
+            for (int i = 0; i < rows.getSize(); i++) {
+                next.add(rows.get(i));
+            }
+
+            if (next.isEmpty() || random.nextInt(4) == 0) {
+                // replace all the rows
+                final List<Entry> shuffled = new ArrayList<Entry>();
+                Collections.addAll(shuffled, pool);
+                Collections.shuffle(shuffled, random);
+
+                next.clear();
+                next.addAll(shuffled.subList(0, random.nextInt(12)));
+            }
+            else {
+                final int index = random.nextInt(next.size());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        next.remove(index);
+                        break;
+                    case 1:
+                        final Entry entry = pool[random.nextInt(pool.length)];
+                        if (!next.contains(entry)) {
+                            next.add(index, entry);
+                        }
+                        break;
+                    default:
+                        Collections.swap(next, index, random.nextInt(next.size()));
+                        break;
+                }
+            }
+
+            rows.set(next.toArray(new Entry[0]));
+
+            check(rows, mirror, "set");
+            for (int i = 0; i < next.size(); i++) {
+                if (rows.get(i) != next.get(i) || rows.indexOf(next.get(i)) != i) {
+                    throw new RuntimeException("Round " + round + ": row " + i + " is not the row that was set");
+                }
+            }
+        }
+
+        System.err.println("The row events follow the rows after " + ROUNDS + " random changes.");
+    }
+
+    private static
+    void check(final SwingMenuList.Rows rows, final List<Entry> mirror, final String event) {
+        if (mirror.size() != rows.getSize()) {
+            throw new RuntimeException("After '" + event + "' the listener has " + mirror.size() + " rows, instead of " + rows.getSize());
+        }
+
+        for (int i = 0; i < mirror.size(); i++) {
+            if (mirror.get(i) != rows.getElementAt(i)) {
+                throw new RuntimeException("After '" + event + "' row " + i + " of the listener is not the same row");
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2021 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dorkbox.systemTray.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.CacheUtil;
+
+/**
+ * Checks the remote image downloads against a local HTTP server: a '200 OK' is saved, the next request for it is a '304 Not Modified'
+ * (with the same file), a timeout fails, and the tray + menu downloads of the same URL are saved to different files.
+ * <p>
+ * This does not need a desktop, run it from the command line. It stops with an exception if something is not right.
+ */
+public
+class TestUrlImageFetcher {
+    private static final String ETAG = "\"v1\"";
+
+    private static volatile int lastResponse;
+
+    public static
+    void main(String[] args) throws Exception {
+        new TestUrlImageFetcher();
+    }
+
+    public
+    TestUrlImageFetcher() throws Exception {
+        SystemTray.DEBUG = true; // for test apps, we always want to run in debug mode
+        CacheUtil.clear(); // for test apps, make sure the cache is always reset. You should never do this in production.
+
+        final byte[] image = read(TestUrlImageFetcher.class.getResourceAsStream("/dorkbox/transport_train_station.p.666666.32.png"));
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/image.png", new HttpHandler() {
+            @Override
+            public
+            void handle(final HttpExchange exchange) throws IOException {
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    respond(exchange, HttpURLConnection.HTTP_NOT_MODIFIED, null);
+                }
+                else {
+                    exchange.getResponseHeaders().set("ETag", ETAG);
+                    respond(exchange, 200, image);
+                }
+            }
+        });
+        server.createContext("/slow.png", new HttpHandler() {
+            @Override
+            public
+            void handle(final HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(2000);
+                } catch (InterruptedException ignored) {
+                }
+                respond(exchange, 200, image);
+            }
+        });
+        server.start();
+
+        try {
+            final String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            final URL imageUrl = new URL(base + "/image.png");
+            final URL slowUrl = new URL(base + "/slow.png");
+
+            // 200
+            File first = UrlImageFetcher.download(UrlImageFetcher.requestKey(false, imageUrl), imageUrl);
+            if (lastResponse != 200 || first.length() != image.length) {
+                throw new RuntimeException("The image was not downloaded");
+            }
+
+            // 304
+            File second = UrlImageFetcher.download(UrlImageFetcher.requestKey(false, imageUrl), imageUrl);
+            if (lastResponse != HttpURLConnection.HTTP_NOT_MODIFIED || !second.equals(first)) {
+                throw new RuntimeException("The download was not reused after '304 Not Modified'");
+            }
+
+            // the tray image of the same URL has its own files (and is downloaded again)
+            File tray = UrlImageFetcher.download(UrlImageFetcher.requestKey(true, imageUrl), imageUrl);
+            if (lastResponse != 200 || tray.equals(first)) {
+                throw new RuntimeException("The tray + menu downloads of the same URL are not separate");
+            }
+
+            // timeout
+            UrlImageFetcher.READ_TIMEOUT = 500;
+            try {
+                UrlImageFetcher.download(UrlImageFetcher.requestKey(false, slowUrl), slowUrl);
+                throw new RuntimeException("The download did not time out");
+            } catch (SocketTimeoutException expected) {
+            }
+
+            File error = UrlImageFetcher.fetchAndWait(false, slowUrl);
+            if (error == null || !error.canRead()) {
+                throw new RuntimeException("The error image is not used when the download times out");
+            }
+
+            System.err.println("Remote images are downloaded, reused, kept apart and time out.");
+        } finally {
+            UrlImageFetcher.shutdown();
+            server.stop(0);
+        }
+    }
+
+    private static
+    void respond(final HttpExchange exchange, final int code, final byte[] body) throws IOException {
+        lastResponse = code;
+
+        if (body == null) {
+            exchange.sendResponseHeaders(code, -1);
+        }
+        else {
+            exchange.sendResponseHeaders(code, body.length);
+            OutputStream outputStream = exchange.getResponseBody();
+            outputStream.write(body);
+            outputStream.close();
+        }
+        exchange.close();
+    }
+
+    private static
+    byte[] read(final InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return outputStream.toByteArray();
+    }
+}